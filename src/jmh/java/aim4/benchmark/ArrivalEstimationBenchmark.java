@@ -0,0 +1,188 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.benchmark;
+
+import aim4.driver.aim.coordinator.ArrivalEstimationException;
+import aim4.driver.aim.coordinator.ArrivalEstimationResult;
+import aim4.driver.aim.coordinator.MaxAccelReservationCheck;
+import aim4.driver.aim.coordinator.ReservationCheckException;
+import aim4.driver.aim.coordinator.VelocityFirstArrivalEstimation;
+import aim4.vehicle.AccelSchedule;
+import aim4.vehicle.VehicleSpec;
+import aim4.vehicle.VehicleSpecDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link VelocityFirstArrivalEstimation#estimate} and
+ * {@link MaxAccelReservationCheck#check}, the two calculations a driver makes
+ * for every request and every confirmed reservation.  The inputs are drawn
+ * from a fixed random sample of approaches to an intersection; the
+ * reservation checks use the estimated arrivals delayed by up to two seconds,
+ * as if the intersection manager had granted a later arrival time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ArrivalEstimationBenchmark {
+
+    /////////////////////////////////
+    // CONSTANTS
+    /////////////////////////////////
+
+    /**
+     * The number of sampled approaches.
+     */
+    private static final int SAMPLES = 256;
+
+    /**
+     * The speed limit of the road, in meters per second.
+     */
+    private static final double SPEED_LIMIT = 25.0;
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The maximum acceleration of the vehicle */
+    private double accel;
+    /** The maximum deceleration of the vehicle */
+    private double decel;
+    /** The initial velocity of each approach */
+    private double[] v1;
+    /** The distance to the intersection of each approach */
+    private double[] dTotal;
+    /** The maximum arrival velocity of each approach */
+    private double[] vEndMax;
+    /** The arrival time of each feasible reservation */
+    private double[] timeEnd;
+    /** The arrival velocity of each feasible reservation */
+    private double[] vEnd;
+    /** The index of the approach of each feasible reservation */
+    private int[] reservationApproach;
+    /** The index of the next approach */
+    private int nextApproach;
+    /** The index of the next reservation */
+    private int nextReservation;
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Sample the approaches and find the feasible reservations.
+     *
+     * @throws ArrivalEstimationException if an approach has no arrival
+     */
+    @Setup
+    public void setUp() throws ArrivalEstimationException {
+        VehicleSpec spec = VehicleSpecDatabase.getVehicleSpecById(0);
+        accel = spec.getMaxAcceleration();
+        decel = spec.getMaxDeceleration();
+        Random random = new Random(BenchmarkSimulators.SEED);
+        v1 = new double[SAMPLES];
+        dTotal = new double[SAMPLES];
+        vEndMax = new double[SAMPLES];
+        List<double[]> reservations = new ArrayList<double[]>();
+        for (int i = 0; i < SAMPLES; i++) {
+            v1[i] = random.nextDouble() * SPEED_LIMIT;
+            dTotal[i] = 20.0 + random.nextDouble() * 130.0;
+            vEndMax[i] = 5.0 + random.nextDouble() * (SPEED_LIMIT - 5.0);
+            ArrivalEstimationResult result = VelocityFirstArrivalEstimation.estimate(
+                    0.0, v1[i], dTotal[i], SPEED_LIMIT, vEndMax[i], accel, decel);
+            double time = result.getArrivalTime() + random.nextDouble() * 2.0;
+            double velocity = result.getArrivalVelocity();
+            try {
+                MaxAccelReservationCheck.check(0.0, v1[i], time, velocity, dTotal[i],
+                        SPEED_LIMIT, accel, decel);
+                reservations.add(new double[] { i, time, velocity });
+            } catch (ReservationCheckException e) {
+                // the vehicle cannot keep this reservation; skip it
+            }
+        }
+        if (reservations.isEmpty()) {
+            throw new IllegalStateException("No feasible reservation");
+        }
+        timeEnd = new double[reservations.size()];
+        vEnd = new double[reservations.size()];
+        reservationApproach = new int[reservations.size()];
+        for (int i = 0; i < reservations.size(); i++) {
+            reservationApproach[i] = (int) reservations.get(i)[0];
+            timeEnd[i] = reservations.get(i)[1];
+            vEnd[i] = reservations.get(i)[2];
+        }
+    }
+
+    /**
+     * Estimate the arrival of the next approach.
+     *
+     * @return the estimated arrival
+     * @throws ArrivalEstimationException if there is no arrival
+     */
+    @Benchmark
+    public ArrivalEstimationResult estimate() throws ArrivalEstimationException {
+        int i = nextApproach;
+        nextApproach = (nextApproach + 1) % SAMPLES;
+        return VelocityFirstArrivalEstimation.estimate(
+                0.0, v1[i], dTotal[i], SPEED_LIMIT, vEndMax[i], accel, decel);
+    }
+
+    /**
+     * Check the next feasible reservation.
+     *
+     * @return the acceleration schedule that keeps the reservation
+     * @throws ReservationCheckException if the reservation cannot be kept
+     */
+    @Benchmark
+    public AccelSchedule check() throws ReservationCheckException {
+        int r = nextReservation;
+        nextReservation = (nextReservation + 1) % timeEnd.length;
+        int i = reservationApproach[r];
+        return MaxAccelReservationCheck.check(0.0, v1[i], timeEnd[r], vEnd[r], dTotal[i],
+                SPEED_LIMIT, accel, decel);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.benchmark;
+
+import aim4.config.SimConfig;
+import aim4.map.cpm.CPMMapUtil.SpawnSpecType;
+import aim4.sim.Simulator;
+import aim4.sim.SimulationContext;
+import aim4.sim.setup.aim.AutoDriverOnlySimSetup;
+import aim4.sim.setup.aim.BasicSimSetup;
+import aim4.sim.setup.cpm.BasicCPMSimSetup;
+import aim4.sim.setup.cpm.CPMAutoDriverSimSetup;
+import aim4.sim.setup.merge.S2SSimSetup;
+import aim4.sim.setup.merge.enums.ProtocolType;
+import javafx.util.Pair;
+
+/**
+ * The simulators used by the benchmarks.  Every simulator is created in its
+ * own {@link SimulationContext} with a fixed seed, so that repeated forks of
+ * a benchmark measure the same traffic.
+ */
+final class BenchmarkSimulators {
+
+    /////////////////////////////////
+    // CONSTANTS
+    /////////////////////////////////
+
+    /**
+     * The seed of the random number generator of every simulator.
+     */
+    static final long SEED = 20170424L;
+
+    /**
+     * The simulated time, in seconds, for which a simulator is stepped before
+     * it is measured, so that the roads and reservation grids are populated.
+     */
+    static final double WARM_UP_TIME = 60.0;
+
+    /////////////////////////////////
+    // CLASS METHODS
+    /////////////////////////////////
+
+    /**
+     * Create an AIM simulator of a grid of intersections.
+     *
+     * @param trafficRate  the traffic rate, in vehicles per hour per lane
+     * @param gridSize     the number of rows and columns of intersections
+     * @return the simulator
+     */
+    static Simulator createAIMSimulator(double trafficRate, int gridSize) {
+        AutoDriverOnlySimSetup setup = new AutoDriverOnlySimSetup(
+                new BasicSimSetup(gridSize, gridSize, 4, 25.0, 3, 1, 150,
+                        trafficRate / 3600, 1.0));
+        return setup.getSimulator(new SimulationContext(SEED));
+    }
+
+    /**
+     * Create a merge simulator of a single merge managed by a reservation
+     * grid.
+     *
+     * @param trafficRate  the traffic rate, in vehicles per hour per lane
+     * @return the simulator
+     */
+    static Simulator createMergeSimulator(double trafficRate) {
+        S2SSimSetup setup = new S2SSimSetup(ProtocolType.AIM_GRID,
+                trafficRate / 3600,
+                S2SSimSetup.DEFAULT_TARGET_LANE_SPEED_LIMIT,
+                S2SSimSetup.DEFAULT_MERGING_LANE_SPEED_LIMIT,
+                S2SSimSetup.DEFAULT_TARGET_LEAD_IN_DISTANCE,
+                S2SSimSetup.DEFAULT_TARGET_LEAD_OUT_DISTANCE,
+                S2SSimSetup.DEFAULT_MERGE_LEAD_IN_DISTANCE,
+                S2SSimSetup.DEFAULT_MERGING_ANGLE);
+        return setup.getSimulator(new SimulationContext(SEED));
+    }
+
+    /**
+     * Create a car park simulator.
+     *
+     * @param trafficRate   the traffic rate, in vehicles per hour
+     * @param parkingLanes  the number of parking lanes
+     * @return the simulator
+     */
+    static Simulator createCPMSimulator(double trafficRate, int parkingLanes) {
+        CPMAutoDriverSimSetup setup = new CPMAutoDriverSimSetup(
+                new BasicCPMSimSetup(5.0, trafficRate / 3600, 2.0, parkingLanes,
+                        50.0, 1.0, SpawnSpecType.SINGLE,
+                        new Pair<Boolean, String>(false, "")));
+        return setup.getSimulator(new SimulationContext(SEED));
+    }
+
+    /**
+     * Step a simulator until it has run for the warm-up time.  The context
+     * of the simulator stays bound to the calling thread afterwards.
+     *
+     * @param sim  the simulator
+     * @return the simulator
+     */
+    static Simulator warmUp(Simulator sim) {
+        while (sim.getSimulationTime() < WARM_UP_TIME) {
+            sim.step(SimConfig.TIME_STEP);
+        }
+        return sim;
+    }
+
+    /////////////////////////////////
+    // CONSTRUCTORS
+    /////////////////////////////////
+
+    /**
+     * This class should never be instantiated.
+     */
+    private BenchmarkSimulators() {
+    }
+}
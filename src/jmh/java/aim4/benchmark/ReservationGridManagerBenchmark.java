@@ -0,0 +1,189 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.benchmark;
+
+import aim4.config.Constants.TurnDirection;
+import aim4.im.aim.IntersectionManager;
+import aim4.im.aim.v2i.V2IManager;
+import aim4.im.aim.v2i.reservation.ReservationGridManager;
+import aim4.map.Road;
+import aim4.map.lane.Lane;
+import aim4.msg.aim.v2i.Request.VehicleSpecForRequestMsg;
+import aim4.sim.simulator.aim.AutoDriverOnlySimulator;
+import aim4.vehicle.VehicleSpec;
+import aim4.vehicle.VehicleSpecDatabase;
+import aim4.vehicle.VehicleUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link ReservationGridManager#query} and
+ * {@link ReservationGridManager#accept} on the reservation grid of the first
+ * intersection of an AIM simulation that has been running long enough to
+ * have reservations of its own.  The queries cover every turn through the
+ * intersection, arriving shortly after the current time of the grid.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReservationGridManagerBenchmark {
+
+    /////////////////////////////////
+    // CONSTANTS
+    /////////////////////////////////
+
+    /**
+     * The VIN of the first vehicle making a query; far above the VINs of the
+     * vehicles in the simulation.
+     */
+    private static final int FIRST_VIN = 1000000;
+
+    /**
+     * The time, in seconds, between the current time of the grid and the
+     * arrival time of the first query.
+     */
+    private static final double ARRIVAL_DELAY = 2.0;
+
+    /**
+     * The time, in seconds, between the arrival times of successive queries.
+     */
+    private static final double ARRIVAL_INTERVAL = 0.2;
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The traffic rate, in vehicles per hour per lane */
+    @Param({"500", "1000", "1500"})
+    public double trafficRate;
+    /** The number of rows and columns of intersections */
+    @Param({"1", "2"})
+    public int gridSize;
+
+    /** The reservation grid manager */
+    private ReservationGridManager manager;
+    /** The queries, one for each turn through the intersection */
+    private List<ReservationGridManager.Query> queries;
+    /** The plans of the queries that can be accepted */
+    private List<ReservationGridManager.Plan> plans;
+    /** The index of the next query */
+    private int nextQuery;
+    /** The index of the next plan */
+    private int nextPlan;
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Warm up the simulator and create the queries.
+     */
+    @Setup
+    public void setUp() {
+        AutoDriverOnlySimulator sim = (AutoDriverOnlySimulator) BenchmarkSimulators.warmUp(
+                BenchmarkSimulators.createAIMSimulator(trafficRate, gridSize));
+        IntersectionManager im = sim.getMap().getIntersectionManagers().get(0);
+        manager = ((V2IManager) im).getReservationGridManager();
+
+        VehicleSpec spec = VehicleSpecDatabase.getVehicleSpecById(0);
+        VehicleSpecForRequestMsg specMsg = new VehicleSpecForRequestMsg(spec);
+        queries = new ArrayList<ReservationGridManager.Query>();
+        plans = new ArrayList<ReservationGridManager.Plan>();
+        double arrivalTime = im.getCurrentTime() + ARRIVAL_DELAY;
+        for (Lane arrivalLane : im.getIntersection().getEntryLanes()) {
+            for (Road departure : im.getIntersection().getExitRoads()) {
+                Lane departureLane = im.getSortedDepartureLanes(arrivalLane, departure).get(0);
+                if (im.getIntersection().calcTurnDirection(arrivalLane, departureLane)
+                        == TurnDirection.U_TURN) {
+                    continue;
+                }
+                double maxTurnVelocity =
+                        VehicleUtil.maxTurnVelocity(spec, arrivalLane, departureLane, im);
+                ReservationGridManager.Query query = new ReservationGridManager.Query(
+                        FIRST_VIN + queries.size(), arrivalTime,
+                        Math.min(maxTurnVelocity, arrivalLane.getSpeedLimit()),
+                        arrivalLane.getId(), departureLane.getId(), specMsg,
+                        maxTurnVelocity, true);
+                queries.add(query);
+                ReservationGridManager.Plan plan = manager.query(query);
+                if (plan != null) {
+                    plans.add(plan);
+                }
+                arrivalTime += ARRIVAL_INTERVAL;
+            }
+        }
+        if (plans.isEmpty()) {
+            throw new IllegalStateException("No query can be accepted");
+        }
+    }
+
+    /**
+     * Find the space-time tiles of the next query.
+     *
+     * @return the plan of the query, or null if it is rejected
+     */
+    @Benchmark
+    public ReservationGridManager.Plan query() {
+        ReservationGridManager.Query query = queries.get(nextQuery);
+        nextQuery = (nextQuery + 1) % queries.size();
+        return manager.query(query);
+    }
+
+    /**
+     * Accept the next plan and then cancel it, leaving the grid as it was.
+     *
+     * @return the ID of the reservation
+     */
+    @Benchmark
+    public Integer acceptAndCancel() {
+        ReservationGridManager.Plan plan = plans.get(nextPlan);
+        nextPlan = (nextPlan + 1) % plans.size();
+        Integer reservationId = manager.accept(plan);
+        manager.cancel(reservationId);
+        return reservationId;
+    }
+}
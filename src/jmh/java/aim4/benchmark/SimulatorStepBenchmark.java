@@ -0,0 +1,171 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.benchmark;
+
+import aim4.config.SimConfig;
+import aim4.sim.Simulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of a full step of each kind of simulator at fixed traffic
+ * levels.  Each simulator is warmed up for
+ * {@link BenchmarkSimulators#WARM_UP_TIME} simulated seconds before it is
+ * measured, and then keeps running for the rest of the trial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SimulatorStepBenchmark {
+
+    /////////////////////////////////
+    // NESTED CLASSES
+    /////////////////////////////////
+
+    /**
+     * An AIM simulator of a grid of intersections.
+     */
+    @State(Scope.Thread)
+    public static class AIMState {
+        /** The traffic rate, in vehicles per hour per lane */
+        @Param({"500", "1000", "1500"})
+        public double trafficRate;
+        /** The number of rows and columns of intersections */
+        @Param({"1", "2"})
+        public int gridSize;
+        /** The simulator */
+        Simulator sim;
+
+        /**
+         * Create and warm up the simulator.
+         */
+        @Setup
+        public void setUp() {
+            sim = BenchmarkSimulators.warmUp(
+                    BenchmarkSimulators.createAIMSimulator(trafficRate, gridSize));
+        }
+    }
+
+    /**
+     * A simulator of a merge managed by a reservation grid.
+     */
+    @State(Scope.Thread)
+    public static class MergeState {
+        /** The traffic rate, in vehicles per hour per lane */
+        @Param({"500", "1000", "1500"})
+        public double trafficRate;
+        /** The simulator */
+        Simulator sim;
+
+        /**
+         * Create and warm up the simulator.
+         */
+        @Setup
+        public void setUp() {
+            sim = BenchmarkSimulators.warmUp(
+                    BenchmarkSimulators.createMergeSimulator(trafficRate));
+        }
+    }
+
+    /**
+     * A car park simulator.
+     */
+    @State(Scope.Thread)
+    public static class CPMState {
+        /** The traffic rate, in vehicles per hour */
+        @Param({"500", "1000", "1500"})
+        public double trafficRate;
+        /** The number of parking lanes */
+        @Param({"1", "4"})
+        public int parkingLanes;
+        /** The simulator */
+        Simulator sim;
+
+        /**
+         * Create and warm up the simulator.
+         */
+        @Setup
+        public void setUp() {
+            sim = BenchmarkSimulators.warmUp(
+                    BenchmarkSimulators.createCPMSimulator(trafficRate, parkingLanes));
+        }
+    }
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Step an {@link aim4.sim.simulator.aim.AutoDriverOnlySimulator}.
+     *
+     * @param state  the simulator
+     * @return the result of the step
+     */
+    @Benchmark
+    public Object autoDriverOnlyStep(AIMState state) {
+        return state.sim.step(SimConfig.TIME_STEP);
+    }
+
+    /**
+     * Step a {@link aim4.sim.simulator.merge.V2IMergeSimulator}.
+     *
+     * @param state  the simulator
+     * @return the result of the step
+     */
+    @Benchmark
+    public Object v2iMergeStep(MergeState state) {
+        return state.sim.step(SimConfig.TIME_STEP);
+    }
+
+    /**
+     * Step a {@link aim4.sim.simulator.cpm.CPMAutoDriverSimulator}.
+     *
+     * @param state  the simulator
+     * @return the result of the step
+     */
+    @Benchmark
+    public Object cpmAutoDriverStep(CPMState state) {
+        return state.sim.step(SimConfig.TIME_STEP);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.benchmark;
+
+import aim4.im.aim.Intersection;
+import aim4.sim.simulator.aim.AutoDriverOnlySimulator;
+import aim4.util.TiledArea;
+import aim4.vehicle.VehicleSpecDatabase;
+import aim4.vehicle.aim.AIMBasicAutoVehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Shape;
+import java.awt.geom.Point2D;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link TiledArea#findOccupiedTiles} for the shapes of
+ * vehicles crossing the centre of an intersection at a range of headings.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TiledAreaBenchmark {
+
+    /////////////////////////////////
+    // CONSTANTS
+    /////////////////////////////////
+
+    /**
+     * The number of headings at which the vehicle shapes are rotated.
+     */
+    private static final int HEADINGS = 16;
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The length, in meters, of the sides of a tile */
+    @Param({"0.5", "1.0", "2.0"})
+    public double tileSize;
+
+    /** The tiled area of the intersection */
+    private TiledArea tiledArea;
+    /** The shapes of the vehicles */
+    private Shape[] shapes;
+    /** The index of the next shape */
+    private int nextShape;
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Tile the intersection and create the vehicle shapes.
+     */
+    @Setup
+    public void setUp() {
+        AutoDriverOnlySimulator sim =
+                (AutoDriverOnlySimulator) BenchmarkSimulators.createAIMSimulator(0, 1);
+        Intersection intersection =
+                sim.getMap().getIntersectionManagers().get(0).getIntersection();
+        tiledArea = new TiledArea(intersection.getArea(), tileSize);
+        Point2D centroid = intersection.getCentroid();
+        shapes = new Shape[HEADINGS];
+        for (int i = 0; i < HEADINGS; i++) {
+            AIMBasicAutoVehicle vehicle = new AIMBasicAutoVehicle(
+                    VehicleSpecDatabase.getVehicleSpecById(0), centroid,
+                    2 * Math.PI * i / HEADINGS, 0, 0, 0, 0, 0);
+            shapes[i] = vehicle.getShape();
+        }
+    }
+
+    /**
+     * Find the tiles occupied by the next vehicle shape.
+     *
+     * @return the occupied tiles
+     */
+    @Benchmark
+    public List<?> findOccupiedTiles() {
+        Shape shape = shapes[nextShape];
+        nextShape = (nextShape + 1) % shapes.length;
+        return tiledArea.findOccupiedTiles(shape);
+    }
+}
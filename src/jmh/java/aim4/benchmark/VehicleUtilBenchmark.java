@@ -0,0 +1,131 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.benchmark;
+
+import aim4.sim.simulator.aim.AutoDriverOnlySimulator;
+import aim4.vehicle.VehicleUtil;
+import aim4.vehicle.aim.AIMVehicleSimModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.geom.Area;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link VehicleUtil#intersects} and
+ * {@link VehicleUtil#collision} on the vehicles of a running AIM simulation.
+ * Each invocation tests one vehicle against the area of the first
+ * intersection, or one pair of vehicles against each other.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class VehicleUtilBenchmark {
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The traffic rate, in vehicles per hour per lane */
+    @Param({"500", "1000", "1500"})
+    public double trafficRate;
+    /** The number of rows and columns of intersections */
+    @Param({"1", "2"})
+    public int gridSize;
+
+    /** The vehicles in the simulation */
+    private AIMVehicleSimModel[] vehicles;
+    /** The area of the first intersection */
+    private Area area;
+    /** The index of the first vehicle of the next test */
+    private int i;
+    /** The index of the second vehicle of the next collision test */
+    private int j = 1;
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Warm up the simulator and take a snapshot of its vehicles.
+     */
+    @Setup
+    public void setUp() {
+        AutoDriverOnlySimulator sim = (AutoDriverOnlySimulator) BenchmarkSimulators.warmUp(
+                BenchmarkSimulators.createAIMSimulator(trafficRate, gridSize));
+        vehicles = sim.getActiveVehicles().toArray(new AIMVehicleSimModel[0]);
+        if (vehicles.length < 2) {
+            throw new IllegalStateException("Too few vehicles: " + vehicles.length);
+        }
+        area = sim.getMap().getIntersectionManagers().get(0).getIntersection().getArea();
+    }
+
+    /**
+     * Test whether the next vehicle intersects the intersection.
+     *
+     * @return whether the vehicle intersects the intersection
+     */
+    @Benchmark
+    public boolean intersects() {
+        AIMVehicleSimModel vehicle = vehicles[i];
+        i = (i + 1) % vehicles.length;
+        return VehicleUtil.intersects(vehicle, area);
+    }
+
+    /**
+     * Test whether the next pair of vehicles collide.
+     *
+     * @return whether the vehicles collide
+     */
+    @Benchmark
+    public boolean collision() {
+        AIMVehicleSimModel v1 = vehicles[i];
+        AIMVehicleSimModel v2 = vehicles[j];
+        j++;
+        if (j == vehicles.length) {
+            i = (i + 1) % (vehicles.length - 1);
+            j = i + 1;
+        }
+        return VehicleUtil.collision(v1, v2);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4;
+
+import aim4.sim.batch.BatchConfig;
+import aim4.sim.batch.BatchRunner;
+import aim4.sim.batch.BatchStats;
+
+/**
+ * The main class to run a single simulation from the command line without
+ * the GUI, e.g.
+ *
+ * <pre>
+ * java -cp ... aim4.BatchMain --sim aim --time 3600 --traffic-rate 800 --out results/aim
+ * java -cp ... aim4.BatchMain --config merge.properties --seed 7
+ * </pre>
+ */
+public class BatchMain {
+
+    /////////////////////////////////
+    // CONSTANTS
+    /////////////////////////////////
+
+    /** The usage message */
+    private static final String USAGE =
+            "Usage: BatchMain --sim aim|s2s|single-lane|cpm [--config FILE] [--OPTION VALUE]...\n"
+            + "Common options: time, seed, out, traffic-rate (vehicles/hour/lane), speed-limit,\n"
+            + "  profile (true to write the profile of each stage of the steps),\n"
+            + "  step-threads (threads on which the drivers act and the vehicles move),\n"
+            + "  stream-results (true to write the results of the vehicles as they complete),\n"
+            + "  results-format (csv or columnar), compression (none or deflate, for columnar)\n"
+            + "AIM options: columns, rows, lanes-per-road, lane-width, median-size,\n"
+            + "  distance-between, stop-distance, reservation-backend, footprint-cache-size,\n"
+            + "  parallel-managers (true to let the intersection managers act on the step threads),\n"
+            + "  arrival-search-horizon (seconds an arrival time may be pushed back; 0 to disable)\n"
+            + "Merge options: protocol, target-speed-limit, merge-speed-limit, target-lead-in,\n"
+            + "  target-lead-out, merge-lead-in, merging-angle, target-schedule,\n"
+            + "  merge-schedule, lane-length, trajectory-cache-size,\n"
+            + "  collision-check (off, count or fail on collisions between vehicles; count by default)\n"
+            + "CPM options: lane-width, parking-lanes, parking-length, access-length,\n"
+            + "  spawn-spec, spawn-file,\n"
+            + "  parking-allocation (MOST_SPACE or BEST_FIT lane for entering vehicles)";
+
+    /////////////////////////////////
+    // THE MAIN FUNCTION
+    /////////////////////////////////
+
+    /**
+     * The main function of the batch runner.
+     *
+     * @param args  the command-line arguments
+     */
+    public static void main(String[] args) {
+        // must be set before any AWT class is initialized
+        System.setProperty("java.awt.headless", "true");
+        if (args.length == 0 || args[0].equals("--help")) {
+            System.out.println(USAGE);
+            return;
+        }
+        BatchRunner runner;
+        try {
+            runner = new BatchRunner(BatchConfig.parse(args));
+            runner.createSetup();
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        try {
+            BatchStats stats = runner.run();
+            System.out.printf("%s: %d steps, %.1f simulated seconds in %.2f s "
+                            + "(%.1fx real time), %d completed vehicles, results in %s%n",
+                    runner.getSimType(), stats.getSteps(), stats.getSimulatedTime(),
+                    stats.getRunTime(), stats.getRealTimeFactor(),
+                    stats.getCompletedVehicles(), runner.getOutputDirectory());
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4;
+
+import aim4.sim.results.VehicleResultColumns;
+import aim4.sim.results.columnar.Column;
+import aim4.sim.results.columnar.ColumnSummary;
+import aim4.sim.results.columnar.ColumnarReader;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The main class to read the columnar files written by batch runs with
+ * <code>--results-format columnar</code>, e.g.
+ *
+ * <pre>
+ * java -cp ... aim4.ColumnarMain export results/s2s/results.col &gt; results.csv
+ * java -cp ... aim4.ColumnarMain summarize Delay --by "Starting Road" --param traffic-rate results/
+ * </pre>
+ *
+ * A columnar file of the results of vehicles is exported to the same CSV
+ * results file a CSV batch run writes, so the existing scripts can read it.
+ * Summaries are merged over all the columnar files given, and the columnar
+ * files in the directories given, and written as CSV.  The files without the
+ * summarized column are skipped.
+ */
+public class ColumnarMain {
+
+    /////////////////////////////////
+    // CONSTANTS
+    /////////////////////////////////
+
+    /** The usage message */
+    private static final String USAGE =
+            "Usage: ColumnarMain export FILE\n"
+            + "       ColumnarMain summarize COLUMN [--by COLUMN] [--param NAME] FILE|DIR...\n"
+            + "export writes a columnar file as CSV to the standard output.\n"
+            + "summarize writes the count, mean, standard deviation, minimum and maximum\n"
+            + "  of a numeric column over the columnar files, for each value of a STRING\n"
+            + "  column (--by) and of a parameter of the runs (--param) if given.";
+
+    /** The suffix of columnar files in a directory */
+    private static final String COLUMNAR_FILE_SUFFIX = ".col";
+
+    /////////////////////////////////
+    // THE MAIN FUNCTION
+    /////////////////////////////////
+
+    /**
+     * The main function of the columnar file reader.
+     *
+     * @param args  the command-line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length == 0 || args[0].equals("--help")) {
+            System.out.println(USAGE);
+            return;
+        }
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, Charset.forName("UTF-8")));
+        try {
+            if (args[0].equals("export") && args.length == 2) {
+                export(new File(args[1]), out);
+            } else if (args[0].equals("summarize") && args.length >= 3) {
+                summarize(Arrays.asList(args).subList(1, args.length), out);
+            } else {
+                System.err.println(USAGE);
+                System.exit(2);
+                return;
+            }
+            out.flush();
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /////////////////////////////////
+    // PRIVATE METHODS
+    /////////////////////////////////
+
+    /**
+     * Write a columnar file as CSV.
+     *
+     * @param file  the columnar file
+     * @param out   where to write the CSV
+     * @throws IOException if the file cannot be read or the CSV written
+     */
+    private static void export(File file, Appendable out) throws IOException {
+        ColumnarReader reader = new ColumnarReader(file);
+        try {
+            if (VehicleResultColumns.isVehicleResults(reader)) {
+                VehicleResultColumns.exportResultsCSV(reader, out);
+            } else {
+                reader.exportCSV(out);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Summarize a column over columnar files and write the summaries as CSV.
+     *
+     * @param args  the column, the options and the files and directories
+     * @param out   where to write the CSV
+     * @throws IOException if a file cannot be read or the CSV written
+     */
+    private static void summarize(List<String> args, Appendable out) throws IOException {
+        String column = args.get(0);
+        String group = null;
+        String param = null;
+        List<File> files = new ArrayList<File>();
+        for (int i = 1; i < args.size(); i++) {
+            String arg = args.get(i);
+            if ((arg.equals("--by") || arg.equals("--param")) && i + 1 < args.size()) {
+                if (arg.equals("--by")) {
+                    group = args.get(++i);
+                } else {
+                    param = args.get(++i);
+                }
+            } else {
+                addColumnarFiles(new File(arg), files);
+            }
+        }
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("No columnar files given");
+        }
+
+        Map<List<String>, ColumnSummary> summaries = new LinkedHashMap<List<String>, ColumnSummary>();
+        int summarized = 0;
+        for (File file : files) {
+            ColumnarReader reader = new ColumnarReader(file);
+            try {
+                if (!hasColumn(reader, column)) {
+                    // e.g. the profile of the steps next to the results
+                    continue;
+                }
+                summarized++;
+                List<String> key = new ArrayList<String>();
+                if (param != null) {
+                    key.add(reader.getParams().get(param));
+                }
+                if (group == null) {
+                    merge(summaries, key, reader.summarize(column));
+                } else {
+                    for (Map.Entry<String, ColumnSummary> entry
+                            : reader.summarizeBy(column, group).entrySet()) {
+                        List<String> groupKey = new ArrayList<String>(key);
+                        groupKey.add(entry.getKey());
+                        merge(summaries, groupKey, entry.getValue());
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        if (summarized == 0) {
+            throw new IllegalArgumentException("No column " + column + " in the columnar files given");
+        }
+        if (param != null) {
+            out.append(param).append(',');
+        }
+        if (group != null) {
+            out.append(group).append(',');
+        }
+        out.append("Count,Mean,Std Dev,Min,Max\n");
+        for (Map.Entry<List<String>, ColumnSummary> entry : summaries.entrySet()) {
+            for (String value : entry.getKey()) {
+                out.append(value == null ? "" : value).append(',');
+            }
+            ColumnSummary summary = entry.getValue();
+            out.append(String.valueOf(summary.getCount())).append(',')
+                    .append(String.valueOf(summary.getMean())).append(',')
+                    .append(String.valueOf(summary.getStdDev())).append(',')
+                    .append(String.valueOf(summary.getMin())).append(',')
+                    .append(String.valueOf(summary.getMax())).append('\n');
+        }
+    }
+
+    /**
+     * Whether a columnar file has a column.
+     */
+    private static boolean hasColumn(ColumnarReader reader, String name) {
+        for (Column column : reader.getColumns()) {
+            if (column.getName().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Merge a summary into the summary of its key.
+     */
+    private static void merge(Map<List<String>, ColumnSummary> summaries, List<String> key,
+                              ColumnSummary summary) {
+        ColumnSummary merged = summaries.get(key);
+        if (merged == null) {
+            merged = new ColumnSummary();
+            summaries.put(key, merged);
+        }
+        merged.merge(summary);
+    }
+
+    /**
+     * Add a columnar file, or the columnar files under a directory in the
+     * order of their paths.
+     */
+    private static void addColumnarFiles(File file, List<File> files) {
+        if (!file.isDirectory()) {
+            if (!file.isFile()) {
+                throw new IllegalArgumentException("No such file: " + file);
+            }
+            files.add(file);
+            return;
+        }
+        File[] children = file.listFiles();
+        if (children == null) {
+            return;
+        }
+        Arrays.sort(children);
+        for (File child : children) {
+            if (child.isDirectory() || child.getName().endsWith(COLUMNAR_FILE_SUFFIX)) {
+                addColumnarFiles(child, files);
+            }
+        }
+    }
+}
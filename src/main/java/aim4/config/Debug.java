@@ -31,13 +31,11 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package aim4.config;
 
 import java.awt.Color;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import aim4.gui.ViewerDebugView;
 import aim4.map.aim.BasicIntersectionMap;
+import aim4.sim.SimulationContext;
 
 /**
  * The configuration for debugging purposes.
@@ -45,9 +43,22 @@ import aim4.map.aim.BasicIntersectionMap;
 public class Debug {
 
   /**
-   * A global variable referring to the global map.
+   * Get the map of the simulation context of the calling thread.
+   *
+   * @return the current map
    */
-  public static BasicIntersectionMap currentMap;
+  public static BasicIntersectionMap getCurrentMap() {
+    return SimulationContext.current().getCurrentMap();
+  }
+
+  /**
+   * Set the map of the simulation context of the calling thread.
+   *
+   * @param map  the current map
+   */
+  public static void setCurrentMap(BasicIntersectionMap map) {
+    SimulationContext.current().setCurrentMap(map);
+  }
 
   /**
    * A global variable referring to the GUI object.
@@ -263,17 +274,7 @@ public class Debug {
   // Debug Points
   /////////////////////////////////
 
-  /**
-   * The list of long term debug points.
-   */
-  private static List<DebugPoint> longTermDebugPoints =
-    new LinkedList<DebugPoint>();
-
-  /**
-   * The list of short term debug points.
-   */
-  private static List<DebugPoint> shortTermDebugPoints =
-    new LinkedList<DebugPoint>();
+  // The debug points belong to the simulation context of the calling thread.
 
   /**
    * Get the long-term debugging points.
@@ -281,14 +282,14 @@ public class Debug {
    * @return an list of long-term debug points.
    */
   public static List<DebugPoint> getLongTermDebugPoints() {
-    return longTermDebugPoints;
+    return SimulationContext.current().getLongTermDebugPoints();
   }
 
   /**
    * Clear out all the long-term debug points.
    */
   public static void clearLongTermDebugPoints() {
-    longTermDebugPoints.clear();
+    getLongTermDebugPoints().clear();
   }
 
   /**
@@ -297,7 +298,7 @@ public class Debug {
    * @param dp  a new long-term debug point.
    */
   public static void addLongTermDebugPoint(DebugPoint dp) {
-    longTermDebugPoints.add(dp);
+    getLongTermDebugPoints().add(dp);
   }
 
   /**
@@ -306,14 +307,14 @@ public class Debug {
    * @return an list of short-term debug points
    */
   public static List<DebugPoint> getShortTermDebugPoints() {
-    return shortTermDebugPoints;
+    return SimulationContext.current().getShortTermDebugPoints();
   }
 
   /**
    * Clear out all the short-term debug points.
    */
   public static void clearShortTermDebugPoints() {
-    shortTermDebugPoints.clear();
+    getShortTermDebugPoints().clear();
   }
 
   /**
@@ -322,18 +323,15 @@ public class Debug {
    * @param dp  a new short-term debug point
    */
   public static void addShortTermDebugPoint(DebugPoint dp) {
-    shortTermDebugPoints.add(dp);
+    getShortTermDebugPoints().add(dp);
   }
 
   /////////////////////////////////
   // VEHICLE COLORING
   /////////////////////////////////
 
-  /**
-   * A mapping from vehicle's VINs to the color of the vehicles.
-   */
-  private static Map<Integer,Color> vinToVehicleColor =
-    new HashMap<Integer,Color>();
+  // The vehicle colors belong to the simulation context of the calling
+  // thread.
 
   /**
    * Get the color of a vehicle.
@@ -342,7 +340,7 @@ public class Debug {
    * @return the color of the vehicle
    */
   public static Color getVehicleColor(int vin) {
-    return vinToVehicleColor.get(vin);
+    return SimulationContext.current().getVehicleColors().get(vin);
   }
 
   /**
@@ -352,7 +350,7 @@ public class Debug {
    * @param color the color of the vehicle
    */
   public static void setVehicleColor(int vin, Color color) {
-    vinToVehicleColor.put(vin, color);
+    SimulationContext.current().getVehicleColors().put(vin, color);
   }
 
   /**
@@ -361,7 +359,7 @@ public class Debug {
    * @param vin the VIN number of the vehicle
    */
   public static void removeVehicleColor(int vin) {
-    vinToVehicleColor.remove(vin);
+    SimulationContext.current().getVehicleColors().remove(vin);
   }
 
   /////////////////////////////////
@@ -31,6 +31,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package aim4.gui;
 
 import aim4.config.Debug;
+import aim4.gui.screen.FrameRecorder;
 import aim4.gui.viewer.AIMSimViewer;
 import aim4.gui.viewer.CPMSimViewer;
 import aim4.gui.viewer.MergeSimViewer;
@@ -137,6 +138,10 @@ public class Viewer extends JFrame implements ActionListener, ItemListener, KeyL
     private JMenuItem startRecordingMenuItem;
     /** Menu item for deactivating recording. */
     private JMenuItem stopRecordingMenuItem;
+    /** Menu item for controlling whether to record raw frames */
+    private JCheckBoxMenuItem rawFramesMenuItem;
+    /** Menu item for controlling whether to drop frames when the encoders fall behind */
+    private JCheckBoxMenuItem dropFramesMenuItem;
     /** Menu item for starting the UDP listener */
     private JMenuItem startUdpListenerMenuItem;
     /** Menu item for stopping the UDP listener */
@@ -302,6 +307,13 @@ public class Viewer extends JFrame implements ActionListener, ItemListener, KeyL
         stopRecordingMenuItem = new JMenuItem("Stop");
         stopRecordingMenuItem.addActionListener(this);
         menu.add(stopRecordingMenuItem);
+        menu.addSeparator();
+        // Recording->Raw Frames
+        rawFramesMenuItem = new JCheckBoxMenuItem("Raw Frames", false);
+        menu.add(rawFramesMenuItem);
+        // Recording->Drop Frames When Behind
+        dropFramesMenuItem = new JCheckBoxMenuItem("Drop Frames When Behind", false);
+        menu.add(dropFramesMenuItem);
 
         // UDP
         menu = new JMenu("UDP");
@@ -717,6 +729,10 @@ public class Viewer extends JFrame implements ActionListener, ItemListener, KeyL
                 if (returnVal == JFileChooser.APPROVE_OPTION) {
                     try {
                         selectedViewer.setImageDir(chooser.getSelectedFile().getCanonicalPath());
+                        selectedViewer.setRecordingFormat(rawFramesMenuItem.isSelected()
+                                ? FrameRecorder.Format.RAW : FrameRecorder.Format.PNG);
+                        selectedViewer.setRecordingOverflowPolicy(dropFramesMenuItem.isSelected()
+                                ? FrameRecorder.OverflowPolicy.DROP : FrameRecorder.OverflowPolicy.BLOCK);
                         selectedViewer.setRecording(true);
                     } catch (IOException ioe) {
                         // nothing
@@ -724,6 +740,8 @@ public class Viewer extends JFrame implements ActionListener, ItemListener, KeyL
                     if (selectedViewer.isRecording()) {
                         startRecordingMenuItem.setEnabled(false);
                         stopRecordingMenuItem.setEnabled(true);
+                        rawFramesMenuItem.setEnabled(false);
+                        dropFramesMenuItem.setEnabled(false);
                     }
                 }
             }
@@ -733,6 +751,8 @@ public class Viewer extends JFrame implements ActionListener, ItemListener, KeyL
                 selectedViewer.setImageCounter(0);
                 startRecordingMenuItem.setEnabled(true);
                 stopRecordingMenuItem.setEnabled(false);
+                rawFramesMenuItem.setEnabled(true);
+                dropFramesMenuItem.setEnabled(true);
             }
         } else if (e.getSource() == startUdpListenerMenuItem) {
             startUdpListening();
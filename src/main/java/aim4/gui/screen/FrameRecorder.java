@@ -0,0 +1,443 @@
+package aim4.gui.screen;
+
+import aim4.config.Constants;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the frames of a screen into a directory, one file per frame, named
+ * with {@link Constants#LEADING_ZEROES}.  The caller only copies a frame into
+ * a pooled image; the files are encoded and written by a pool of encoder
+ * threads.  At most a fixed number of frames are waiting for the encoders;
+ * when they fall behind, the next frame either waits for a free slot or is
+ * dropped, according to the {@link OverflowPolicy}.
+ * <p>
+ * A thread that must not wait, such as the event dispatch thread, records
+ * with {@link #offer(Image)}, which never waits, and leaves the waiting of
+ * the {@link OverflowPolicy#BLOCK} policy to the thread that produces the
+ * frames, through {@link #awaitFreeSlot()}.  The producer counts the frames
+ * it drops before they reach the recorder with {@link #countDroppedFrame()}.
+ * <p>
+ * In the {@link Format#RAW} format each frame is a headerless file of 24-bit
+ * RGB pixels, which is much cheaper to write than a PNG.  The frame sizes are
+ * listed in {@value #RAW_SIZES_FILE_NAME} when the recording stops, and frames
+ * of the same size can be made into a video offline, e.g. with
+ * <pre>
+ * cat *.rgb | ffmpeg -f rawvideo -pixel_format rgb24 -video_size WxH
+ *                    -framerate 20 -i - video.mp4
+ * </pre>
+ */
+public class FrameRecorder {
+
+    /////////////////////////////////
+    // NESTED CLASSES
+    /////////////////////////////////
+
+    /**
+     * The format of the frame files.
+     */
+    public enum Format {
+        /** A PNG image per frame */
+        PNG("png"),
+        /** The raw 24-bit RGB pixels of a frame */
+        RAW("rgb");
+
+        /** The extension of the frame files */
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        /**
+         * Get the extension of the frame files.
+         *
+         * @return the extension of the frame files
+         */
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    /**
+     * What to do with a frame when all the slots are taken by frames waiting
+     * for the encoders.
+     */
+    public enum OverflowPolicy {
+        /** Wait until a slot is free */
+        BLOCK,
+        /** Drop the frame */
+        DROP
+    }
+
+    /////////////////////////////////
+    // CONSTANTS
+    /////////////////////////////////
+
+    /** The default number of frames that can wait for the encoders */
+    public static final int DEFAULT_CAPACITY = 8;
+
+    /** The name of the file listing the sizes of the raw frames */
+    public static final String RAW_SIZES_FILE_NAME = "frame-sizes.txt";
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The directory of the frame files */
+    private final File dir;
+    /** The format of the frame files */
+    private final Format format;
+    /** The overflow policy */
+    private final OverflowPolicy policy;
+    /** The slots of the frames waiting for the encoders */
+    private final Semaphore slots;
+    /** The images that can be reused */
+    private final ConcurrentLinkedQueue<BufferedImage> freeImages;
+    /** The encoder threads */
+    private final ExecutorService encoders;
+    /** The number of the next frame file */
+    private int nextFrameNumber;
+    /** The width of the last recorded frame */
+    private int lastWidth;
+    /** The height of the last recorded frame */
+    private int lastHeight;
+    /** The first frame number, width and height of each run of frames of the same size */
+    private final List<int[]> sizes;
+    /** The number of frames that have been written */
+    private final AtomicInteger numOfWrittenFrames;
+    /** The number of frames that have been dropped */
+    private final AtomicInteger numOfDroppedFrames;
+    /** The number of frames that could not be written */
+    private final AtomicInteger numOfFailedFrames;
+    /** Whether the recorder has been closed */
+    private boolean closed;
+
+    /////////////////////////////////
+    // CLASS CONSTRUCTORS
+    /////////////////////////////////
+
+    /**
+     * Create a recorder with the default capacity and one encoder thread per
+     * available processor.
+     *
+     * @param dir              the directory of the frame files
+     * @param firstFrameNumber the number of the first frame file
+     * @param format           the format of the frame files
+     * @param policy           the overflow policy
+     */
+    public FrameRecorder(File dir, int firstFrameNumber, Format format, OverflowPolicy policy) {
+        this(dir, firstFrameNumber, format, policy, DEFAULT_CAPACITY,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a recorder.
+     *
+     * @param dir              the directory of the frame files
+     * @param firstFrameNumber the number of the first frame file
+     * @param format           the format of the frame files
+     * @param policy           the overflow policy
+     * @param capacity         the number of frames that can wait for the encoders
+     * @param numOfEncoders    the number of encoder threads
+     */
+    public FrameRecorder(File dir, int firstFrameNumber, Format format, OverflowPolicy policy,
+                         int capacity, int numOfEncoders) {
+        if (capacity <= 0 || numOfEncoders <= 0) {
+            throw new IllegalArgumentException(
+                    "The capacity and the number of encoders must be positive: "
+                            + capacity + ", " + numOfEncoders);
+        }
+        this.dir = dir;
+        this.format = format;
+        this.policy = policy;
+        this.slots = new Semaphore(capacity);
+        this.freeImages = new ConcurrentLinkedQueue<BufferedImage>();
+        this.encoders = Executors.newFixedThreadPool(numOfEncoders, new ThreadFactory() {
+            private int count = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "AIM4 Frame Encoder " + (count++));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.nextFrameNumber = firstFrameNumber;
+        this.lastWidth = -1;
+        this.lastHeight = -1;
+        this.sizes = new ArrayList<int[]>();
+        this.numOfWrittenFrames = new AtomicInteger();
+        this.numOfDroppedFrames = new AtomicInteger();
+        this.numOfFailedFrames = new AtomicInteger();
+        this.closed = false;
+    }
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Record a frame.  The frame is copied before this method returns, so the
+     * caller can draw on it again.  Frames must be recorded by one thread.
+     *
+     * @param frame  the frame
+     * @return whether the frame has been recorded; false if it was dropped
+     */
+    public boolean record(Image frame) {
+        if (closed) {
+            throw new IllegalStateException("The recorder has been closed.");
+        }
+        if (policy == OverflowPolicy.BLOCK) {
+            slots.acquireUninterruptibly();
+        } else if (!slots.tryAcquire()) {
+            numOfDroppedFrames.incrementAndGet();
+            return false;
+        }
+        submit(frame);
+        return true;
+    }
+
+    /**
+     * Record a frame if a slot is free, or drop it, whatever the overflow
+     * policy.  It never waits, so it can be called on the event dispatch
+     * thread.  The frame is copied before this method returns.  Frames must
+     * be recorded by one thread.
+     *
+     * @param frame  the frame
+     * @return whether the frame has been recorded; false if it was dropped
+     */
+    public boolean offer(Image frame) {
+        if (closed) {
+            throw new IllegalStateException("The recorder has been closed.");
+        }
+        if (!slots.tryAcquire()) {
+            numOfDroppedFrames.incrementAndGet();
+            return false;
+        }
+        submit(frame);
+        return true;
+    }
+
+    /**
+     * Under the {@link OverflowPolicy#BLOCK} policy, wait until a slot is
+     * free, without taking it.  The thread that produces the frames calls it
+     * before handing a frame to the thread that records it with
+     * {@link #offer(Image)}; since only the recording thread takes slots, the
+     * frame then finds a free slot.  Under the {@link OverflowPolicy#DROP}
+     * policy it returns at once.
+     */
+    public void awaitFreeSlot() {
+        if (policy == OverflowPolicy.BLOCK) {
+            slots.acquireUninterruptibly();
+            slots.release();
+        }
+    }
+
+    /**
+     * Count a frame that has been dropped before it could be recorded, for
+     * instance because the thread that records the frames had not taken it
+     * yet when the next frame replaced it.
+     */
+    public void countDroppedFrame() {
+        numOfDroppedFrames.incrementAndGet();
+    }
+
+    /**
+     * Stop recording: wait for the encoders to write the frames that have been
+     * recorded, and list the sizes of the raw frames.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        encoders.shutdown();
+        try {
+            while (!encoders.awaitTermination(1, TimeUnit.SECONDS)) {
+                // keep waiting for the frames in the queue
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        freeImages.clear();
+        if (format == Format.RAW && !sizes.isEmpty()) {
+            writeRawSizes();
+        }
+    }
+
+    /**
+     * Get the overflow policy.
+     *
+     * @return the overflow policy
+     */
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Get the number of the next frame file.
+     *
+     * @return the number of the next frame file
+     */
+    public int getNextFrameNumber() {
+        return nextFrameNumber;
+    }
+
+    /**
+     * Get the number of frames that have been written.
+     *
+     * @return the number of frames that have been written
+     */
+    public int getNumOfWrittenFrames() {
+        return numOfWrittenFrames.get();
+    }
+
+    /**
+     * Get the number of frames that have been dropped because the encoders
+     * fell behind, or that have been counted as dropped with
+     * {@link #countDroppedFrame()}.
+     *
+     * @return the number of dropped frames
+     */
+    public int getNumOfDroppedFrames() {
+        return numOfDroppedFrames.get();
+    }
+
+    /**
+     * Get the number of frames that could not be written.
+     *
+     * @return the number of failed frames
+     */
+    public int getNumOfFailedFrames() {
+        return numOfFailedFrames.get();
+    }
+
+    /////////////////////////////////
+    // PRIVATE METHODS
+    /////////////////////////////////
+
+    /**
+     * Copy a frame into a pooled image and hand it to the encoders.  The
+     * caller has taken a slot for the frame.
+     */
+    private void submit(Image frame) {
+        int width = frame.getWidth(null);
+        int height = frame.getHeight(null);
+        final BufferedImage image = takeImage(width, height);
+        Graphics g = image.getGraphics();
+        g.drawImage(frame, 0, 0, null);
+        g.dispose();
+        if (width != lastWidth || height != lastHeight) {
+            sizes.add(new int[]{nextFrameNumber, width, height});
+            lastWidth = width;
+            lastHeight = height;
+        }
+        final File file = new File(dir,
+                Constants.LEADING_ZEROES.format(nextFrameNumber++) + "." + format.getExtension());
+        encoders.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    write(image, file);
+                    numOfWrittenFrames.incrementAndGet();
+                } catch (IOException ioe) {
+                    numOfFailedFrames.incrementAndGet();
+                    System.err.println("Error: " + ioe);
+                } finally {
+                    freeImages.offer(image);
+                    slots.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * Take an image of the given size from the pool, or create one.  Pooled
+     * images of another size are discarded.
+     */
+    private BufferedImage takeImage(int width, int height) {
+        BufferedImage image;
+        while ((image = freeImages.poll()) != null) {
+            if (image.getWidth() == width && image.getHeight() == height) {
+                return image;
+            }
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Write an image to a file in the format of the recorder.
+     */
+    private void write(BufferedImage image, File file) throws IOException {
+        if (format == Format.PNG) {
+            if (!ImageIO.write(image, "png", file)) {
+                throw new IOException("No appropriate writer is found for " + file);
+            }
+        } else {
+            writeRaw(image, file);
+        }
+    }
+
+    /**
+     * Write the 24-bit RGB pixels of an image to a file, row by row.
+     */
+    private void writeRaw(BufferedImage image, File file) throws IOException {
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        int width = image.getWidth();
+        byte[] row = new byte[width * 3];
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+        try {
+            for (int offset = 0; offset < pixels.length; offset += width) {
+                for (int x = 0, k = 0; x < width; x++) {
+                    int rgb = pixels[offset + x];
+                    row[k++] = (byte) (rgb >> 16);
+                    row[k++] = (byte) (rgb >> 8);
+                    row[k++] = (byte) rgb;
+                }
+                out.write(row);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * List the first frame number, width and height of each run of raw frames
+     * of the same size.
+     */
+    private void writeRawSizes() {
+        try {
+            PrintWriter writer = new PrintWriter(new File(dir, RAW_SIZES_FILE_NAME));
+            try {
+                writer.println("first_frame,width,height");
+                for (int[] size : sizes) {
+                    writer.println(size[0] + "," + size[1] + "," + size[2]);
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException ioe) {
+            System.err.println("Error: " + ioe);
+        }
+    }
+}
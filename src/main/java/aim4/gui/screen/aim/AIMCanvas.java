@@ -153,69 +153,45 @@ public class AIMCanvas extends Canvas {
     }
 
     /**
-     * Update the canvas to visualize the current state of simulation.
+     * {@inheritDoc}
      */
     @Override
-    protected void doUpdateCanvas() {
-        super.doUpdateCanvas();
-        Simulator sim = simViewer.getSimulator();
-        // if the simulator exists, draw the current view
-        if (sim != null) {
-            Collection<IntersectionManager> ims =
-                    ((BasicIntersectionMap) sim.getMap()).getIntersectionManagers();
-            // draw the intersection managers' debug shapes
-            if (isShowIMDebugShapes) {
-                for (IntersectionManager im : ims) {
-                    drawIMDebugShapes(displayBuffer, im);
-                }
-            }
-            // draw the vehicles
-            for (AIMVehicleSimModel v : ((AIMSimulator) sim).getActiveVehicles()) {
-                drawVehicle(displayBuffer, v, sim.getSimulationTime());
-            }
-            // draw the traffic lights
+    protected FrameSnapshot makeFrame(Simulator sim) {
+        Collection<IntersectionManager> ims =
+                ((BasicIntersectionMap) sim.getMap()).getIntersectionManagers();
+        Set<AIMVehicleSimModel> vehicles = ((AIMSimulator) sim).getActiveVehicles();
+        double currentTime = sim.getSimulationTime();
+        FrameSnapshot frame = new FrameSnapshot(currentTime, vehicles.size());
+        // the intersection managers' debug shapes
+        if (isShowIMDebugShapes) {
             for (IntersectionManager im : ims) {
-                drawTrafficLights(displayBuffer, im);
-            }
-            // draw simulation time.
-            if (isShowSimulationTime) {
-                drawSimulationTime(displayBuffer, sim.getSimulationTime());
-            }
-            // draw the debug points
-            drawDebugPoints(displayBuffer, Debug.getLongTermDebugPoints());
-            drawDebugPoints(displayBuffer, Debug.getShortTermDebugPoints());
-            // draw tracks
-            // drawTracks(displayBuffer);
-            // lastly, draw the vehicles' information string
-            for (AIMVehicleSimModel v : ((AIMSimulator) sim).getActiveVehicles()) {
-                drawVehicleInfoString(displayBuffer, v, sim.getSimulationTime());
+                addIMDebugShapes(frame, im);
             }
-            // Finally display the new image
-            repaint();
-        } // else no simulator no drawing
+        }
+        // the vehicles
+        for (AIMVehicleSimModel v : vehicles) {
+            addVehicle(frame, v, currentTime);
+        }
+        // the traffic lights
+        for (IntersectionManager im : ims) {
+            addTrafficLights(frame, im);
+        }
+        // the debug points
+        frame.addDebugPoints(Debug.getLongTermDebugPoints());
+        frame.addDebugPoints(Debug.getShortTermDebugPoints());
+        return frame;
     }
 
     /**
-     * Draw an individual Vehicle, and any associated debug information, if this
-     * Vehicle is a debug Vehicle.
-     *
-     * @param buffer       the display buffer
-     * @param vehicle      the Vehicle to draw now
-     * @param currentTime  the current simulated time
+     * {@inheritDoc}
      */
     @Override
-    protected void drawVehicle(Graphics2D buffer,
-                             VehicleSimModel vehicle,
-                             double currentTime) {
-        // whether the vehicle is selected
-        boolean selectedVehicle = (Debug.getTargetVIN() == vehicle.getVIN());
+    protected Color getVehicleColor(VehicleSimModel vehicle) {
         // check to see if we use another color
-        if (selectedVehicle) {
-            buffer.setPaint(VEHICLE_SELECTED_COLOR);
-        } else if (vehicle.getVIN() == MARVIN_VEHICLE_VIN) {
-            buffer.setPaint(MARVIN_VEHICLE_COLOR);
+        if (vehicle.getVIN() == MARVIN_VEHICLE_VIN) {
+            return MARVIN_VEHICLE_COLOR;
         } else if (Debug.getVehicleColor(vehicle.getVIN()) != null) {
-            buffer.setPaint(Debug.getVehicleColor(vehicle.getVIN()));
+            return Debug.getVehicleColor(vehicle.getVIN());
         } else if (Debug.SHOW_VEHICLE_COLOR_BY_MSG_STATE) {
             if (vehicle.getDriver() instanceof AIMAutoDriver) {
                 AIMAutoDriver autoDriver = (AIMAutoDriver) vehicle.getDriver();
@@ -223,54 +199,24 @@ public class AIMCanvas extends Canvas {
                     V2ICoordinator coordinator =
                             (V2ICoordinator) autoDriver.getCurrentCoordinator();
                     if (coordinator.isAwaitingResponse()) {
-                        buffer.setPaint(VEHICLE_WAITING_FOR_RESPONSE_COLOR);
+                        return VEHICLE_WAITING_FOR_RESPONSE_COLOR;
                     } else if (coordinator.getReservationParameter() != null) {
-                        buffer.setPaint(VEHICLE_HAS_RESERVATION_COLOR);
-                    } else {
-                        buffer.setPaint(VEHICLE_COLOR);  // the default color
+                        return VEHICLE_HAS_RESERVATION_COLOR;
                     }
-                } else {
-                    buffer.setPaint(VEHICLE_COLOR);  // the default color
                 }
-            } else {
-                buffer.setPaint(VEHICLE_COLOR);  // the default color
-            }
-        } else {
-            buffer.setPaint(VEHICLE_COLOR);  // the default color
-        }
-
-        buffer.setStroke(VEHICLE_STROKE);
-
-        // Now draw the vehicle's shape
-        buffer.fill(vehicle.getShape());
-        // Draw wheels and stuff if needed
-        if (selectedVehicle) {
-            buffer.setPaint(TIRE_COLOR);
-            buffer.setStroke(TIRE_STROKE);
-            for (Shape wheel : vehicle.getWheelShapes()) {
-                buffer.fill(wheel);
             }
         }
+        return VEHICLE_COLOR;  // the default color
     }
 
     /**
-     * Draw the information string of the vehicle on screen
-     *
-     * @param buffer       the display buffer
-     * @param vehicle      the vehicle
-     * @param currentTime  the current simulated time
+     * {@inheritDoc}
      */
     @Override
-    protected void drawVehicleInfoString(Graphics2D buffer,
-                                       VehicleSimModel vehicle,
-                                       double currentTime) {
+    protected String getVehicleInfoString(VehicleSimModel vehicle,
+                                          double currentTime) {
         java.util.List<String> infos = new LinkedList<String>();
 
-        // display the vin
-        if (isShowVin) {
-            infos.add(Integer.toString(vehicle.getVIN()));
-        }
-
         if (vehicle instanceof AIMAutoVehicleSimModel
                 && vehicle.getDriver() instanceof AIMAutoDriver) {
             AIMAutoDriver da = (AIMAutoDriver) vehicle.getDriver();
@@ -323,22 +269,19 @@ public class AIMCanvas extends Canvas {
         }
 
         if (infos.size() > 0) {
-            Point2D centerPoint = vehicle.getCenterPoint();
-            buffer.setColor(VEHICLE_INFO_STRING_COLOR);
-            buffer.setFont(VEHICLE_INFO_STRING_FONT);
-            buffer.drawString(Util.concatenate(infos, ","),
-                    (float) centerPoint.getX(),
-                    (float) centerPoint.getY());
+            return Util.concatenate(infos, ",");
         }
+        return null;
     }
 
     /**
-     * Draw the current state of the lights for all IntersectionManagers.
+     * Add the current state of the lights of an IntersectionManager to a
+     * snapshot.
      *
-     * @param buffer  the display buffer
-     * @param im      the intersection manager whose traffic lights to draw
+     * @param frame  the snapshot
+     * @param im     the intersection manager whose traffic lights to draw
      */
-    private void drawTrafficLights(Graphics2D buffer, IntersectionManager im) {
+    private void addTrafficLights(FrameSnapshot frame, IntersectionManager im) {
         if (im instanceof V2IManager) {
             Policy policy = ((V2IManager) im).getPolicy();
             if (policy instanceof BasePolicy) {
@@ -347,15 +290,16 @@ public class AIMCanvas extends Canvas {
                     TrafficSignalRequestHandler requestHandler =
                             (TrafficSignalRequestHandler) basePolicy.getRequestHandler();
                     for (Lane entryLane : im.getIntersection().getEntryLanes()) {
+                        Color lightColor;
                         switch (requestHandler.getSignal(entryLane.getId())) {
                             case GREEN:
-                                buffer.setPaint(Color.GREEN);
+                                lightColor = Color.GREEN;
                                 break;
                             case YELLOW:
-                                buffer.setPaint(Color.YELLOW);
+                                lightColor = Color.YELLOW;
                                 break;
                             case RED:
-                                buffer.setPaint(Color.RED);
+                                lightColor = Color.RED;
                                 break;
                             default:
                                 throw new RuntimeException("Unknown traffic signals.\n");
@@ -375,7 +319,7 @@ public class AIMCanvas extends Canvas {
                                                 Math.toDegrees(im.getIntersection().getEntryHeading(entryLane)), 180.0, // extent
                                         Arc2D.PIE); // type
                         // Now draw it!
-                        buffer.fill(lightShape);
+                        frame.addShapeAboveVehicles(lightShape, lightColor);
                     }
                 }
             }
@@ -383,17 +327,16 @@ public class AIMCanvas extends Canvas {
     }
 
     /**
-     * Draw the debugging shapes that the IntersectionManagers provide. These
-     * are usually things like used tiles for a tile-based reservation policy,
-     * current heuristic values and so forth.
+     * Add the debugging shapes that the IntersectionManagers provide to a
+     * snapshot. These are usually things like used tiles for a tile-based
+     * reservation policy, current heuristic values and so forth.
      *
-     * @param buffer  the display buffer
-     * @param im      the intersection manager whose debug shapes to draw
+     * @param frame  the snapshot
+     * @param im     the intersection manager whose debug shapes to draw
      */
-    private void drawIMDebugShapes(Graphics2D buffer, IntersectionManager im) {
+    private void addIMDebugShapes(FrameSnapshot frame, IntersectionManager im) {
         for (Shape s : im.getDebugShapes()) {
-            buffer.setPaint(IM_DEBUG_SHAPE_COLOR);
-            buffer.fill(s);
+            frame.addShapeBelowVehicles(s, IM_DEBUG_SHAPE_COLOR);
         }
     }
 
@@ -40,6 +40,8 @@ import java.awt.RenderingHints;
 import java.awt.Shape;
 import java.awt.Stroke;
 import java.awt.TexturePaint;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.ComponentEvent;
 import java.awt.event.ComponentListener;
 import java.awt.event.MouseEvent;
@@ -50,21 +52,24 @@ import java.awt.event.MouseWheelListener;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.imageio.ImageIO;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 import aim4.config.Debug;
 import aim4.config.DebugPoint;
 import aim4.gui.Viewer;
+import aim4.gui.screen.FrameRecorder;
 import aim4.gui.screen.SimScreen;
 import aim4.gui.viewer.SimViewer;
 import aim4.map.BasicMap;
@@ -74,12 +79,19 @@ import aim4.map.lane.Lane;
 import aim4.sim.Simulator;
 import aim4.util.Util;
 import aim4.vehicle.VehicleSimModel;
+import aim4.vehicle.VehicleSpec;
+import aim4.vehicle.VehicleSpecDatabase;
 
 import java.io.InputStream;
 
 /**
  * The Canvas is the visual area on which the Layout, IntersectionManagers,
  * Vehicles, and so forth are drawn for the user to see.
+ * <p>
+ * The simulation thread does not draw on the canvas.  It publishes a
+ * {@link FrameSnapshot} of the simulation, and a Swing timer draws the
+ * latest snapshot on the event dispatch thread at the canvas's own frame
+ * rate.  Snapshots published between two ticks of the timer are skipped.
  */
 public abstract class Canvas extends JPanel implements ComponentListener,
         MouseListener,
@@ -121,6 +133,11 @@ public abstract class Canvas extends JPanel implements ComponentListener,
      * The margin of the view that must stay on screen.
      */
     private static final int VIEW_MARGIN = 50;
+    /**
+     * The longest time, in milliseconds, the simulation thread waits for the
+     * canvas before checking again whether the canvas still draws frames.
+     */
+    private static final long FRAME_WAIT_MILLIS = 100L;
     // Drawing elements for background
     /** The file name of the file containing the image to use for grass. */
     private static final String GRASS_TILE_FILE = "/images/grass128.png";
@@ -267,6 +284,36 @@ public abstract class Canvas extends JPanel implements ComponentListener,
      * Whether to show the VIN numbers
      */
     protected boolean isShowVin;
+    /**
+     * The latest frame published by the simulation thread and not yet drawn
+     */
+    private final AtomicReference<FrameSnapshot> latestFrame;
+    /**
+     * The lock on which the simulation thread waits for a frame to be drawn
+     * and recorded
+     */
+    private final Object frameLock;
+    /**
+     * Whether the event dispatch thread is drawing a frame it has taken;
+     * guarded by {@link #frameLock}
+     */
+    private boolean isDrawingFrame;
+    /**
+     * The frame on the display buffer; only used on the event dispatch thread
+     */
+    private FrameSnapshot drawnFrame;
+    /**
+     * The timer that draws the latest frame
+     */
+    private final Timer frameTimer;
+    /**
+     * The number of frames drawn per second; 0 if none
+     */
+    private double frameRate;
+    /**
+     * The path reused to draw the vehicles
+     */
+    private final Path2D.Double vehiclePath;
 
 
     /////////////////////////////////
@@ -309,6 +356,20 @@ public abstract class Canvas extends JPanel implements ComponentListener,
         isShowSimulationTime = Viewer.IS_SHOW_SIMULATION_TIME;
         isShowVin = Viewer.IS_SHOW_VIN_BY_DEFAULT;
 
+        latestFrame = new AtomicReference<FrameSnapshot>();
+        frameLock = new Object();
+        isDrawingFrame = false;
+        drawnFrame = null;
+        frameRate = 0.0;
+        frameTimer = new Timer(0, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                drawLatestFrame();
+            }
+        });
+        frameTimer.setCoalesce(true);
+        vehiclePath = new Path2D.Double();
+
         addMouseListener(simViewer);
         addKeyListener(viewer);
         addComponentListener(this);
@@ -367,6 +428,7 @@ public abstract class Canvas extends JPanel implements ComponentListener,
                 createMapImage(basicMap, scaleTable[scaleIndex]);
 
         canUpdateCanvas = true;
+        restartFrameTimer();
     }
 
     /**
@@ -591,6 +653,9 @@ public abstract class Canvas extends JPanel implements ComponentListener,
      * Clean up the canvas
      */
     public synchronized void cleanUp() {
+        frameTimer.stop();
+        latestFrame.set(null);
+        drawnFrame = null;
         paintEntireBuffer(displayBuffer, BACKGROUND_COLOR);
         for (int i = 0; i < SCALE_NUM; i++) {
             mapImageTable[i] = null;
@@ -599,17 +664,60 @@ public abstract class Canvas extends JPanel implements ComponentListener,
     }
 
     /**
-     * Update the canvas to visualize the current state of simulation.
+     * Redraw the frame on the canvas, for instance after the display
+     * settings have changed.  The canvas draws new frames by itself.
      */
     public void update() {
         if (canUpdateCanvas) {
-            // TODO: think how to avoid multiple calls of update() are queued here
-            // by synchronized when the the canvas is resized, rescaled, or
-            // repositioned.
             updateCanvas();
         }
     }
 
+    /**
+     * Take a snapshot of the current state of the simulation for the canvas
+     * to draw.  It is called by the simulation thread between two time steps,
+     * and it never waits for the canvas to be painted.
+     *
+     * @param sim  the simulator
+     */
+    public void publishFrame(Simulator sim) {
+        latestFrame.set(makeFrame(sim));
+    }
+
+    /**
+     * Take a snapshot of the current state of the simulation for the canvas
+     * to draw and hand to a recorder.  It is called by the simulation thread
+     * between two time steps.  Under the
+     * {@link FrameRecorder.OverflowPolicy#BLOCK} policy it waits until the
+     * canvas has drawn and recorded the previous frame and the recorder has a
+     * free slot, so that no frame is lost.  Under the
+     * {@link FrameRecorder.OverflowPolicy#DROP} policy it never waits, and a
+     * frame replaced before the canvas has drawn it is counted as dropped.
+     *
+     * @param sim       the simulator
+     * @param recorder  the recorder
+     */
+    public void publishFrame(Simulator sim, FrameRecorder recorder) {
+        FrameSnapshot frame = makeFrame(sim);
+        if (recorder.getPolicy() == FrameRecorder.OverflowPolicy.BLOCK) {
+            awaitFrameDrawn();
+            recorder.awaitFreeSlot();
+            latestFrame.set(frame);
+        } else if (latestFrame.getAndSet(frame) != null) {
+            recorder.countDroppedFrame();
+        }
+    }
+
+    /**
+     * Set the number of frames the canvas draws per second.
+     *
+     * @param frameRate  the frame rate; 0 if no frame should be drawn
+     */
+    public void setFrameRate(double frameRate) {
+        this.frameRate = frameRate;
+        restartFrameTimer();
+    }
+
     /**
      * Update the canvas to visualize the current state of simulation.
      */
@@ -618,7 +726,7 @@ public abstract class Canvas extends JPanel implements ComponentListener,
     }
 
     /**
-     * Update the canvas to visualize the current state of simulation.
+     * Draw the frame on the display buffer.
      */
     protected void doUpdateCanvas() {
         // reset the affine transform
@@ -627,7 +735,32 @@ public abstract class Canvas extends JPanel implements ComponentListener,
         paintEntireBuffer(displayBuffer, BACKGROUND_COLOR);
         // draw the map
         drawImageOnBuffer(displayBuffer, getMapImageTable(scaleIndex));
-        // Get the simulator
+        FrameSnapshot frame = drawnFrame;
+        // if there is a frame, draw the current view
+        if (frame != null) {
+            // draw the shapes below the vehicles
+            drawShapes(displayBuffer, frame.getShapesBelowVehicles(),
+                    frame.getColorsBelowVehicles());
+            // draw the vehicles
+            for (int i = 0; i < frame.getNumOfVehicles(); i++) {
+                drawVehicle(displayBuffer, frame, i);
+            }
+            // draw the shapes above the vehicles
+            drawShapes(displayBuffer, frame.getShapesAboveVehicles(),
+                    frame.getColorsAboveVehicles());
+            // draw simulation time.
+            if (isShowSimulationTime) {
+                drawSimulationTime(displayBuffer, frame.getSimulationTime());
+            }
+            // draw the debug points
+            drawDebugPoints(displayBuffer, frame.getDebugPoints());
+            // lastly, draw the vehicles' information string
+            for (int i = 0; i < frame.getNumOfVehicles(); i++) {
+                drawVehicleInfoString(displayBuffer, frame, i);
+            }
+        } // else no frame no drawing
+        // Finally display the new image
+        repaint();
     }
 
     /**
@@ -643,6 +776,119 @@ public abstract class Canvas extends JPanel implements ComponentListener,
     /////////////////////////////////
     // PRIVATE METHODS
     /////////////////////////////////
+    /**
+     * Start the frame timer at the frame rate, or stop it if the frame rate
+     * is 0 or there is no map yet.
+     */
+    private void restartFrameTimer() {
+        if (frameRate > 0.0 && basicMap != null) {
+            int delay = (int) (1000.0 / frameRate);
+            frameTimer.setDelay(delay);
+            frameTimer.setInitialDelay(delay);
+            frameTimer.restart();
+        } else {
+            frameTimer.stop();
+        }
+    }
+
+    /**
+     * Draw the latest published frame, if it has not been drawn yet.  It runs
+     * on the event dispatch thread.
+     */
+    private void drawLatestFrame() {
+        FrameSnapshot frame;
+        synchronized (frameLock) {
+            frame = latestFrame.getAndSet(null);
+            isDrawingFrame = (frame != null);
+        }
+        if (frame != null) {
+            try {
+                drawnFrame = frame;
+                if (canUpdateCanvas) {
+                    updateCanvas();
+                    simViewer.saveScreenShot();
+                }
+            } finally {
+                synchronized (frameLock) {
+                    isDrawingFrame = false;
+                    frameLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait until the canvas has drawn and recorded the latest published
+     * frame.  It stops waiting if the canvas no longer draws frames, or if
+     * the thread is interrupted.
+     */
+    private void awaitFrameDrawn() {
+        synchronized (frameLock) {
+            while ((latestFrame.get() != null || isDrawingFrame)
+                    && frameTimer.isRunning()) {
+                try {
+                    frameLock.wait(FRAME_WAIT_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Make a snapshot of the current state of the simulation.
+     *
+     * @param sim  the simulator
+     * @return the snapshot
+     */
+    protected abstract FrameSnapshot makeFrame(Simulator sim);
+
+    /**
+     * Add a vehicle to a snapshot.
+     *
+     * @param frame        the snapshot
+     * @param vehicle      the vehicle
+     * @param currentTime  the current simulated time
+     */
+    protected void addVehicle(FrameSnapshot frame,
+                              VehicleSimModel vehicle,
+                              double currentTime) {
+        VehicleSpec spec = vehicle.getSpec();
+        Point2D pos = vehicle.getPosition();
+        frame.addVehicle(vehicle.getVIN(),
+                VehicleSpecDatabase.getIdOfVehicleSpec(spec),
+                pos.getX(),
+                pos.getY(),
+                vehicle.getHeading(),
+                spec.getLength(),
+                spec.getWidth(),
+                getVehicleColor(vehicle),
+                getVehicleInfoString(vehicle, currentTime));
+    }
+
+    /**
+     * Get the color of a vehicle that is not selected.
+     *
+     * @param vehicle  the vehicle
+     * @return the color of the vehicle
+     */
+    protected Color getVehicleColor(VehicleSimModel vehicle) {
+        return VEHICLE_COLOR;
+    }
+
+    /**
+     * Get the information about a vehicle to show next to its VIN.
+     *
+     * @param vehicle      the vehicle
+     * @param currentTime  the current simulated time
+     * @return the information string; null if there is none
+     */
+    protected String getVehicleInfoString(VehicleSimModel vehicle,
+                                          double currentTime) {
+        return null;
+    }
+
     /**
      * Draw an image on screen.
      *
@@ -660,27 +906,62 @@ public abstract class Canvas extends JPanel implements ComponentListener,
         buffer.setTransform(tf);
     }
 
+    /**
+     * Draw a list of shapes.
+     *
+     * @param buffer  the display buffer
+     * @param shapes  the shapes
+     * @param colors  the colors of the shapes
+     */
+    private void drawShapes(Graphics2D buffer,
+                            List<Shape> shapes,
+                            List<Color> colors) {
+        for (int i = 0; i < shapes.size(); i++) {
+            buffer.setPaint(colors.get(i));
+            buffer.fill(shapes.get(i));
+        }
+    }
+
+    /**
+     * Get the outline of a vehicle in a frame.
+     *
+     * @param frame  the frame
+     * @param i      the index of the vehicle in the frame
+     * @return the outline of the vehicle; it is reused by the next call
+     */
+    private Shape getVehicleShape(FrameSnapshot frame, int i) {
+        frame.getOutline(i, vehiclePath);
+        return vehiclePath;
+    }
+
     /**
      * Draw an individual Vehicle, and any associated debug information, if this
      * Vehicle is a debug Vehicle.
      *
-     * @param buffer       the display buffer
-     * @param vehicle      the Vehicle to draw now
-     * @param currentTime  the current simulated time
+     * @param buffer  the display buffer
+     * @param frame   the frame
+     * @param i       the index of the vehicle in the frame
      */
-    protected void drawVehicle(Graphics2D buffer,
-                             VehicleSimModel vehicle,
-                             double currentTime) {
-        boolean selectedVehicle = (Debug.getTargetVIN() == vehicle.getVIN());
-
+    protected void drawVehicle(Graphics2D buffer, FrameSnapshot frame, int i) {
+        // whether the vehicle is selected
+        boolean selectedVehicle = (Debug.getTargetVIN() == frame.getVIN(i));
+        if (selectedVehicle) {
+            buffer.setPaint(VEHICLE_SELECTED_COLOR);
+        } else {
+            buffer.setPaint(new Color(frame.getColor(i)));
+        }
         buffer.setStroke(VEHICLE_STROKE);
-        buffer.fill(vehicle.getShape());
-
+        // Now draw the vehicle's shape
+        buffer.fill(getVehicleShape(frame, i));
         // Draw wheels and stuff if needed
-        if (selectedVehicle) {
+        if (selectedVehicle && frame.getSpecId(i) >= 0) {
+            VehicleSpec spec =
+                    VehicleSpecDatabase.getVehicleSpecById(frame.getSpecId(i));
             buffer.setPaint(TIRE_COLOR);
             buffer.setStroke(TIRE_STROKE);
-            for (Shape wheel : vehicle.getWheelShapes()) {
+            for (Shape wheel : spec.getWheelShapes(
+                    new Point2D.Double(frame.getX(i), frame.getY(i)),
+                    frame.getHeading(i), 0.0)) {
                 buffer.fill(wheel);
             }
         }
@@ -689,26 +970,29 @@ public abstract class Canvas extends JPanel implements ComponentListener,
     /**
      * Draw the information string of the vehicle on screen
      *
-     * @param buffer       the display buffer
-     * @param vehicle      the vehicle
-     * @param currentTime  the current simulated time
+     * @param buffer  the display buffer
+     * @param frame   the frame
+     * @param i       the index of the vehicle in the frame
      */
     protected void drawVehicleInfoString(Graphics2D buffer,
-                                       VehicleSimModel vehicle,
-                                       double currentTime) {
+                                         FrameSnapshot frame,
+                                         int i) {
         java.util.List<String> infos = new LinkedList<String>();
 
         if (isShowVin) {
-            infos.add(Integer.toString(vehicle.getVIN()));
+            infos.add(Integer.toString(frame.getVIN(i)));
+        }
+        if (frame.getInfoString(i) != null) {
+            infos.add(frame.getInfoString(i));
         }
 
         if (infos.size() > 0) {
-            Point2D centerPoint = vehicle.getCenterPoint();
+            double halfLength = frame.getLength(i) / 2;
             buffer.setColor(VEHICLE_INFO_STRING_COLOR);
             buffer.setFont(VEHICLE_INFO_STRING_FONT);
             buffer.drawString(Util.concatenate(infos, ","),
-                    (float) centerPoint.getX(),
-                    (float) centerPoint.getY());
+                    (float) (frame.getX(i) - halfLength * Math.cos(frame.getHeading(i))),
+                    (float) (frame.getY(i) - halfLength * Math.sin(frame.getHeading(i))));
         }
     }
 
@@ -964,20 +1248,15 @@ public abstract class Canvas extends JPanel implements ComponentListener,
     }
 
     /**
-     * Save the screen to a file in PNG format.
+     * Hand the screen to a recorder.  It never waits for the encoders of the
+     * recorder, since it runs on the event dispatch thread; the screen is
+     * dropped if they have fallen behind.
      *
-     * @param outFileName  the output file name
+     * @param recorder  the recorder
+     * @return whether the screen has been recorded; false if it was dropped
      */
-    public void saveScreenShot(String outFileName) {
-        File outfile = new File(outFileName);
-        try {
-            if (!ImageIO.write((BufferedImage) displayImage, "png", outfile)) {
-                System.err.printf("Error in Canvas::saveScreenShot(): "
-                        + "no appropriate writer is found\n");
-            }
-        } catch (IOException ioe) {
-            System.err.println("Error: " + ioe);
-        }
+    public synchronized boolean recordScreen(FrameRecorder recorder) {
+        return displayImage != null && recorder.offer(displayImage);
     }
 
     /**
@@ -1003,14 +1282,14 @@ public abstract class Canvas extends JPanel implements ComponentListener,
      *
      * @param vin  the VIN number of the vehicle
      */
-    public void highlightVehicle(int vin) {
-        Simulator sim = simViewer.getSimulator();
-        if (sim != null) {
-            VehicleSimModel vehicle = sim.getActiveVehicle(vin);
-            if (vehicle != null) {
+    public synchronized void highlightVehicle(int vin) {
+        FrameSnapshot frame = drawnFrame;
+        if (frame != null) {
+            int i = frame.indexOf(vin);
+            if (i >= 0) {
                 displayBuffer.setPaint(HIGHLIGHTED_VEHICLE_COLOR);
                 displayBuffer.setStroke(HIGHLIGHTED_VEHICLE_STROKE);
-                displayBuffer.fill(vehicle.getShape());
+                displayBuffer.fill(getVehicleShape(frame, i));
                 repaint();
             }
         }
@@ -0,0 +1,306 @@
+package aim4.gui.screen.aim;
+
+import aim4.config.DebugPoint;
+import aim4.vehicle.VehicleSpec;
+
+import java.awt.Color;
+import java.awt.Shape;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A picture of the state of a simulation at the end of a time step, taken by
+ * the simulation thread for the canvas to draw on its own thread.  The
+ * vehicles are kept in primitive arrays, one entry per vehicle.  A snapshot
+ * is filled by the thread that creates it and must not be changed after it
+ * has been published to the canvas.
+ */
+public class FrameSnapshot {
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The simulation time of the frame */
+    private final double simulationTime;
+    /** The number of vehicles in the frame */
+    private int numOfVehicles;
+    /** The VINs of the vehicles */
+    private int[] vins;
+    /** The ids of the vehicle specifications; -1 if not registered */
+    private int[] specIds;
+    /** The x-coordinates of the front of the vehicles */
+    private double[] xs;
+    /** The y-coordinates of the front of the vehicles */
+    private double[] ys;
+    /** The headings of the vehicles */
+    private double[] headings;
+    /** The lengths of the vehicles */
+    private double[] lengths;
+    /** The widths of the vehicles */
+    private double[] widths;
+    /** The colors of the vehicles, as RGB values */
+    private int[] colors;
+    /** The information strings of the vehicles; null if none */
+    private String[] infoStrings;
+    /** The shapes to draw below the vehicles */
+    private final List<Shape> shapesBelow;
+    /** The colors of the shapes to draw below the vehicles */
+    private final List<Color> colorsBelow;
+    /** The shapes to draw above the vehicles */
+    private final List<Shape> shapesAbove;
+    /** The colors of the shapes to draw above the vehicles */
+    private final List<Color> colorsAbove;
+    /** The debug points */
+    private final List<DebugPoint> debugPoints;
+
+    /////////////////////////////////
+    // CLASS CONSTRUCTORS
+    /////////////////////////////////
+
+    /**
+     * Create an empty snapshot.
+     *
+     * @param simulationTime  the simulation time of the frame
+     * @param capacity        the expected number of vehicles
+     */
+    public FrameSnapshot(double simulationTime, int capacity) {
+        this.simulationTime = simulationTime;
+        int n = Math.max(capacity, 1);
+        numOfVehicles = 0;
+        vins = new int[n];
+        specIds = new int[n];
+        xs = new double[n];
+        ys = new double[n];
+        headings = new double[n];
+        lengths = new double[n];
+        widths = new double[n];
+        colors = new int[n];
+        infoStrings = new String[n];
+        shapesBelow = new ArrayList<Shape>();
+        colorsBelow = new ArrayList<Color>();
+        shapesAbove = new ArrayList<Shape>();
+        colorsAbove = new ArrayList<Color>();
+        debugPoints = new ArrayList<DebugPoint>();
+    }
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    //FILLING//
+
+    /**
+     * Add a vehicle to the snapshot.
+     *
+     * @param vin         the VIN of the vehicle
+     * @param specId      the id of the vehicle specification
+     * @param x           the x-coordinate of the front of the vehicle
+     * @param y           the y-coordinate of the front of the vehicle
+     * @param heading     the heading of the vehicle
+     * @param length      the length of the vehicle
+     * @param width       the width of the vehicle
+     * @param color       the color of the vehicle
+     * @param infoString  the information string of the vehicle; null if none
+     */
+    public void addVehicle(int vin, int specId, double x, double y, double heading,
+                           double length, double width, Color color, String infoString) {
+        if (numOfVehicles == vins.length) {
+            grow();
+        }
+        int i = numOfVehicles++;
+        vins[i] = vin;
+        specIds[i] = specId;
+        xs[i] = x;
+        ys[i] = y;
+        headings[i] = heading;
+        lengths[i] = length;
+        widths[i] = width;
+        colors[i] = color.getRGB();
+        infoStrings[i] = infoString;
+    }
+
+    /**
+     * Add a shape to draw before the vehicles.
+     *
+     * @param shape  the shape
+     * @param color  the color of the shape
+     */
+    public void addShapeBelowVehicles(Shape shape, Color color) {
+        shapesBelow.add(shape);
+        colorsBelow.add(color);
+    }
+
+    /**
+     * Add a shape to draw after the vehicles.
+     *
+     * @param shape  the shape
+     * @param color  the color of the shape
+     */
+    public void addShapeAboveVehicles(Shape shape, Color color) {
+        shapesAbove.add(shape);
+        colorsAbove.add(color);
+    }
+
+    /**
+     * Add debug points to the snapshot.
+     *
+     * @param points  the debug points
+     */
+    public void addDebugPoints(List<DebugPoint> points) {
+        debugPoints.addAll(points);
+    }
+
+    //ACCESSORS//
+
+    /**
+     * Get the simulation time of the frame.
+     *
+     * @return the simulation time
+     */
+    public double getSimulationTime() {
+        return simulationTime;
+    }
+
+    /**
+     * Get the number of vehicles in the frame.
+     *
+     * @return the number of vehicles
+     */
+    public int getNumOfVehicles() {
+        return numOfVehicles;
+    }
+
+    /**
+     * Get the index of a vehicle in the frame.
+     *
+     * @param vin  the VIN of the vehicle
+     * @return the index of the vehicle; -1 if it is not in the frame
+     */
+    public int indexOf(int vin) {
+        for (int i = 0; i < numOfVehicles; i++) {
+            if (vins[i] == vin) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Get the VIN of the i-th vehicle */
+    public int getVIN(int i) {
+        return vins[i];
+    }
+
+    /** Get the id of the specification of the i-th vehicle; -1 if not registered */
+    public int getSpecId(int i) {
+        return specIds[i];
+    }
+
+    /** Get the x-coordinate of the front of the i-th vehicle */
+    public double getX(int i) {
+        return xs[i];
+    }
+
+    /** Get the y-coordinate of the front of the i-th vehicle */
+    public double getY(int i) {
+        return ys[i];
+    }
+
+    /** Get the heading of the i-th vehicle */
+    public double getHeading(int i) {
+        return headings[i];
+    }
+
+    /** Get the length of the i-th vehicle */
+    public double getLength(int i) {
+        return lengths[i];
+    }
+
+    /** Get the width of the i-th vehicle */
+    public double getWidth(int i) {
+        return widths[i];
+    }
+
+    /** Get the color of the i-th vehicle, as an RGB value */
+    public int getColor(int i) {
+        return colors[i];
+    }
+
+    /** Get the information string of the i-th vehicle; null if none */
+    public String getInfoString(int i) {
+        return infoStrings[i];
+    }
+
+    /**
+     * Get the outline of a vehicle.  The corners are the ones given by
+     * {@link VehicleSpec#getCornerPoints(Point2D, double)}.
+     *
+     * @param i       the index of the vehicle
+     * @param result  the path to which the outline is written
+     */
+    public void getOutline(int i, Path2D.Double result) {
+        double cos = Math.cos(headings[i]);
+        double sin = Math.sin(headings[i]);
+        double halfWidth = widths[i] / 2;
+        // the corners of the front of the vehicle
+        double leftX = xs[i] - halfWidth * sin;
+        double leftY = ys[i] + halfWidth * cos;
+        double rightX = xs[i] + halfWidth * sin;
+        double rightY = ys[i] - halfWidth * cos;
+        result.reset();
+        result.moveTo(leftX, leftY);
+        result.lineTo(leftX - lengths[i] * cos, leftY - lengths[i] * sin);
+        result.lineTo(rightX - lengths[i] * cos, rightY - lengths[i] * sin);
+        result.lineTo(rightX, rightY);
+        result.closePath();
+    }
+
+    /** Get the shapes to draw before the vehicles */
+    public List<Shape> getShapesBelowVehicles() {
+        return Collections.unmodifiableList(shapesBelow);
+    }
+
+    /** Get the colors of the shapes to draw before the vehicles */
+    public List<Color> getColorsBelowVehicles() {
+        return Collections.unmodifiableList(colorsBelow);
+    }
+
+    /** Get the shapes to draw after the vehicles */
+    public List<Shape> getShapesAboveVehicles() {
+        return Collections.unmodifiableList(shapesAbove);
+    }
+
+    /** Get the colors of the shapes to draw after the vehicles */
+    public List<Color> getColorsAboveVehicles() {
+        return Collections.unmodifiableList(colorsAbove);
+    }
+
+    /** Get the debug points */
+    public List<DebugPoint> getDebugPoints() {
+        return Collections.unmodifiableList(debugPoints);
+    }
+
+    /////////////////////////////////
+    // PRIVATE METHODS
+    /////////////////////////////////
+
+    /**
+     * Double the capacity of the vehicle arrays.
+     */
+    private void grow() {
+        int n = vins.length * 2;
+        vins = Arrays.copyOf(vins, n);
+        specIds = Arrays.copyOf(specIds, n);
+        xs = Arrays.copyOf(xs, n);
+        ys = Arrays.copyOf(ys, n);
+        headings = Arrays.copyOf(headings, n);
+        lengths = Arrays.copyOf(lengths, n);
+        widths = Arrays.copyOf(widths, n);
+        colors = Arrays.copyOf(colors, n);
+        infoStrings = Arrays.copyOf(infoStrings, n);
+    }
+}
@@ -1,6 +1,6 @@
 package aim4.gui.screen.cpm.components;
 
-import aim4.gui.screen.merge.components.MapKeyTableModel;
+import aim4.gui.screen.merge.components.AppendOnlyTableModel;
 import aim4.sim.simulator.cpm.CPMAutoDriverSimulator;
 import aim4.sim.simulator.cpm.CPMAutoDriverSimulator.*;
 import aim4.vehicle.cpm.CPMBasicAutoVehicle;
@@ -12,12 +12,12 @@ import java.util.List;
  * A table displaying information for the vehicles that have completed the simulation.
  */
 public class CompletedVehiclesTable extends JPanel implements CPMStatScreenComponent {
-    private MapKeyTableModel model; // TODO CPM Move this class out of merge
+    private AppendOnlyTableModel model; // TODO CPM Move this class out of merge
     private JTable table;
     private JScrollPane scrollPane;
 
     public CompletedVehiclesTable() {
-        this.model = new MapKeyTableModel( new String[]{
+        this.model = new AppendOnlyTableModel( new String[]{
                 "VIN",
                 "Spec",
                 "Entry time",
@@ -39,7 +39,7 @@ public class CompletedVehiclesTable extends JPanel implements CPMStatScreenCompo
                        List<CPMAutoDriverSimStepResult> results) {
         for(CPMAutoDriverSimStepResult stepResult : results) {
             for (CPMBasicAutoVehicle vehicle : stepResult.getCompletedVehicles()) {
-                model.addOrUpdateRow(vehicle.getVIN(), new Object[]{
+                model.appendRow(new Object[]{
                         vehicle.getVIN(),
                         vehicle.getSpec().getName(),
                         vehicle.getEntryTime(),
@@ -51,6 +51,7 @@ public class CompletedVehiclesTable extends JPanel implements CPMStatScreenCompo
                 });
             }
         }
+        model.flush();
     }
 
     private double calculateRetrievalTime(CPMBasicAutoVehicle vehicle) {
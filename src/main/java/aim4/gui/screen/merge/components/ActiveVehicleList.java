@@ -8,7 +8,6 @@ import javax.swing.*;
 import java.awt.*;
 import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
 
 /**
  * Created by Callum on 26/03/2017.
@@ -49,12 +48,10 @@ public class ActiveVehicleList extends JPanel implements MergeStatScreenComponen
         }
         for(CoreMergeSimulator.CoreMergeSimStepResult stepResult : results) {
             for (int vin : stepResult.getCompletedVehicles().keySet()) {
-                try {
-                    model.removeRow(vin);
-                } catch(NoSuchElementException e) {
-                    /*TODO: Handle more elegantly. Usually happens in TurboMode where there was not enough time to add the vehicle to the table with before the vehicle finished! */
-                }
+                // vehicles that finished before they were ever shown have no row, which is ignored
+                model.removeRow(vin);
             }
         }
+        model.flush();
     }
 }
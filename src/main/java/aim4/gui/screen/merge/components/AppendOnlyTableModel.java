@@ -0,0 +1,117 @@
+package aim4.gui.screen.merge.components;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A table model for a history, to which rows are only ever appended, such as
+ * the vehicles that have completed the simulation.  The rows are kept in
+ * fixed-size blocks, so a cell is read in constant time and the history grows
+ * without copying the rows it already has.  The table only asks for the cells
+ * of the rows it shows.
+ * <p>
+ * Rows are appended by the simulation thread, but they are only staged.
+ * {@link #flush()} hands them to the event dispatch thread, which adds all the
+ * rows staged since the last flush at once and fires a single event for them.
+ */
+public class AppendOnlyTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final int BLOCK_BITS = 10;
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+
+    //ROWS, ONLY USED ON THE EVENT DISPATCH THREAD//
+    private List<Object[][]> blocks;
+    private int size;
+
+    //STAGED ROWS, GUARDED BY THE LOCK//
+    private final Object lock = new Object();
+    private List<Object[]> stagedRows;
+    private boolean flushScheduled;
+
+    private String[] columnHeadings;
+
+    public AppendOnlyTableModel(String[] columnHeadings) {
+        this.columnHeadings = columnHeadings;
+
+        blocks = new ArrayList<Object[][]>();
+        size = 0;
+        stagedRows = new ArrayList<Object[]>();
+        flushScheduled = false;
+    }
+
+    @Override
+    public int getRowCount() {
+        return size;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnHeadings.length;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        return blocks.get(rowIndex >>> BLOCK_BITS)[rowIndex & (BLOCK_SIZE - 1)][columnIndex];
+    }
+
+    @Override
+    public String getColumnName(int col) {
+        return columnHeadings[col];
+    }
+
+    /**
+     * Stage a row to be added after the last row.
+     *
+     * @param row the values of the row
+     */
+    public void appendRow(Object[] row) {
+        synchronized (lock) {
+            stagedRows.add(row);
+        }
+    }
+
+    /**
+     * Add the staged rows on the event dispatch thread.  Flushing again
+     * before they have been added does nothing more.
+     */
+    public void flush() {
+        synchronized (lock) {
+            if (flushScheduled || stagedRows.isEmpty()) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                applyStagedRows();
+            }
+        });
+    }
+
+    /**
+     * Add the staged rows and fire one event for them.
+     */
+    void applyStagedRows() {
+        List<Object[]> staged;
+        synchronized (lock) {
+            staged = stagedRows;
+            stagedRows = new ArrayList<Object[]>();
+            flushScheduled = false;
+        }
+        if (staged.isEmpty()) {
+            return;
+        }
+        int first = size;
+        for (Object[] row : staged) {
+            if ((size & (BLOCK_SIZE - 1)) == 0) {
+                blocks.add(new Object[BLOCK_SIZE][]);
+            }
+            blocks.get(size >>> BLOCK_BITS)[size & (BLOCK_SIZE - 1)] = row;
+            size++;
+        }
+        fireTableRowsInserted(first, size - 1);
+    }
+}
@@ -12,12 +12,12 @@ import java.util.List;
  * Created by Callum on 26/03/2017.
  */
 public class CompletedVehicleList extends JPanel implements MergeStatScreenComponent {
-    private MapKeyTableModel model;
+    private AppendOnlyTableModel model;
     private JTable table;
     private JScrollPane scrollPane;
 
     public CompletedVehicleList() {
-        this.model = new MapKeyTableModel(new String[]{
+        this.model = new AppendOnlyTableModel(new String[]{
                 "VIN",
                 "Starting Road",
                 "Spec",
@@ -43,7 +43,7 @@ public class CompletedVehicleList extends JPanel implements MergeStatScreenCompo
         for(CoreMergeSimulator.CoreMergeSimStepResult stepResult : results) {
             for (int vin : stepResult.getCompletedVehicles().keySet()) {
                 MergeVehicleSimModel vehicle = stepResult.getCompletedVehicles().get(vin);
-                model.addOrUpdateRow(vin, new Object[]{
+                model.appendRow(new Object[]{
                         vin,
                         vehicle.getStartingRoad().toString(),
                         vehicle.getSpec().getName(),
@@ -58,5 +58,6 @@ public class CompletedVehicleList extends JPanel implements MergeStatScreenCompo
                 });
             }
         }
+        model.flush();
     }
 }
@@ -1,30 +1,54 @@
 package aim4.gui.screen.merge.components;
 
+import javax.swing.*;
 import javax.swing.table.AbstractTableModel;
-import javax.swing.table.DefaultTableModel;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
- * Created by Callum on 10/04/2017.
+ * A table model whose rows are identified by a key, kept in the order in which
+ * the keys were first added.  The rows are held in an array with a map from
+ * the keys to their indices, so a cell is read in constant time.
+ * <p>
+ * Rows are added, updated and removed by the simulation thread, but the
+ * changes are only staged.  {@link #flush()} hands them to the event dispatch
+ * thread, which applies all the changes staged since the last flush at once
+ * and fires a single event for them.
  */
 public class MapKeyTableModel extends AbstractTableModel {
-    private LinkedList<Object[]> rows;
-    private Map<Object, Object[]> rowMap;
+    //ROWS, ONLY USED ON THE EVENT DISPATCH THREAD//
+    private Object[][] rows;
+    private Object[] keys;
+    private int size;
+    private Map<Object, Integer> keyToIndex;
+
+    //STAGED CHANGES, GUARDED BY THE LOCK//
+    private final Object lock = new Object();
+    private Map<Object, Object[]> stagedRows;
+    private Set<Object> stagedRemovals;
+    private boolean flushScheduled;
+
     private String[] columnHeadings;
 
     public MapKeyTableModel(String[] columnHeadings) {
         this.columnHeadings = columnHeadings;
 
-        rows = new LinkedList<Object[]>();
-        rowMap = new HashMap<Object, Object[]>();
+        rows = new Object[16][];
+        keys = new Object[16];
+        size = 0;
+        keyToIndex = new HashMap<Object, Integer>();
+        stagedRows = new LinkedHashMap<Object, Object[]>();
+        stagedRemovals = new HashSet<Object>();
+        flushScheduled = false;
     }
 
     @Override
     public int getRowCount() {
-        return rows.size();
+        return size;
     }
 
     @Override
@@ -34,7 +58,7 @@ public class MapKeyTableModel extends AbstractTableModel {
 
     @Override
     public Object getValueAt(int rowIndex, int columnIndex) {
-        return rows.get(rowIndex)[columnIndex];
+        return rows[rowIndex][columnIndex];
     }
 
     @Override
@@ -42,24 +66,131 @@ public class MapKeyTableModel extends AbstractTableModel {
         return columnHeadings[col];
     }
 
+    /**
+     * Stage the removal of a row.  A key without a row is ignored.
+     *
+     * @param key the key of the row
+     */
     public void removeRow(Object key) {
-        int index = rows.indexOf(rowMap.get(key));
-        boolean successful = rows.remove(rowMap.get(key));
-        if(!successful)
-            throw new NoSuchElementException("Attempted to remove a row that did not exist");
-        fireTableRowsDeleted(index, index);
+        synchronized (lock) {
+            stagedRows.remove(key);
+            stagedRemovals.add(key);
+        }
     }
 
+    /**
+     * Stage a row, which replaces the row with the same key or is added after
+     * the last row.  A row whose removal is staged is added again after the
+     * last row.
+     *
+     * @param key the key of the row
+     * @param row the values of the row
+     */
     public void addOrUpdateRow(Object key, Object[] row) {
-        if(rowMap.containsKey(key)){
-            int index = rows.indexOf(rowMap.get(key) /*Old row*/);
-            rows.set(index, row);
-            rowMap.put(key, row);
-            fireTableRowsUpdated(index, index);
+        synchronized (lock) {
+            stagedRows.put(key, row);
+        }
+    }
+
+    /**
+     * Apply the staged changes on the event dispatch thread.  Flushing again
+     * before they have been applied does nothing more.
+     */
+    public void flush() {
+        synchronized (lock) {
+            if (flushScheduled || (stagedRows.isEmpty() && stagedRemovals.isEmpty())) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                applyStagedChanges();
+            }
+        });
+    }
+
+    /**
+     * Apply the staged changes and fire one event for them.
+     */
+    void applyStagedChanges() {
+        Map<Object, Object[]> updates;
+        Set<Object> removals;
+        synchronized (lock) {
+            updates = stagedRows;
+            removals = stagedRemovals;
+            stagedRows = new LinkedHashMap<Object, Object[]>();
+            stagedRemovals = new HashSet<Object>();
+            flushScheduled = false;
+        }
+        boolean removed = removeRows(removals);
+        int firstAdded = size;
+        int firstUpdated = Integer.MAX_VALUE;
+        int lastUpdated = -1;
+        for (Map.Entry<Object, Object[]> entry : updates.entrySet()) {
+            Integer index = keyToIndex.get(entry.getKey());
+            if (index != null) {
+                rows[index] = entry.getValue();
+                firstUpdated = Math.min(firstUpdated, index);
+                lastUpdated = Math.max(lastUpdated, index);
+            } else {
+                append(entry.getKey(), entry.getValue());
+            }
+        }
+
+        if (removed) {
+            fireTableDataChanged();
         } else {
-            rows.add(row);
-            rowMap.put(key, rows.getLast());
-            fireTableRowsInserted(rows.size() - 1, rows.size() - 1);
+            if (lastUpdated >= 0) {
+                fireTableRowsUpdated(firstUpdated, lastUpdated);
+            }
+            if (size > firstAdded) {
+                fireTableRowsInserted(firstAdded, size - 1);
+            }
+        }
+    }
+
+    /**
+     * Remove the rows of the given keys, keeping the order of the others.
+     *
+     * @return whether any row was removed
+     */
+    private boolean removeRows(Set<Object> removals) {
+        int first = size;
+        for (Object key : removals) {
+            Integer index = keyToIndex.remove(key);
+            if (index != null) {
+                first = Math.min(first, index);
+                keys[index] = null;
+            }
+        }
+        if (first == size) {
+            return false;
+        }
+        int kept = first;
+        for (int i = first; i < size; i++) {
+            if (keys[i] != null) {
+                keys[kept] = keys[i];
+                rows[kept] = rows[i];
+                keyToIndex.put(keys[kept], kept);
+                kept++;
+            }
+        }
+        Arrays.fill(keys, kept, size, null);
+        Arrays.fill(rows, kept, size, null);
+        size = kept;
+        return true;
+    }
+
+    private void append(Object key, Object[] row) {
+        if (size == rows.length) {
+            rows = Arrays.copyOf(rows, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
         }
+        rows[size] = row;
+        keys[size] = key;
+        keyToIndex.put(key, size);
+        size++;
     }
 }
@@ -127,6 +127,7 @@ public class AIMSimViewer extends SimViewer {
     protected void runBeforeResettingSimulator() {
         if (udpListener != null) {
             stopUdpListening();
+            removeUdpListener();
         }
     }
 
@@ -1,11 +1,11 @@
 package aim4.gui.viewer;
 
-import aim4.config.Constants;
 import aim4.config.Debug;
 import aim4.config.SimConfig;
 import aim4.gui.*;
 import aim4.gui.screen.aim.Canvas;
 import aim4.gui.frame.VehicleInfoFrame;
+import aim4.gui.screen.FrameRecorder;
 import aim4.gui.screen.SimScreen;
 import aim4.gui.screen.StatScreen;
 import aim4.gui.setuppanel.SimSetupPanel;
@@ -17,6 +17,7 @@ import aim4.util.Util;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.File;
 
 /**
  * Created by Callum on 09/11/2016.
@@ -123,6 +124,18 @@ public abstract class SimViewer extends JPanel implements
      * The number of generated images
      */
     private int imageCounter;
+    /**
+     * The format of the recorded frames
+     */
+    private FrameRecorder.Format recordingFormat;
+    /**
+     * What to do with a frame when the encoders fall behind
+     */
+    private FrameRecorder.OverflowPolicy recordingOverflowPolicy;
+    /**
+     * The recorder of the frames; null if not recording
+     */
+    private volatile FrameRecorder recorder;
 
     // ///////////////////////////////
     // CLASS CONSTRUCTORS
@@ -146,10 +159,14 @@ public abstract class SimViewer extends JPanel implements
         this.recording = false;
         this.imageDir = null;
         this.imageCounter = 0;
+        this.recordingFormat = FrameRecorder.Format.PNG;
+        this.recordingOverflowPolicy = FrameRecorder.OverflowPolicy.BLOCK;
+        this.recorder = null;
 
         this.liveViewSupported = liveViewSupported;
         if(liveViewSupported) {
             createCanvas(viewer);
+            canvas.setFrameRate(targetFrameRate);
             simScreen = this.canvas;
         } else {
             createStatScreen(viewer);
@@ -425,7 +442,6 @@ public abstract class SimViewer extends JPanel implements
     private void updateScreenInTurboMode() {
         if (0.0 < targetFrameRate) {
             updateScreen();
-            saveScreenShot();
         }
     }
 
@@ -437,11 +453,9 @@ public abstract class SimViewer extends JPanel implements
         if (targetFrameRate >= SimConfig.CYCLES_PER_SECOND) {
             // update as fast as possible
             updateScreen();
-            saveScreenShot();
         } else if (0.0 < targetFrameRate) {
             if (System.currentTimeMillis() > nextFrameTime) {
                 updateScreen();
-                saveScreenShot();
                 nextFrameTime =
                         System.currentTimeMillis() + (long) (1000.0 / targetFrameRate);
             }
@@ -452,22 +466,33 @@ public abstract class SimViewer extends JPanel implements
     // Basic fucntions for GUI updates
     // //////////////////////////////////////////////////
     /**
-     * Update the screen
+     * Update the screen. The canvas is only handed a snapshot of the
+     * simulation, which it draws on its own thread.
      */
     private void updateScreen() {
-        simScreen.update();
+        if (liveViewSupported) {
+            FrameRecorder frameRecorder = recorder;
+            if (frameRecorder != null) {
+                // wait here rather than on the event dispatch thread if the
+                // canvas or the encoders have fallen behind
+                canvas.publishFrame(sim, frameRecorder);
+            } else {
+                canvas.publishFrame(sim);
+            }
+        } else {
+            simScreen.update();
+        }
         statusPanel.update();
     }
 
     /**
-     * Save a screenshot
+     * Save a screenshot if the viewer is recording. The canvas calls it after
+     * it has drawn a new frame.
      */
-    private void saveScreenShot() {
-        if (recording && imageDir != null) {
-            String outFileName =
-                    imageDir + "/" + Constants.LEADING_ZEROES.format(imageCounter++)
-                            + ".png";
-            canvas.saveScreenShot(outFileName);
+    public void saveScreenShot() {
+        FrameRecorder frameRecorder = recorder;
+        if (frameRecorder != null) {
+            canvas.recordScreen(frameRecorder);
         }
     }
 
@@ -577,6 +602,46 @@ public abstract class SimViewer extends JPanel implements
      */
     public void setRecording(boolean recording) {
         this.recording = recording;
+        if (recording && recorder == null && imageDir != null) {
+            recorder = new FrameRecorder(new File(imageDir), imageCounter,
+                    recordingFormat, recordingOverflowPolicy);
+        } else if (!recording && recorder != null) {
+            // wait for the encoders to write the queued frames
+            recorder.close();
+            imageCounter = recorder.getNextFrameNumber();
+            System.err.printf("Recording stopped: %d frames written, "
+                            + "%d dropped, %d failed\n",
+                    recorder.getNumOfWrittenFrames(),
+                    recorder.getNumOfDroppedFrames(),
+                    recorder.getNumOfFailedFrames());
+            recorder = null;
+        }
+    }
+
+    /**
+     * Get the number of frames dropped by the current recording because the
+     * encoders fell behind.
+     * @return The number of dropped frames; 0 if not recording
+     */
+    public int getNumOfDroppedFrames() {
+        return (recorder != null) ? recorder.getNumOfDroppedFrames() : 0;
+    }
+
+    /**
+     * Sets the format of the frames of the next recording
+     * @param recordingFormat The format of the recorded frames
+     */
+    public void setRecordingFormat(FrameRecorder.Format recordingFormat) {
+        this.recordingFormat = recordingFormat;
+    }
+
+    /**
+     * Sets what the next recording does with a frame when the encoders fall
+     * behind
+     * @param recordingOverflowPolicy The overflow policy
+     */
+    public void setRecordingOverflowPolicy(FrameRecorder.OverflowPolicy recordingOverflowPolicy) {
+        this.recordingOverflowPolicy = recordingOverflowPolicy;
     }
 
     /**
@@ -821,6 +886,9 @@ public abstract class SimViewer extends JPanel implements
     public void setTargetFrameRate(double targetFrameRate) {
         this.targetFrameRate =
                 Math.min(targetFrameRate, SimConfig.CYCLES_PER_SECOND);
+        if (liveViewSupported) {
+            canvas.setFrameRate(this.targetFrameRate);
+        }
 
         if (simThread != null) {
             if (simThread.isTurboMode()) {
@@ -41,6 +41,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import aim4.config.Debug;
 import aim4.map.Road;
@@ -138,10 +139,11 @@ public class RoadBasedTrackModel implements TrackModel {
 
   /**
    * Memoization cache for {@link #traversalDistance(Road arrival, Road
-   * departure)}.
+   * departure)}.  It is a concurrent map because drivers may act in
+   * parallel.
    */
   private Map<List<Integer>, Double> memoTraversalDistance =
-    new HashMap<List<Integer>, Double>();
+    new ConcurrentHashMap<List<Integer>, Double>();
 
   // TODO: remove this variable
   /**
@@ -414,8 +416,8 @@ public class RoadBasedTrackModel implements TrackModel {
   @Override
   public double traversalDistance(int arrivalID, int departureID) {
     List<Integer> key = Arrays.asList(arrivalID, departureID);
-    Lane arrival = Debug.currentMap.getLaneRegistry().get(arrivalID);
-    Lane departure = Debug.currentMap.getLaneRegistry().get(departureID);
+    Lane arrival = Debug.getCurrentMap().getLaneRegistry().get(arrivalID);
+    Lane departure = Debug.getCurrentMap().getLaneRegistry().get(departureID);
     return traversalDistance(arrival, departure);
   }
 
@@ -172,7 +172,8 @@ public class V2IManager extends IntersectionManager
                                    config.getGranularity());
     this.reservationGrid = new ReservationGrid(tiledArea.getXNum(),
                                                tiledArea.getYNum(),
-                                               config.getGridTimeStep());
+                                               config.getGridTimeStep(),
+                                               config.getReservationBackend());
     this.reservationGridManager = new ReservationGridManager(config,
                                                              intersection,
                                                              tiledArea,
@@ -435,6 +436,12 @@ public class V2IManager extends IntersectionManager
       if (gridStatCollector != null) {
         gridStatCollector.print(outfile);
       }
+
+      StatCollector<ReservationGridManager> footprintCacheStatCollector =
+        reservationGridManager.getFootprintCacheStatCollector();
+      if (footprintCacheStatCollector != null) {
+        footprintCacheStatCollector.print(outfile);
+      }
     }
   }
 
@@ -455,7 +455,7 @@ public final class BasePolicy implements Policy, ExtendedBasePolicyCallback {
                   vin,
                   reservationId,
                   latestRequestId,
-                  reserveParam.getSuccessfulProposal().getArrivalTime(),
+                  reserveParam.getGridPlan().getArrivalTime(),
                   EARLY_ERROR, LATE_ERROR,
                   reserveParam.getSuccessfulProposal().getArrivalVelocity(),
                   reserveParam.getSuccessfulProposal().getArrivalLaneID(),
@@ -506,6 +506,11 @@ public final class BasePolicy implements Policy, ExtendedBasePolicyCallback {
     ReservationGridManager.Plan gridPlan = null;
     AczManager aczManager = null;
     AczManager.Plan aczPlan = null;
+    // if the arrival search is enabled, a proposal may be confirmed with the
+    // earliest feasible arrival time after the proposed one
+    ReservationGridManager gridManager = im.getReservationGridManager();
+    boolean isArrivalSearch =
+      gridManager.getConfig().getArrivalSearchHorizon() > 0.0;
 
     for(Request.Proposal proposal : proposals) {
       ReservationGridManager.Query gridQuery =
@@ -517,7 +522,11 @@ public final class BasePolicy implements Policy, ExtendedBasePolicyCallback {
                                          msg.getSpec(),
                                          proposal.getMaximumTurnVelocity(),
                                          true);
-      gridPlan = im.getReservationGridManager().query(gridQuery);
+      if (isArrivalSearch) {
+        gridPlan = gridManager.queryEarliest(gridQuery);
+      } else {
+        gridPlan = gridManager.query(gridQuery);
+      }
       if (gridPlan != null) {
         double stopDist =
           VehicleUtil.calcDistanceToStop(gridPlan.getExitVelocity(),
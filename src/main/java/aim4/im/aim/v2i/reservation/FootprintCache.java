@@ -0,0 +1,447 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.im.aim.v2i.reservation;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import aim4.msg.aim.v2i.Request.VehicleSpecForRequestMsg;
+import aim4.sim.StatCollector;
+
+/**
+ * A least-recently-used cache of the tile footprints of vehicles crossing
+ * an intersection.  The footprint of a crossing depends only on the lanes,
+ * the vehicle specification, the velocities, whether the vehicle
+ * accelerates, and the time at which the vehicle arrives within a grid time
+ * step, so the velocities and the arrival phase are quantised to form the
+ * key.
+ */
+public class FootprintCache {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The resolution, in meters per second, of the velocities in the key.
+   */
+  public static final double VELOCITY_RESOLUTION = 0.01;
+
+  /**
+   * The number of arrival phases a grid time step is divided into.
+   */
+  public static final int PHASES_PER_GRID_TIME_STEP = 8;
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * The quantised inputs of the internal simulation of a crossing.
+   */
+  public static class Key {
+    /** The ID of the arrival lane */
+    private final int arrivalLaneId;
+    /** The ID of the departure lane */
+    private final int departureLaneId;
+    /** The dimensions and limits of the vehicle */
+    private final double[] spec;
+    /** The arrival velocity, in units of VELOCITY_RESOLUTION */
+    private final long arrivalVelocity;
+    /** The maximum turn velocity, in units of VELOCITY_RESOLUTION */
+    private final long maxTurnVelocity;
+    /** Whether the vehicle accelerates */
+    private final boolean accelerating;
+    /** The arrival phase, in units of a fraction of a grid time step */
+    private final int phase;
+    /** The hash code */
+    private final int hashCode;
+
+    /**
+     * Create a key.
+     *
+     * @param arrivalLaneId    the ID of the arrival lane
+     * @param departureLaneId  the ID of the departure lane
+     * @param spec             the vehicle specification
+     * @param arrivalVelocity  the arrival velocity
+     * @param maxTurnVelocity  the maximum turn velocity
+     * @param accelerating     whether the vehicle accelerates
+     * @param phase            the arrival phase
+     */
+    private Key(int arrivalLaneId, int departureLaneId,
+                VehicleSpecForRequestMsg spec,
+                long arrivalVelocity, long maxTurnVelocity,
+                boolean accelerating, int phase) {
+      this.arrivalLaneId = arrivalLaneId;
+      this.departureLaneId = departureLaneId;
+      this.spec = new double[] {
+        spec.getMaxAcceleration(),
+        spec.getMaxDeceleration(),
+        spec.getMinVelocity(),
+        spec.getLength(),
+        spec.getWidth(),
+        spec.getFrontAxleDisplacement(),
+        spec.getRearAxleDisplacement(),
+        spec.getMaxSteeringAngle(),
+        spec.getMaxTurnPerSecond() };
+      this.arrivalVelocity = arrivalVelocity;
+      this.maxTurnVelocity = maxTurnVelocity;
+      this.accelerating = accelerating;
+      this.phase = phase;
+      int h = arrivalLaneId;
+      h = 31 * h + departureLaneId;
+      h = 31 * h + Arrays.hashCode(this.spec);
+      h = 31 * h + (int)(arrivalVelocity ^ (arrivalVelocity >>> 32));
+      h = 31 * h + (int)(maxTurnVelocity ^ (maxTurnVelocity >>> 32));
+      h = 31 * h + (accelerating ? 1 : 0);
+      h = 31 * h + phase;
+      this.hashCode = h;
+    }
+
+    /**
+     * Get the arrival velocity represented by this key.
+     *
+     * @return the arrival velocity
+     */
+    public double getArrivalVelocity() {
+      return arrivalVelocity * VELOCITY_RESOLUTION;
+    }
+
+    /**
+     * Get the maximum turn velocity represented by this key.
+     *
+     * @return the maximum turn velocity
+     */
+    public double getMaxTurnVelocity() {
+      return maxTurnVelocity * VELOCITY_RESOLUTION;
+    }
+
+    /**
+     * Get the arrival phase represented by this key.
+     *
+     * @param gridTimeStep  the grid time step
+     * @return the time between the start of the grid time step and the
+     *         arrival time
+     */
+    public double getPhase(double gridTimeStep) {
+      return phase * gridTimeStep / PHASES_PER_GRID_TIME_STEP;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key k = (Key)obj;
+      return hashCode == k.hashCode
+          && arrivalLaneId == k.arrivalLaneId
+          && departureLaneId == k.departureLaneId
+          && arrivalVelocity == k.arrivalVelocity
+          && maxTurnVelocity == k.maxTurnVelocity
+          && accelerating == k.accelerating
+          && phase == k.phase
+          && Arrays.equals(spec, k.spec);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /**
+   * The tile footprint of a crossing, relative to the discrete time at
+   * which the vehicle arrives.
+   */
+  public static class Footprint {
+    /** The discrete time offsets of the time-tiles */
+    private final int[] discreteTimes;
+    /** The tile IDs of the time-tiles */
+    private final int[] tileIds;
+    /** The discrete time offset at which the vehicle exits */
+    private final int exitDiscreteTime;
+    /** The velocity at which the vehicle exits */
+    private final double exitVelocity;
+
+    /**
+     * Create a footprint.
+     *
+     * @param discreteTimes     the discrete time offsets of the time-tiles
+     * @param tileIds           the tile IDs of the time-tiles
+     * @param exitDiscreteTime  the discrete time offset at which the vehicle
+     *                          exits
+     * @param exitVelocity      the velocity at which the vehicle exits
+     */
+    public Footprint(int[] discreteTimes, int[] tileIds,
+                     int exitDiscreteTime, double exitVelocity) {
+      assert discreteTimes.length == tileIds.length;
+      this.discreteTimes = discreteTimes;
+      this.tileIds = tileIds;
+      this.exitDiscreteTime = exitDiscreteTime;
+      this.exitVelocity = exitVelocity;
+    }
+
+    /**
+     * Get the number of time-tiles.
+     *
+     * @return the number of time-tiles
+     */
+    public int size() {
+      return tileIds.length;
+    }
+
+    /**
+     * Get the discrete time offset of a time-tile.
+     *
+     * @param i  the index of the time-tile
+     * @return the discrete time offset
+     */
+    public int getDiscreteTime(int i) {
+      return discreteTimes[i];
+    }
+
+    /**
+     * Get the tile ID of a time-tile.
+     *
+     * @param i  the index of the time-tile
+     * @return the tile ID
+     */
+    public int getTileId(int i) {
+      return tileIds[i];
+    }
+
+    /**
+     * Get the discrete time offset at which the vehicle exits.
+     *
+     * @return the discrete time offset at which the vehicle exits
+     */
+    public int getExitDiscreteTime() {
+      return exitDiscreteTime;
+    }
+
+    /**
+     * Get the velocity at which the vehicle exits.
+     *
+     * @return the velocity at which the vehicle exits
+     */
+    public double getExitVelocity() {
+      return exitVelocity;
+    }
+  }
+
+  /**
+   * The statistic collector for the hit rate of a footprint cache.
+   */
+  public static class FootprintCacheStatCollector
+                  implements StatCollector<ReservationGridManager> {
+    /** The number of lookups that found a footprint */
+    private long hits = 0;
+    /** The number of lookups that did not find a footprint */
+    private long misses = 0;
+    /** The number of footprints evicted */
+    private long evictions = 0;
+
+    /**
+     * Get the number of lookups that found a footprint.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+      return hits;
+    }
+
+    /**
+     * Get the number of lookups that did not find a footprint.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+      return misses;
+    }
+
+    /**
+     * Get the number of footprints evicted.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+      return evictions;
+    }
+
+    /**
+     * Collect the statistic in a reservation grid manager.
+     *
+     * @param manager  the reservation grid manager
+     */
+    @Override
+    public void collect(ReservationGridManager manager) {
+      // do nothing; the cache updates the counts as it is used
+    }
+
+    /**
+     * Print the statistic.
+     *
+     * @param outfile  the output stream
+     */
+    @Override
+    public void print(PrintStream outfile) {
+      outfile.printf("footprintCacheHits,%d\n", hits);
+      outfile.printf("footprintCacheMisses,%d\n", misses);
+      outfile.printf("footprintCacheEvictions,%d\n", evictions);
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /**
+   * The footprints, in access order.
+   */
+  private final LinkedHashMap<Key, Footprint> footprints;
+
+  /**
+   * The statistic collector.
+   */
+  private final FootprintCacheStatCollector statCollector;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a footprint cache.
+   *
+   * @param maxSize  the maximum number of footprints kept
+   */
+  public FootprintCache(final int maxSize) {
+    this.statCollector = new FootprintCacheStatCollector();
+    this.footprints = new LinkedHashMap<Key, Footprint>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Footprint> eldest) {
+        if (size() > maxSize) {
+          statCollector.evictions++;
+          return true;
+        } else {
+          return false;
+        }
+      }
+    };
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Create the key of a crossing.
+   *
+   * @param arrivalLaneId    the ID of the arrival lane
+   * @param departureLaneId  the ID of the departure lane
+   * @param spec             the vehicle specification
+   * @param arrivalVelocity  the arrival velocity
+   * @param maxTurnVelocity  the maximum turn velocity
+   * @param accelerating     whether the vehicle accelerates
+   * @param phase            the time between the start of the grid time step
+   *                         and the arrival time
+   * @param gridTimeStep     the grid time step
+   * @return the key
+   */
+  public Key makeKey(int arrivalLaneId, int departureLaneId,
+                     VehicleSpecForRequestMsg spec,
+                     double arrivalVelocity, double maxTurnVelocity,
+                     boolean accelerating,
+                     double phase, double gridTimeStep) {
+    return new Key(arrivalLaneId, departureLaneId, spec,
+                   Math.round(arrivalVelocity / VELOCITY_RESOLUTION),
+                   Math.round(maxTurnVelocity / VELOCITY_RESOLUTION),
+                   accelerating,
+                   (int)Math.round(phase / gridTimeStep
+                                   * PHASES_PER_GRID_TIME_STEP));
+  }
+
+  /**
+   * Get the footprint of a crossing.
+   *
+   * @param key  the key of the crossing
+   * @return the footprint; null if it is not in the cache
+   */
+  public Footprint get(Key key) {
+    Footprint footprint = footprints.get(key);
+    if (footprint != null) {
+      statCollector.hits++;
+    } else {
+      statCollector.misses++;
+    }
+    return footprint;
+  }
+
+  /**
+   * Put the footprint of a crossing into the cache.
+   *
+   * @param key        the key of the crossing
+   * @param footprint  the footprint
+   */
+  public void put(Key key, Footprint footprint) {
+    footprints.put(key, footprint);
+  }
+
+  /**
+   * Get the number of footprints in the cache.
+   *
+   * @return the number of footprints in the cache
+   */
+  public int size() {
+    return footprints.size();
+  }
+
+  /**
+   * Get the statistic collector.
+   *
+   * @return the statistic collector
+   */
+  public FootprintCacheStatCollector getStatCollector() {
+    return statCollector;
+  }
+}
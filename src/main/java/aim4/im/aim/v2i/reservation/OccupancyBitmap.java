@@ -0,0 +1,352 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.im.aim.v2i.reservation;
+
+import java.util.Arrays;
+
+/**
+ * A bitmap of the reserved tiles at each discrete time.  The tiles of a
+ * discrete time are packed into the bits of an array of words, which are
+ * kept in a circular array indexed by discrete time, so that the tiles of a
+ * footprint can be checked a word at a time.
+ */
+public class OccupancyBitmap {
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * A set of tiles packed in the same words as the bitmap.  The mask
+   * remembers which of its words are in use so that it can be checked and
+   * cleared without visiting the others.
+   */
+  public static class Mask {
+    /**
+     * The words of the mask.
+     */
+    private final long[] words;
+    /**
+     * The indices of the words that are not zero.
+     */
+    private final int[] usedWords;
+    /**
+     * The number of words that are not zero.
+     */
+    private int usedWordNum;
+
+    /**
+     * Create an empty mask.
+     *
+     * @param numOfTiles  the number of tiles
+     */
+    public Mask(int numOfTiles) {
+      words = new long[numOfWords(numOfTiles)];
+      usedWords = new int[words.length];
+      usedWordNum = 0;
+    }
+
+    /**
+     * Add a tile to the mask.
+     *
+     * @param tid  the tile ID
+     */
+    public void add(int tid) {
+      int w = tid >>> WORD_SHIFT;
+      if (words[w] == 0L) {
+        usedWords[usedWordNum++] = w;
+      }
+      words[w] |= 1L << tid;
+    }
+
+    /**
+     * Whether the mask has no tile.
+     *
+     * @return whether the mask has no tile
+     */
+    public boolean isEmpty() {
+      return usedWordNum == 0;
+    }
+
+    /**
+     * Remove all tiles from the mask.
+     */
+    public void clear() {
+      for(int i = 0; i < usedWordNum; i++) {
+        words[usedWords[i]] = 0L;
+      }
+      usedWordNum = 0;
+    }
+  }
+
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The base two logarithm of the number of tiles per word.
+   */
+  private static final int WORD_SHIFT = 6;
+
+  /**
+   * The initial number of discrete times the ring can hold.
+   */
+  private static final int INITIAL_TIME_CAPACITY = 64;
+
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /**
+   * The number of words per discrete time.
+   */
+  private final int wordNum;
+
+  /**
+   * The words of the bitmaps.  The bitmap of discrete time dt is at
+   * dt &amp; timeMask.
+   */
+  private long[][] bitmaps;
+
+  /**
+   * Whether the bitmap in a slot of the ring is in use.
+   */
+  private boolean[] isLive;
+
+  /**
+   * The mask that maps a discrete time to a slot of the ring.
+   */
+  private int timeMask;
+
+  /**
+   * Whether there is no bitmap in use.
+   */
+  private boolean isEmpty;
+
+  /**
+   * The earliest discrete time whose bitmap is in use.
+   */
+  private int firstTime;
+
+  /**
+   * The latest discrete time whose bitmap is in use.
+   */
+  private int lastTime;
+
+
+  /////////////////////////////////
+  // CLASS CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create an empty bitmap.
+   *
+   * @param numOfTiles  the number of tiles in the intersection
+   */
+  public OccupancyBitmap(int numOfTiles) {
+    wordNum = numOfWords(numOfTiles);
+    bitmaps = new long[INITIAL_TIME_CAPACITY][];
+    isLive = new boolean[INITIAL_TIME_CAPACITY];
+    timeMask = INITIAL_TIME_CAPACITY - 1;
+    isEmpty = true;
+  }
+
+
+  ///////////////////////////
+  // PUBLIC METHODS
+  ///////////////////////////
+
+  /**
+   * Whether a time-tile is set.
+   *
+   * @param dt   the discrete time
+   * @param tid  the tile ID
+   * @return whether the time-tile is set
+   */
+  public boolean isSet(int dt, int tid) {
+    long[] bitmap = getBitmap(dt);
+    return bitmap != null
+           && (bitmap[tid >>> WORD_SHIFT] & (1L << tid)) != 0L;
+  }
+
+  /**
+   * Whether any tile of a mask is set at a given discrete time.
+   *
+   * @param dt    the discrete time
+   * @param mask  the mask
+   * @return whether any tile of the mask is set at the discrete time
+   */
+  public boolean intersects(int dt, Mask mask) {
+    long[] bitmap = getBitmap(dt);
+    if (bitmap != null) {
+      for(int i = 0; i < mask.usedWordNum; i++) {
+        int w = mask.usedWords[i];
+        if ((bitmap[w] & mask.words[w]) != 0L) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Set a time-tile.
+   *
+   * @param dt   the discrete time
+   * @param tid  the tile ID
+   */
+  public void set(int dt, int tid) {
+    useBitmap(dt)[tid >>> WORD_SHIFT] |= 1L << tid;
+  }
+
+  /**
+   * Clear a time-tile.
+   *
+   * @param dt   the discrete time
+   * @param tid  the tile ID
+   */
+  public void clear(int dt, int tid) {
+    long[] bitmap = getBitmap(dt);
+    if (bitmap != null) {
+      bitmap[tid >>> WORD_SHIFT] &= ~(1L << tid);
+    }
+  }
+
+  /**
+   * Remove the bitmaps before a given discrete time.
+   *
+   * @param dt  the discrete time before which the bitmaps will be removed
+   */
+  public void cleanUp(int dt) {
+    if (!isEmpty && dt > firstTime) {
+      if (dt > lastTime) {
+        for(int t = firstTime; t <= lastTime; t++) {
+          isLive[t & timeMask] = false;
+        }
+        isEmpty = true;
+      } else {
+        int t = firstTime;
+        for(; t < dt; t++) {
+          isLive[t & timeMask] = false;
+        }
+        while(!isLive[t & timeMask]) {
+          t++;
+        }
+        firstTime = t;
+      }
+    }
+  }
+
+
+  ///////////////////////////
+  // PRIVATE METHODS
+  ///////////////////////////
+
+  /**
+   * Get the number of words needed for a given number of tiles.
+   *
+   * @param numOfTiles  the number of tiles
+   * @return the number of words
+   */
+  private static int numOfWords(int numOfTiles) {
+    return (numOfTiles + (1 << WORD_SHIFT) - 1) >>> WORD_SHIFT;
+  }
+
+  /**
+   * Get the bitmap of a discrete time.
+   *
+   * @param dt  the discrete time
+   * @return the bitmap; null if the bitmap of the discrete time is not in use
+   */
+  private long[] getBitmap(int dt) {
+    if (isEmpty || dt < firstTime || dt > lastTime) {
+      return null;
+    }
+    int slot = dt & timeMask;
+    return isLive[slot] ? bitmaps[slot] : null;
+  }
+
+  /**
+   * Get the bitmap of a discrete time, putting it into use if it is not.
+   *
+   * @param dt  the discrete time
+   * @return the bitmap of the discrete time
+   */
+  private long[] useBitmap(int dt) {
+    if (isEmpty) {
+      firstTime = dt;
+      lastTime = dt;
+      isEmpty = false;
+    } else if (dt < firstTime) {
+      ensureTimeCapacity(lastTime - dt + 1);
+      firstTime = dt;
+    } else if (dt > lastTime) {
+      ensureTimeCapacity(dt - firstTime + 1);
+      lastTime = dt;
+    }
+    int slot = dt & timeMask;
+    if (!isLive[slot]) {
+      if (bitmaps[slot] == null) {
+        bitmaps[slot] = new long[wordNum];
+      } else {
+        Arrays.fill(bitmaps[slot], 0L);
+      }
+      isLive[slot] = true;
+    }
+    return bitmaps[slot];
+  }
+
+  /**
+   * Grow the ring so that it can hold a given number of consecutive
+   * discrete times.
+   *
+   * @param span  the number of consecutive discrete times
+   */
+  private void ensureTimeCapacity(int span) {
+    if (span > bitmaps.length) {
+      int capacity = Integer.highestOneBit(span - 1) << 1;
+      int newMask = capacity - 1;
+      long[][] newBitmaps = new long[capacity][];
+      boolean[] newIsLive = new boolean[capacity];
+      for(int t = firstTime; t <= lastTime; t++) {
+        if (isLive[t & timeMask]) {
+          newBitmaps[t & newMask] = bitmaps[t & timeMask];
+          newIsLive[t & newMask] = true;
+        }
+      }
+      bitmaps = newBitmaps;
+      isLive = newIsLive;
+      timeMask = newMask;
+    }
+  }
+}
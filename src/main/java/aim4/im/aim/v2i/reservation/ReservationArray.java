@@ -31,28 +31,14 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package aim4.im.aim.v2i.reservation;
 
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.NavigableMap;
-import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.TreeMap;
 
 /**
  * The Reservation Array.
  */
 public class ReservationArray {
 
-  /////////////////////////////////
-  // CONSTANTS
-  /////////////////////////////////
-
-  private static final boolean SHOULD_CHECK_CONSISTENCY = false;
-
   /////////////////////////////////
   // PUBLIC NESTED CLASSES
   /////////////////////////////////
@@ -121,31 +107,50 @@ public class ReservationArray {
   }
 
 
-  /////////////////////////////////
-  // PRIVATE FIELDS
-  /////////////////////////////////
-
   /**
-   * The total number of tiles.
+   * The storage used to keep the reservations.
    */
-  private final int numOfTiles;
+  public static enum Backend {
+    /**
+     * Tree maps keyed by discrete time and reservation ID.
+     */
+    TREE_MAP,
+    /**
+     * A circular array of tile grids indexed by discrete time.
+     */
+    RING_BUFFER;
 
-  /**
-   * The grid table, a mapping from discrete times to grids.
-   */
-  private NavigableMap<Integer, int[]> grids;
+    /**
+     * Create a reservation table of this kind.
+     *
+     * @param numOfTiles  the number of tiles
+     * @return the reservation table
+     */
+    public ReservationTable createTable(int numOfTiles) {
+      switch(this) {
+      case RING_BUFFER:
+        return new RingBufferReservationTable(numOfTiles);
+      default:
+        return new TreeMapReservationTable(numOfTiles);
+      }
+    }
+  }
+
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
 
   /**
-   * A mapping from discrete times to mappings from reservation IDs to
-   * the tile IDs that is reserved by the vehicle at the time.
+   * The reservation table.
    */
-  private NavigableMap<Integer,Map<Integer,Set<Integer>>> timeToRidToTid;
+  private final ReservationTable table;
 
   /**
-   * A mapping from reservation IDs to mappings from discrete times to
-   * the tile IDs that is reserved by the vehicle at the time.
+   * The bitmap of the time-tiles reserved in the table, which answers
+   * whether time-tiles are reserved without looking them up in the table.
    */
-  private Map<Integer,NavigableMap<Integer,Set<Integer>>> ridToTimeToTid;
+  private final OccupancyBitmap occupancy;
 
 
   /////////////////////////////////
@@ -158,10 +163,18 @@ public class ReservationArray {
    * @param numOfTiles  The number of tiles in the intersection
    */
   public ReservationArray(int numOfTiles) {
-    this.numOfTiles = numOfTiles;
-    grids = new TreeMap<Integer, int[]>();
-    timeToRidToTid = new TreeMap<Integer,Map<Integer,Set<Integer>>>();
-    ridToTimeToTid = new HashMap<Integer,NavigableMap<Integer,Set<Integer>>>();
+    this(numOfTiles, Backend.TREE_MAP);
+  }
+
+  /**
+   * Create a new reservation system.
+   *
+   * @param numOfTiles  The number of tiles in the intersection
+   * @param backend     The storage used to keep the reservations
+   */
+  public ReservationArray(int numOfTiles, Backend backend) {
+    this.table = backend.createTable(numOfTiles);
+    this.occupancy = new OccupancyBitmap(numOfTiles);
   }
 
 
@@ -173,7 +186,7 @@ public class ReservationArray {
    * Get the number of tiles
    */
   public int getNumberOfTiles() {
-    return numOfTiles;
+    return table.getNumberOfTiles();
   }
 
   /**
@@ -183,11 +196,20 @@ public class ReservationArray {
    * @param tid  the tile ID
    */
   public boolean isReserved(int dt, int tid) {
-    if (grids.containsKey(dt)) {
-      return grids.get(dt)[tid] >= 0;
-    } else {
-      return false;
-    }
+    return occupancy.isSet(dt, tid);
+  }
+
+  /**
+   * Whether any tile of a mask has been reserved at a given discrete time.
+   *
+   * @param dt    the discrete time
+   * @param mask  the tiles, which must have been made with the number of
+   *              tiles of this reservation array
+   * @return whether any tile of the mask has been reserved at the discrete
+   *         time
+   */
+  public boolean isAnyReserved(int dt, OccupancyBitmap.Mask mask) {
+    return occupancy.intersects(dt, mask);
   }
 
   /**
@@ -198,11 +220,7 @@ public class ReservationArray {
    * @return the reservation ID; -1 if the reservation ID does not exist
    */
   public int getReservationId(int dt, int tid) {
-    if (grids.containsKey(dt)) {
-      return grids.get(dt)[tid];
-    } else {
-      return -1;
-    }
+    return table.getReservationId(dt, tid);
   }
 
   /**
@@ -212,7 +230,7 @@ public class ReservationArray {
    * @return whether the reservation ID exists
    */
   public boolean hasReservation(int rid) {
-    return ridToTimeToTid.containsKey(rid);
+    return table.hasReservation(rid);
   }
 
   /**
@@ -222,11 +240,7 @@ public class ReservationArray {
    *         -1 if there is currently no reservation.
    */
   public int getLastReservedDiscreteTime() {
-    try {
-      return grids.lastKey();
-    } catch(NoSuchElementException e) {
-      return -1;
-    }
+    return table.getLastReservedDiscreteTime();
   }
 
   /**
@@ -237,15 +251,7 @@ public class ReservationArray {
    *         less than zero if the reservation id does not exist
    */
   public int getLastReservedDiscreteTime(int rid) {
-    if (ridToTimeToTid.containsKey(rid)) {
-      try {
-        return ridToTimeToTid.get(rid).lastKey();
-      } catch(NoSuchElementException e) {
-        return -1;
-      }
-    } else {
-      return -1;
-    }
+    return table.getLastReservedDiscreteTime(rid);
   }
 
   /**
@@ -258,68 +264,18 @@ public class ReservationArray {
    * @return whether the reservation is successful
    */
   public boolean reserve(int rid, Collection<? extends TimeTile> workingList) {
-    // check to see if any time-tile is reserved in the past
-    for(TimeTile tt : workingList) {
-      int dt = tt.getDiscreteTime();
-      if (grids.containsKey(dt) && grids.get(dt)[tt.getTileId()] >= 0) {
-        return false; // the time-tile has been reserved.
-      }
-    }
-
-    // actually make the reservation
-    int timeBegin = 0;
-    try {
-      timeBegin = grids.firstKey();
-    } catch(NoSuchElementException e) {
-      // It means the grid is empty. All time-tiles are acceptable.
-    }
-
-    for(TimeTile tt : workingList) {
-      int dt = tt.getDiscreteTime();
-      int tid = tt.getTileId();
-
-      if (dt >= timeBegin) {
-        // update grids;
-        int[] grid = grids.get(dt);
-        if (grid == null) {
-          grid = new int[numOfTiles];
-          for(int i=0; i<numOfTiles; i++) { // initialize the grid
-            grid[i] = -1;
-          }
-          grids.put(dt, grid);
+    if (table.reserve(rid, workingList)) {
+      // the table ignores the time-tiles before its earliest discrete time
+      for(TimeTile tt : workingList) {
+        if (table.getReservationId(tt.getDiscreteTime(), tt.getTileId())
+            == rid) {
+          occupancy.set(tt.getDiscreteTime(), tt.getTileId());
         }
-        grid[tid] = rid;
-
-        // update timeToRidToTid
-        Map<Integer,Set<Integer>> ridToTid = timeToRidToTid.get(dt);
-        if (ridToTid == null) {
-          ridToTid = new HashMap<Integer,Set<Integer>>();
-          timeToRidToTid.put(dt, ridToTid);
-        }
-        Set<Integer> tidSet = ridToTid.get(rid);
-        if (tidSet == null) {
-          tidSet = new HashSet<Integer>();
-          ridToTid.put(rid, tidSet);
-        }
-        tidSet.add(tid);
-
-        // update ridToTimeToTid
-        NavigableMap<Integer,Set<Integer>> timeToTid =
-          ridToTimeToTid.get(rid);
-        if (timeToTid == null) {
-          timeToTid = new TreeMap<Integer,Set<Integer>>();
-          ridToTimeToTid.put(rid, timeToTid);
-        }
-        tidSet = timeToTid.get(dt);
-        if (tidSet == null) {
-          tidSet = new HashSet<Integer>();
-          timeToTid.put(dt, tidSet);
-        }
-        tidSet.add(tid);
-      }  // else ignore timetile that is before timeBegin
+      }
+      return true;
+    } else {
+      return false;
     }
-    assert (!SHOULD_CHECK_CONSISTENCY) || checkConsistency();
-    return true;
   }
 
   /**
@@ -329,27 +285,10 @@ public class ReservationArray {
    * @return whether the cancellation is successful
    */
   public boolean cancel(int rid) {
-    // remove elements in ridToTimeToTid
-    NavigableMap<Integer,Set<Integer>> timeToTid = ridToTimeToTid.remove(rid);
-    if (timeToTid != null) {
-      for(int dt : timeToTid.keySet()) {
-        // remove elements in timeToRidToTid
-        if (timeToRidToTid.containsKey(dt)) {
-          timeToRidToTid.get(dt).remove(rid);
-        }
-        // remove time-tiles in grids
-        if (grids.containsKey(dt)) {
-          int[] grid = grids.get(dt);
-          for(int tid : timeToTid.get(dt)) {
-            grid[tid] = -1;
-          }
-        }
-      }
-      assert (!SHOULD_CHECK_CONSISTENCY) || checkConsistency();
-      return true;
-    } else {
-      return false; // the rid is not found
+    for(TimeTile tt : table.getTimeTiles(rid)) {
+      occupancy.clear(tt.getDiscreteTime(), tt.getTileId());
     }
+    return table.cancel(rid);
   }
 
   /**
@@ -358,37 +297,8 @@ public class ReservationArray {
    * @param dt  the discrete time before which the reservations will be removed.
    */
   public void cleanUp(int dt) {
-    // clean up grids and timeToRidToTid
-    try {
-      while(grids.firstKey() < dt) {
-        int dt1 = grids.firstKey();
-        grids.remove(dt1);
-        timeToRidToTid.remove(dt1);
-      }
-    } catch(NoSuchElementException e) {
-      // do nothing
-    }
-
-    List<Integer> removeRid = new LinkedList<Integer>();
-    for(int rid : ridToTimeToTid.keySet()){
-      NavigableMap<Integer,Set<Integer>> timeToTid = ridToTimeToTid.get(rid);
-      try {
-        while(timeToTid.firstKey() < dt) {
-          timeToTid.remove(timeToTid.firstKey());
-        }
-      } catch(NoSuchElementException e) {
-        // do nothing
-      }
-      if (timeToTid.isEmpty()) {
-        removeRid.add(rid);
-      }
-    }
-
-    for(int rid : removeRid) {
-      ridToTimeToTid.remove(rid);
-    }
-
-    assert (!SHOULD_CHECK_CONSISTENCY) || checkConsistency();
+    table.cleanUp(dt);
+    occupancy.cleanUp(dt);
   }
 
   /**
@@ -398,16 +308,7 @@ public class ReservationArray {
    * @return the list of tile IDs that are reserved at the given discrete time.
    */
   public List<Integer> getReservedTilesAtTime(int dt) {
-    Map<Integer,Set<Integer>> ridToTid = timeToRidToTid.get(dt);
-    if (ridToTid != null) {
-      List<Integer> dts = new LinkedList<Integer>();
-      for(int rid : ridToTid.keySet()) {
-        dts.addAll(ridToTid.get(rid));
-      }
-      return dts;
-    } else {
-      return new LinkedList<Integer>(); // return an empty list
-    }
+    return table.getReservedTilesAtTime(dt);
   }
 
   /**
@@ -417,70 +318,6 @@ public class ReservationArray {
    * @return a set of reservation IDs.
    */
   public Set<Integer> getVinOfReservedTilesAtTime(int dt) {
-    Map<Integer,Set<Integer>> ridToTid = timeToRidToTid.get(dt);
-    if (ridToTid != null) {
-      return Collections.unmodifiableSet(ridToTid.keySet());
-    } else {
-      return new HashSet<Integer>(); // return an empty list
-    }
-  }
-
-
-  /////////////////////////////////
-  // DEBUG
-  /////////////////////////////////
-
-  /**
-   * Check whether the array are consistent
-   */
-  private boolean checkConsistency() {
-    for(int dt : grids.keySet()) {
-      int[] tids = grids.get(dt);
-      for(int tid=0; tid < numOfTiles; tid++) {
-        int rid = tids[tid];
-        if (rid >= 0) {
-          assert timeToRidToTid.get(dt) != null;
-          assert timeToRidToTid.get(dt).get(rid) != null;
-          if (!timeToRidToTid.get(dt).get(rid).contains(tid)) {
-            throw new RuntimeException("ReservationArray::checkConsistency():" +
-                                       "grids > timeToRidToTid");
-          }
-          assert ridToTimeToTid.get(rid) != null;
-          assert ridToTimeToTid.get(rid).get(dt) != null;
-          if (!ridToTimeToTid.get(rid).get(dt).contains(tid)) {
-            throw new RuntimeException("ReservationArray::checkConsistency():" +
-                                       "grids > ridToTimeToTid");
-          }
-        }
-      }
-    }
-
-    for(int dt : timeToRidToTid.keySet()) {
-      Map<Integer,Set<Integer>> ridToTid = timeToRidToTid.get(dt);
-      for(int rid : ridToTid.keySet()) {
-        for(int tid : ridToTid.get(rid)) {
-          if (grids.get(dt)[tid] != rid) {
-            throw new RuntimeException("ReservationArray::checkConsistency():" +
-                                        "timeToRidToTid > grids");
-
-          }
-        }
-      }
-    }
-
-    for(int rid : ridToTimeToTid.keySet()) {
-      NavigableMap<Integer,Set<Integer>> timeToTid = ridToTimeToTid.get(rid);
-      for(int dt : timeToTid.keySet()) {
-        for(int tid : timeToTid.get(dt)) {
-          if (grids.get(dt)[tid] != rid) {
-            throw new RuntimeException("ReservationArray::checkConsistency():" +
-                                        "ridToTimeToTid > grids");
-
-          }
-        }
-      }
-    }
-    return true;
+    return table.getVinOfReservedTilesAtTime(dt);
   }
 }
-
@@ -120,7 +120,20 @@ public class ReservationGrid extends ReservationArray {
    * @param gridTimeStep  the time step.
    */
   public ReservationGrid(int xNum, int yNum, double gridTimeStep) {
-    super(xNum * yNum);
+    this(xNum, yNum, gridTimeStep, Backend.TREE_MAP);
+  }
+
+  /**
+   * Create a reservation grid.
+   *
+   * @param xNum          the number of time tiles in the x direction
+   * @param yNum          the number of time tiles in the y direction
+   * @param gridTimeStep  the time step.
+   * @param backend       the storage used to keep the reservations
+   */
+  public ReservationGrid(int xNum, int yNum, double gridTimeStep,
+                         Backend backend) {
+    super(xNum * yNum, backend);
     this.xNum = xNum;
     this.yNum = yNum;
     this.gridTimeStep = gridTimeStep;
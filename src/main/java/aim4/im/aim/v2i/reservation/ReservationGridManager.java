@@ -35,6 +35,7 @@ import java.awt.geom.Area;
 import java.awt.geom.Rectangle2D;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -53,9 +54,10 @@ import aim4.map.lane.Lane;
 import aim4.msg.aim.v2i.Request;
 import aim4.msg.aim.v2i.Request.VehicleSpecForRequestMsg;
 import aim4.sim.StatCollector;
+import aim4.util.OrientedBox;
 import aim4.util.TiledArea;
 import aim4.util.TiledArea.Tile;
-import aim4.vehicle.aim.AIMBasicAutoVehicle;
+import aim4.vehicle.TestVehicle;
 import aim4.vehicle.VehicleSpec;
 import aim4.vehicle.VehicleUtil;
 
@@ -103,6 +105,21 @@ public class ReservationGridManager implements
      * The granularity.
      */
     private double granularity;
+    /**
+     * The storage used to keep the reservations in the grid.
+     */
+    private ReservationArray.Backend reservationBackend;
+    /**
+     * The maximum number of footprints kept by the footprint cache; zero if
+     * the footprints are not cached.
+     */
+    private int footprintCacheSize;
+    /**
+     * How far, in seconds, the arrival time of a query may be pushed back
+     * when searching for the earliest feasible arrival time; zero if the
+     * arrival time of a query is either accepted or rejected as it is.
+     */
+    private double arrivalSearchHorizon;
 
     /**
      * Create a configuration object.
@@ -129,6 +146,94 @@ public class ReservationGridManager implements
       this.edgeTileTimeBufferSize = edgeTileTimeBufferSize;
       this.isEdgeTileTimeBufferEnabled = isEdgeTileTimeBufferEnabled;
       this.granularity = granularity;
+      this.reservationBackend = ReservationArray.Backend.TREE_MAP;
+      this.footprintCacheSize = 0;
+      this.arrivalSearchHorizon = 0.0;
+    }
+
+    /**
+     * Create a configuration object.
+     *
+     * @param timeStep
+     * @param gridTimeStep
+     * @param staticBufferSize
+     * @param internalTileTimeBufferSize
+     * @param edgeTileTimeBufferSize
+     * @param isEdgeTileTimeBufferEnabled
+     * @param granularity
+     * @param reservationBackend
+     */
+    public Config(double timeStep,
+                  double gridTimeStep,
+                  double staticBufferSize,
+                  double internalTileTimeBufferSize,
+                  double edgeTileTimeBufferSize,
+                  boolean isEdgeTileTimeBufferEnabled,
+                  double granularity,
+                  ReservationArray.Backend reservationBackend) {
+      this(timeStep, gridTimeStep, staticBufferSize,
+           internalTileTimeBufferSize, edgeTileTimeBufferSize,
+           isEdgeTileTimeBufferEnabled, granularity);
+      this.reservationBackend = reservationBackend;
+    }
+
+    /**
+     * Create a configuration object.
+     *
+     * @param timeStep
+     * @param gridTimeStep
+     * @param staticBufferSize
+     * @param internalTileTimeBufferSize
+     * @param edgeTileTimeBufferSize
+     * @param isEdgeTileTimeBufferEnabled
+     * @param granularity
+     * @param reservationBackend
+     * @param footprintCacheSize
+     */
+    public Config(double timeStep,
+                  double gridTimeStep,
+                  double staticBufferSize,
+                  double internalTileTimeBufferSize,
+                  double edgeTileTimeBufferSize,
+                  boolean isEdgeTileTimeBufferEnabled,
+                  double granularity,
+                  ReservationArray.Backend reservationBackend,
+                  int footprintCacheSize) {
+      this(timeStep, gridTimeStep, staticBufferSize,
+           internalTileTimeBufferSize, edgeTileTimeBufferSize,
+           isEdgeTileTimeBufferEnabled, granularity, reservationBackend);
+      this.footprintCacheSize = footprintCacheSize;
+    }
+
+    /**
+     * Create a configuration object.
+     *
+     * @param timeStep
+     * @param gridTimeStep
+     * @param staticBufferSize
+     * @param internalTileTimeBufferSize
+     * @param edgeTileTimeBufferSize
+     * @param isEdgeTileTimeBufferEnabled
+     * @param granularity
+     * @param reservationBackend
+     * @param footprintCacheSize
+     * @param arrivalSearchHorizon
+     */
+    public Config(double timeStep,
+                  double gridTimeStep,
+                  double staticBufferSize,
+                  double internalTileTimeBufferSize,
+                  double edgeTileTimeBufferSize,
+                  boolean isEdgeTileTimeBufferEnabled,
+                  double granularity,
+                  ReservationArray.Backend reservationBackend,
+                  int footprintCacheSize,
+                  double arrivalSearchHorizon) {
+      this(timeStep, gridTimeStep, staticBufferSize,
+           internalTileTimeBufferSize, edgeTileTimeBufferSize,
+           isEdgeTileTimeBufferEnabled, granularity, reservationBackend,
+           footprintCacheSize);
+      this.arrivalSearchHorizon = arrivalSearchHorizon;
     }
 
     /**
@@ -193,6 +298,36 @@ public class ReservationGridManager implements
     public double getGranularity() {
       return granularity;
     }
+
+    /**
+     * Get the storage used to keep the reservations in the grid.
+     *
+     * @return the storage used to keep the reservations in the grid
+     */
+    public ReservationArray.Backend getReservationBackend() {
+      return reservationBackend;
+    }
+
+    /**
+     * Get the maximum number of footprints kept by the footprint cache.
+     *
+     * @return the maximum number of footprints kept by the footprint cache;
+     *         zero if the footprints are not cached
+     */
+    public int getFootprintCacheSize() {
+      return footprintCacheSize;
+    }
+
+    /**
+     * Get how far the arrival time of a query may be pushed back when
+     * searching for the earliest feasible arrival time.
+     *
+     * @return the arrival search horizon, in seconds; zero if the search is
+     *         disabled
+     */
+    public double getArrivalSearchHorizon() {
+      return arrivalSearchHorizon;
+    }
   }
 
   /**
@@ -321,6 +456,8 @@ public class ReservationGridManager implements
   public static class Plan {
     /** The VIN of the vehicle */
     private int vin;
+    /** The arrival time */
+    private double arrivalTime;
     /** The exit time */
     private double exitTime;
     /** The exit velocity */
@@ -334,17 +471,20 @@ public class ReservationGridManager implements
      * Create the plan for the reservation.
      *
      * @param vin                  the VIN of the vehicle
+     * @param arrivalTime          the arrival time
      * @param exitTime             the exit time
      * @param exitVelocity         the exit velocity
      * @param workingList          the list of time tiles reserved
      * @param accelerationProfile  the acceleration profile
      */
     public Plan(int vin,
+                double arrivalTime,
                 double exitTime,
                 double exitVelocity,
                 List<TimeTile> workingList,
                 Queue<double[]> accelerationProfile) {
       this.vin = vin;
+      this.arrivalTime = arrivalTime;
       this.exitTime = exitTime;
       this.exitVelocity = exitVelocity;
       this.workingList = workingList;
@@ -360,6 +500,16 @@ public class ReservationGridManager implements
       return vin;
     }
 
+    /**
+     * Get the arrival time, which is later than the arrival time of the
+     * query if the plan was found by an arrival time search.
+     *
+     * @return the arrival time
+     */
+    public double getArrivalTime() {
+      return arrivalTime;
+    }
+
     /**
      * Get the exit time.
      *
@@ -503,6 +653,27 @@ public class ReservationGridManager implements
    * The statistic collector
    */
   private StatCollector<ReservationGridManager> statCollector;
+  /**
+   * The cache of the footprints of crossings; null if the footprints are
+   * not cached.
+   */
+  private FootprintCache footprintCache;
+  /**
+   * The tiles occupied at a step of the internal simulation that use the
+   * internal tile time buffer.
+   */
+  private OccupancyBitmap.Mask internalTileMask;
+  /**
+   * The tiles occupied at a step of the internal simulation that use the
+   * edge tile time buffer.
+   */
+  private OccupancyBitmap.Mask edgeTileMask;
+  /**
+   * The time-tiles found by the internal simulation, each packed as the
+   * discrete time after the start of the packing times the number of tiles
+   * plus the tile ID.
+   */
+  private int[] packedTimeTiles;
 
 
   /////////////////////////////////
@@ -551,6 +722,14 @@ public class ReservationGridManager implements
     this.tiledArea = tiledArea;
     this.reservationGrid = reservationGrid;
     this.statCollector = new VinHistoryStatCollector();
+    if (config.getFootprintCacheSize() > 0) {
+      this.footprintCache = new FootprintCache(config.getFootprintCacheSize());
+    }
+    this.internalTileMask =
+      new OccupancyBitmap.Mask(reservationGrid.getNumberOfTiles());
+    this.edgeTileMask =
+      new OccupancyBitmap.Mask(reservationGrid.getNumberOfTiles());
+    this.packedTimeTiles = new int[256];
   }
 
 
@@ -596,6 +775,17 @@ public class ReservationGridManager implements
     return statCollector;
   }
 
+  /**
+   * Get the statistic collector of the footprint cache.
+   *
+   * @return the statistic collector of the footprint cache; null if the
+   *         footprints are not cached
+   */
+  public FootprintCache.FootprintCacheStatCollector
+                                          getFootprintCacheStatCollector() {
+    return (footprintCache != null) ? footprintCache.getStatCollector() : null;
+  }
+
   /////////////////////////////////
   // PUBLIC METHODS
   /////////////////////////////////
@@ -612,15 +802,18 @@ public class ReservationGridManager implements
    */
   @Override
   public Plan query(Query q) {
+    if (footprintCache != null) {
+      return queryByFootprint(q);
+    }
 
     // Position the Vehicle to be ready to start the simulation
     Lane arrivalLane =
-      Debug.currentMap.getLaneRegistry().get(q.getArrivalLaneId());
+      Debug.getCurrentMap().getLaneRegistry().get(q.getArrivalLaneId());
     Lane departureLane =
-      Debug.currentMap.getLaneRegistry().get(q.getDepartureLaneId());
+      Debug.getCurrentMap().getLaneRegistry().get(q.getDepartureLaneId());
 
     // Create a test vehicle to use in the internal simulation
-    AIMBasicAutoVehicle testVehicle =
+    TestVehicle testVehicle =
       createTestVehicle(q.getSpec(),
                         q.getArrivalVelocity(),
                         q.getMaxTurnVelocity(),
@@ -653,6 +846,7 @@ public class ReservationGridManager implements
                                 q.isAccelerating());
 
       return new Plan(q.getVin(),
+                      q.getArrivalTime(),
                       exitTime,
                       testVehicle.gaugeVelocity(),
                       workingList,
@@ -662,6 +856,53 @@ public class ReservationGridManager implements
     }
   }
 
+  /**
+   * Find the earliest arrival time, no earlier than the arrival time of the
+   * query and no later than the arrival search horizon after it, at which
+   * the crossing can be reserved.  The footprint of the crossing is found
+   * once and is then shifted by whole grid time steps, so that every shift
+   * keeps the phase of the arrival time within the grid time step; a shift
+   * stops at its first reserved tile-time, which is checked first at the
+   * next shift.
+   *
+   * @param q  the query object
+   * @return the plan of the earliest feasible arrival time, whose arrival
+   *         time may be later than the one of the query; null if there is
+   *         no feasible arrival time within the horizon.
+   */
+  public Plan queryEarliest(Query q) {
+    FootprintCache.Footprint footprint;
+    if (footprintCache != null) {
+      footprint = getCachedFootprint(q);
+    } else {
+      footprint = findFootprintBySimulation(q,
+                                            q.getArrivalVelocity(),
+                                            q.getMaxTurnVelocity(),
+                                            reservationGrid.calcRemainingTime(
+                                              q.getArrivalTime()));
+    }
+    if (footprint.size() == 0) {
+      return null;
+    }
+
+    double gridTimeStep = reservationGrid.getGridTimeStep();
+    int maxShift = (int)Math.floor(config.getArrivalSearchHorizon()
+                                   / gridTimeStep
+                                   + Constants.DOUBLE_EQUAL_PRECISION);
+    int arrivalIntTime = reservationGrid.calcDiscreteTime(q.getArrivalTime());
+    int conflict = 0;
+    for(int shift = 0; shift <= maxShift; shift++) {
+      conflict = findConflict(footprint, arrivalIntTime + shift, conflict);
+      if (conflict < 0) {
+        return makePlan(q,
+                        footprint,
+                        arrivalIntTime + shift,
+                        q.getArrivalTime() + shift * gridTimeStep);
+      }
+    }
+    return null;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -696,7 +937,7 @@ public class ReservationGridManager implements
    *
    * @return             whether or not a reservation could be made
    */
-  private AIMBasicAutoVehicle createTestVehicle(
+  private TestVehicle createTestVehicle(
                                           Request.VehicleSpecForRequestMsg spec,
                                           double arrivalVelocity,
                                           double maxVelocity,
@@ -718,7 +959,7 @@ public class ReservationGridManager implements
         spec.getMaxSteeringAngle(),
         spec.getMaxTurnPerSecond());
 
-    AIMBasicAutoVehicle testVehicle = new AIMBasicAutoVehicle(
+    TestVehicle testVehicle = new TestVehicle(
       newSpec,
       intersection.getEntryPoint(arrivalLane), // Position
       intersection.getEntryHeading(arrivalLane), // Heading
@@ -787,7 +1028,7 @@ public class ReservationGridManager implements
    *         fails.
    */
   private FindTileTimesBySimulationResult
-            findTileTimesBySimulation(AIMBasicAutoVehicle testVehicle,
+            findTileTimesBySimulation(TestVehicle testVehicle,
                                       Driver dummy,
                                       double arrivalTime,
                                       boolean accelerating) {
@@ -798,52 +1039,291 @@ public class ReservationGridManager implements
     assert areaPlus.contains(testVehicle.getPointAtMiddleFront(
              Constants.DOUBLE_EQUAL_PRECISION));
 
-    // The list of tile-times that will make up this reservation
-    List<TimeTile> workingList = new ArrayList<TimeTile>();
+    // The tile-times that will make up this reservation, packed relative to
+    // the earliest discrete time the buffers can reach
+    int numOfTiles = reservationGrid.getNumberOfTiles();
+    int maxBuffer =
+      Math.max(internalTileTimeBufferSteps,
+               isEdgeTileTimeBufferEnabled ? edgeTileTimeBufferSteps : 0);
+    int n = 0;
 
     // A discrete representation of the time throughout the internal simulation
     // Notice that currentIntTime != arrivalTime
     int currentIntTime = reservationGrid.calcDiscreteTime(arrivalTime);
+    int packingTime = currentIntTime - maxBuffer;
     // The duration in the current time interval
     double currentDuration = reservationGrid.calcRemainingTime(arrivalTime);
 
+    // The corners of the test vehicle with the static buffer
+    OrientedBox occupiedBox = new OrientedBox();
+
     // drive the test vehicle until it leaves the intersection
     while(VehicleUtil.intersects(testVehicle, areaPlus)) {
       moveTestVehicle(testVehicle, dummy, currentDuration, accelerating);
       // Find out which tiles are occupied by the vehicle
       currentIntTime++;  // Record that we've moved forward one time step
-      List<Tile> occupied =
-        tiledArea.findOccupiedTiles(testVehicle.getShape(staticBufferSize));
+      testVehicle.getOrientedBox(staticBufferSize, occupiedBox);
+      List<Tile> occupied = tiledArea.findOccupiedTiles(occupiedBox);
 
-      // Make sure none of these tiles are reserved by someone else already
+      // Sort the tiles by the size of their time buffer, based on whether or
+      // not they are edge tiles
+      internalTileMask.clear();
+      edgeTileMask.clear();
       for(Tile tile : occupied) {
+        if (isEdgeTileTimeBufferEnabled && tile.isEdgeTile()) {
+          edgeTileMask.add(tile.getId());
+        } else {
+          internalTileMask.add(tile.getId());
+        }
+      }
+
+      // Make sure none of these tiles are reserved by someone else already
+      if (isAnyReserved(internalTileMask,
+                        currentIntTime, internalTileTimeBufferSteps)
+          || isAnyReserved(edgeTileMask,
+                           currentIntTime, edgeTileTimeBufferSteps)) {
+        return null; // Failure! Just bail!
+      }
 
-        // Figure out how large of a time buffer to use, based on whether or
-        // not this is an edge tile
+      for(Tile tile : occupied) {
         int buffer;
         if (isEdgeTileTimeBufferEnabled && tile.isEdgeTile()) {
           buffer = edgeTileTimeBufferSteps;
         } else {
           buffer = internalTileTimeBufferSteps;
         }
+        if (n + 2 * buffer + 1 > packedTimeTiles.length) {
+          packedTimeTiles = Arrays.copyOf(packedTimeTiles,
+                                          2 * (n + 2 * buffer + 1));
+        }
         int tileId = tile.getId();
         for(int t = currentIntTime - buffer; t <= currentIntTime + buffer; t++){
-          // If the tile is already reserved and it isn't by us, we've failed
-          if (!reservationGrid.isReserved(t, tileId)) {
-            workingList.add(reservationGrid.new TimeTile(t, tile.getId()));
-          } else {
-            return null; // Failure! Just bail!
-          }
+          packedTimeTiles[n++] = (t - packingTime) * numOfTiles + tileId;
         }
       }
       currentDuration = reservationGrid.getGridTimeStep();
     }
 
+    // Unpack the tile-times now that the reservation is known to succeed
+    List<TimeTile> workingList = new ArrayList<TimeTile>(n);
+    for(int i = 0; i < n; i++) {
+      workingList.add(reservationGrid.new TimeTile(
+        packingTime + packedTimeTiles[i] / numOfTiles,
+        packedTimeTiles[i] % numOfTiles));
+    }
+
     return new FindTileTimesBySimulationResult(workingList,
                                                reservationGrid
                                                .calcTime(currentIntTime));
   }
 
+  /**
+   * Whether any tile of a mask has been reserved within a time buffer
+   * around a given discrete time.
+   *
+   * @param mask    the tiles
+   * @param dt      the discrete time
+   * @param buffer  the number of discrete times in the buffer on each side
+   * @return whether any tile of the mask has been reserved
+   */
+  private boolean isAnyReserved(OccupancyBitmap.Mask mask, int dt, int buffer) {
+    if (!mask.isEmpty()) {
+      for(int t = dt - buffer; t <= dt + buffer; t++) {
+        if (reservationGrid.isAnyReserved(t, mask)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Answer a query by checking the footprint of the crossing against the
+   * reservation grid.  The footprint is simulated with the quantised inputs
+   * of its key the first time it is needed and is then taken from the cache.
+   *
+   * @param q  the query object
+   * @return the plan if the footprint is free; otherwise return null.
+   */
+  private Plan queryByFootprint(Query q) {
+    FootprintCache.Footprint footprint = getCachedFootprint(q);
+    int arrivalIntTime = reservationGrid.calcDiscreteTime(q.getArrivalTime());
+    if (findConflict(footprint, arrivalIntTime, 0) >= 0) {
+      return null; // Failure! Just bail!
+    }
+    return makePlan(q, footprint, arrivalIntTime, q.getArrivalTime());
+  }
+
+  /**
+   * Get the footprint of a crossing from the footprint cache, simulating
+   * it with the quantised inputs of its key if it is not in the cache yet.
+   *
+   * @param q  the query object
+   * @return the footprint of the crossing
+   */
+  private FootprintCache.Footprint getCachedFootprint(Query q) {
+    double gridTimeStep = reservationGrid.getGridTimeStep();
+    FootprintCache.Key key =
+      footprintCache.makeKey(q.getArrivalLaneId(),
+                             q.getDepartureLaneId(),
+                             q.getSpec(),
+                             q.getArrivalVelocity(),
+                             q.getMaxTurnVelocity(),
+                             q.isAccelerating(),
+                             reservationGrid.calcRemainingTime(
+                               q.getArrivalTime()),
+                             gridTimeStep);
+    FootprintCache.Footprint footprint = footprintCache.get(key);
+    if (footprint == null) {
+      footprint = findFootprintBySimulation(q,
+                                            key.getArrivalVelocity(),
+                                            key.getMaxTurnVelocity(),
+                                            key.getPhase(gridTimeStep));
+      footprintCache.put(key, footprint);
+    }
+    return footprint;
+  }
+
+  /**
+   * Find a tile-time of a footprint that is already reserved.
+   *
+   * @param footprint       the footprint of the crossing
+   * @param arrivalIntTime  the discrete arrival time the footprint is
+   *                        shifted to
+   * @param firstIndex      the index of the tile-time to check first; the
+   *                        tile-time that blocked the previous shift is the
+   *                        most likely to block this one as well
+   * @return the index of a reserved tile-time; -1 if none is reserved
+   */
+  private int findConflict(FootprintCache.Footprint footprint,
+                           int arrivalIntTime,
+                           int firstIndex) {
+    if (reservationGrid.isReserved(
+          arrivalIntTime + footprint.getDiscreteTime(firstIndex),
+          footprint.getTileId(firstIndex))) {
+      return firstIndex;
+    }
+    for(int i = 0; i < footprint.size(); i++) {
+      if (i != firstIndex
+          && reservationGrid.isReserved(
+               arrivalIntTime + footprint.getDiscreteTime(i),
+               footprint.getTileId(i))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Make the plan of a footprint whose tile-times are all free.
+   *
+   * @param q               the query object
+   * @param footprint       the footprint of the crossing
+   * @param arrivalIntTime  the discrete arrival time the footprint is
+   *                        shifted to
+   * @param arrivalTime     the arrival time of the plan
+   * @return the plan
+   */
+  private Plan makePlan(Query q,
+                        FootprintCache.Footprint footprint,
+                        int arrivalIntTime,
+                        double arrivalTime) {
+    List<TimeTile> workingList = new ArrayList<TimeTile>(footprint.size());
+    for(int i = 0; i < footprint.size(); i++) {
+      workingList.add(reservationGrid.new TimeTile(
+        arrivalIntTime + footprint.getDiscreteTime(i),
+        footprint.getTileId(i)));
+    }
+
+    double exitTime = workingList.get(workingList.size()-1).getTime();
+
+    Queue<double[]> accelerationProfile =
+      calcAccelerationProfile(arrivalTime,
+                              q.getArrivalVelocity(),
+                              q.getMaxTurnVelocity(),
+                              q.getSpec().getMaxAcceleration(),
+                              reservationGrid.calcTime(
+                                arrivalIntTime
+                                + footprint.getExitDiscreteTime()),
+                              q.isAccelerating());
+
+    return new Plan(q.getVin(),
+                    arrivalTime,
+                    exitTime,
+                    footprint.getExitVelocity(),
+                    workingList,
+                    accelerationProfile);
+  }
+
+  /**
+   * Find the footprint of a crossing by simulation, ignoring the
+   * reservations in the grid.
+   *
+   * @param q                the query object
+   * @param arrivalVelocity  the arrival velocity used in the simulation
+   * @param maxTurnVelocity  the maximum turn velocity used in the simulation
+   * @param phase            the duration of the first grid time step after
+   *                         the arrival
+   * @return the footprint of the crossing
+   */
+  private FootprintCache.Footprint findFootprintBySimulation(
+                                                 Query q,
+                                                 double arrivalVelocity,
+                                                 double maxTurnVelocity,
+                                                 double phase) {
+    Lane arrivalLane =
+      Debug.getCurrentMap().getLaneRegistry().get(q.getArrivalLaneId());
+    Lane departureLane =
+      Debug.getCurrentMap().getLaneRegistry().get(q.getDepartureLaneId());
+    TestVehicle testVehicle =
+      createTestVehicle(q.getSpec(),
+                        arrivalVelocity,
+                        maxTurnVelocity,
+                        arrivalLane);
+    Driver dummy = new CrashTestDummy(testVehicle, arrivalLane, departureLane);
+
+    Area areaPlus = intersection.getAreaPlus();
+    assert areaPlus.contains(testVehicle.getPointAtMiddleFront(
+             Constants.DOUBLE_EQUAL_PRECISION));
+
+    int[] discreteTimes = new int[64];
+    int[] tileIds = new int[64];
+    int n = 0;
+    int currentIntTime = 0;
+    double currentDuration = phase;
+    OrientedBox occupiedBox = new OrientedBox();
+
+    while(VehicleUtil.intersects(testVehicle, areaPlus)) {
+      moveTestVehicle(testVehicle, dummy, currentDuration, q.isAccelerating());
+      currentIntTime++;
+      testVehicle.getOrientedBox(staticBufferSize, occupiedBox);
+      List<Tile> occupied = tiledArea.findOccupiedTiles(occupiedBox);
+      for(Tile tile : occupied) {
+        int buffer;
+        if (isEdgeTileTimeBufferEnabled && tile.isEdgeTile()) {
+          buffer = edgeTileTimeBufferSteps;
+        } else {
+          buffer = internalTileTimeBufferSteps;
+        }
+        for(int t = currentIntTime - buffer; t <= currentIntTime + buffer; t++){
+          if (n == tileIds.length) {
+            discreteTimes = Arrays.copyOf(discreteTimes, n * 2);
+            tileIds = Arrays.copyOf(tileIds, n * 2);
+          }
+          discreteTimes[n] = t;
+          tileIds[n] = tile.getId();
+          n++;
+        }
+      }
+      currentDuration = reservationGrid.getGridTimeStep();
+    }
+
+    return new FootprintCache.Footprint(Arrays.copyOf(discreteTimes, n),
+                                        Arrays.copyOf(tileIds, n),
+                                        currentIntTime,
+                                        testVehicle.gaugeVelocity());
+  }
+
   /**
    * Advance the test vehicle by one time step
    *
@@ -852,7 +1332,7 @@ public class ReservationGridManager implements
    * @param accelerating  whether or not to setMaxAccelWithMaxTargetVelocity to maximum velocity
    *                      during the traversal
    */
-  private void moveTestVehicle(AIMBasicAutoVehicle testVehicle,
+  private void moveTestVehicle(TestVehicle testVehicle,
                                Driver dummy,
                                double duration,
                                boolean accelerating) {
@@ -0,0 +1,607 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.im.aim.v2i.reservation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import aim4.im.aim.v2i.reservation.ReservationArray.TimeTile;
+
+/**
+ * A reservation table that keeps the tile grids in a circular array
+ * indexed by discrete time.  The time-tiles held by each reservation ID are
+ * kept in an open addressing index of packed (discrete time, tile ID)
+ * pairs, so that none of the operations need boxed keys.
+ */
+public class RingBufferReservationTable implements ReservationTable {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The initial number of discrete times the ring can hold.
+   */
+  private static final int INITIAL_TIME_CAPACITY = 64;
+
+  /**
+   * The initial number of slots in the reservation ID index.
+   */
+  private static final int INITIAL_INDEX_CAPACITY = 64;
+
+  /**
+   * The initial number of time-tiles kept per reservation ID.
+   */
+  private static final int INITIAL_TIME_TILE_CAPACITY = 32;
+
+  /**
+   * The value of an unreserved tile and of an empty slot in the index.
+   */
+  private static final int NO_RESERVATION = -1;
+
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /**
+   * The total number of tiles.
+   */
+  private final int numOfTiles;
+
+  /**
+   * The tile grids.  The grid of discrete time dt is at dt &amp; timeMask.
+   */
+  private int[][] grids;
+
+  /**
+   * Whether the grid in a slot of the ring is in use.
+   */
+  private boolean[] isLive;
+
+  /**
+   * The mask that maps a discrete time to a slot of the ring.
+   */
+  private int timeMask;
+
+  /**
+   * Whether there is no grid in use.
+   */
+  private boolean isEmpty;
+
+  /**
+   * The earliest discrete time whose grid is in use.
+   */
+  private int firstTime;
+
+  /**
+   * The latest discrete time whose grid is in use.
+   */
+  private int lastTime;
+
+  /**
+   * The reservation IDs in the index; NO_RESERVATION for empty slots.
+   */
+  private int[] rids;
+
+  /**
+   * The packed time-tiles held by the reservation ID in the same slot.
+   */
+  private long[][] ridTimeTiles;
+
+  /**
+   * The number of time-tiles held by the reservation ID in the same slot.
+   */
+  private int[] ridTimeTileNum;
+
+  /**
+   * The last discrete time of the reservation ID in the same slot.
+   */
+  private int[] ridLastTime;
+
+  /**
+   * The number of reservation IDs in the index.
+   */
+  private int ridNum;
+
+  /**
+   * The mask that maps a hash code to a slot of the index.
+   */
+  private int ridMask;
+
+  /**
+   * The reservation IDs to be removed during a clean up.
+   */
+  private int[] expiredRids;
+
+
+  /////////////////////////////////
+  // CLASS CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a new reservation table.
+   *
+   * @param numOfTiles  The number of tiles in the intersection
+   */
+  public RingBufferReservationTable(int numOfTiles) {
+    this.numOfTiles = numOfTiles;
+    grids = new int[INITIAL_TIME_CAPACITY][];
+    isLive = new boolean[INITIAL_TIME_CAPACITY];
+    timeMask = INITIAL_TIME_CAPACITY - 1;
+    isEmpty = true;
+    initIndex(INITIAL_INDEX_CAPACITY);
+    expiredRids = new int[INITIAL_INDEX_CAPACITY];
+  }
+
+
+  ///////////////////////////
+  // PUBLIC METHODS
+  ///////////////////////////
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getNumberOfTiles() {
+    return numOfTiles;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean isReserved(int dt, int tid) {
+    return getReservationId(dt, tid) >= 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getReservationId(int dt, int tid) {
+    if (isEmpty || dt < firstTime || dt > lastTime) {
+      return NO_RESERVATION;
+    }
+    int slot = dt & timeMask;
+    return isLive[slot] ? grids[slot][tid] : NO_RESERVATION;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean hasReservation(int rid) {
+    return findRid(rid) >= 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getLastReservedDiscreteTime() {
+    return isEmpty ? -1 : lastTime;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getLastReservedDiscreteTime(int rid) {
+    int i = findRid(rid);
+    return (i >= 0) ? ridLastTime[i] : -1;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<TimeTile> getTimeTiles(int rid) {
+    int i = findRid(rid);
+    if (i < 0) {
+      return Collections.emptyList();
+    }
+    List<TimeTile> timeTiles = new ArrayList<TimeTile>(ridTimeTileNum[i]);
+    for(int k = 0; k < ridTimeTileNum[i]; k++) {
+      timeTiles.add(new TimeTile(unpackTime(ridTimeTiles[i][k]),
+                                 unpackTileId(ridTimeTiles[i][k])));
+    }
+    return timeTiles;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean reserve(int rid, Collection<? extends TimeTile> workingList) {
+    // check to see if any time-tile is reserved in the past
+    for(TimeTile tt : workingList) {
+      if (isReserved(tt.getDiscreteTime(), tt.getTileId())) {
+        return false; // the time-tile has been reserved.
+      }
+    }
+
+    // actually make the reservation
+    int timeBegin = isEmpty ? 0 : firstTime;
+    int i = NO_RESERVATION;
+    for(TimeTile tt : workingList) {
+      int dt = tt.getDiscreteTime();
+      if (dt >= timeBegin) {
+        int tid = tt.getTileId();
+        useGrid(dt)[tid] = rid;
+        if (i < 0) {
+          i = findOrAddRid(rid);
+        }
+        addTimeTile(i, dt, tid);
+      }  // else ignore timetile that is before timeBegin
+    }
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean cancel(int rid) {
+    int i = findRid(rid);
+    if (i >= 0) {
+      long[] timeTiles = ridTimeTiles[i];
+      for(int k = 0; k < ridTimeTileNum[i]; k++) {
+        int dt = unpackTime(timeTiles[k]);
+        if (!isEmpty && dt >= firstTime && dt <= lastTime
+            && isLive[dt & timeMask]) {
+          grids[dt & timeMask][unpackTileId(timeTiles[k])] = NO_RESERVATION;
+        }
+      }
+      removeRidAt(i);
+      return true;
+    } else {
+      return false; // the rid is not found
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void cleanUp(int dt) {
+    // advance the head of the ring
+    if (!isEmpty && dt > firstTime) {
+      if (dt > lastTime) {
+        for(int t = firstTime; t <= lastTime; t++) {
+          isLive[t & timeMask] = false;
+        }
+        isEmpty = true;
+      } else {
+        int t = firstTime;
+        for(; t < dt; t++) {
+          isLive[t & timeMask] = false;
+        }
+        while(!isLive[t & timeMask]) {
+          t++;
+        }
+        firstTime = t;
+      }
+    }
+
+    // drop the time-tiles before dt from the index
+    int expiredNum = 0;
+    for(int i = 0; i < rids.length; i++) {
+      if (rids[i] != NO_RESERVATION) {
+        long[] timeTiles = ridTimeTiles[i];
+        int n = 0;
+        for(int k = 0; k < ridTimeTileNum[i]; k++) {
+          if (unpackTime(timeTiles[k]) >= dt) {
+            timeTiles[n++] = timeTiles[k];
+          }
+        }
+        ridTimeTileNum[i] = n;
+        if (n == 0) {
+          if (expiredNum == expiredRids.length) {
+            expiredRids = Arrays.copyOf(expiredRids, expiredNum * 2);
+          }
+          expiredRids[expiredNum++] = rids[i];
+        }
+      }
+    }
+    for(int k = 0; k < expiredNum; k++) {
+      removeRidAt(findRid(expiredRids[k]));
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<Integer> getReservedTilesAtTime(int dt) {
+    List<Integer> tids = new ArrayList<Integer>();
+    for(int tid = 0; tid < numOfTiles; tid++) {
+      if (isReserved(dt, tid)) {
+        tids.add(tid);
+      }
+    }
+    return tids;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Set<Integer> getVinOfReservedTilesAtTime(int dt) {
+    Set<Integer> vins = null;
+    for(int tid = 0; tid < numOfTiles; tid++) {
+      int rid = getReservationId(dt, tid);
+      if (rid >= 0) {
+        if (vins == null) {
+          vins = new HashSet<Integer>();
+        }
+        vins.add(rid);
+      }
+    }
+    if (vins != null) {
+      return Collections.unmodifiableSet(vins);
+    } else {
+      return Collections.emptySet();
+    }
+  }
+
+
+  ///////////////////////////
+  // PRIVATE METHODS
+  ///////////////////////////
+
+  // ring
+
+  /**
+   * Get the grid of a discrete time, putting it into use if it is not.
+   *
+   * @param dt  the discrete time
+   * @return the grid of the discrete time
+   */
+  private int[] useGrid(int dt) {
+    if (isEmpty) {
+      firstTime = dt;
+      lastTime = dt;
+      isEmpty = false;
+    } else if (dt < firstTime) {
+      ensureTimeCapacity(lastTime - dt + 1);
+      firstTime = dt;
+    } else if (dt > lastTime) {
+      ensureTimeCapacity(dt - firstTime + 1);
+      lastTime = dt;
+    }
+    int slot = dt & timeMask;
+    if (!isLive[slot]) {
+      if (grids[slot] == null) {
+        grids[slot] = new int[numOfTiles];
+      }
+      Arrays.fill(grids[slot], NO_RESERVATION);
+      isLive[slot] = true;
+    }
+    return grids[slot];
+  }
+
+  /**
+   * Grow the ring so that it can hold a given number of consecutive
+   * discrete times.
+   *
+   * @param span  the number of consecutive discrete times
+   */
+  private void ensureTimeCapacity(int span) {
+    if (span > grids.length) {
+      int capacity = Integer.highestOneBit(span - 1) << 1;
+      int newMask = capacity - 1;
+      int[][] newGrids = new int[capacity][];
+      boolean[] newIsLive = new boolean[capacity];
+      for(int t = firstTime; t <= lastTime; t++) {
+        if (isLive[t & timeMask]) {
+          newGrids[t & newMask] = grids[t & timeMask];
+          newIsLive[t & newMask] = true;
+        }
+      }
+      grids = newGrids;
+      isLive = newIsLive;
+      timeMask = newMask;
+    }
+  }
+
+  // index
+
+  /**
+   * Create an empty reservation ID index.
+   *
+   * @param capacity  the number of slots; must be a power of two
+   */
+  private void initIndex(int capacity) {
+    rids = new int[capacity];
+    Arrays.fill(rids, NO_RESERVATION);
+    ridTimeTiles = new long[capacity][];
+    ridTimeTileNum = new int[capacity];
+    ridLastTime = new int[capacity];
+    ridMask = capacity - 1;
+    ridNum = 0;
+  }
+
+  /**
+   * Get the home slot of a reservation ID in the index.
+   *
+   * @param rid  the reservation ID
+   * @return the home slot
+   */
+  private int homeSlot(int rid) {
+    int h = rid * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & ridMask;
+  }
+
+  /**
+   * Find the slot of a reservation ID in the index.
+   *
+   * @param rid  the reservation ID
+   * @return the slot; -1 if the reservation ID is not in the index
+   */
+  private int findRid(int rid) {
+    for(int i = homeSlot(rid); rids[i] != NO_RESERVATION; i = (i+1) & ridMask) {
+      if (rids[i] == rid) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Find the slot of a reservation ID in the index, adding the reservation
+   * ID if it is not there.
+   *
+   * @param rid  the reservation ID
+   * @return the slot
+   */
+  private int findOrAddRid(int rid) {
+    int i = findRid(rid);
+    if (i >= 0) {
+      return i;
+    }
+    if ((ridNum + 1) * 2 > rids.length) {
+      rehash(rids.length * 2);
+    }
+    i = homeSlot(rid);
+    while(rids[i] != NO_RESERVATION) {
+      i = (i+1) & ridMask;
+    }
+    rids[i] = rid;
+    if (ridTimeTiles[i] == null) {
+      ridTimeTiles[i] = new long[INITIAL_TIME_TILE_CAPACITY];
+    }
+    ridTimeTileNum[i] = 0;
+    ridLastTime[i] = -1;
+    ridNum++;
+    return i;
+  }
+
+  /**
+   * Record a time-tile held by the reservation ID in a slot.
+   *
+   * @param i    the slot
+   * @param dt   the discrete time
+   * @param tid  the tile ID
+   */
+  private void addTimeTile(int i, int dt, int tid) {
+    int n = ridTimeTileNum[i];
+    if (n == ridTimeTiles[i].length) {
+      ridTimeTiles[i] = Arrays.copyOf(ridTimeTiles[i], n * 2);
+    }
+    ridTimeTiles[i][n] = ((long)dt << 32) | (tid & 0xFFFFFFFFL);
+    ridTimeTileNum[i] = n + 1;
+    if (dt > ridLastTime[i]) {
+      ridLastTime[i] = dt;
+    }
+  }
+
+  /**
+   * Remove the reservation ID in a slot, shifting back the entries that
+   * follow it in the same cluster.
+   *
+   * @param i  the slot
+   */
+  private void removeRidAt(int i) {
+    long[] freed = ridTimeTiles[i];
+    int j = i;
+    while(true) {
+      j = (j+1) & ridMask;
+      if (rids[j] == NO_RESERVATION) {
+        break;
+      }
+      int k = homeSlot(rids[j]);
+      boolean stays = (i <= j) ? (i < k && k <= j) : (i < k || k <= j);
+      if (!stays) {
+        rids[i] = rids[j];
+        ridTimeTiles[i] = ridTimeTiles[j];
+        ridTimeTileNum[i] = ridTimeTileNum[j];
+        ridLastTime[i] = ridLastTime[j];
+        i = j;
+      }
+    }
+    rids[i] = NO_RESERVATION;
+    ridTimeTiles[i] = freed;  // keep the array for the next reservation
+    ridTimeTileNum[i] = 0;
+    ridNum--;
+  }
+
+  /**
+   * Move the index into a given number of slots.
+   *
+   * @param capacity  the number of slots; must be a power of two
+   */
+  private void rehash(int capacity) {
+    int[] oldRids = rids;
+    long[][] oldTimeTiles = ridTimeTiles;
+    int[] oldTimeTileNum = ridTimeTileNum;
+    int[] oldLastTime = ridLastTime;
+    initIndex(capacity);
+    for(int k = 0; k < oldRids.length; k++) {
+      if (oldRids[k] != NO_RESERVATION) {
+        int i = homeSlot(oldRids[k]);
+        while(rids[i] != NO_RESERVATION) {
+          i = (i+1) & ridMask;
+        }
+        rids[i] = oldRids[k];
+        ridTimeTiles[i] = oldTimeTiles[k];
+        ridTimeTileNum[i] = oldTimeTileNum[k];
+        ridLastTime[i] = oldLastTime[k];
+        ridNum++;
+      }
+    }
+  }
+
+  /**
+   * Get the discrete time of a packed time-tile.
+   *
+   * @param timeTile  the packed time-tile
+   * @return the discrete time
+   */
+  private static int unpackTime(long timeTile) {
+    return (int)(timeTile >> 32);
+  }
+
+  /**
+   * Get the tile ID of a packed time-tile.
+   *
+   * @param timeTile  the packed time-tile
+   * @return the tile ID
+   */
+  private static int unpackTileId(long timeTile) {
+    return (int)timeTile;
+  }
+}
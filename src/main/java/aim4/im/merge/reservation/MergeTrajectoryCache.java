@@ -0,0 +1,615 @@
+package aim4.im.merge.reservation;
+
+import aim4.driver.Driver;
+import aim4.driver.merge.MergeAutoDriver;
+import aim4.im.merge.MergeManager;
+import aim4.map.connections.MergeConnection;
+import aim4.map.lane.Lane;
+import aim4.map.merge.MergeMap;
+import aim4.msg.merge.v2i.Request;
+import aim4.sim.StatCollector;
+import aim4.util.OrientedBox;
+import aim4.util.TiledArea;
+import aim4.vehicle.VehicleSpec;
+import aim4.vehicle.VehicleSpecDatabase;
+import aim4.vehicle.VehicleUtil;
+import aim4.vehicle.merge.MergeBasicAutoVehicle;
+
+import java.awt.geom.Area;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A least-recently-used cache of the trajectories of test vehicles through
+ * merges, shared by the reservation managers of a map.  The geometry of a
+ * merge is fixed, so the trajectory of a test vehicle depends only on the
+ * merge, the arrival lane, the vehicle specification, the velocities,
+ * whether the vehicle accelerates, and the time at which the vehicle arrives
+ * within a time step of the reservations.  The velocities and the arrival
+ * phase are quantised to form the key, and a trajectory is simulated with
+ * the quantised inputs of its key, so that it does not depend on which
+ * request needed it first.
+ * <p>
+ * A trajectory records the tiles occupied at each time step in the tiled
+ * area of the manager that simulated it, so a cache must only be shared by
+ * managers whose merges each have a single tiled area and time step.
+ */
+public class MergeTrajectoryCache {
+
+    /////////////////////////////////
+    // CONSTANTS
+    /////////////////////////////////
+
+    /**
+     * The resolution, in meters per second, of the velocities in the key.
+     */
+    public static final double VELOCITY_RESOLUTION = 0.01;
+
+    /**
+     * The number of arrival phases a time step is divided into.
+     */
+    public static final int PHASES_PER_TIME_STEP = 8;
+
+    /////////////////////////////////
+    // NESTED CLASSES
+    /////////////////////////////////
+
+    /**
+     * The quantised inputs of the internal simulation of a traversal.
+     */
+    public static class Key {
+        /** The merge */
+        private final MergeConnection merge;
+        /** The ID of the arrival lane */
+        private final int arrivalLaneId;
+        /** The dimensions and limits of the vehicle */
+        private final double[] spec;
+        /** The arrival velocity, in units of VELOCITY_RESOLUTION */
+        private final long arrivalVelocity;
+        /** The maximum turn velocity, in units of VELOCITY_RESOLUTION */
+        private final long maxTurnVelocity;
+        /** Whether the vehicle accelerates */
+        private final boolean accelerating;
+        /** The arrival phase, in units of a fraction of a time step */
+        private final int phase;
+        /** The hash code */
+        private final int hashCode;
+
+        /**
+         * Create a key.
+         *
+         * @param merge            the merge
+         * @param arrivalLaneId    the ID of the arrival lane
+         * @param spec             the vehicle specification
+         * @param arrivalVelocity  the arrival velocity
+         * @param maxTurnVelocity  the maximum turn velocity
+         * @param accelerating     whether the vehicle accelerates
+         * @param phase            the arrival phase
+         */
+        private Key(MergeConnection merge, int arrivalLaneId,
+                    Request.VehicleSpecForRequestMsg spec,
+                    long arrivalVelocity, long maxTurnVelocity,
+                    boolean accelerating, int phase) {
+            this.merge = merge;
+            this.arrivalLaneId = arrivalLaneId;
+            this.spec = new double[] {
+                    spec.getMaxAcceleration(),
+                    spec.getMaxDeceleration(),
+                    spec.getMinVelocity(),
+                    spec.getLength(),
+                    spec.getWidth(),
+                    spec.getFrontAxleDisplacement(),
+                    spec.getRearAxleDisplacement(),
+                    spec.getMaxSteeringAngle(),
+                    spec.getMaxTurnPerSecond() };
+            this.arrivalVelocity = arrivalVelocity;
+            this.maxTurnVelocity = maxTurnVelocity;
+            this.accelerating = accelerating;
+            this.phase = phase;
+            int h = System.identityHashCode(merge);
+            h = 31 * h + arrivalLaneId;
+            h = 31 * h + Arrays.hashCode(this.spec);
+            h = 31 * h + (int)(arrivalVelocity ^ (arrivalVelocity >>> 32));
+            h = 31 * h + (int)(maxTurnVelocity ^ (maxTurnVelocity >>> 32));
+            h = 31 * h + (accelerating ? 1 : 0);
+            h = 31 * h + phase;
+            this.hashCode = h;
+        }
+
+        /**
+         * Get the arrival velocity represented by this key.
+         *
+         * @return the arrival velocity
+         */
+        public double getArrivalVelocity() {
+            return arrivalVelocity * VELOCITY_RESOLUTION;
+        }
+
+        /**
+         * Get the maximum turn velocity represented by this key.
+         *
+         * @return the maximum turn velocity
+         */
+        public double getMaxTurnVelocity() {
+            return maxTurnVelocity * VELOCITY_RESOLUTION;
+        }
+
+        /**
+         * Get the arrival phase represented by this key.
+         *
+         * @param timeStep  the time step of the reservations
+         * @return the time between the start of the time step and the
+         *         arrival time
+         */
+        public double getPhase(double timeStep) {
+            return phase * timeStep / PHASES_PER_TIME_STEP;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) obj;
+            return hashCode == k.hashCode
+                    && merge == k.merge
+                    && arrivalLaneId == k.arrivalLaneId
+                    && arrivalVelocity == k.arrivalVelocity
+                    && maxTurnVelocity == k.maxTurnVelocity
+                    && accelerating == k.accelerating
+                    && phase == k.phase
+                    && Arrays.equals(spec, k.spec);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * The trajectory of a test vehicle through a merge, relative to the
+     * discrete time at which the vehicle arrives.  The vehicle is in the
+     * merge at the end of each time step of the trajectory, and has left it
+     * at the end of the last one.
+     */
+    public static class Trajectory {
+        /**
+         * The IDs of the tiles occupied at the end of each time step; null
+         * if the tiles were not recorded
+         */
+        private final int[][] occupiedTiles;
+        /** The number of time steps */
+        private final int numOfTimeSteps;
+        /** The velocity at which the vehicle exits */
+        private final double exitVelocity;
+
+        /**
+         * Create a trajectory.
+         *
+         * @param occupiedTiles   the IDs of the tiles occupied at the end of
+         *                        each time step; null if the tiles were not
+         *                        recorded
+         * @param numOfTimeSteps  the number of time steps
+         * @param exitVelocity    the velocity at which the vehicle exits
+         */
+        public Trajectory(int[][] occupiedTiles, int numOfTimeSteps,
+                          double exitVelocity) {
+            assert occupiedTiles == null || occupiedTiles.length == numOfTimeSteps;
+            this.occupiedTiles = occupiedTiles;
+            this.numOfTimeSteps = numOfTimeSteps;
+            this.exitVelocity = exitVelocity;
+        }
+
+        /**
+         * Get the number of time steps the vehicle takes to exit.
+         *
+         * @return the number of time steps
+         */
+        public int getNumOfTimeSteps() {
+            return numOfTimeSteps;
+        }
+
+        /**
+         * Whether the tiles occupied at each time step were recorded.
+         *
+         * @return whether the tiles were recorded
+         */
+        public boolean hasOccupiedTiles() {
+            return occupiedTiles != null;
+        }
+
+        /**
+         * Get the IDs of the tiles occupied at the end of a time step.  The
+         * array must not be modified.
+         *
+         * @param i  the index of the time step
+         * @return the IDs of the tiles
+         */
+        public int[] getOccupiedTiles(int i) {
+            return occupiedTiles[i];
+        }
+
+        /**
+         * Get the velocity at which the vehicle exits.
+         *
+         * @return the velocity at which the vehicle exits
+         */
+        public double getExitVelocity() {
+            return exitVelocity;
+        }
+    }
+
+    /**
+     * The statistic collector for the hit rate of a trajectory cache.
+     */
+    public static class TrajectoryCacheStatCollector
+            implements StatCollector<MergeTrajectoryCache> {
+        /** The number of lookups that found a trajectory */
+        private long hits = 0;
+        /** The number of lookups that did not find a trajectory */
+        private long misses = 0;
+        /** The number of trajectories evicted */
+        private long evictions = 0;
+        /** The number of trajectories simulated in advance */
+        private long warmed = 0;
+
+        /**
+         * Get the number of lookups that found a trajectory.
+         *
+         * @return the number of hits
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * Get the number of lookups that did not find a trajectory.
+         *
+         * @return the number of misses
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * Get the number of trajectories evicted.
+         *
+         * @return the number of evictions
+         */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /**
+         * Get the number of trajectories simulated in advance.
+         *
+         * @return the number of trajectories simulated in advance
+         */
+        public long getWarmed() {
+            return warmed;
+        }
+
+        /**
+         * Get the fraction of the lookups that found a trajectory.
+         *
+         * @return the hit rate; zero if there was no lookup
+         */
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return (lookups == 0) ? 0.0 : (double) hits / lookups;
+        }
+
+        /**
+         * Collect the statistic in a trajectory cache.
+         *
+         * @param cache  the trajectory cache
+         */
+        @Override
+        public void collect(MergeTrajectoryCache cache) {
+            // do nothing; the cache updates the counts as it is used
+        }
+
+        /**
+         * Print the statistic.
+         *
+         * @param outfile  the output stream
+         */
+        @Override
+        public void print(PrintStream outfile) {
+            outfile.printf("trajectoryCacheHits,%d\n", hits);
+            outfile.printf("trajectoryCacheMisses,%d\n", misses);
+            outfile.printf("trajectoryCacheEvictions,%d\n", evictions);
+            outfile.printf("trajectoryCacheWarmed,%d\n", warmed);
+            outfile.printf("trajectoryCacheHitRate,%.4f\n", getHitRate());
+        }
+    }
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /**
+     * The trajectories, in access order.
+     */
+    private final LinkedHashMap<Key, Trajectory> trajectories;
+
+    /**
+     * The statistic collector.
+     */
+    private final TrajectoryCacheStatCollector statCollector;
+
+    /////////////////////////////////
+    // CONSTRUCTORS
+    /////////////////////////////////
+
+    /**
+     * Create a trajectory cache.
+     *
+     * @param maxSize  the maximum number of trajectories kept
+     */
+    public MergeTrajectoryCache(final int maxSize) {
+        this.statCollector = new TrajectoryCacheStatCollector();
+        this.trajectories = new LinkedHashMap<Key, Trajectory>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Trajectory> eldest) {
+                if (size() > maxSize) {
+                    statCollector.evictions++;
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        };
+    }
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Create the key of a traversal.
+     *
+     * @param merge            the merge
+     * @param arrivalLaneId    the ID of the arrival lane
+     * @param spec             the vehicle specification
+     * @param arrivalVelocity  the arrival velocity
+     * @param maxTurnVelocity  the maximum turn velocity
+     * @param accelerating     whether the vehicle accelerates
+     * @param phase            the time between the start of the time step
+     *                         and the arrival time
+     * @param timeStep         the time step of the reservations
+     * @return the key
+     */
+    public Key makeKey(MergeConnection merge, int arrivalLaneId,
+                       Request.VehicleSpecForRequestMsg spec,
+                       double arrivalVelocity, double maxTurnVelocity,
+                       boolean accelerating,
+                       double phase, double timeStep) {
+        return new Key(merge, arrivalLaneId, spec,
+                Math.round(arrivalVelocity / VELOCITY_RESOLUTION),
+                Math.round(maxTurnVelocity / VELOCITY_RESOLUTION),
+                accelerating,
+                (int) Math.round(phase / timeStep * PHASES_PER_TIME_STEP));
+    }
+
+    /**
+     * Get the trajectory of a traversal, simulating it with the quantised
+     * inputs of its key if it is not in the cache.
+     *
+     * @param layout            the map
+     * @param key               the key of the traversal
+     * @param spec              the vehicle specification
+     * @param timeStep          the time step of the reservations
+     * @param tiledArea         the tiled area of the merge; null if the
+     *                          occupied tiles are not needed
+     * @param staticBufferSize  the size of the static buffer around the
+     *                          vehicle when finding the occupied tiles
+     * @return the trajectory
+     */
+    public Trajectory getTrajectory(MergeMap layout, Key key,
+                                    Request.VehicleSpecForRequestMsg spec,
+                                    double timeStep,
+                                    TiledArea tiledArea,
+                                    double staticBufferSize) {
+        Trajectory trajectory = trajectories.get(key);
+        if (trajectory != null) {
+            statCollector.hits++;
+        } else {
+            statCollector.misses++;
+            trajectory = simulate(layout, key, spec, timeStep,
+                                  tiledArea, staticBufferSize);
+            trajectories.put(key, trajectory);
+        }
+        return trajectory;
+    }
+
+    /**
+     * Simulate in advance the trajectories of the vehicles in the vehicle
+     * specification database arriving on each entry lane of a merge, at
+     * each arrival phase, at the maximum turn velocity the vehicles propose.
+     *
+     * @param layout            the map
+     * @param mm                the merge manager of the merge
+     * @param timeStep          the time step of the reservations
+     * @param tiledArea         the tiled area of the merge; null if the
+     *                          occupied tiles are not needed
+     * @param staticBufferSize  the size of the static buffer around the
+     *                          vehicle when finding the occupied tiles
+     */
+    public void warmUp(MergeMap layout, MergeManager mm, double timeStep,
+                       TiledArea tiledArea, double staticBufferSize) {
+        MergeConnection merge = mm.getMergeConnection();
+        Lane departureLane = merge.getExitLanes().get(0);
+        for (Lane arrivalLane : merge.getEntryLanes()) {
+            for (int i = 0; i < VehicleSpecDatabase.getNumOfSpec(); i++) {
+                VehicleSpec vehicleSpec = VehicleSpecDatabase.getVehicleSpecById(i);
+                Request.VehicleSpecForRequestMsg spec =
+                        new Request.VehicleSpecForRequestMsg(vehicleSpec);
+                double maxTurnVelocity = VehicleUtil.maxTurnVelocity(
+                        vehicleSpec, arrivalLane, departureLane, mm, layout);
+                for (int phase = 0; phase < PHASES_PER_TIME_STEP; phase++) {
+                    Key key = new Key(merge, arrivalLane.getId(), spec,
+                            Math.round(maxTurnVelocity / VELOCITY_RESOLUTION),
+                            Math.round(maxTurnVelocity / VELOCITY_RESOLUTION),
+                            true,
+                            phase);
+                    if (!trajectories.containsKey(key)) {
+                        trajectories.put(key, simulate(layout, key, spec, timeStep,
+                                                       tiledArea, staticBufferSize));
+                        statCollector.warmed++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of trajectories in the cache.
+     *
+     * @return the number of trajectories in the cache
+     */
+    public int size() {
+        return trajectories.size();
+    }
+
+    /**
+     * Get the statistic collector.
+     *
+     * @return the statistic collector
+     */
+    public TrajectoryCacheStatCollector getStatCollector() {
+        return statCollector;
+    }
+
+    /////////////////////////////////
+    // PRIVATE METHODS
+    /////////////////////////////////
+
+    /**
+     * Simulate the trajectory of a traversal with the quantised inputs of its
+     * key, ignoring the reservations.
+     *
+     * @param layout            the map
+     * @param key               the key of the traversal
+     * @param spec              the vehicle specification
+     * @param timeStep          the time step of the reservations
+     * @param tiledArea         the tiled area of the merge; null if the
+     *                          occupied tiles are not needed
+     * @param staticBufferSize  the size of the static buffer around the
+     *                          vehicle when finding the occupied tiles
+     * @return the trajectory
+     */
+    private Trajectory simulate(MergeMap layout, Key key,
+                                Request.VehicleSpecForRequestMsg spec,
+                                double timeStep,
+                                TiledArea tiledArea,
+                                double staticBufferSize) {
+        Lane arrivalLane = layout.getLaneRegistry().get(key.arrivalLaneId);
+        MergeBasicAutoVehicle testVehicle =
+                createTestVehicle(key.merge, spec,
+                                  key.getArrivalVelocity(),
+                                  key.getMaxTurnVelocity(),
+                                  arrivalLane);
+        Driver dummy = new MergeAutoDriver(testVehicle, layout);
+        dummy.setCurrentLane(arrivalLane);
+        testVehicle.setDriver(dummy);
+        testVehicle.getIntervalometer().record(Double.MAX_VALUE); //No next vehicle
+
+        // The entry point can lie on the boundary of the area of the merge,
+        // so the test vehicle is not required to start inside it
+        Area area = key.merge.getArea();
+
+        int[][] occupiedTiles = (tiledArea != null) ? new int[16][] : null;
+        int numOfTimeSteps = 0;
+        double currentDuration = key.getPhase(timeStep);
+        OrientedBox occupiedBox = (tiledArea != null) ? new OrientedBox() : null;
+        while(VehicleUtil.intersectsHighPrecision(testVehicle, area)) {
+            // Give the dummy a chance to steer
+            dummy.act();
+            if (key.accelerating) {
+                testVehicle.setMaxAccelWithMaxTargetVelocity();
+            } else {
+                testVehicle.coast();
+            }
+            testVehicle.move(currentDuration);
+            if (tiledArea != null) {
+                testVehicle.getOrientedBox(staticBufferSize, occupiedBox);
+                List<TiledArea.Tile> occupied = tiledArea.findOccupiedTiles(occupiedBox);
+                int[] tileIds = new int[occupied.size()];
+                for (int i = 0; i < tileIds.length; i++) {
+                    tileIds[i] = occupied.get(i).getId();
+                }
+                if (numOfTimeSteps == occupiedTiles.length) {
+                    occupiedTiles = Arrays.copyOf(occupiedTiles, numOfTimeSteps * 2);
+                }
+                occupiedTiles[numOfTimeSteps] = tileIds;
+            }
+            numOfTimeSteps++;
+            currentDuration = timeStep;
+        }
+
+        return new Trajectory(
+                (occupiedTiles != null) ? Arrays.copyOf(occupiedTiles, numOfTimeSteps) : null,
+                numOfTimeSteps,
+                testVehicle.gaugeVelocity());
+    }
+
+    /**
+     * Create a test vehicle to use in the internal simulation.
+     *
+     * @param merge            the merge
+     * @param spec             the specification of the test vehicle
+     * @param arrivalVelocity  the arrival velocity of the vehicle
+     * @param maxVelocity      the vehicle's maximum velocity, in meters per
+     *                         second
+     * @param arrivalLane      the arrival lane of the vehicle
+     * @return the test vehicle
+     */
+    private MergeBasicAutoVehicle createTestVehicle(MergeConnection merge,
+                                                    Request.VehicleSpecForRequestMsg spec,
+                                                    double arrivalVelocity,
+                                                    double maxVelocity,
+                                                    Lane arrivalLane) {
+        VehicleSpec newSpec = new VehicleSpec(
+                "TestVehicle",
+                spec.getMaxAcceleration(),
+                spec.getMaxDeceleration(),
+                maxVelocity,
+                spec.getMinVelocity(),
+                spec.getLength(),
+                spec.getWidth(),
+                spec.getFrontAxleDisplacement(),
+                spec.getRearAxleDisplacement(),
+                0.0, // wheelSpan
+                0.0, // wheelRadius
+                0.0, // wheelWidth
+                spec.getMaxSteeringAngle(),
+                spec.getMaxTurnPerSecond());
+
+        return new MergeBasicAutoVehicle(
+                newSpec,
+                merge.getEntryPoint(arrivalLane), //Position
+                arrivalLane.getInitialHeading(), //Heading
+                0.0, //Steering angle
+                arrivalVelocity, //Velocity
+                0.0, // Target velocity
+                0.0, // Acceleration
+                0.0 // The current time
+        );
+    }
+}
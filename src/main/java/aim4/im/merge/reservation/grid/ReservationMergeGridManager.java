@@ -1,13 +1,15 @@
 package aim4.im.merge.reservation.grid;
 
-import aim4.config.Constants;
 import aim4.driver.Driver;
 import aim4.driver.merge.MergeAutoDriver;
 import aim4.im.ReservationManager;
+import aim4.im.merge.MergeManager;
+import aim4.im.merge.reservation.MergeTrajectoryCache;
 import aim4.map.connections.MergeConnection;
 import aim4.map.lane.Lane;
 import aim4.map.merge.MergeMap;
 import aim4.msg.merge.v2i.Request;
+import aim4.util.OrientedBox;
 import aim4.util.TiledArea;
 import aim4.vehicle.VehicleSpec;
 import aim4.vehicle.VehicleUtil;
@@ -66,6 +68,11 @@ public class ReservationMergeGridManager implements
          * The granularity.
          */
         private double granularity;
+        /**
+         * The maximum number of trajectories kept by the trajectory cache;
+         * zero if the trajectories are not cached.
+         */
+        private int trajectoryCacheSize;
 
         /**
          * Create a configuration object.
@@ -92,6 +99,33 @@ public class ReservationMergeGridManager implements
             this.edgeTileTimeBufferSize = edgeTileTimeBufferSize;
             this.isEdgeTileTimeBufferEnabled = isEdgeTileTimeBufferEnabled;
             this.granularity = granularity;
+            this.trajectoryCacheSize = 0;
+        }
+
+        /**
+         * Create a configuration object.
+         *
+         * @param timeStep
+         * @param gridTimeStep
+         * @param staticBufferSize
+         * @param internalTileTimeBufferSize
+         * @param edgeTileTimeBufferSize
+         * @param isEdgeTileTimeBufferEnabled
+         * @param granularity
+         * @param trajectoryCacheSize
+         */
+        public Config(double timeStep,
+                      double gridTimeStep,
+                      double staticBufferSize,
+                      double internalTileTimeBufferSize,
+                      double edgeTileTimeBufferSize,
+                      boolean isEdgeTileTimeBufferEnabled,
+                      double granularity,
+                      int trajectoryCacheSize) {
+            this(timeStep, gridTimeStep, staticBufferSize,
+                    internalTileTimeBufferSize, edgeTileTimeBufferSize,
+                    isEdgeTileTimeBufferEnabled, granularity);
+            this.trajectoryCacheSize = trajectoryCacheSize;
         }
 
         /**
@@ -156,6 +190,16 @@ public class ReservationMergeGridManager implements
         public double getGranularity() {
             return granularity;
         }
+
+        /**
+         * Get the maximum number of trajectories kept by the trajectory cache.
+         *
+         * @return the maximum number of trajectories kept by the trajectory
+         *         cache; zero if the trajectories are not cached
+         */
+        public int getTrajectoryCacheSize() {
+            return trajectoryCacheSize;
+        }
     }
 
     /**
@@ -408,6 +452,11 @@ public class ReservationMergeGridManager implements
      * The current layout of the map.
      */
     private final MergeMap layout;
+    /**
+     * The cache of the trajectories of the test vehicles; null if the
+     * trajectories are not cached.
+     */
+    private MergeTrajectoryCache trajectoryCache;
 
 
     /////////////////////////////////
@@ -493,6 +542,39 @@ public class ReservationMergeGridManager implements
         return tiledArea;
     }
 
+    /**
+     * Set the cache of the trajectories of the test vehicles.  The cache can
+     * be shared with the managers of the other merges of the map.
+     *
+     * @param trajectoryCache  the cache; null if the trajectories are not
+     *                         cached
+     */
+    public void setTrajectoryCache(MergeTrajectoryCache trajectoryCache) {
+        this.trajectoryCache = trajectoryCache;
+    }
+
+    /**
+     * Get the cache of the trajectories of the test vehicles.
+     *
+     * @return the cache; null if the trajectories are not cached
+     */
+    public MergeTrajectoryCache getTrajectoryCache() {
+        return trajectoryCache;
+    }
+
+    /**
+     * Simulate in advance the trajectories most vehicles will request, if
+     * the trajectories are cached.
+     *
+     * @param mm  the merge manager using this reservation grid manager
+     */
+    public void warmUpTrajectoryCache(MergeManager mm) {
+        if (trajectoryCache != null) {
+            trajectoryCache.warmUp(layout, mm, reservationGrid.getGridTimeStep(),
+                    tiledArea, staticBufferSize);
+        }
+    }
+
     /////////////////////////////////
     // PUBLIC METHODS
     /////////////////////////////////
@@ -509,6 +591,10 @@ public class ReservationMergeGridManager implements
      */
     @Override
     public Plan query(Query q) {
+        if (trajectoryCache != null) {
+            return queryByTrajectory(q);
+        }
+
         // Position the Vehicle to be ready to start the simulation
         Lane arrivalLane =
                 layout.getLaneRegistry().get(q.getArrivalLaneId());
@@ -688,9 +774,8 @@ public class ReservationMergeGridManager implements
                               boolean accelerating) {
         // The area of the merge
         Area areaPlus = merge.getArea();
-        // The following must be true because the test vehicle
-        // starts at the entry point of the merge.
-        assert areaPlus.contains(testVehicle.getPointAtMiddleFront(Constants.DOUBLE_EQUAL_PRECISION));
+        // The test vehicle starts at the entry point of the merge, which can
+        // lie on the boundary of the area, so it is not required to be inside.
 
         // The list of tile-times that will make up this reservation
         List<ReservationMergeGrid.TimeTile> workingList = new ArrayList<ReservationMergeGrid.TimeTile>();
@@ -700,14 +785,16 @@ public class ReservationMergeGridManager implements
         int currentIntTime = reservationGrid.calcDiscreteTime(arrivalTime);
         // The duration in the current time interval
         double currentDuration = reservationGrid.calcRemainingTime(arrivalTime);
+        // The corners of the test vehicle with the static buffer
+        OrientedBox occupiedBox = new OrientedBox();
 
         // drive the test vehicle until it leaves the merge
         while(VehicleUtil.intersectsHighPrecision(testVehicle, areaPlus)) {
             moveTestVehicle(testVehicle, dummy, currentDuration, accelerating);
             // Find out which tiles are occupied by the vehicle
             currentIntTime++;  // Record that we've moved forward one time step
-            List<TiledArea.Tile> occupied =
-                    tiledArea.findOccupiedTiles(testVehicle.getShape(staticBufferSize));
+            testVehicle.getOrientedBox(staticBufferSize, occupiedBox);
+            List<TiledArea.Tile> occupied = tiledArea.findOccupiedTiles(occupiedBox);
 
             // Make sure none of these tiles are reserved by someone else already
             for(TiledArea.Tile tile : occupied) {
@@ -738,6 +825,67 @@ public class ReservationMergeGridManager implements
                         .calcTime(currentIntTime));
     }
 
+    /**
+     * Answer a query by checking the cached trajectory of the test vehicle
+     * against the reservation grid.  The trajectory is simulated with the
+     * quantised inputs of its key the first time it is needed.
+     *
+     * @param q  the query object
+     * @return the plan if the trajectory is free; otherwise return null.
+     */
+    private Plan queryByTrajectory(Query q) {
+        double gridTimeStep = reservationGrid.getGridTimeStep();
+        MergeTrajectoryCache.Key key =
+                trajectoryCache.makeKey(merge,
+                        q.getArrivalLaneId(),
+                        q.getSpec(),
+                        q.getArrivalVelocity(),
+                        q.getMaxTurnVelocity(),
+                        q.isAccelerating(),
+                        reservationGrid.calcRemainingTime(q.getArrivalTime()),
+                        gridTimeStep);
+        MergeTrajectoryCache.Trajectory trajectory =
+                trajectoryCache.getTrajectory(layout, key, q.getSpec(), gridTimeStep,
+                        tiledArea, staticBufferSize);
+
+        List<ReservationMergeGrid.TimeTile> workingList = new ArrayList<ReservationMergeGrid.TimeTile>();
+        int arrivalIntTime = reservationGrid.calcDiscreteTime(q.getArrivalTime());
+        for(int i = 0; i < trajectory.getNumOfTimeSteps(); i++) {
+            int currentIntTime = arrivalIntTime + i + 1;
+            for(int tileId : trajectory.getOccupiedTiles(i)) {
+                int buffer;
+                if (isEdgeTileTimeBufferEnabled && tiledArea.getTileById(tileId).isEdgeTile()) {
+                    buffer = edgeTileTimeBufferSteps;
+                } else {
+                    buffer = internalTileTimeBufferSteps;
+                }
+                for(int t = currentIntTime - buffer; t <= currentIntTime + buffer; t++){
+                    if (!reservationGrid.isReserved(t, tileId)) {
+                        workingList.add(reservationGrid.new TimeTile(t, tileId));
+                    } else {
+                        return null; // Failure! Just bail!
+                    }
+                }
+            }
+        }
+
+        double exitTime = workingList.get(workingList.size()-1).getTime();
+
+        Queue<double[]> accelerationProfile =
+                calcAccelerationProfile(q.getArrivalTime(),
+                        q.getArrivalVelocity(),
+                        q.getMaxTurnVelocity(),
+                        q.getSpec().getMaxAcceleration(),
+                        reservationGrid.calcTime(arrivalIntTime + trajectory.getNumOfTimeSteps()),
+                        q.isAccelerating());
+
+        return new Plan(q.getVin(),
+                exitTime,
+                trajectory.getExitVelocity(),
+                workingList,
+                accelerationProfile);
+    }
+
     /**
      * Advance the test vehicle by one time step
      *
@@ -1,9 +1,10 @@
 package aim4.im.merge.reservation.nogrid;
 
-import aim4.config.Constants;
 import aim4.driver.Driver;
 import aim4.driver.merge.MergeAutoDriver;
 import aim4.im.ReservationManager;
+import aim4.im.merge.MergeManager;
+import aim4.im.merge.reservation.MergeTrajectoryCache;
 import aim4.map.connections.MergeConnection;
 import aim4.map.lane.Lane;
 import aim4.map.merge.MergeMap;
@@ -39,10 +40,19 @@ public class ReservationMergeManager implements
          * The length of a discrete time step in the merge
          */
         private double mergeTimeStep;
+        /**
+         * The maximum number of trajectories kept by the trajectory cache; zero if the trajectories are not cached.
+         */
+        private int trajectoryCacheSize;
 
         public Config(double timeStep, double mergeTimeStep) {
+            this(timeStep, mergeTimeStep, 0);
+        }
+
+        public Config(double timeStep, double mergeTimeStep, int trajectoryCacheSize) {
             this.timeStep = timeStep;
             this.mergeTimeStep = mergeTimeStep;
+            this.trajectoryCacheSize = trajectoryCacheSize;
         }
 
         //ACCESSORS//
@@ -53,6 +63,10 @@ public class ReservationMergeManager implements
         public double getMergeTimeStep() {
             return mergeTimeStep;
         }
+
+        public int getTrajectoryCacheSize() {
+            return trajectoryCacheSize;
+        }
     }
 
     public static class Query {
@@ -269,6 +283,8 @@ public class ReservationMergeManager implements
     private ReservationMerge reservationMerge;
     /**The map the reservation manager is positioned on*/
     private MergeMap layout;
+    /**The cache of the trajectories of the test vehicles; null if the trajectories are not cached*/
+    private MergeTrajectoryCache trajectoryCache;
 
     //CONSTRUCTOR//
     public ReservationMergeManager(Config config,
@@ -306,6 +322,28 @@ public class ReservationMergeManager implements
         return merge;
     }
 
+    public MergeTrajectoryCache getTrajectoryCache() {
+        return trajectoryCache;
+    }
+
+    /**
+     * Set the cache of the trajectories of the test vehicles. The cache can be shared with the managers of the other
+     * merges of the map.
+     * @param trajectoryCache the cache; null if the trajectories are not cached
+     */
+    public void setTrajectoryCache(MergeTrajectoryCache trajectoryCache) {
+        this.trajectoryCache = trajectoryCache;
+    }
+
+    /**
+     * Simulate in advance the trajectories most vehicles will request, if the trajectories are cached.
+     * @param mm the merge manager using this reservation manager
+     */
+    public void warmUpTrajectoryCache(MergeManager mm) {
+        if(trajectoryCache != null)
+            trajectoryCache.warmUp(layout, mm, reservationMerge.getMergeTimeStep(), null, 0.0);
+    }
+
     //PLAN//
 
     /**
@@ -317,6 +355,9 @@ public class ReservationMergeManager implements
      */
     @Override
     public Plan query(Query q) {
+        if(trajectoryCache != null)
+            return queryByTrajectory(q);
+
         // Position the Vehicle to be ready to start the simulation
         Lane arrivalLane =
                 layout.getLaneRegistry().get(q.getArrivalLaneId());
@@ -376,6 +417,48 @@ public class ReservationMergeManager implements
     }
 
     //PRIVATE METHODS//
+    /**
+     * Answer a query by checking the cached trajectory of the test vehicle against the reservations. The trajectory is
+     * simulated with the quantised inputs of its key the first time it is needed.
+     * @param q the query object
+     * @return the plan if the trajectory is free; otherwise return null.
+     */
+    private Plan queryByTrajectory(Query q) {
+        double mergeTimeStep = reservationMerge.getMergeTimeStep();
+        MergeTrajectoryCache.Key key = trajectoryCache.makeKey(merge,
+                                                               q.getArrivalLaneId(),
+                                                               q.getSpec(),
+                                                               q.getArrivalVelocity(),
+                                                               q.getMaxTurnVelocity(),
+                                                               q.isAccelerating(),
+                                                               reservationMerge.calcRemainingTime(q.getArrivalTime()),
+                                                               mergeTimeStep);
+        MergeTrajectoryCache.Trajectory trajectory =
+                trajectoryCache.getTrajectory(layout, key, q.getSpec(), mergeTimeStep, null, 0.0);
+
+        List<ReservationMerge.TimeReservation> workingList = new ArrayList<ReservationMerge.TimeReservation>();
+        int arrivalIntTime = reservationMerge.calcDiscreteTime(q.getArrivalTime());
+        for(int currentIntTime = arrivalIntTime + 1;
+            currentIntTime <= arrivalIntTime + trajectory.getNumOfTimeSteps();
+            currentIntTime++) {
+            if(reservationMerge.isReserved(currentIntTime))
+                return null; //FAILED TO RESERVE
+            else
+                workingList.add(reservationMerge.new TimeReservation(currentIntTime));
+        }
+        double exitTime = workingList.get(workingList.size()-1).getTime();
+
+        Queue<double[]> accelerationProfile =
+                calcAccelerationProfile(q.getArrivalTime(),
+                                        q.getArrivalVelocity(),
+                                        q.getMaxTurnVelocity(),
+                                        q.getSpec().getMaxAcceleration(),
+                                        reservationMerge.calcTime(arrivalIntTime + trajectory.getNumOfTimeSteps()),
+                                        q.isAccelerating());
+
+        return new Plan(q.getVin(), exitTime, trajectory.getExitVelocity(), workingList, accelerationProfile);
+    }
+
     /**
      * Create a test vehicle to use in the internal simulation.
      *
@@ -478,9 +561,8 @@ public class ReservationMergeManager implements
                                 boolean accelerating) {
         // The area of the merge
         Area area = merge.getArea();
-        // The following must be true because the test vehicle
-        // starts at the entry point of the merge.
-        assert area.contains(testVehicle.getPointAtMiddleFront(Constants.DOUBLE_EQUAL_PRECISION));
+        // The test vehicle starts at the entry point of the merge, which can
+        // lie on the boundary of the area, so it is not required to be inside.
 
         // The list of times that will make up this reservation
         List<ReservationMerge.TimeReservation> workingList = new ArrayList<ReservationMerge.TimeReservation>();
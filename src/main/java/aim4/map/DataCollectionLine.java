@@ -33,8 +33,8 @@ package aim4.map;
 import java.awt.Shape;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -110,7 +110,8 @@ public class DataCollectionLine {
   }
 
   /**
-   * Whether the vehicle intersects the line.
+   * Whether the vehicle intersects the line, and if so record the time at
+   * which it passed through the line.
    *
    * @param v     the vehicle
    * @param time  the current time
@@ -120,29 +121,69 @@ public class DataCollectionLine {
    */
   public boolean intersect(VehicleSimModel v, double time,
                            Point2D p1, Point2D p2) {
+    if (isCrossedBy(v, time, p1, p2)) {
+      record(v, time);
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  /**
+   * Whether the vehicle intersects the line and should be counted, without
+   * recording it.  This method does not change the line, so it can be called
+   * for many vehicles at once, provided that nothing is recorded until they
+   * are all done.
+   *
+   * @param v     the vehicle
+   * @param time  the current time
+   * @param p1    the first point of the vehicle
+   * @param p2    the second point of the vehicle
+   * @return whether the vehicle intersects the line and should be counted
+   */
+  public boolean isCrossedBy(VehicleSimModel v, double time,
+                             Point2D p1, Point2D p2) {
     int vin = v.getVIN();
     if (!isNoRepeat
       || !vinToTime.containsKey(vin)
       || vinToTime.get(vin).get(vinToTime.get(vin).size()-1)
         + NO_REPEAT_TIME_PERIOD < time) {
-      if (line.intersectsLine(p1.getX(), p1.getY(), p2.getX(), p2.getY())) {
-        if (!vinToTime.containsKey(vin)) {
-          List<Double> times = new LinkedList<Double>();
-          times.add(time);
-          vinToTime.put(vin, times);
-        } else {
-          vinToTime.get(vin).add(time);
-        }
-        return true;
-      } else {
-        return false;
-      }
+      return line.intersectsLine(p1.getX(), p1.getY(), p2.getX(), p2.getY());
     } else {  // the vehicle passed through this data collection line
               // twice or more within last NO_REPEAT_TIME_PERIOD seconds
       return false;
     }
   }
 
+  /**
+   * Record that a vehicle passed through the line.
+   *
+   * @param v     the vehicle
+   * @param time  the time at which the vehicle passed through the line
+   */
+  public void record(VehicleSimModel v, double time) {
+    int vin = v.getVIN();
+    if (!vinToTime.containsKey(vin)) {
+      // most vehicles pass through a line only once
+      List<Double> times = new ArrayList<Double>(1);
+      times.add(time);
+      vinToTime.put(vin, times);
+    } else {
+      vinToTime.get(vin).add(time);
+    }
+  }
+
+  /**
+   * Forget the times at which a vehicle passed through the line, e.g. once
+   * the vehicle has left the simulation and its times are no longer needed,
+   * so that the record of the line does not grow with the length of a run.
+   *
+   * @param vin  the VIN of the vehicle
+   */
+  public void forget(int vin) {
+    vinToTime.remove(vin);
+  }
+
   /**
    * Get the name of the line.
    *
@@ -86,7 +86,7 @@ public class GridIntersectionMap implements BasicIntersectionMap {
     /** The array of intersection managers */
     private IntersectionManager[][] intersectionManagerGrid;
     /** The maximum speed limit  */
-    private double memoMaximumSpeedLimit = -1;
+    private volatile double memoMaximumSpeedLimit = -1;
     /** The data collection lines */
     private List<DataCollectionLine> dataCollectionLines;
     /** The spawn points */
@@ -369,7 +369,7 @@ public class GridIntersectionMap implements BasicIntersectionMap {
         spawnPoints.addAll(horizontalSpawnPoints);
         spawnPoints.addAll(verticalSpawnPoints);
 
-        Debug.currentMap = this;
+        Debug.setCurrentMap(this);
     }
 
     /**
@@ -391,7 +391,7 @@ public class GridIntersectionMap implements BasicIntersectionMap {
 
         spawnPoints.addAll(horizontalSpawnPoints);
 
-        Debug.currentMap = this;
+        Debug.setCurrentMap(this);
     }
 
     /**
@@ -451,13 +451,17 @@ public class GridIntersectionMap implements BasicIntersectionMap {
     @Override
     public double getMaximumSpeedLimit() {
         if(memoMaximumSpeedLimit < 0) {
+            // find the maximum before publishing it, since drivers acting
+            // in parallel may ask for it at the same time
+            double maximumSpeedLimit = -1;
             for(Road r : getRoads()) {
                 for(Lane l : r.getLanes()) {
-                    if(l.getSpeedLimit() > memoMaximumSpeedLimit) {
-                        memoMaximumSpeedLimit = l.getSpeedLimit();
+                    if(l.getSpeedLimit() > maximumSpeedLimit) {
+                        maximumSpeedLimit = l.getSpeedLimit();
                     }
                 }
             }
+            memoMaximumSpeedLimit = maximumSpeedLimit;
         }
         return memoMaximumSpeedLimit;
     }
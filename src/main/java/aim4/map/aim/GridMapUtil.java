@@ -128,7 +128,7 @@ public class GridMapUtil {
             double initTime = spawnPoint.getCurrentTime();
             for(double time = initTime; time < initTime + timeStep;
                 time += SimConfig.SPAWN_TIME_STEP) {
-                if (Util.random.nextDouble() < prob) {
+                if (Util.getRandom().nextDouble() < prob) {
                     int i = Util.randomIndex(proportion);
                     VehicleSpec vehicleSpec = VehicleSpecDatabase.getVehicleSpecById(i);
                     Road destinationRoad =
@@ -184,7 +184,7 @@ public class GridMapUtil {
             double initTime = spawnPoint.getCurrentTime();
             for(double time = initTime; time < initTime + timeStep;
                 time += SimConfig.SPAWN_TIME_STEP) {
-                if (Util.random.nextDouble() < prob) {
+                if (Util.getRandom().nextDouble() < prob) {
                     Road destinationRoad =
                             destinationSelector.selectDestination(spawnPoint.getLane());
 
@@ -282,7 +282,7 @@ public class GridMapUtil {
                                            double spawnPeriod) {
             this.destinationRoads = new ArrayList<Road>(destinationRoads.size());
             for(Road road : destinationRoads) {
-                if (Debug.currentMap.getRoad(spawnPoint.getLane()).getDual() != road) {
+                if (Debug.getCurrentMap().getRoad(spawnPoint.getLane()).getDual() != road) {
                     this.destinationRoads.add(road);
                 }
             }
@@ -43,6 +43,14 @@ public class CPMCarParkWithStatus extends CPMBasicMap {
     public CPMCarParkWithStatus(double laneWidth, double speedLimit, double initTime,
                          int numberOfParkingLanes, double parkingLength,
                          double accessLength) {
+        this(laneWidth, speedLimit, initTime, numberOfParkingLanes, parkingLength,
+                accessLength, StatusMonitor.AllocationPolicy.MOST_SPACE);
+    }
+
+    public CPMCarParkWithStatus(double laneWidth, double speedLimit, double initTime,
+                         int numberOfParkingLanes, double parkingLength,
+                         double accessLength,
+                         StatusMonitor.AllocationPolicy allocationPolicy) {
         super(laneWidth, speedLimit, initTime);
         this.numberOfParkingLanes = numberOfParkingLanes;
         this.parkingLength = parkingLength;
@@ -68,7 +76,7 @@ public class CPMCarParkWithStatus extends CPMBasicMap {
                 parkingLength, laneWidth, accessLength);
 
         // Create the StatusMonitor
-        this.statusMonitor = new StatusMonitor(parkingArea);
+        this.statusMonitor = new StatusMonitor(parkingArea, allocationPolicy);
 
         // Add all roads/lanes from parking area to the map's records
         for (Road road : parkingArea.getRoads()){
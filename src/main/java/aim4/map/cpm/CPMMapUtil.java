@@ -79,7 +79,7 @@ public class CPMMapUtil {
                 double initTime = spawnPoint.getCurrentTime();
                 for(double time = initTime; time < initTime + timeStep;
                     time += SimConfig.SPAWN_TIME_STEP) {
-                    if (Util.random.nextDouble() < spawnProbability) {
+                    if (Util.getRandom().nextDouble() < spawnProbability) {
                         double parkingTime = generateParkingTime();
                         result.add(new CPMSpawnSpec(spawnPoint.getCurrentTime(),vehicleSpec, parkingTime));
                         numberOfSpawnedVehicles += 1;
@@ -123,7 +123,7 @@ public class CPMMapUtil {
             double initTime = spawnPoint.getCurrentTime();
             for(double time = initTime; time < initTime + timeStep;
                 time += SimConfig.SPAWN_TIME_STEP) {
-                if (Util.random.nextDouble() < spawnProbability) {
+                if (Util.getRandom().nextDouble() < spawnProbability) {
                     double parkingTime = generateParkingTime();
                     result.add(new CPMSpawnSpec(spawnPoint.getCurrentTime(),vehicleSpec, parkingTime));
                     System.out.println("Vehicle spawned!");
@@ -330,7 +330,7 @@ public class CPMMapUtil {
                 double initTime = spawnPoint.getCurrentTime();
                 for(double time = initTime; time < initTime + timeStep;
                     time += SimConfig.SPAWN_TIME_STEP) {
-                    if (Util.random.nextDouble() < spawnProbability) {
+                    if (Util.getRandom().nextDouble() < spawnProbability) {
                         int i = Util.randomIndex(proportion);
                         VehicleSpec vehicleSpec = VehicleSpecDatabase.getVehicleSpecById(i);
                         double parkingTime = generateParkingTime();
@@ -385,7 +385,7 @@ public class CPMMapUtil {
             double initTime = spawnPoint.getCurrentTime();
             for(double time = initTime; time < initTime + timeStep;
                 time += SimConfig.SPAWN_TIME_STEP) {
-                if (Util.random.nextDouble() < spawnProbability) {
+                if (Util.getRandom().nextDouble() < spawnProbability) {
                     int i = Util.randomIndex(proportion);
                     VehicleSpec vehicleSpec = VehicleSpecDatabase.getVehicleSpecById(i);
                     double parkingTime = generateParkingTime();
@@ -595,7 +595,7 @@ public class CPMMapUtil {
                 double initTime = spawnPoint.getCurrentTime();
                 for(double time = initTime; time < initTime + timeStep;
                     time += SimConfig.SPAWN_TIME_STEP) {
-                    if (Util.random.nextDouble() < spawnProbability) {
+                    if (Util.getRandom().nextDouble() < spawnProbability) {
                         double parkingTime = generateParkingTime();
                         result.add(new CPMSpawnSpec(spawnPoint.getCurrentTime(),vehicleSpec, parkingTime));
                         System.out.println("Vehicle spawned!");
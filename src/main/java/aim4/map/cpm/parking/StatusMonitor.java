@@ -13,11 +13,65 @@ import java.util.*;
  */
 public class StatusMonitor {
 
+    /**
+     * The ways of choosing the parking lane of a vehicle entering the car park.
+     */
+    public enum AllocationPolicy {
+        /** The lane with the most space left. */
+        MOST_SPACE,
+        /** The lane with the least space left in which the vehicle still fits. */
+        BEST_FIT
+    }
+
+    /**
+     * The space left for parking on a parking lane.
+     */
+    private static class LaneSpace {
+        /** The parking lane. */
+        private final ParkingLane lane;
+        /** The id of the parking lane. */
+        private final int laneId;
+        /** The order in which the lane was added, to tell apart lanes with the same id. */
+        private final int order;
+        /** The length of the space left for parking. */
+        private double space;
+
+        private LaneSpace(ParkingLane lane, int laneId, int order, double space) {
+            this.lane = lane;
+            this.laneId = laneId;
+            this.order = order;
+            this.space = space;
+        }
+    }
+
+    /**
+     * Orders the lanes by the space left and then by descending lane id,
+     * so that among lanes with the same space the lane with the lowest id
+     * comes last.
+     */
+    private static final Comparator<LaneSpace> BY_SPACE = new Comparator<LaneSpace>() {
+        @Override
+        public int compare(LaneSpace a, LaneSpace b) {
+            int c = Double.compare(a.space, b.space);
+            if (c == 0) {
+                c = (a.laneId < b.laneId) ? 1 : ((a.laneId > b.laneId) ? -1 : 0);
+            }
+            if (c == 0) {
+                c = (a.order < b.order) ? 1 : ((a.order > b.order) ? -1 : 0);
+            }
+            return c;
+        }
+    };
+
     /** The parking area that we are recording the status of. */
     private ParkingArea parkingArea;
+    /** How parking lanes are chosen for vehicles entering the car park. */
+    private final AllocationPolicy allocationPolicy;
     /** A mapping from parking lanes to the amount of
      * space left for parking on that lane. */
-    private Map<ParkingLane, Double> parkingLanesSpace = new HashMap<ParkingLane, Double>();
+    private final Map<ParkingLane, LaneSpace> parkingLanesSpace = new IdentityHashMap<ParkingLane, LaneSpace>();
+    /** The space left on the parking lanes, ordered by {@link #BY_SPACE}. */
+    private final TreeSet<LaneSpace> lanesBySpace = new TreeSet<LaneSpace>(BY_SPACE);
     /** A list of vehicles which are currently in the car park,
      * and the lane they are parked in. */
     private Map<CPMBasicAutoVehicle, ParkingLane> vehicles = new HashMap<CPMBasicAutoVehicle, ParkingLane>();
@@ -29,11 +83,23 @@ public class StatusMonitor {
     private int mostNumberOfVehicles;
 
     /**
-     * Create a StatusMonitor to record the status of the car park.
+     * Create a StatusMonitor to record the status of the car park,
+     * which allocates vehicles to the parking lane with the most space left.
      * @param parkingArea The parking area to record the status of.
      */
     public StatusMonitor(ParkingArea parkingArea) {
+        this(parkingArea, AllocationPolicy.MOST_SPACE);
+    }
+
+    /**
+     * Create a StatusMonitor to record the status of the car park.
+     * @param parkingArea The parking area to record the status of.
+     * @param allocationPolicy How parking lanes are chosen for vehicles
+     *                         entering the car park.
+     */
+    public StatusMonitor(ParkingArea parkingArea, AllocationPolicy allocationPolicy) {
         this.parkingArea = parkingArea;
+        this.allocationPolicy = allocationPolicy;
         numberOfDeniedEntries = 0;
         numberOfAllowedEntries = 0;
         mostNumberOfVehicles = 0;
@@ -48,7 +114,10 @@ public class StatusMonitor {
      */
     private void initialiseParkingLanesSpace(ParkingArea parkingArea){
         for (ParkingLane lane : parkingArea.getParkingLanes()) {
-            parkingLanesSpace.put(lane, lane.getTotalParkingLength());
+            LaneSpace laneSpace = new LaneSpace(lane, lane.getId(), parkingLanesSpace.size(),
+                    lane.getTotalParkingLength());
+            parkingLanesSpace.put(lane, laneSpace);
+            lanesBySpace.add(laneSpace);
         }
     }
 
@@ -58,15 +127,11 @@ public class StatusMonitor {
      * @return true if there is space for the vehicle to park.
      */
     public boolean roomForVehicle(double vehicleLength) {
-        // Find the lane with the most room available
-        Map.Entry<ParkingLane, Double>  parkingLaneEntry = findLeastFullParkingLane();
-
-
-        // Check there is room for this vehicle
-        double distanceBetweenVehicles = CPMAutoDriverSimulator.MIN_DISTANCE_BETWEEN_PARKED_VEHICLES;;
+        // Check there is room for this vehicle on the lane with the most room available
+        double distanceBetweenVehicles = CPMAutoDriverSimulator.MIN_DISTANCE_BETWEEN_PARKED_VEHICLES;
         double spaceNeeded = vehicleLength + distanceBetweenVehicles;
 
-        if (willVehicleFit(parkingLaneEntry, spaceNeeded)) {
+        if (!lanesBySpace.isEmpty() && willVehicleFit(lanesBySpace.last(), spaceNeeded)) {
             numberOfAllowedEntries++;
             return true;
         }
@@ -88,19 +153,15 @@ public class StatusMonitor {
             throw new RuntimeException("The vehicle has already entered, should not be entering again.");
         }
 
-        // Find the lane with the most room available
-        Map.Entry<ParkingLane, Double>  parkingLaneEntry = findLeastFullParkingLane();
-
-        // Update the space available on that lane
-        decreaseCapacity(vehicle, parkingLaneEntry);
+        // Find a lane with room for the vehicle and update the space available on it
+        ParkingLane parkingLane = decreaseCapacity(vehicle);
 
         // Allocate this parking lane to the vehicle by sending message
-        System.out.println("Status monitor sending parking lane to vehicle.");
-        sendParkingLaneMessage(vehicle, parkingLaneEntry.getKey());
+        sendParkingLaneMessage(vehicle, parkingLane);
 
         // Register the vehicle with the StatusMonitor, along with the
         // parking lane it has been allocated
-        vehicles.put(vehicle, parkingLaneEntry.getKey());
+        vehicles.put(vehicle, parkingLane);
     }
 
     /**
@@ -112,20 +173,16 @@ public class StatusMonitor {
         // first update the capacity - the vehicle has just left a parking lane
         increaseCapacity(vehicle);
 
-        // Find the lane with the most room available
-        Map.Entry<ParkingLane, Double>  parkingLaneEntry = findLeastFullParkingLane();
-
-        // Update the space available on that lane
-        decreaseCapacity(vehicle, parkingLaneEntry);
+        // Find a lane with room for the vehicle and update the space available on it
+        ParkingLane parkingLane = decreaseCapacity(vehicle);
 
         // Allocate this parking lane to the vehicle by sending message
-        System.out.println("Status monitor sending parking lane to vehicle.");
-        sendParkingLaneMessage(vehicle, parkingLaneEntry.getKey());
+        sendParkingLaneMessage(vehicle, parkingLane);
 
         // Update the vehicles parking lane in StatusMonitor records, along with the
         // parking lane it has been allocated
         // TODO CPM rename vehicles to vehiclesToLane
-        vehicles.put(vehicle, parkingLaneEntry.getKey());
+        vehicles.put(vehicle, parkingLane);
     }
 
     /**
@@ -140,6 +197,15 @@ public class StatusMonitor {
         vehicles.remove(vehicle);
     }
 
+    /**
+     * Get the length of the space left for parking on a parking lane.
+     * @param parkingLane The parking lane.
+     * @return the length of the space left on the parking lane.
+     */
+    public double getParkingSpaceLeft(ParkingLane parkingLane) {
+        return findParkingLaneSpace(parkingLane).space;
+    }
+
     /**
      * Increase the capacity when a vehicle has left the parking area.
      * This is on EXIT and RELOCATING.
@@ -147,25 +213,28 @@ public class StatusMonitor {
      */
     private void increaseCapacity(CPMBasicAutoVehicle vehicle){
         ParkingLane laneToUpdate = vehicles.get(vehicle);
-        Map.Entry<ParkingLane, Double>  entryToUpdate = findParkingLaneSpace(laneToUpdate);
+        LaneSpace entryToUpdate = findParkingLaneSpace(laneToUpdate);
         double spaceFreed = calculateTotalVehicleSpace(vehicle);
-        parkingLanesSpace.put(entryToUpdate.getKey(), entryToUpdate.getValue() + spaceFreed);
+        updateSpace(entryToUpdate, entryToUpdate.space + spaceFreed);
     }
 
     /**
      * Decrease the capacity when a vehicle is entering the parking area.
      * This is on ENTRERING and RELOCATING
      * @param vehicle The vehicle entering the parking area.
+     * @return the parking lane chosen for the vehicle.
      */
-    private void decreaseCapacity(CPMBasicAutoVehicle vehicle, Map.Entry<ParkingLane, Double>  parkingLaneEntry){
+    private ParkingLane decreaseCapacity(CPMBasicAutoVehicle vehicle){
         double spaceTaken = calculateTotalVehicleSpace(vehicle);
-        if (!willVehicleFit(parkingLaneEntry, spaceTaken)){
+        LaneSpace parkingLaneEntry = findParkingLane(spaceTaken);
+        if (parkingLaneEntry == null){
             assert vehicle.getDriver() instanceof CPMV2VDriver;
             throw new RuntimeException("There's not enough room in the car " +
                     "park for this vehicle to park! Vehicle is " +
                     ((CPMV2VDriver)vehicle.getDriver()).getParkingStatus());
         }
-        parkingLanesSpace.put(parkingLaneEntry.getKey(), parkingLaneEntry.getValue() - spaceTaken);
+        updateSpace(parkingLaneEntry, parkingLaneEntry.space - spaceTaken);
+        return parkingLaneEntry.lane;
     }
 
     private double calculateTotalVehicleSpace(CPMBasicAutoVehicle vehicle) {
@@ -174,44 +243,55 @@ public class StatusMonitor {
         return vehicleLength + distanceBetweenVehicles;
     }
 
-    private Map.Entry<ParkingLane, Double> findParkingLaneSpace(ParkingLane parkingLane) {
-        for (Map.Entry<ParkingLane, Double> entry : parkingLanesSpace.entrySet())
-        {
-            if (entry.getKey() == parkingLane) {
-                return entry;
-            }
+    private LaneSpace findParkingLaneSpace(ParkingLane parkingLane) {
+        LaneSpace laneSpace = parkingLanesSpace.get(parkingLane);
+        if (laneSpace == null) {
+            throw new RuntimeException("Parking lane could not be found.");
         }
-        throw new RuntimeException("Parking lane could not be found.");
-    }
-
-    private Map.Entry<ParkingLane, Double> findLeastFullParkingLane() {
-        Map.Entry<ParkingLane, Double> maxEntry = null;
-        String name = null;
-
-        for (Map.Entry<ParkingLane, Double> entry : parkingLanesSpace.entrySet())
-        {
-            boolean hasLowerId = false;
-            if (maxEntry != null && entry.getKey().getId() < maxEntry.getKey().getId()){ hasLowerId = true; }
-            if (maxEntry == null ||
-                    entry.getValue().compareTo(maxEntry.getValue()) > 0 ||
-                    (entry.getValue().equals(maxEntry.getValue()) && hasLowerId))
-            {
-                maxEntry = entry;
-                name = entry.getKey().getRoadName();
-            }
+        return laneSpace;
+    }
+
+    /**
+     * Find the parking lane for a vehicle according to the allocation policy.
+     * Ties go to the lane with the lowest id.
+     * @param spaceNeeded The space the vehicle needs.
+     * @return the space left on the chosen lane; null if the vehicle fits on no lane.
+     */
+    private LaneSpace findParkingLane(double spaceNeeded) {
+        if (lanesBySpace.isEmpty()) {
+            return null;
+        }
+        LaneSpace mostSpace = lanesBySpace.last();
+        if (!willVehicleFit(mostSpace, spaceNeeded)) {
+            return null;
+        }
+        switch (allocationPolicy) {
+            case BEST_FIT:
+                // The first lane with more space than needed, then the lane
+                // with the lowest id among the lanes with that space
+                LaneSpace probe = new LaneSpace(null, Integer.MIN_VALUE, Integer.MIN_VALUE, spaceNeeded);
+                LaneSpace leastSpace = lanesBySpace.higher(probe);
+                probe.space = leastSpace.space;
+                return lanesBySpace.floor(probe);
+            case MOST_SPACE:
+            default:
+                return mostSpace;
         }
-        System.out.println("Lane with most room is " + name);
-        return maxEntry;
     }
 
-    private boolean willVehicleFit(Map.Entry<ParkingLane, Double> parkingLaneEntry,
-                                   Double spaceNeeded) {
+    /**
+     * Change the space left on a parking lane.
+     * @param laneSpace The parking lane.
+     * @param space The new length of the space left.
+     */
+    private void updateSpace(LaneSpace laneSpace, double space) {
+        lanesBySpace.remove(laneSpace);
+        laneSpace.space = space;
+        lanesBySpace.add(laneSpace);
+    }
 
-        double spaceOnParkingLane = parkingLaneEntry.getValue();
-        if (spaceOnParkingLane > (spaceNeeded)) {
-            return true;
-        }
-        return false;
+    private boolean willVehicleFit(LaneSpace parkingLaneEntry, double spaceNeeded) {
+        return parkingLaneEntry.space > spaceNeeded;
     }
 
     private void sendParkingLaneMessage(CPMBasicAutoVehicle vehicle, ParkingLane parkingLane) {
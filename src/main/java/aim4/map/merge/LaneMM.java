@@ -22,8 +22,11 @@ public class LaneMM {
     private Lane lane;
     /** A map of normalized distances of exit points to merge managers*/
     private SortedMap<Double, MergeManager> mergeManagers = new TreeMap<Double, MergeManager>();
-    /** Memoization cache for {@Link #nextMergeManager{MergeManager im)}*/
-    private Map<MergeManager, MergeManager> memoGetSubsequentMergeManager = null;
+    /**
+     * Memoization cache for {@Link #nextMergeManager{MergeManager im)}. Only ever replaced by a fully built map, so
+     * that drivers acting in parallel can share it.
+     */
+    private volatile Map<MergeManager, MergeManager> memoGetSubsequentMergeManager = null;
 
     //CONSTRUCTORS//
     /**
@@ -321,10 +324,10 @@ public class LaneMM {
      *           into enters, after the given MergeManager
      */
     public MergeManager nextMergeManager(MergeManager mm) {
+        Map<MergeManager, MergeManager> memo = memoGetSubsequentMergeManager;
         // Build the cache if it doesn't exist
-        if(memoGetSubsequentMergeManager == null) {
-            memoGetSubsequentMergeManager =
-                    new HashMap<MergeManager, MergeManager>();
+        if(memo == null) {
+            memo = new HashMap<MergeManager, MergeManager>();
             MergeManager lastMM = null;
             // Now run through the MergeManagers in order and set up
             // the cache
@@ -332,16 +335,17 @@ public class LaneMM {
                 // Don't include the first one as a value, since it isn't subsequent
                 // to anything
                 if(lastMM != null) {
-                    memoGetSubsequentMergeManager.put(lastMM, currMM);
+                    memo.put(lastMM, currMM);
                 }
                 lastMM = currMM;
             }
             // Link up to the next Lane
             if(lastMM != null && lane.hasNextLane()) {
-                memoGetSubsequentMergeManager.put(lastMM,lane.getNextLane().getLaneMM().firstMergeManager());
+                memo.put(lastMM,lane.getNextLane().getLaneMM().firstMergeManager());
             }
+            memoGetSubsequentMergeManager = memo;
         }
-        return memoGetSubsequentMergeManager.get(mm);
+        return memo.get(mm);
     }
 
     /**
@@ -42,7 +42,7 @@ public class MergeMap implements BasicMap {
     /** A mapping form lanes to roads they belong */
     private Map<Lane,Road> laneToRoad = new HashMap<Lane,Road>();
     /** The maximum speed limit  */
-    private double memoMaximumSpeedLimit = -1;
+    private volatile double memoMaximumSpeedLimit = -1;
 
     //MAP CONSTANTS//
     protected static final double LANE_WIDTH = 4;
@@ -64,13 +64,17 @@ public class MergeMap implements BasicMap {
     @Override
     public double getMaximumSpeedLimit() {
         if(memoMaximumSpeedLimit < 0) {
+            // find the maximum before publishing it, since drivers acting
+            // in parallel may ask for it at the same time
+            double maximumSpeedLimit = -1;
             for(Road r : getRoads()) {
                 for(Lane l : r.getLanes()) {
-                    if(l.getSpeedLimit() > memoMaximumSpeedLimit) {
-                        memoMaximumSpeedLimit = l.getSpeedLimit();
+                    if(l.getSpeedLimit() > maximumSpeedLimit) {
+                        maximumSpeedLimit = l.getSpeedLimit();
                     }
                 }
             }
+            memoMaximumSpeedLimit = maximumSpeedLimit;
         }
         return memoMaximumSpeedLimit;
     }
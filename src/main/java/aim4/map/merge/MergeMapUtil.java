@@ -8,6 +8,7 @@ import aim4.im.merge.policy.grid.BaseMergeGridPolicy;
 import aim4.im.merge.policy.grid.FCFSMergeGridRequestHandler;
 import aim4.im.merge.policy.nogrid.BaseMergePolicy;
 import aim4.im.merge.policy.nogrid.FCFSMergeRequestHandler;
+import aim4.im.merge.reservation.MergeTrajectoryCache;
 import aim4.im.merge.reservation.grid.ReservationMergeGridManager;
 import aim4.im.merge.reservation.nogrid.ReservationMergeManager;
 import aim4.map.connections.MergeConnection;
@@ -38,6 +39,9 @@ public class MergeMapUtil {
     // MERGE MANAGERS //
     public static void setFCFSMergeManagers(MergeMap layout, double currentTime, ReservationMergeManager.Config mergeReservationConfig) {
         layout.removeAllMergeManagers();
+        MergeTrajectoryCache trajectoryCache = null;
+        if(mergeReservationConfig.getTrajectoryCacheSize() > 0)
+            trajectoryCache = new MergeTrajectoryCache(mergeReservationConfig.getTrajectoryCacheSize());
         for(MergeConnection merge : layout.getMergeConnections()) {
             V2IMergeManager mm = new V2IMergeManager(
                     merge,
@@ -47,12 +51,17 @@ public class MergeMapUtil {
                     layout
             );
             mm.setMergePolicy(new BaseMergePolicy(mm, new FCFSMergeRequestHandler()));
+            mm.getReservationMergeManager().setTrajectoryCache(trajectoryCache);
+            mm.getReservationMergeManager().warmUpTrajectoryCache(mm);
             layout.addMergeManager(mm);
         }
     }
 
     public static void setFCFSGridMergeManagers(MergeMap layout, double currentTime, ReservationMergeGridManager.Config mergeReservationConfig) {
         layout.removeAllMergeManagers();
+        MergeTrajectoryCache trajectoryCache = null;
+        if(mergeReservationConfig.getTrajectoryCacheSize() > 0)
+            trajectoryCache = new MergeTrajectoryCache(mergeReservationConfig.getTrajectoryCacheSize());
         for(MergeConnection merge : layout.getMergeConnections()) {
             V2IMergeGridManager mm = new V2IMergeGridManager(
                     merge,
@@ -62,6 +71,8 @@ public class MergeMapUtil {
                     layout
             );
             mm.setMergePolicy(new BaseMergeGridPolicy(mm, new FCFSMergeGridRequestHandler()));
+            mm.getReservationMergeGridManager().setTrajectoryCache(trajectoryCache);
+            mm.getReservationMergeGridManager().warmUpTrajectoryCache(mm);
             layout.addMergeManager(mm);
         }
     }
@@ -229,7 +240,7 @@ public class MergeMapUtil {
 
             double initTime = spawnPoint.getCurrentTime();
             for(double time = initTime; time < initTime + timestep; time += SimConfig.SPAWN_TIME_STEP) {
-                if (Util.random.nextDouble() < prob) {
+                if (Util.getRandom().nextDouble() < prob) {
                     int i = Util.randomIndex(proportion);
                     VehicleSpec vehicleSpec = VehicleSpecDatabase.getVehicleSpecById(i);
                     result.add(new MergeSpawnSpec(spawnPoint.getCurrentTime(),
@@ -348,6 +359,7 @@ public class MergeMapUtil {
             }
             for(MergeVehicleSimModel vehicle : removedVehicles) {
                 vinToVehicles.remove(vehicle.getVIN());
+                vehicle.retire();
             }
             currentTime += SimConfig.TIME_STEP;
         }
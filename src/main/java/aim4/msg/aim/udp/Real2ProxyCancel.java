@@ -32,6 +32,8 @@ package aim4.msg.aim.udp;
 
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 
 /**
  * A real vehicle to proxy vehicle message for cancel message.
@@ -62,6 +64,25 @@ public class Real2ProxyCancel extends Real2ProxyMsg {
     reservationId = dis.readInt();
   }
 
+  /**
+   * Create a real vehicle to proxy vehicle message for cancel message from
+   * the data of a datagram.  The position of the buffer is advanced past the
+   * message.
+   *
+   * @param buffer        the buffer
+   * @param receivedTime  the time stamp
+   * @throws IOException if the buffer is too short
+   */
+  public Real2ProxyCancel(ByteBuffer buffer, double receivedTime)
+      throws IOException {
+    super(Type.REQUEST, receivedTime);
+    try {
+      reservationId = buffer.getInt();
+    } catch(BufferUnderflowException e) {
+      throw new IOException("The cancel message is truncated.");
+    }
+  }
+
   /////////////////////////////////
   // DEBUG
   /////////////////////////////////
@@ -33,6 +33,8 @@ package aim4.msg.aim.udp;
 import java.awt.geom.Point2D;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 
 import aim4.config.Constants;
 import aim4.vehicle.AccelSchedule;
@@ -95,6 +97,34 @@ public class Real2ProxyPVUpdate extends Real2ProxyMsg {
     // TODO: Marvin can't generate accelProfile yet. Thus, just leave it null
   }
 
+  /**
+   * Create a real vehicle to proxy vehicle message for PV update message
+   * from the data of a datagram.  The position of the buffer is advanced
+   * past the message.
+   *
+   * @param buffer        the buffer
+   * @param receivedTime  the time stamp
+   * @throws IOException if the buffer is too short
+   */
+  public Real2ProxyPVUpdate(ByteBuffer buffer, double receivedTime)
+      throws IOException {
+    super(Type.PV_UPDATE, receivedTime);
+    try {
+      vin = buffer.getInt();
+      double x = (double)buffer.getFloat();
+      double y = (double)buffer.getFloat();
+      position = new Point2D.Double(x, y);
+      heading = (double)buffer.getFloat();
+      steeringAngle = (double)buffer.getFloat();
+      velocity = (double)buffer.getFloat();
+      targetVelocity = (double)buffer.getFloat();
+      acceleration = (double)buffer.getFloat();
+    } catch(BufferUnderflowException e) {
+      throw new IOException("The PV update message is truncated.");
+    }
+    accelProfile = null;
+  }
+
   /////////////////////////////////
   // DEBUG
   /////////////////////////////////
@@ -32,6 +32,8 @@ package aim4.msg.aim.udp;
 
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 
 import aim4.config.Constants;
 
@@ -73,6 +75,28 @@ public class Real2ProxyRequest extends Real2ProxyMsg {
     arrivalVelocity = dis.readFloat();
   }
 
+  /**
+   * Create a real vehicle to proxy vehicle message for request message from
+   * the data of a datagram.  The position of the buffer is advanced past the
+   * message.
+   *
+   * @param buffer        the buffer
+   * @param receivedTime  the time stamp
+   * @throws IOException if the buffer is too short
+   */
+  public Real2ProxyRequest(ByteBuffer buffer, double receivedTime)
+      throws IOException {
+    super(Type.REQUEST, receivedTime);
+    try {
+      vin = buffer.getInt();
+      arrivalTimeSpan = buffer.getFloat();
+      departureLaneId = buffer.getInt();
+      arrivalVelocity = buffer.getFloat();
+    } catch(BufferUnderflowException e) {
+      throw new IOException("The request message is truncated.");
+    }
+  }
+
   /////////////////////////////////
   // DEBUG
   /////////////////////////////////
@@ -33,6 +33,8 @@ package aim4.msg.aim.udp;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 
 /**
  * Small header included in all UDP messages sent to/from the real car.
@@ -68,6 +70,10 @@ public class UdpHeader {
     I2V_DistToFrontVehicle,  // = 8
   }
 
+  /** The message types, indexed by their ordinal numbers */
+  private static final UdpMessageType[] MESSAGE_TYPES =
+    UdpMessageType.values();
+
   /////////////////////////////////
   // PRIVATE FIELDS
   /////////////////////////////////
@@ -114,6 +120,29 @@ public class UdpHeader {
     checksum = dis.readInt();
   }
 
+  /**
+   * Construct the header from the data of a datagram received over UDP from
+   * the real car, starting at the position of the buffer.  The position of
+   * the buffer is advanced past the header.
+   *
+   * @param buffer  the buffer
+   * @throws IOException if the buffer is too short or the message type is
+   *                     unknown
+   */
+  public UdpHeader(ByteBuffer buffer) throws IOException {
+    try {
+      timestamp = buffer.getFloat();
+      int type = buffer.getInt();
+      if (type < 0 || type >= MESSAGE_TYPES.length) {
+        throw new IOException("Unknown message type: " + type);
+      }
+      messageType = MESSAGE_TYPES[type];
+      checksum = buffer.getInt();
+    } catch(BufferUnderflowException e) {
+      throw new IOException("The header is truncated.");
+    }
+  }
+
   /**
    * Create a header for a particular message type
    *
@@ -191,6 +220,41 @@ public class UdpHeader {
    * @return the check sum
    */
   public static int computeChecksum(byte[] data) {
+    int checksum = 0;
+    for (byte b : data) {
+      checksum = updateChecksum(checksum, b);
+    }
+    return checksum;
+  }
+
+  /**
+   * Compute the check sum for the remaining bytes in a buffer, without
+   * changing the position of the buffer.  The check sum is the same as that
+   * of {@link #computeChecksum(byte[])} for the same bytes.
+   *
+   * @param buffer  the buffer
+   * @return the check sum
+   */
+  public static int computeChecksum(ByteBuffer buffer) {
+    int checksum = 0;
+    for (int i = buffer.position(); i < buffer.limit(); i++) {
+      checksum = updateChecksum(checksum, buffer.get(i));
+    }
+    return checksum;
+  }
+
+  /////////////////////////////////
+  // PRIVATE STATIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Fold one more byte into a check sum.
+   *
+   * @param checksum  the check sum of the bytes before this one
+   * @param b         the byte
+   * @return the check sum including this byte
+   */
+  private static int updateChecksum(int checksum, byte b) {
     // TODO: implement this function later
     return 0;
   }
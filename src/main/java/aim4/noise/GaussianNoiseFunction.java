@@ -30,16 +30,13 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.noise;
 
-import java.util.Random;
+import aim4.util.Util;
 
 /**
  * NoiseFunction that adds Gaussian noise to a value.
  */
 public class GaussianNoiseFunction implements NoiseFunction {
 
-  /** Random seed for creating noise. */
-  protected static Random rnd = new Random();
-
   /** The standard deviation of the Gaussian that will generate the noise. */
   private double standardDeviation;
 
@@ -58,6 +55,6 @@ public class GaussianNoiseFunction implements NoiseFunction {
    */
   @Override
   public double apply(double trueValue) {
-    return trueValue + rnd.nextGaussian() * standardDeviation;
+    return trueValue + Util.getRandom().nextGaussian() * standardDeviation;
   }
 }
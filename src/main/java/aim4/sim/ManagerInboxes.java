@@ -0,0 +1,183 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The messages sent to the managers of a map in a time step, partitioned
+ * by receiver, together with the centroids of the managers, from which the
+ * transmission distances are measured.  The inboxes keep their capacity
+ * from one step to the next.
+ *
+ * @param <T>  the type of the messages
+ */
+public class ManagerInboxes<T> {
+
+    /////////////////////////////////
+    // CONSTANTS
+    /////////////////////////////////
+
+    /** The initial capacity of an inbox */
+    private static final int INITIAL_INBOX_CAPACITY = 32;
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The index of each manager, by the ID of the manager; -1 if none */
+    private final int[] idToIndex;
+    /** The x-coordinates of the centroids of the managers */
+    private final double[] centroidX;
+    /** The y-coordinates of the centroids of the managers */
+    private final double[] centroidY;
+    /** The inbox of each manager */
+    private final List<List<T>> inboxes;
+
+    /////////////////////////////////
+    // CLASS CONSTRUCTORS
+    /////////////////////////////////
+
+    /**
+     * Create the inboxes of a list of managers.
+     *
+     * @param ids        the IDs of the managers
+     * @param centroids  the centroids of the managers
+     */
+    public ManagerInboxes(int[] ids, Point2D[] centroids) {
+        if (ids.length != centroids.length) {
+            throw new IllegalArgumentException(
+                "The numbers of IDs and centroids differ.");
+        }
+        int maxId = -1;
+        for (int id : ids) {
+            maxId = Math.max(maxId, id);
+        }
+        idToIndex = new int[maxId + 1];
+        Arrays.fill(idToIndex, -1);
+        centroidX = new double[ids.length];
+        centroidY = new double[ids.length];
+        inboxes = new ArrayList<List<T>>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            idToIndex[ids[i]] = i;
+            centroidX[i] = centroids[i].getX();
+            centroidY[i] = centroids[i].getY();
+            inboxes.add(new ArrayList<T>(INITIAL_INBOX_CAPACITY));
+        }
+    }
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Get the number of managers.
+     *
+     * @return the number of managers
+     */
+    public int size() {
+        return inboxes.size();
+    }
+
+    /**
+     * Get the index of a manager.
+     *
+     * @param id  the ID of the manager
+     * @return the index of the manager
+     * @throws IllegalArgumentException if no manager has the ID
+     */
+    public int indexOf(int id) {
+        int index = (id >= 0 && id < idToIndex.length) ? idToIndex[id] : -1;
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown manager: " + id);
+        }
+        return index;
+    }
+
+    /**
+     * Get the square of the distance between a point and the centroid of a
+     * manager.
+     *
+     * @param index  the index of the manager
+     * @param p      the point
+     * @return the square of the distance
+     */
+    public double distanceSq(int index, Point2D p) {
+        double dx = p.getX() - centroidX[index];
+        double dy = p.getY() - centroidY[index];
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Add a message to the inbox of a manager.
+     *
+     * @param index  the index of the manager
+     * @param msg    the message
+     */
+    public void add(int index, T msg) {
+        inboxes.get(index).add(msg);
+    }
+
+    /**
+     * Get the inbox of a manager.
+     *
+     * @param index  the index of the manager
+     * @return the messages in the inbox, in the order they were added
+     */
+    public List<T> get(int index) {
+        return inboxes.get(index);
+    }
+
+    /**
+     * Get the total number of messages in the inboxes.
+     *
+     * @return the total number of messages
+     */
+    public int getNumOfMessages() {
+        int n = 0;
+        for (List<T> inbox : inboxes) {
+            n += inbox.size();
+        }
+        return n;
+    }
+
+    /**
+     * Empty the inboxes.
+     */
+    public void clear() {
+        for (List<T> inbox : inboxes) {
+            inbox.clear();
+        }
+    }
+}
@@ -0,0 +1,323 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim;
+
+import aim4.map.DataCollectionLine;
+import aim4.vehicle.VehicleSimModel;
+
+import java.awt.geom.Point2D;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The executor of the phases of a simulation step in which the vehicles do
+ * not depend on each other: the drivers act on what their sensors received
+ * in the previous phase, and the vehicles move on what their drivers
+ * decided.  The vehicles of a phase are split across a work-stealing pool,
+ * and a phase returns only when all of them are done, which is the barrier
+ * between the phases.
+ * <p>
+ * The results are identical to those of the serial loops over the vehicles.
+ * The vehicles that pass through the data collection lines are recorded
+ * after the barrier, in the order in which the serial loop would have
+ * recorded them.  Drivers must not draw from the random number generator of
+ * the simulation context (e.g. with the noise functions), since the order
+ * of the draws would then depend on the scheduling of the threads.
+ */
+public class ParallelStepExecutor {
+
+    /////////////////////////////////
+    // CONSTANTS
+    /////////////////////////////////
+
+    /** The minimum number of vehicles handled by a task */
+    public static final int MIN_VEHICLES_PER_TASK = 8;
+
+    /**
+     * The number of tasks per thread into which the vehicles are split, so
+     * that idle threads have work to steal.
+     */
+    private static final int TASKS_PER_THREAD = 4;
+
+    /////////////////////////////////
+    // NESTED CLASSES
+    /////////////////////////////////
+
+    /**
+     * The work done on a manager of the map, e.g. an intersection manager.
+     */
+    public interface ManagerWork {
+
+        /**
+         * Do the work on a manager.
+         *
+         * @param index  the index of the manager
+         */
+        void run(int index);
+    }
+
+    /**
+     * The work done on a range of vehicles.
+     */
+    private interface RangeWork {
+
+        /**
+         * Do the work on the vehicles in a range.
+         *
+         * @param from  the index of the first vehicle
+         * @param to    the index after the last vehicle
+         */
+        void run(int from, int to);
+    }
+
+    /**
+     * A task that splits a range of vehicles until it is small enough, and
+     * does the work on it in the simulation context of the caller.
+     */
+    private static class RangeAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /** The work */
+        private final RangeWork work;
+        /** The simulation context of the caller */
+        private final SimulationContext context;
+        /** The index of the first vehicle */
+        private final int from;
+        /** The index after the last vehicle */
+        private final int to;
+        /** The number of vehicles below which the range is not split */
+        private final int threshold;
+
+        /**
+         * Create a task.
+         *
+         * @param work       the work
+         * @param context    the simulation context of the caller
+         * @param from       the index of the first vehicle
+         * @param to         the index after the last vehicle
+         * @param threshold  the number of vehicles below which the range is
+         *                   not split
+         */
+        RangeAction(RangeWork work, SimulationContext context,
+                    int from, int to, int threshold) {
+            this.work = work;
+            this.context = context;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                SimulationContext previous = context.bind();
+                try {
+                    work.run(from, to);
+                } finally {
+                    previous.bind();
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new RangeAction(work, context, from, mid, threshold),
+                          new RangeAction(work, context, mid, to, threshold));
+            }
+        }
+    }
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The pool of threads */
+    private final ForkJoinPool pool;
+
+    /////////////////////////////////
+    // CLASS CONSTRUCTORS
+    /////////////////////////////////
+
+    /**
+     * Create an executor with one thread per available processor.
+     */
+    public ParallelStepExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create an executor.
+     *
+     * @param parallelism  the number of threads
+     */
+    public ParallelStepExecutor(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException(
+                "The number of threads must be positive: " + parallelism);
+        }
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Get the number of threads.
+     *
+     * @return the number of threads
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Allow the driver of each vehicle to act, and wait for all of them.
+     *
+     * @param vehicles  the vehicles
+     */
+    public void letDriversAct(Collection<? extends VehicleSimModel> vehicles) {
+        final VehicleSimModel[] array =
+            vehicles.toArray(new VehicleSimModel[vehicles.size()]);
+        invoke(array.length, MIN_VEHICLES_PER_TASK, new RangeWork() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    array[i].getDriver().act();
+                }
+            }
+        });
+    }
+
+    /**
+     * Move each vehicle, wait for all of them, and then record the vehicles
+     * that passed through the data collection lines.
+     *
+     * @param vehicles     the vehicles
+     * @param lines        the data collection lines
+     * @param currentTime  the current time
+     * @param timeStep     the time step
+     */
+    public void moveVehicles(Collection<? extends VehicleSimModel> vehicles,
+                             final List<? extends DataCollectionLine> lines,
+                             final double currentTime,
+                             final double timeStep) {
+        final VehicleSimModel[] array =
+            vehicles.toArray(new VehicleSimModel[vehicles.size()]);
+        // the indices of the lines each vehicle passed through, if any
+        final int[][] crossedLines = new int[array.length][];
+        invoke(array.length, MIN_VEHICLES_PER_TASK, new RangeWork() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    VehicleSimModel vehicle = array[i];
+                    Point2D p1 = vehicle.getPosition();
+                    vehicle.move(timeStep);
+                    Point2D p2 = vehicle.getPosition();
+                    int[] crossed = null;
+                    int numOfCrossed = 0;
+                    for (int j = 0; j < lines.size(); j++) {
+                        if (lines.get(j).isCrossedBy(vehicle, currentTime,
+                                                     p1, p2)) {
+                            if (crossed == null) {
+                                crossed = new int[lines.size()];
+                            }
+                            crossed[numOfCrossed++] = j;
+                        }
+                    }
+                    if (crossed != null && numOfCrossed < crossed.length) {
+                        crossed[numOfCrossed] = -1;
+                    }
+                    crossedLines[i] = crossed;
+                }
+            }
+        });
+        // the barrier: record in the order of the serial loop
+        for (int i = 0; i < array.length; i++) {
+            int[] crossed = crossedLines[i];
+            if (crossed != null) {
+                for (int j = 0; j < crossed.length && crossed[j] >= 0; j++) {
+                    lines.get(crossed[j]).record(array[i], currentTime);
+                }
+            }
+        }
+    }
+
+    /**
+     * Do some work on each manager of the map, one task per manager, and
+     * wait for all of them.  The work on different managers must be
+     * independent.
+     *
+     * @param numOfManagers  the number of managers
+     * @param work           the work
+     */
+    public void forEachManager(int numOfManagers, final ManagerWork work) {
+        invoke(numOfManagers, 1, new RangeWork() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    work.run(i);
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop the threads.  The executor cannot be used afterwards.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /////////////////////////////////
+    // PRIVATE METHODS
+    /////////////////////////////////
+
+    /**
+     * Do some work on a number of items in the pool, in the simulation
+     * context of the caller, and wait until it is done.  Any exception
+     * thrown by the work is rethrown.
+     *
+     * @param size            the number of items
+     * @param minItemsPerTask the minimum number of items handled by a task
+     * @param work            the work
+     */
+    private void invoke(int size, int minItemsPerTask, RangeWork work) {
+        if (size == 0) {
+            return;
+        }
+        int tasks = pool.getParallelism() * TASKS_PER_THREAD;
+        int threshold =
+            Math.max(minItemsPerTask, (size + tasks - 1) / tasks);
+        pool.invoke(new RangeAction(work, SimulationContext.current(),
+                                    0, size, threshold));
+    }
+}
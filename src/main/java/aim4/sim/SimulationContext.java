@@ -0,0 +1,238 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim;
+
+import aim4.config.DebugPoint;
+import aim4.map.aim.BasicIntersectionMap;
+import aim4.util.Util;
+import aim4.vehicle.VinRegistry;
+
+import java.awt.Color;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The state shared by all the objects of one simulation: the VIN registry,
+ * the random number generator, the current map and the debug points and
+ * vehicle colors shown by the viewer.
+ * <p>
+ * A context is bound to a thread; the static accessors such as
+ * {@link VinRegistry#registerVehicle}, {@link Util#getRandom()} and
+ * {@link aim4.config.Debug#getCurrentMap()} use the context bound to the
+ * calling thread.  Threads that never bind a context use the default
+ * context, so a single simulation needs no set up.  To run several
+ * simulations at once, create each simulator with
+ * {@link aim4.sim.setup.SimSetup#getSimulator(SimulationContext)}; the
+ * simulator binds its context whenever it is stepped, so each simulator can
+ * be stepped on any thread as long as it is stepped by one thread at a time.
+ */
+public class SimulationContext {
+
+    /////////////////////////////////
+    // PRIVATE STATIC FIELDS
+    /////////////////////////////////
+
+    /** The context used by threads that have not bound another one */
+    private static final SimulationContext DEFAULT_CONTEXT =
+            new SimulationContext(Util.randSeed);
+
+    /** The context bound to each thread */
+    private static final ThreadLocal<SimulationContext> currentContext =
+            new ThreadLocal<SimulationContext>() {
+                @Override
+                protected SimulationContext initialValue() {
+                    return DEFAULT_CONTEXT;
+                }
+            };
+
+    /////////////////////////////////
+    // PUBLIC STATIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Get the context bound to the calling thread.
+     *
+     * @return the context bound to the calling thread
+     */
+    public static SimulationContext current() {
+        return currentContext.get();
+    }
+
+    /**
+     * Get the default context, used by the threads that have not bound
+     * another one.
+     *
+     * @return the default context
+     */
+    public static SimulationContext getDefault() {
+        return DEFAULT_CONTEXT;
+    }
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The seed of the random number generator */
+    private final long randSeed;
+    /** The random number generator */
+    private final Random random;
+    /** The VIN registry */
+    private final VinRegistry vinRegistry;
+    /** The current map */
+    private BasicIntersectionMap currentMap;
+    /** The list of long term debug points */
+    private final List<DebugPoint> longTermDebugPoints =
+            new LinkedList<DebugPoint>();
+    /** The list of short term debug points */
+    private final List<DebugPoint> shortTermDebugPoints =
+            new LinkedList<DebugPoint>();
+    /**
+     * A mapping from vehicle's VINs to the color of the vehicles, which the
+     * intersection managers may set while acting in parallel
+     */
+    private final Map<Integer, Color> vinToVehicleColor =
+            Collections.synchronizedMap(new HashMap<Integer, Color>());
+
+    /////////////////////////////////
+    // CLASS CONSTRUCTORS
+    /////////////////////////////////
+
+    /**
+     * Create a context with a random seed.
+     */
+    public SimulationContext() {
+        this((new Random()).nextLong());
+    }
+
+    /**
+     * Create a context.
+     *
+     * @param randSeed  the seed of the random number generator
+     */
+    public SimulationContext(long randSeed) {
+        this.randSeed = randSeed;
+        this.random = new Random(randSeed);
+        this.vinRegistry = new VinRegistry();
+    }
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Bind this context to the calling thread.
+     *
+     * @return the context previously bound to the calling thread
+     */
+    public SimulationContext bind() {
+        SimulationContext previous = currentContext.get();
+        if (previous != this) {
+            currentContext.set(this);
+        }
+        return previous;
+    }
+
+    /**
+     * Get the seed of the random number generator.
+     *
+     * @return the seed of the random number generator
+     */
+    public long getRandSeed() {
+        return randSeed;
+    }
+
+    /**
+     * Get the random number generator.
+     *
+     * @return the random number generator
+     */
+    public Random getRandom() {
+        return random;
+    }
+
+    /**
+     * Get the VIN registry.
+     *
+     * @return the VIN registry
+     */
+    public VinRegistry getVinRegistry() {
+        return vinRegistry;
+    }
+
+    /**
+     * Get the current map.
+     *
+     * @return the current map
+     */
+    public BasicIntersectionMap getCurrentMap() {
+        return currentMap;
+    }
+
+    /**
+     * Set the current map.
+     *
+     * @param currentMap  the current map
+     */
+    public void setCurrentMap(BasicIntersectionMap currentMap) {
+        this.currentMap = currentMap;
+    }
+
+    /**
+     * Get the long-term debugging points.
+     *
+     * @return the list of long-term debug points
+     */
+    public List<DebugPoint> getLongTermDebugPoints() {
+        return longTermDebugPoints;
+    }
+
+    /**
+     * Get the short-term debugging points.
+     *
+     * @return the list of short-term debug points
+     */
+    public List<DebugPoint> getShortTermDebugPoints() {
+        return shortTermDebugPoints;
+    }
+
+    /**
+     * Get the colors of the vehicles.
+     *
+     * @return a mapping from vehicle's VINs to the color of the vehicles
+     */
+    public Map<Integer, Color> getVehicleColors() {
+        return vinToVehicleColor;
+    }
+}
@@ -30,16 +30,16 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.sim;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
-import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import aim4.config.Debug;
 import aim4.driver.aim.ProxyDriver;
@@ -58,6 +58,12 @@ import aim4.vehicle.VinRegistry;
 /**
  * Listens for UDP datagrams from Marvin at a UPD port (default is 46000)
  * for communication from real cars and manages corresponding proxyvehicle's.
+ * <p>
+ * The listener thread receives every datagram into the same direct buffer
+ * and decodes it in place.  The decoded messages are put on a lock-free
+ * queue, which the simulator drains once per time step by calling
+ * {@link #processReceivedMessages()}; thus the listener thread never
+ * contends with the simulation thread for the simulator.
  */
 public class UdpListener implements Runnable {
 
@@ -72,6 +78,37 @@ public class UdpListener implements Runnable {
   /** The default UPD port on the vehicle */
   private static final int DEFAULT_VEHICLE_UDP_PORT = 46042;
 
+  /**
+   * The maximum number of received messages waiting for the simulator.
+   * Further messages are dropped, e.g., when the simulation is paused.
+   */
+  public static final int MAX_QUEUED_MESSAGES = 4096;
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * A decoded message and the socket address it came from.
+   */
+  private static class ReceivedMessage {
+    /** The socket address of the sender */
+    final SocketAddress sa;
+    /** The message */
+    final Real2ProxyMsg msg;
+
+    /**
+     * Create a received message.
+     *
+     * @param sa   the socket address of the sender
+     * @param msg  the message
+     */
+    ReceivedMessage(SocketAddress sa, Real2ProxyMsg msg) {
+      this.sa = sa;
+      this.msg = msg;
+    }
+  }
+
   /////////////////////////////////
   // PRIVATE FIELDS
   /////////////////////////////////
@@ -82,16 +119,34 @@ public class UdpListener implements Runnable {
   /** the simulator */
   private final AIMSimulator sim;
 
-  /** Datagram socket for listening on a port over UDP. */
-  private DatagramSocket ds;
+  /** Datagram channel for listening on a port over UDP. */
+  private DatagramChannel channel;
 
   /**
    * A map of all the ProxyVehicles, indexed by their respective (unique)
    * socket addresses. the ProxyVehicles also assume this is the reply address
    * when they need to relay information back to the real vehicle.
+   * Only accessed by the simulation thread.
    */
   private Map<SocketAddress,ProxyVehicleSimModel> sa2ProxyVehicle;
 
+  /** The messages received but not yet processed by the simulator */
+  private final Queue<ReceivedMessage> receivedMessages =
+    new ConcurrentLinkedQueue<ReceivedMessage>();
+
+  /** The number of messages in the queue of received messages */
+  private final AtomicInteger numOfReceivedMessages = new AtomicInteger();
+
+  /** The number of messages dropped because the queue was full */
+  private final AtomicInteger numOfDroppedMessages = new AtomicInteger();
+
+  /**
+   * The simulation time at which the simulator last processed the received
+   * messages; it is the received time of the messages decoded in the
+   * listener thread.
+   */
+  private volatile double simulationTime;
+
   /** The thread of this UDP listener */
   private volatile Thread blinker;
 
@@ -121,26 +176,11 @@ public class UdpListener implements Runnable {
   public UdpListener(int udpPort, AIMSimulator sim) {
     this.udpPort = udpPort;
     this.sim = sim;
-    ds = null;
+    channel = null;
     sa2ProxyVehicle = new HashMap<SocketAddress,ProxyVehicleSimModel>();
     blinker = null;
   }
 
-  /////////////////////////////////
-  // DESTRUCTOR
-  /////////////////////////////////
-
-  /**
-   * Finalize the class by closing the datagram sockets and delete the
-   * proxy vehicles.
-   */
-  @Override
-  protected void finalize() throws Throwable {
-    blinker = null;
-    closeSocket();
-    super.finalize();
-  }
-
   /////////////////////////////////
   // PUBLIC METHODS
   /////////////////////////////////
@@ -157,21 +197,82 @@ public class UdpListener implements Runnable {
   }
 
   /**
-   * Start the listener thread.
+   * Open the UDP port and start the listener thread, and let the simulator
+   * process the received messages at every time step.  The port is ready to
+   * receive datagrams when this method returns; if the port cannot be
+   * opened, the thread is not started.
    */
   public synchronized void start() {
     assert blinker == null;
+    try {
+      channel = DatagramChannel.open();
+      channel.socket().bind(new InetSocketAddress(udpPort));
+    } catch(IOException e) {
+      if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
+        System.err.println("Cannot open UDP socket.\n");
+        e.printStackTrace();
+      }
+      closeSocket();
+      return;
+    }
+    simulationTime = sim.getSimulationTime();
+    sim.setUdpListener(this);
     blinker = new Thread(this);
     blinker.start();
   }
 
   /**
-   * Stop the listener thread.
+   * Stop the listener thread and close the UDP port.  The messages that have
+   * not been processed by the simulator are discarded.  The listener must be
+   * stopped before it is discarded, since nothing else closes the port;
+   * stopping a listener that is not running does nothing.
    */
   public synchronized void stop() {
-    assert blinker != null;
+    if (blinker == null) {
+      return;
+    }
     blinker = null;
     closeSocket();
+    sim.setUdpListener(null);
+    receivedMessages.clear();
+    numOfReceivedMessages.set(0);
+  }
+
+  /**
+   * Get the number of received messages that are waiting to be processed by
+   * the simulator.
+   *
+   * @return the number of pending messages
+   */
+  public int getNumOfPendingMessages() {
+    return numOfReceivedMessages.get();
+  }
+
+  /**
+   * Get the number of messages that have been dropped because the simulator
+   * did not process the received messages quickly enough.
+   *
+   * @return the number of dropped messages
+   */
+  public int getNumOfDroppedMessages() {
+    return numOfDroppedMessages.get();
+  }
+
+  // processing the received messages
+
+  /**
+   * Process the messages received since the last call: create the proxy
+   * vehicles of new real vehicles and forward the messages to the proxy
+   * vehicles.  This method must be called by the simulation thread, at the
+   * beginning of a time step.
+   */
+  public void processReceivedMessages() {
+    simulationTime = sim.getSimulationTime();
+    ReceivedMessage received;
+    while ((received = receivedMessages.poll()) != null) {
+      numOfReceivedMessages.decrementAndGet();
+      processReceivedMessage(received.sa, received.msg);
+    }
   }
 
   /////////////////////////////////
@@ -183,35 +284,43 @@ public class UdpListener implements Runnable {
    */
   @Override
   public void run() {
-    try {
-      ds = new DatagramSocket(udpPort);
-    } catch(SocketException e) {
-      if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
-        System.err.println("Cannot open UDP socket.\n");
-        e.printStackTrace();
-      }
-      return;
+    DatagramChannel ch;
+    synchronized(this) {
+      ch = channel;
+    }
+    if (ch == null) {
+      return;  // stop() has been called
     }
 
-    int numBytes = UdpHeader.MAX_MESSENGE_PACKAGE_LENGTH;
+    ByteBuffer buffer =
+      ByteBuffer.allocateDirect(UdpHeader.MAX_MESSENGE_PACKAGE_LENGTH);
     Thread thisThread = Thread.currentThread();
 
     // listen so long as the user hasn't called stop()
     while (blinker == thisThread) {
-      DatagramPacket dp = new DatagramPacket(new byte[numBytes], numBytes);
-
+      buffer.clear();
+      SocketAddress sa;
       try {
-        ds.receive(dp);   // blocks until data received
-      } catch(IOException e) {  // both IOException and NullPointerException
-        // Either stop() is called to close the socket, or
-        // something is wrong with our socket.
+        sa = ch.receive(buffer);   // blocks until data received
+      } catch(IOException e) {
+        // Either stop() is called to close the channel, or
+        // something is wrong with our channel.
         // Maybe we should distinguish the two cases and
         // inform the user about the second case since it is an
         // error.
         break;
       }
-      processIncomingDatagram(dp);
-      Thread.yield();  // give other threads a chance to execute
+      buffer.flip();
+      Real2ProxyMsg msg = convertDatagramToReal2ProxyMsg(buffer);
+      if (msg == null) {
+        System.err.println("Error: cannot parse the datagram package.");
+      } else if (numOfReceivedMessages.incrementAndGet()
+                 > MAX_QUEUED_MESSAGES) {
+        numOfReceivedMessages.decrementAndGet();
+        numOfDroppedMessages.incrementAndGet();
+      } else {
+        receivedMessages.add(new ReceivedMessage(sa, msg));
+      }
     }
 
     closeSocket();
@@ -223,19 +332,19 @@ public class UdpListener implements Runnable {
   /////////////////////////////////
 
   /**
-   * A synchronized function for closing the UPD socket.
+   * A synchronized function for closing the UPD channel.
    * It prevents the situation in which both the listener thread and the
-   * GUI thread close the socket at the same time.
+   * GUI thread close the channel at the same time.  Closing the channel
+   * also wakes up the listener thread blocked in receiving a datagram.
    */
   private synchronized void closeSocket() {
-    if (ds != null) {
-      if (ds.isConnected()) {
-        ds.disconnect();
-      }
-      if (!ds.isClosed()) {
-        ds.close();
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch(IOException e) {
+        System.err.println("Error: cannot close the UDP socket.");
       }
-      ds = null;
+      channel = null;
       if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
         System.err.println("The UDP socket is closed.");
       }
@@ -244,71 +353,62 @@ public class UdpListener implements Runnable {
 
 
   /**
-   * The main function for processing the incoming datagram.
+   * The main function for processing a received message.
    *
-   * @param dp  the datagram.
+   * @param sa   the socket address of the sender
+   * @param msg  the message
    */
-  private void processIncomingDatagram(DatagramPacket dp) {
-    synchronized(sim) {
-      SocketAddress sa = dp.getSocketAddress();
-      Real2ProxyMsg msg = convertDatagramToReal2ProxyMsg(dp);
-
-      if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
-        if (Debug.SHOW_PROXY_VEHICLE_PVUPDATE_MSG ||
-            !(msg instanceof Real2ProxyPVUpdate)) {
-          System.err.printf("Proxy vehicle received a Real2Proxy msg: %s\n",
-                            msg);
-        }
-      }
-
-      if (msg == null) {
-        System.err.println("Error: cannot parse the datagram package.");
-        return;
+  private void processReceivedMessage(SocketAddress sa, Real2ProxyMsg msg) {
+    if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
+      if (Debug.SHOW_PROXY_VEHICLE_PVUPDATE_MSG ||
+          !(msg instanceof Real2ProxyPVUpdate)) {
+        System.err.printf("Proxy vehicle received a Real2Proxy msg: %s\n",
+                          msg);
       }
+    }
 
-      if (sa2ProxyVehicle.containsKey(sa)) {
-        // The datagram came from a real vehicle we're already tracking.
-        // Simply forward the datagram to the corresponding proxy vehicle
-        sa2ProxyVehicle.get(sa).processReal2ProxyMsg(msg);
-      } else {
-        // We haven't seem this SA before. This must be coming from
-        // a new real vehicle that we're not tracking
-
-        // If it is a PV_UPDATE message, instantiate the proxy vehicle and
-        // associate the socket address to this proxy vehicle.
-        // If not, ignore the message.
-        if (msg.messageType == Real2ProxyMsg.Type.PV_UPDATE) {
-          Real2ProxyPVUpdate pvUpdateMsg = (Real2ProxyPVUpdate)msg;
-          // create a proxy vehicle for this real vehicle
-          ProxyVehicleSimModel vehicle = makeProxyVehicle(pvUpdateMsg);
-          // check the VIN number
-          if (VinRegistry.registerVehicleWithExistingVIN(vehicle,
-                                                         pvUpdateMsg.vin)) {
-            // update the socket address of the proxy vehicle
-            // pull out just the IP <xxx.xxx.xxx.xxx> from the address only
-            String address = sa.toString();
-            address = address.substring(1, address.indexOf(':'));
-            vehicle
-              .setSa(new InetSocketAddress(address, DEFAULT_VEHICLE_UDP_PORT));
-            // record the proxy vehicle
-            sa2ProxyVehicle.put(sa, vehicle);
-            // add the proxy vehicle to the simulator
-            sim.addProxyVehicle(vehicle);
-            if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
-              System.err.printf("A proxy vehicle is created at time %.2f "
-                + "(vin=%d).\n", sim.getSimulationTime(), vehicle.getVIN());
-            }
-          } else {
-            System.err.println("Warning: the VIN of the UPD message has " +
-                               "already been used by other vehicles.");
-            // don't add the proxy vehicle to the simulator.
-          }
-        } else {
-          // Ignore the message
+    if (sa2ProxyVehicle.containsKey(sa)) {
+      // The datagram came from a real vehicle we're already tracking.
+      // Simply forward the datagram to the corresponding proxy vehicle
+      sa2ProxyVehicle.get(sa).processReal2ProxyMsg(msg);
+    } else {
+      // We haven't seem this SA before. This must be coming from
+      // a new real vehicle that we're not tracking
+
+      // If it is a PV_UPDATE message, instantiate the proxy vehicle and
+      // associate the socket address to this proxy vehicle.
+      // If not, ignore the message.
+      if (msg.messageType == Real2ProxyMsg.Type.PV_UPDATE) {
+        Real2ProxyPVUpdate pvUpdateMsg = (Real2ProxyPVUpdate)msg;
+        // create a proxy vehicle for this real vehicle
+        ProxyVehicleSimModel vehicle = makeProxyVehicle(pvUpdateMsg);
+        // check the VIN number
+        if (VinRegistry.registerVehicleWithExistingVIN(vehicle,
+                                                       pvUpdateMsg.vin)) {
+          // update the socket address of the proxy vehicle
+          // pull out just the IP <xxx.xxx.xxx.xxx> from the address only
+          String address = sa.toString();
+          address = address.substring(1, address.indexOf(':'));
+          vehicle
+            .setSa(new InetSocketAddress(address, DEFAULT_VEHICLE_UDP_PORT));
+          // record the proxy vehicle
+          sa2ProxyVehicle.put(sa, vehicle);
+          // add the proxy vehicle to the simulator
+          sim.addProxyVehicle(vehicle);
           if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
-            System.err.println("Warning: first message from a new real " +
-                               "vehicle must be a PVUpdate.");
+            System.err.printf("A proxy vehicle is created at time %.2f "
+              + "(vin=%d).\n", sim.getSimulationTime(), vehicle.getVIN());
           }
+        } else {
+          System.err.println("Warning: the VIN of the UPD message has " +
+                             "already been used by other vehicles.");
+          // don't add the proxy vehicle to the simulator.
+        }
+      } else {
+        // Ignore the message
+        if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
+          System.err.println("Warning: first message from a new real " +
+                             "vehicle must be a PVUpdate.");
         }
       }
     }
@@ -317,34 +417,35 @@ public class UdpListener implements Runnable {
   /**
    * Covert a datagram to a Real2Proxy message.
    *
-   * @param dp  the datagram
-   * @return the Real2Proxy message
+   * @param buffer  the buffer containing the datagram, from its position to
+   *                its limit
+   * @return the Real2Proxy message; <code>null</code> if the datagram is
+   *         corrupted
    */
-  private Real2ProxyMsg convertDatagramToReal2ProxyMsg(DatagramPacket dp) {
-    // prepare the raw data for reading
-    byte[] data = dp.getData();  // it will contain numBytes bytes.
-    ByteArrayInputStream bais = new ByteArrayInputStream(data);
-    DataInputStream dis = new DataInputStream(bais);
+  private Real2ProxyMsg convertDatagramToReal2ProxyMsg(ByteBuffer buffer) {
+    // the check sum covers the whole datagram
+    int checksum = UdpHeader.computeChecksum(buffer);
     // read the header
     UdpHeader header = null;
     try {
-      header = new UdpHeader(dis);
+      header = new UdpHeader(buffer);
     } catch(IOException e) {
       System.err.println("Error: Datagram has a corrupted header.");
       return null;
     }
 
-    if (header.getChecksum() != UdpHeader.computeChecksum(data)) {
+    if (header.getChecksum() != checksum) {
       // the datagram is corrupted, can't use it
       System.err.println("Error: Datagram has a corrupted checksum.");
       return null;
     }
 
+    double receivedTime = simulationTime;
     Real2ProxyMsg msg = null;
     switch(header.getMessageType()) {
     case PVUpdate:
       try {
-        msg = new Real2ProxyPVUpdate(dis, sim.getSimulationTime());
+        msg = new Real2ProxyPVUpdate(buffer, receivedTime);
       } catch(IOException e) {
         System.err.println("Error: Datagram has a corrupted body for " +
                            "a PV_UPDATE message.");
@@ -352,7 +453,7 @@ public class UdpListener implements Runnable {
       break;
     case V2I_Request:
       try {
-        msg = new Real2ProxyRequest(dis, sim.getSimulationTime());
+        msg = new Real2ProxyRequest(buffer, receivedTime);
       } catch(IOException e) {
         System.err.println("Error: Datagram has a corrupted body for " +
                            "a REQUEST message.");
@@ -360,33 +461,23 @@ public class UdpListener implements Runnable {
       break;
     case V2I_Cancel:
       try {
-        msg = new Real2ProxyCancel(dis, sim.getSimulationTime());
+        msg = new Real2ProxyCancel(buffer, receivedTime);
       } catch(IOException e) {
         System.err.println("Error: Datagram has a corrupted body for " +
                            "a CANCEL message.");
       }
       break;
     case V2I_Done:
-      try {
-        msg = new Real2ProxyDone(dis, sim.getSimulationTime());
-      } catch(IOException e) {
-        System.err.println("Error: Datagram has a corrupted body for " +
-                           "a DONE message.");
-      }
+      msg = new Real2ProxyDone(buffer, receivedTime);
       break;
     default:
       System.err.println("Error: Unknown UDP message type");
     }
 
-//    try {
-//      int n = dis.available();
-//      if (n > 0) {
-//        System.err.println("Warning: processed the datagram, but there " +
-//                           "are still " + n + " bytes available.");
-//      }
-//    } catch(IOException e) {
-//      System.err.println("Error: Cannot estimate the number of remaining " +
-//                         "data in the datagram");
+//    if (buffer.hasRemaining()) {
+//      System.err.println("Warning: processed the datagram, but there " +
+//                         "are still " + buffer.remaining() +
+//                         " bytes available.");
 //    }
 
     return msg;
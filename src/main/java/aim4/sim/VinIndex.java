@@ -0,0 +1,129 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim;
+
+import aim4.vehicle.VehicleSimModel;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The active vehicles of a simulation indexed by their VINs.  Since the
+ * VINs are issued in sequence, the VINs of the active vehicles usually fall
+ * in a narrow range, and the vehicles are kept in an array indexed by the
+ * offset of the VIN from the smallest one; a hash map is used only when
+ * the VINs are too far apart, e.g. when a proxy vehicle brings its own VIN.
+ * <p>
+ * The index is a snapshot: it must be rebuilt whenever vehicles are added
+ * or removed.  Unlike {@link aim4.vehicle.VinRegistry}, it only knows the
+ * active vehicles of the simulation.
+ *
+ * @param <V>  the type of the vehicles
+ */
+public class VinIndex<V extends VehicleSimModel> {
+
+    /////////////////////////////////
+    // CONSTANTS
+    /////////////////////////////////
+
+    /**
+     * The number of unused slots, in addition to the number of vehicles,
+     * above which the vehicles are kept in a hash map instead of an array.
+     */
+    private static final int MAX_UNUSED_SLOTS = 1024;
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The vehicles, indexed by the offset of their VINs from minVin */
+    private VehicleSimModel[] vehicles = new VehicleSimModel[64];
+    /** The number of slots in use */
+    private int numOfSlots = 0;
+    /** The smallest VIN */
+    private int minVin = 0;
+    /** The vehicles, if their VINs are too far apart for the array */
+    private Map<Integer, V> sparseVehicles = null;
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Rebuild the index from the active vehicles.
+     *
+     * @param vinToVehicles  the map from VINs to the active vehicles
+     */
+    public void rebuild(Map<Integer, ? extends V> vinToVehicles) {
+        Arrays.fill(vehicles, 0, numOfSlots, null);
+        numOfSlots = 0;
+        sparseVehicles = null;
+        if (vinToVehicles.isEmpty()) {
+            return;
+        }
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int vin : vinToVehicles.keySet()) {
+            min = Math.min(min, vin);
+            max = Math.max(max, vin);
+        }
+        long range = (long) max - min + 1;
+        if (range > 2L * vinToVehicles.size() + MAX_UNUSED_SLOTS) {
+            sparseVehicles = new HashMap<Integer, V>(vinToVehicles);
+            return;
+        }
+        if (range > vehicles.length) {
+            vehicles = new VehicleSimModel[(int) Math.max(range,
+                                                          2L * vehicles.length)];
+        }
+        minVin = min;
+        numOfSlots = (int) range;
+        for (Map.Entry<Integer, ? extends V> entry : vinToVehicles.entrySet()) {
+            vehicles[entry.getKey() - min] = entry.getValue();
+        }
+    }
+
+    /**
+     * Get the active vehicle with the given VIN.
+     *
+     * @param vin  the VIN
+     * @return the vehicle; null if no active vehicle has the VIN
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int vin) {
+        if (sparseVehicles != null) {
+            return sparseVehicles.get(vin);
+        }
+        int i = vin - minVin;
+        return (i >= 0 && i < numOfSlots) ? (V) vehicles[i] : null;
+    }
+}
@@ -0,0 +1,317 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.batch;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The options of a batch run, read from command-line arguments of the form
+ * <code>--name=value</code> or <code>--name value</code>, and optionally from
+ * a properties file named by <code>--config</code>.  Options given on the
+ * command line override those in the file.
+ */
+public class BatchConfig {
+
+    /////////////////////////////////
+    // CONSTANTS
+    /////////////////////////////////
+
+    /** The option naming a properties file of further options */
+    public static final String CONFIG_OPTION = "config";
+
+    /** The options understood by the batch runner */
+    public static final Set<String> OPTIONS = Collections.unmodifiableSet(
+            new HashSet<String>(Arrays.asList(
+                    // common
+                    "sim", "time", "seed", "out", "traffic-rate", "speed-limit",
+                    "profile", "step-threads", "stream-results",
+                    "results-format", "compression",
+                    // AIM
+                    "columns", "rows", "lanes-per-road", "lane-width",
+                    "median-size", "distance-between", "stop-distance",
+                    "reservation-backend", "footprint-cache-size",
+                    "parallel-managers", "arrival-search-horizon",
+                    // merge
+                    "protocol", "target-speed-limit", "merge-speed-limit",
+                    "target-lead-in", "target-lead-out", "merge-lead-in",
+                    "merging-angle", "target-schedule", "merge-schedule",
+                    "lane-length", "trajectory-cache-size", "collision-check",
+                    // CPM
+                    "parking-lanes", "parking-length", "access-length",
+                    "spawn-spec", "spawn-file", "parking-allocation")));
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The values of the options */
+    private final Properties properties;
+
+    /////////////////////////////////
+    // CLASS METHODS
+    /////////////////////////////////
+
+    /**
+     * Read the options from command-line arguments.
+     *
+     * @param args  the command-line arguments
+     * @return the options
+     * @throws IllegalArgumentException if an argument is malformed or names
+     *                                  an unknown option
+     * @throws IOException              if the properties file cannot be read
+     */
+    public static BatchConfig parse(String[] args) throws IOException {
+        Properties cli = new Properties();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--") || arg.length() == 2) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            String name;
+            String value;
+            int eq = arg.indexOf('=');
+            if (eq >= 0) {
+                name = arg.substring(2, eq);
+                value = arg.substring(eq + 1);
+            } else if (i + 1 < args.length) {
+                name = arg.substring(2);
+                value = args[++i];
+            } else {
+                throw new IllegalArgumentException("Missing value of option: " + arg);
+            }
+            cli.setProperty(name, value);
+        }
+
+        Properties properties = new Properties();
+        if (cli.containsKey(CONFIG_OPTION)) {
+            InputStream in = new FileInputStream(cli.getProperty(CONFIG_OPTION));
+            try {
+                properties.load(in);
+            } finally {
+                in.close();
+            }
+            cli.remove(CONFIG_OPTION);
+        }
+        properties.putAll(cli);
+        return new BatchConfig(properties);
+    }
+
+    /////////////////////////////////
+    // CONSTRUCTORS
+    /////////////////////////////////
+
+    /**
+     * Create a batch configuration from the values of its options.
+     *
+     * @param properties  the values of the options
+     * @throws IllegalArgumentException if an option is unknown
+     */
+    public BatchConfig(Properties properties) {
+        for (String name : properties.stringPropertyNames()) {
+            if (!OPTIONS.contains(name)) {
+                throw new IllegalArgumentException("Unknown option: " + name);
+            }
+        }
+        this.properties = properties;
+    }
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Whether an option is set.
+     *
+     * @param name  the name of the option
+     * @return whether the option is set
+     */
+    public boolean has(String name) {
+        return properties.containsKey(name);
+    }
+
+    /**
+     * Get the values of the options that are set, e.g. to record them with
+     * the results of a run.
+     *
+     * @return the values of the options, sorted by name
+     */
+    public SortedMap<String, String> getOptions() {
+        SortedMap<String, String> options = new TreeMap<String, String>();
+        for (String name : properties.stringPropertyNames()) {
+            options.put(name, getString(name));
+        }
+        return options;
+    }
+
+    /**
+     * Get the value of an option.
+     *
+     * @param name          the name of the option
+     * @param defaultValue  the value if the option is not set
+     * @return the value of the option
+     */
+    public String getString(String name, String defaultValue) {
+        return properties.getProperty(name, defaultValue).trim();
+    }
+
+    /**
+     * Get the value of an option that must be set.
+     *
+     * @param name  the name of the option
+     * @return the value of the option
+     * @throws IllegalArgumentException if the option is not set
+     */
+    public String getString(String name) {
+        if (!has(name)) {
+            throw new IllegalArgumentException("Missing option: --" + name);
+        }
+        return getString(name, null);
+    }
+
+    /**
+     * Get the value of a numeric option.
+     *
+     * @param name          the name of the option
+     * @param defaultValue  the value if the option is not set
+     * @return the value of the option
+     * @throws IllegalArgumentException if the value is not a number
+     */
+    public double getDouble(String name, double defaultValue) {
+        if (!has(name)) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(getString(name));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    "Option --" + name + " needs a number: " + getString(name));
+        }
+    }
+
+    /**
+     * Get the value of an integer option.
+     *
+     * @param name          the name of the option
+     * @param defaultValue  the value if the option is not set
+     * @return the value of the option
+     * @throws IllegalArgumentException if the value is not an integer
+     */
+    public int getInt(String name, int defaultValue) {
+        return (int) getLong(name, defaultValue);
+    }
+
+    /**
+     * Get the value of a long integer option.
+     *
+     * @param name          the name of the option
+     * @param defaultValue  the value if the option is not set
+     * @return the value of the option
+     * @throws IllegalArgumentException if the value is not an integer
+     */
+    public long getLong(String name, long defaultValue) {
+        if (!has(name)) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(getString(name));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    "Option --" + name + " needs an integer: " + getString(name));
+        }
+    }
+
+    /**
+     * Get the value of a boolean option.
+     *
+     * @param name          the name of the option
+     * @param defaultValue  the value if the option is not set
+     * @return the value of the option
+     * @throws IllegalArgumentException if the value is neither true nor false
+     */
+    public boolean getBoolean(String name, boolean defaultValue) {
+        if (!has(name)) {
+            return defaultValue;
+        }
+        String value = getString(name);
+        if (value.equalsIgnoreCase("true")) {
+            return true;
+        } else if (value.equalsIgnoreCase("false")) {
+            return false;
+        } else {
+            throw new IllegalArgumentException(
+                    "Option --" + name + " needs true or false: " + value);
+        }
+    }
+
+    /**
+     * Get the value of an option naming a file.
+     *
+     * @param name  the name of the option
+     * @return the file; null if the option is not set
+     */
+    public File getFile(String name) {
+        return has(name) ? new File(getString(name)) : null;
+    }
+
+    /**
+     * Get the value of an option naming a constant of an enumeration.  The
+     * value is case insensitive and may use hyphens in place of underscores.
+     *
+     * @param name          the name of the option
+     * @param type          the enumeration
+     * @param defaultValue  the value if the option is not set
+     * @param <E>           the type of the enumeration
+     * @return the value of the option
+     * @throws IllegalArgumentException if the value names no constant
+     */
+    public <E extends Enum<E>> E getEnum(String name, Class<E> type, E defaultValue) {
+        if (!has(name)) {
+            return defaultValue;
+        }
+        String value = getString(name).toUpperCase().replace('-', '_');
+        try {
+            return Enum.valueOf(type, value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Option --" + name + " needs one of "
+                    + Arrays.toString(type.getEnumConstants()) + ": " + getString(name));
+        }
+    }
+}
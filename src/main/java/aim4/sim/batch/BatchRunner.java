@@ -0,0 +1,471 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.batch;
+
+import aim4.config.SimConfig;
+import aim4.im.aim.v2i.reservation.ReservationArray;
+import aim4.map.cpm.CPMMapUtil.SpawnSpecType;
+import aim4.map.cpm.parking.StatusMonitor;
+import aim4.sim.CollisionCheck;
+import aim4.sim.ParallelStepExecutor;
+import aim4.sim.ParallelStepSimulator;
+import aim4.sim.SimulationContext;
+import aim4.sim.Simulator;
+import aim4.sim.profile.ProfiledSimulator;
+import aim4.sim.profile.StepProfiler;
+import aim4.sim.results.StreamingResultsSimulator;
+import aim4.sim.results.VehicleResult;
+import aim4.sim.results.VehicleResultColumns;
+import aim4.sim.results.VehicleResultsWriter;
+import aim4.sim.results.columnar.ColumnarWriter;
+import aim4.sim.results.columnar.Compression;
+import aim4.sim.setup.SimSetup;
+import aim4.sim.setup.aim.AutoDriverOnlySimSetup;
+import aim4.sim.setup.aim.BasicSimSetup;
+import aim4.sim.setup.cpm.BasicCPMSimSetup;
+import aim4.sim.setup.cpm.CPMAutoDriverSimSetup;
+import aim4.sim.setup.merge.S2SSimSetup;
+import aim4.sim.setup.merge.SingleLaneSimSetup;
+import aim4.sim.setup.merge.enums.ProtocolType;
+import aim4.sim.simulator.aim.AIMSimulator;
+import aim4.sim.simulator.aim.AutoDriverOnlySimulator;
+import aim4.sim.simulator.merge.CoreMergeSimulator;
+import aim4.sim.simulator.merge.MergeSimulator;
+import aim4.util.Util;
+import javafx.util.Pair;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a single simulation without the GUI.  The simulator is stepped as fast
+ * as possible for a fixed amount of simulated time, after which its results
+ * and the timing statistics of the run are written to the output directory.
+ * Nothing in a batch run touches the Swing toolkit or loads images, so it can
+ * run with <code>java.awt.headless=true</code>.
+ */
+public class BatchRunner {
+
+    /////////////////////////////////
+    // CONSTANTS
+    /////////////////////////////////
+
+    /** The default amount of simulated time, in seconds */
+    public static final double DEFAULT_TIME = 1000.0;
+    /** The default output directory */
+    public static final String DEFAULT_OUT = "batch-results";
+    /** The name of the results file in the output directory */
+    public static final String RESULTS_FILE = "results.csv";
+    /** The name of the timing statistics file in the output directory */
+    public static final String TIMING_FILE = "timing.csv";
+    /** The name of the file of the profile of each stage in the output directory */
+    public static final String PROFILE_FILE = "profile.csv";
+    /** The name of the file of the profile of each step in the output directory */
+    public static final String PROFILE_STEPS_FILE = "profile-steps.csv";
+    /** The name of the columnar results file in the output directory */
+    public static final String RESULTS_COLUMNAR_FILE = "results.col";
+    /** The name of the columnar file of the profile of each step in the output directory */
+    public static final String PROFILE_STEPS_COLUMNAR_FILE = "profile-steps.col";
+    /** The default traffic rate, in vehicles per hour per lane */
+    private static final double DEFAULT_TRAFFIC_RATE = 0.28 * 3600;
+
+    /////////////////////////////////
+    // NESTED CLASSES
+    /////////////////////////////////
+
+    /**
+     * The simulations a batch run can create.
+     */
+    public enum SimType {
+        /** An intersection with autonomous drivers only */
+        AIM,
+        /** A merge of a merging road into a target road */
+        S2S,
+        /** A single lane without any merge */
+        SINGLE_LANE,
+        /** A car park of autonomous vehicles */
+        CPM
+    }
+
+    /**
+     * The formats in which the results of the vehicles and the profile of
+     * the steps can be written.
+     */
+    public enum ResultsFormat {
+        /** Text files of comma separated values */
+        CSV,
+        /** Columnar binary files, which can be exported to the CSV files */
+        COLUMNAR
+    }
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The options of the run */
+    private final BatchConfig config;
+
+    /////////////////////////////////
+    // CONSTRUCTORS
+    /////////////////////////////////
+
+    /**
+     * Create a batch runner.
+     *
+     * @param config  the options of the run
+     */
+    public BatchRunner(BatchConfig config) {
+        this.config = config;
+    }
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Get the simulation to create.
+     *
+     * @return the simulation to create
+     */
+    public SimType getSimType() {
+        return config.getEnum("sim", SimType.class, null);
+    }
+
+    /**
+     * Get the output directory.
+     *
+     * @return the output directory
+     */
+    public File getOutputDirectory() {
+        return new File(config.getString("out", DEFAULT_OUT));
+    }
+
+    /**
+     * Create the setup of the simulation from the options.  Traffic rates are
+     * given in vehicles per hour per lane.
+     *
+     * @return the setup of the simulation
+     * @throws IllegalArgumentException if an option is missing or malformed
+     */
+    public SimSetup createSetup() {
+        SimType simType = getSimType();
+        if (simType == null) {
+            throw new IllegalArgumentException("Missing option: --sim");
+        }
+        double trafficLevel = config.getDouble("traffic-rate", DEFAULT_TRAFFIC_RATE) / 3600;
+        switch (simType) {
+            case AIM:
+                AutoDriverOnlySimSetup aimSetup = new AutoDriverOnlySimSetup(new BasicSimSetup(
+                        config.getInt("columns", 1),
+                        config.getInt("rows", 1),
+                        config.getDouble("lane-width", 4),
+                        config.getDouble("speed-limit", 25.0),
+                        config.getInt("lanes-per-road", 3),
+                        config.getDouble("median-size", 1),
+                        config.getDouble("distance-between", 150),
+                        trafficLevel,
+                        config.getDouble("stop-distance", 1.0)));
+                aimSetup.setReservationBackend(config.getEnum("reservation-backend",
+                        ReservationArray.Backend.class, ReservationArray.Backend.TREE_MAP));
+                aimSetup.setFootprintCacheSize(config.getInt("footprint-cache-size", 0));
+                aimSetup.setArrivalSearchHorizon(config.getDouble("arrival-search-horizon", 0.0));
+                return aimSetup;
+            case S2S:
+                File targetSchedule = config.getFile("target-schedule");
+                File mergeSchedule = config.getFile("merge-schedule");
+                if ((targetSchedule == null) != (mergeSchedule == null)) {
+                    throw new IllegalArgumentException(
+                            "Both --target-schedule and --merge-schedule must be set, or neither");
+                }
+                S2SSimSetup s2sSetup = new S2SSimSetup(
+                        config.getEnum("protocol", ProtocolType.class, ProtocolType.AIM_GRID),
+                        trafficLevel,
+                        config.getDouble("target-speed-limit",
+                                S2SSimSetup.DEFAULT_TARGET_LANE_SPEED_LIMIT),
+                        config.getDouble("merge-speed-limit",
+                                S2SSimSetup.DEFAULT_MERGING_LANE_SPEED_LIMIT),
+                        config.getDouble("target-lead-in",
+                                S2SSimSetup.DEFAULT_TARGET_LEAD_IN_DISTANCE),
+                        config.getDouble("target-lead-out",
+                                S2SSimSetup.DEFAULT_TARGET_LEAD_OUT_DISTANCE),
+                        config.getDouble("merge-lead-in",
+                                S2SSimSetup.DEFAULT_MERGE_LEAD_IN_DISTANCE),
+                        config.getDouble("merging-angle",
+                                S2SSimSetup.DEFAULT_MERGING_ANGLE),
+                        targetSchedule, mergeSchedule);
+                s2sSetup.setTrajectoryCacheSize(config.getInt("trajectory-cache-size", 0));
+                return s2sSetup;
+            case SINGLE_LANE:
+                return new SingleLaneSimSetup(
+                        trafficLevel,
+                        config.getDouble("speed-limit",
+                                S2SSimSetup.DEFAULT_TARGET_LANE_SPEED_LIMIT),
+                        config.getDouble("lane-length",
+                                S2SSimSetup.DEFAULT_TARGET_LEAD_IN_DISTANCE));
+            case CPM:
+                File spawnFile = config.getFile("spawn-file");
+                CPMAutoDriverSimSetup cpmSetup = new CPMAutoDriverSimSetup(new BasicCPMSimSetup(
+                        config.getDouble("speed-limit", 5.0),
+                        trafficLevel,
+                        config.getDouble("lane-width", 2.0),
+                        config.getInt("parking-lanes", 1),
+                        config.getDouble("parking-length", 50.0),
+                        config.getDouble("access-length", 1.0),
+                        config.getEnum("spawn-spec", SpawnSpecType.class, SpawnSpecType.SINGLE),
+                        new Pair<Boolean, String>(spawnFile != null,
+                                (spawnFile == null) ? "" : spawnFile.getPath())));
+                cpmSetup.setParkingAllocation(config.getEnum("parking-allocation",
+                        StatusMonitor.AllocationPolicy.class, StatusMonitor.AllocationPolicy.MOST_SPACE));
+                return cpmSetup;
+            default:
+                throw new IllegalArgumentException("Unknown simulation: " + simType);
+        }
+    }
+
+    /**
+     * Create the simulator, step it for the simulated time given by the
+     * options, and write its results and timing statistics to the output
+     * directory.  If the <code>profile</code> option is set, the profile of
+     * the steps is written as well.  If the <code>step-threads</code> option
+     * is greater than 1, the drivers act and the vehicles move on that many
+     * threads, and so do the intersection managers if the
+     * <code>parallel-managers</code> option is set.  If the
+     * <code>stream-results</code> option is set, the results of the vehicles
+     * are written as the vehicles complete rather than kept until the end of
+     * the run, so the memory of a run does not grow with its length.  If the
+     * <code>results-format</code> option is <code>columnar</code>, the
+     * results of the vehicles and the profile of the steps are written to
+     * columnar files, with the blocks compressed as the
+     * <code>compression</code> option gives, and the options of the run as
+     * their parameters.  A simulator without results of vehicles still
+     * writes its statistics to a CSV results file.  The
+     * <code>collision-check</code> option sets what the merge simulations do
+     * about collisions between vehicles; they count them by default.
+     *
+     * @return the timing statistics of the run
+     * @throws IOException if the results cannot be written
+     * @throws IllegalArgumentException if the simulator cannot be profiled
+     *                                  but profiling is requested, or cannot
+     *                                  run its steps in parallel but more
+     *                                  than one step thread or parallel
+     *                                  managers are requested, or cannot
+     *                                  stream its results but streaming is
+     *                                  requested, or does not check for
+     *                                  collisions but a collision check is
+     *                                  requested
+     */
+    public BatchStats run() throws IOException {
+        double time = config.getDouble("time", DEFAULT_TIME);
+        long seed = config.getLong("seed", Util.randSeed);
+        SimSetup setup = createSetup();
+
+        long start = System.nanoTime();
+        Simulator sim = setup.getSimulator(new SimulationContext(seed));
+        long setupNanos = System.nanoTime() - start;
+        StepProfiler profiler = null;
+        if (config.getBoolean("profile", false)) {
+            if (!(sim instanceof ProfiledSimulator)) {
+                throw new IllegalArgumentException("Simulation cannot be profiled: " + getSimType());
+            }
+            profiler = ((ProfiledSimulator) sim).getProfiler();
+            profiler.setEnabled(true);
+        }
+        ParallelStepExecutor executor = null;
+        int stepThreads = config.getInt("step-threads", 1);
+        if (stepThreads > 1) {
+            if (!(sim instanceof ParallelStepSimulator)) {
+                throw new IllegalArgumentException("Simulation cannot run its steps in parallel: " + getSimType());
+            }
+            executor = new ParallelStepExecutor(stepThreads);
+            ((ParallelStepSimulator) sim).setStepExecutor(executor);
+        }
+        if (config.getBoolean("parallel-managers", false)) {
+            if (!(sim instanceof AutoDriverOnlySimulator)) {
+                throw new IllegalArgumentException("Managers cannot act in parallel: " + getSimType());
+            }
+            ((AutoDriverOnlySimulator) sim).setParallelManagers(true);
+        }
+        if (config.has("collision-check")) {
+            CollisionCheck collisionCheck =
+                    config.getEnum("collision-check", CollisionCheck.class, CollisionCheck.COUNT);
+            if (!(sim instanceof CoreMergeSimulator)) {
+                throw new IllegalArgumentException("Simulation does not check for collisions: " + getSimType());
+            }
+            ((CoreMergeSimulator) sim).setCollisionCheck(collisionCheck);
+        }
+        ResultsFormat format = config.getEnum("results-format", ResultsFormat.class, ResultsFormat.CSV);
+        Compression compression = config.getEnum("compression", Compression.class, Compression.NONE);
+        Map<String, String> params = config.getOptions();
+        params.put("seed", Long.toString(seed));
+        File out = getOutputDirectory();
+        Files.createDirectories(out.toPath());
+        VehicleResultsWriter resultsWriter = null;
+        if (config.getBoolean("stream-results", false)) {
+            if (!(sim instanceof StreamingResultsSimulator)) {
+                throw new IllegalArgumentException("Simulation cannot stream its results: " + getSimType());
+            }
+            if (format == ResultsFormat.COLUMNAR) {
+                resultsWriter = new VehicleResultsWriter(VehicleResultColumns.createWriter(
+                        new File(out, RESULTS_COLUMNAR_FILE), params, compression));
+            } else {
+                resultsWriter = new VehicleResultsWriter(new File(out, RESULTS_FILE));
+            }
+            try {
+                ((StreamingResultsSimulator) sim).setResultsWriter(resultsWriter);
+            } catch (UnsupportedOperationException e) {
+                resultsWriter.discard();
+                throw new IllegalArgumentException("Simulation cannot stream its results: " + getSimType(), e);
+            }
+        }
+
+        long steps = 0;
+        long maxStepNanos = 0;
+        start = System.nanoTime();
+        boolean completed = false;
+        try {
+            while (sim.getSimulationTime() < time) {
+                long stepStart = System.nanoTime();
+                sim.step(SimConfig.TIME_STEP);
+                maxStepNanos = Math.max(maxStepNanos, System.nanoTime() - stepStart);
+                steps++;
+            }
+            completed = true;
+        } finally {
+            if (!completed && resultsWriter != null) {
+                resultsWriter.discard();
+            }
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+        long runNanos = System.nanoTime() - start;
+
+        BatchStats stats = new BatchStats(seed, setupNanos, runNanos, maxStepNanos,
+                steps, sim.getSimulationTime(), sim.getNumCompletedVehicles());
+        Charset charset = Charset.forName("UTF-8");
+        if (resultsWriter != null) {
+            resultsWriter.close();
+        } else if (format != ResultsFormat.COLUMNAR
+                || !writeResultsColumnar(sim, new File(out, RESULTS_COLUMNAR_FILE), params, compression)) {
+            Files.write(new File(out, RESULTS_FILE).toPath(),
+                    Collections.singletonList(produceResultsCSV(sim)), charset);
+        }
+        Files.write(new File(out, TIMING_FILE).toPath(),
+                Collections.singletonList(stats.produceCSVString()), charset);
+        if (profiler != null) {
+            Writer writer = Files.newBufferedWriter(new File(out, PROFILE_FILE).toPath(), charset);
+            try {
+                profiler.writeSummaryCSV(writer);
+            } finally {
+                writer.close();
+            }
+            if (format == ResultsFormat.COLUMNAR) {
+                ColumnarWriter stepsWriter = new ColumnarWriter(new File(out, PROFILE_STEPS_COLUMNAR_FILE),
+                        StepProfiler.getStepColumns(), params, compression);
+                try {
+                    profiler.writeSteps(stepsWriter);
+                } catch (IOException e) {
+                    stepsWriter.discard();
+                    throw e;
+                }
+                stepsWriter.close();
+            } else {
+                writer = Files.newBufferedWriter(new File(out, PROFILE_STEPS_FILE).toPath(), charset);
+                try {
+                    profiler.writeStepsCSV(writer);
+                } finally {
+                    writer.close();
+                }
+            }
+        }
+        return stats;
+    }
+
+    /////////////////////////////////
+    // PRIVATE METHODS
+    /////////////////////////////////
+
+    /**
+     * Write the results of the vehicles of a simulator to a columnar file.
+     *
+     * @return whether the simulator has results of vehicles to write
+     */
+    private boolean writeResultsColumnar(Simulator sim, File file, Map<String, String> params,
+                                         Compression compression) throws IOException {
+        List<? extends VehicleResult> vehicles;
+        try {
+            if (sim instanceof MergeSimulator) {
+                vehicles = ((MergeSimulator) sim).produceResult().getVehicleResults();
+            } else if (sim instanceof AIMSimulator) {
+                vehicles = ((AIMSimulator) sim).produceResult().getVehicleResults();
+            } else {
+                return false;
+            }
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+        ColumnarWriter writer = VehicleResultColumns.createWriter(file, params, compression);
+        try {
+            for (VehicleResult vehicle : vehicles) {
+                VehicleResultColumns.add(writer, vehicle);
+            }
+        } catch (IOException e) {
+            writer.discard();
+            throw e;
+        }
+        writer.close();
+        return true;
+    }
+
+    /**
+     * Produce the results of a simulator, falling back to the statistics
+     * every simulator keeps if it does not record the results of vehicles.
+     */
+    private String produceResultsCSV(Simulator sim) {
+        try {
+            return sim.produceResultsCSV();
+        } catch (UnsupportedOperationException e) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Completed Vehicles,").append(sim.getNumCompletedVehicles()).append('\n');
+            sb.append("Average Bits Transmitted,")
+                    .append(sim.getAvgBitsTransmittedByCompletedVehicles()).append('\n');
+            sb.append("Average Bits Received,")
+                    .append(sim.getAvgBitsReceivedByCompletedVehicles()).append('\n');
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.batch;
+
+/**
+ * The timing statistics of a batch run.
+ */
+public class BatchStats {
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The seed of the run */
+    private final long seed;
+    /** The wall time spent creating the simulator, in nanoseconds */
+    private final long setupNanos;
+    /** The wall time spent stepping the simulator, in nanoseconds */
+    private final long runNanos;
+    /** The longest wall time of a single step, in nanoseconds */
+    private final long maxStepNanos;
+    /** The number of steps */
+    private final long steps;
+    /** The simulated time, in seconds */
+    private final double simulatedTime;
+    /** The number of vehicles that reached their destinations */
+    private final int completedVehicles;
+
+    /////////////////////////////////
+    // CONSTRUCTORS
+    /////////////////////////////////
+
+    /**
+     * Create the timing statistics of a batch run.
+     *
+     * @param seed               the seed of the run
+     * @param setupNanos         the wall time spent creating the simulator
+     * @param runNanos           the wall time spent stepping the simulator
+     * @param maxStepNanos       the longest wall time of a single step
+     * @param steps              the number of steps
+     * @param simulatedTime      the simulated time, in seconds
+     * @param completedVehicles  the number of vehicles that reached their
+     *                           destinations
+     */
+    public BatchStats(long seed, long setupNanos, long runNanos, long maxStepNanos,
+                      long steps, double simulatedTime, int completedVehicles) {
+        this.seed = seed;
+        this.setupNanos = setupNanos;
+        this.runNanos = runNanos;
+        this.maxStepNanos = maxStepNanos;
+        this.steps = steps;
+        this.simulatedTime = simulatedTime;
+        this.completedVehicles = completedVehicles;
+    }
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Get the seed of the run.
+     *
+     * @return the seed of the run
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the wall time spent creating the simulator.
+     *
+     * @return the wall time spent creating the simulator, in seconds
+     */
+    public double getSetupTime() {
+        return setupNanos / 1e9;
+    }
+
+    /**
+     * Get the wall time spent stepping the simulator.
+     *
+     * @return the wall time spent stepping the simulator, in seconds
+     */
+    public double getRunTime() {
+        return runNanos / 1e9;
+    }
+
+    /**
+     * Get the number of steps.
+     *
+     * @return the number of steps
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Get the simulated time.
+     *
+     * @return the simulated time, in seconds
+     */
+    public double getSimulatedTime() {
+        return simulatedTime;
+    }
+
+    /**
+     * Get the number of vehicles that reached their destinations.
+     *
+     * @return the number of completed vehicles
+     */
+    public int getCompletedVehicles() {
+        return completedVehicles;
+    }
+
+    /**
+     * Get the mean wall time of a step.
+     *
+     * @return the mean wall time of a step, in milliseconds
+     */
+    public double getMeanStepTime() {
+        return (steps == 0) ? 0.0 : runNanos / 1e6 / steps;
+    }
+
+    /**
+     * Get the longest wall time of a step.
+     *
+     * @return the longest wall time of a step, in milliseconds
+     */
+    public double getMaxStepTime() {
+        return maxStepNanos / 1e6;
+    }
+
+    /**
+     * Get the ratio of simulated time to wall time spent stepping.
+     *
+     * @return the real time factor
+     */
+    public double getRealTimeFactor() {
+        return (runNanos == 0) ? 0.0 : simulatedTime / getRunTime();
+    }
+
+    /**
+     * Produce the statistics as CSV rows of names and values.
+     *
+     * @return the statistics as CSV
+     */
+    public String produceCSVString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Seed,").append(seed).append('\n');
+        sb.append("Setup Time (s),").append(getSetupTime()).append('\n');
+        sb.append("Run Time (s),").append(getRunTime()).append('\n');
+        sb.append("Steps,").append(steps).append('\n');
+        sb.append("Simulated Time (s),").append(simulatedTime).append('\n');
+        sb.append("Mean Step Time (ms),").append(getMeanStepTime()).append('\n');
+        sb.append("Max Step Time (ms),").append(getMaxStepTime()).append('\n');
+        sb.append("Real Time Factor,").append(getRealTimeFactor()).append('\n');
+        sb.append("Completed Vehicles,").append(completedVehicles).append('\n');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * This package contains the runner of single simulations from the command
+ * line, without the GUI.
+ */
+package aim4.sim.batch;
@@ -0,0 +1,338 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.experiment;
+
+import aim4.map.merge.RoadNames;
+import aim4.sim.Simulator;
+import aim4.sim.results.AIMResult;
+import aim4.sim.results.CoreMergeResult;
+import aim4.sim.results.SimulatorResult;
+import aim4.sim.setup.SimSetup;
+import aim4.sim.setup.aim.MergeMimicSimSetup;
+import aim4.sim.setup.merge.S2SSimSetup;
+import aim4.sim.simulator.aim.AIMSimulator;
+import aim4.sim.simulator.merge.MergeSimulator;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * A single replication of one combination of the parameter values of a
+ * sweep.  Each run has its own seed, derived from the seed of the sweep and
+ * the identifier of the run, so that a run gives the same result whichever
+ * runs are executed before or alongside it.
+ */
+public class ExperimentRun {
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The sweep to which the run belongs */
+    private final SweepSpec spec;
+    /** The replication number, starting from one */
+    private final int replication;
+    /** The traffic rate, in vehicles per hour */
+    private final double trafficRate;
+    /** The speed limit of the target road */
+    private final double targetSpeedLimit;
+    /** The speed limit of the merging road */
+    private final double mergeSpeedLimit;
+    /** The lead in distance of the target road */
+    private final double targetLeadInDistance;
+    /** The lead in distance of the merging road */
+    private final double mergeLeadInDistance;
+    /** The merging angle */
+    private final double mergingAngle;
+    /** The values of the swept parameters */
+    private final List<String> sweptValues;
+
+    /////////////////////////////////
+    // CONSTRUCTORS
+    /////////////////////////////////
+
+    /**
+     * Create a run.
+     *
+     * @param spec                  the sweep to which the run belongs
+     * @param replication           the replication number, starting from one
+     * @param trafficRate           the traffic rate, in vehicles per hour
+     * @param targetSpeedLimit      the speed limit of the target road
+     * @param mergeSpeedLimit       the speed limit of the merging road
+     * @param targetLeadInDistance  the lead in distance of the target road
+     * @param mergeLeadInDistance   the lead in distance of the merging road
+     * @param mergingAngle          the merging angle
+     */
+    ExperimentRun(SweepSpec spec, int replication, double trafficRate,
+                  double targetSpeedLimit, double mergeSpeedLimit,
+                  double targetLeadInDistance, double mergeLeadInDistance,
+                  double mergingAngle) {
+        this.spec = spec;
+        this.replication = replication;
+        this.trafficRate = trafficRate;
+        this.targetSpeedLimit = targetSpeedLimit;
+        this.mergeSpeedLimit = mergeSpeedLimit;
+        this.targetLeadInDistance = targetLeadInDistance;
+        this.mergeLeadInDistance = mergeLeadInDistance;
+        this.mergingAngle = mergingAngle;
+        this.sweptValues = spec.getSweptParameterValues(this);
+    }
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    // identity
+
+    /**
+     * Get the key of the combination of parameter values of this run, made of
+     * the values of the swept parameters joined by underscores.  Runs that
+     * differ only in their replication share a key.
+     *
+     * @return the key of the combination of parameter values
+     */
+    public String getKey() {
+        if (sweptValues.isEmpty()) {
+            return spec.getName();
+        }
+        return join(sweptValues, "_");
+    }
+
+    /**
+     * Get a description of the combination of parameter values of this run,
+     * e.g. <code>Merge Speed Limit: 10 Target Speed Limit: 20</code>.
+     *
+     * @return the description of the combination of parameter values
+     */
+    public String getLabel() {
+        List<String> names = spec.getSweptParameterNames();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < names.size(); i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(names.get(i));
+            sb.append(": ");
+            sb.append(sweptValues.get(i));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Get the values of the swept parameters of this run.
+     *
+     * @return the values of the swept parameters
+     */
+    public List<String> getSweptValues() {
+        return sweptValues;
+    }
+
+    /**
+     * Get the identifier of this run, which is unique within its sweep.
+     *
+     * @return the identifier of this run
+     */
+    public String getId() {
+        return spec.getName() + "_" + getKey() + "_" + replication;
+    }
+
+    /**
+     * Get the seed of this run.
+     *
+     * @return the seed of this run
+     */
+    public long getSeed() {
+        return spec.getSeed() ^ (getId().hashCode() * 0x9E3779B97F4A7C15L);
+    }
+
+    // parameters
+
+    /**
+     * Get the replication number of this run.
+     *
+     * @return the replication number, starting from one
+     */
+    public int getReplication() {
+        return replication;
+    }
+
+    /**
+     * Get the traffic rate.
+     *
+     * @return the traffic rate, in vehicles per hour
+     */
+    public double getTrafficRate() {
+        return trafficRate;
+    }
+
+    /**
+     * Get the speed limit of the target road.
+     *
+     * @return the speed limit of the target road
+     */
+    public double getTargetSpeedLimit() {
+        return targetSpeedLimit;
+    }
+
+    /**
+     * Get the speed limit of the merging road.
+     *
+     * @return the speed limit of the merging road
+     */
+    public double getMergeSpeedLimit() {
+        return mergeSpeedLimit;
+    }
+
+    /**
+     * Get the lead in distance of the target road.
+     *
+     * @return the lead in distance of the target road
+     */
+    public double getTargetLeadInDistance() {
+        return targetLeadInDistance;
+    }
+
+    /**
+     * Get the lead in distance of the merging road.
+     *
+     * @return the lead in distance of the merging road
+     */
+    public double getMergeLeadInDistance() {
+        return mergeLeadInDistance;
+    }
+
+    /**
+     * Get the merging angle.
+     *
+     * @return the merging angle, in degrees
+     */
+    public double getMergingAngle() {
+        return mergingAngle;
+    }
+
+    /**
+     * Get the spawn schedule of a road.
+     *
+     * @param road  the road
+     * @return the spawn schedule of the road; null if the sweep has no spawn
+     *         schedules
+     */
+    public File getSchedule(RoadNames road) {
+        if (!spec.hasSchedules()) {
+            return null;
+        }
+        boolean target = (road == RoadNames.TARGET_ROAD);
+        String fileName = spec.getSchedulePattern()
+                .replace(SweepSpec.ROAD_PLACEHOLDER, road.toString().substring(0, 1))
+                .replace(SweepSpec.REPLICATION_PLACEHOLDER, Integer.toString(replication))
+                .replace(SweepSpec.TRAFFIC_RATE_PLACEHOLDER, SweepSpec.formatValue(trafficRate))
+                .replace(SweepSpec.SPEED_LIMIT_PLACEHOLDER,
+                        SweepSpec.formatValue(target ? targetSpeedLimit : mergeSpeedLimit))
+                .replace(SweepSpec.LEAD_IN_PLACEHOLDER,
+                        SweepSpec.formatValue(target ? targetLeadInDistance : mergeLeadInDistance))
+                .replace(SweepSpec.ANGLE_PLACEHOLDER, SweepSpec.formatValue(mergingAngle));
+        return new File(spec.getScheduleDirectory(), fileName);
+    }
+
+    // simulation
+
+    /**
+     * Create the setup of the simulator of this run.
+     *
+     * @return the setup of the simulator
+     */
+    public SimSetup createSetup() {
+        switch (spec.getSimulatorType()) {
+            case MERGE:
+                return new S2SSimSetup(spec.getProtocol(), trafficRate / 3600,
+                        targetSpeedLimit, mergeSpeedLimit,
+                        targetLeadInDistance, spec.getTargetLeadOutDistance(),
+                        mergeLeadInDistance, mergingAngle,
+                        getSchedule(RoadNames.TARGET_ROAD),
+                        getSchedule(RoadNames.MERGING_ROAD));
+            case AIM_MERGE_MIMIC:
+                return new MergeMimicSimSetup(
+                        getSchedule(RoadNames.MERGING_ROAD),
+                        getSchedule(RoadNames.TARGET_ROAD),
+                        targetSpeedLimit, targetLeadInDistance);
+            default:
+                throw new IllegalStateException(
+                        "Unknown simulator type: " + spec.getSimulatorType());
+        }
+    }
+
+    /**
+     * Whether every vehicle of a simulator of this run has left the map.
+     *
+     * @param sim  the simulator
+     * @return whether no vehicles remain
+     */
+    public boolean isFinished(Simulator sim) {
+        if (sim instanceof MergeSimulator) {
+            return ((MergeSimulator) sim).getVinToVehicles().isEmpty();
+        } else {
+            return ((AIMSimulator) sim).getActiveVehicles().isEmpty();
+        }
+    }
+
+    /**
+     * Get the global statistics of a result, in the columns of
+     * {@link CoreMergeResult#produceGlobalStatsCSVHeader()}.
+     *
+     * @param result  the result of a simulator of this run
+     * @return the global statistics as a CSV row
+     */
+    public String produceGlobalStatsCSV(SimulatorResult result) {
+        if (result instanceof CoreMergeResult) {
+            return ((CoreMergeResult) result).produceGlobalStatsCSV();
+        } else {
+            return ((AIMResult) result).produceGlobalStatsCSV();
+        }
+    }
+
+    /////////////////////////////////
+    // UTILITY METHODS
+    /////////////////////////////////
+
+    /**
+     * Join strings with a separator.
+     */
+    static String join(List<String> strings, String separator) {
+        StringBuilder sb = new StringBuilder();
+        for (String s : strings) {
+            if (sb.length() > 0) {
+                sb.append(separator);
+            }
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+}
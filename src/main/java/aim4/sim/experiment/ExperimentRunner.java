@@ -0,0 +1,496 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.experiment;
+
+import aim4.config.SimConfig;
+import aim4.sim.SimulationContext;
+import aim4.sim.Simulator;
+import aim4.sim.results.CoreMergeResult;
+import aim4.sim.results.SimulatorResult;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the runs of a sweep on a fixed pool of threads.  Each run gets its own
+ * {@link SimulationContext}, and therefore its own random number generator
+ * and VIN registry, so runs executing side by side do not disturb each other.
+ * <p>
+ * The results of the sweep <code>NAME</code> are laid out under the results
+ * directory as follows:
+ * <ul>
+ * <li><code>NAME/KEY/NAME_KEY_REPLICATION.csv</code>: the results of each
+ *     completed run, written as soon as the run finishes,</li>
+ * <li><code>NAME/runs.csv</code>: the index of finished runs, with a line
+ *     appended and flushed as each run finishes,</li>
+ * <li><code>NAME/spec.json</code>: the specification of the sweep,</li>
+ * <li><code>GLOBAL_RESULTS/NAME.csv</code>: the summary of the sweep, written
+ *     once every run has finished.</li>
+ * </ul>
+ * A sweep that was interrupted is resumed by running it again: the runs in
+ * the index are not run again.
+ */
+public class ExperimentRunner {
+
+    /////////////////////////////////
+    // CONSTANTS
+    /////////////////////////////////
+
+    /** The name of the directory of the summaries of sweeps */
+    public static final String GLOBAL_RESULTS_DIRECTORY = "GLOBAL_RESULTS";
+    /** The name of the index of finished runs */
+    public static final String INDEX_FILE = "runs.csv";
+    /** The name of the copy of the specification of the sweep */
+    public static final String SPEC_FILE = "spec.json";
+    /** The first cell of the row preceding the mean row of a summary */
+    public static final String MEAN_ROW_INDICATOR = "MEAN ROW";
+    /** The encoding of the results */
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The sweep */
+    private final SweepSpec spec;
+    /** The directory of the results */
+    private final File resultsDirectory;
+    /** The number of runs executed at once */
+    private final int threads;
+    /** Whether to keep the runs finished by previous executions */
+    private boolean resume = true;
+
+    /////////////////////////////////
+    // CONSTRUCTORS
+    /////////////////////////////////
+
+    /**
+     * Create a runner that uses a thread for each available processor.
+     *
+     * @param spec              the sweep
+     * @param resultsDirectory  the directory of the results
+     */
+    public ExperimentRunner(SweepSpec spec, File resultsDirectory) {
+        this(spec, resultsDirectory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a runner.
+     *
+     * @param spec              the sweep
+     * @param resultsDirectory  the directory of the results
+     * @param threads           the number of runs executed at once
+     */
+    public ExperimentRunner(SweepSpec spec, File resultsDirectory, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("A runner needs at least one thread");
+        }
+        this.spec = spec;
+        this.resultsDirectory = resultsDirectory;
+        this.threads = threads;
+    }
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Set whether to keep the runs finished by previous executions of the
+     * sweep.  If not, the previous results of the sweep are deleted before
+     * the sweep runs.
+     *
+     * @param resume  whether to keep the runs finished previously
+     */
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    /**
+     * Get the directory of the results of the sweep.
+     *
+     * @return the directory of the results of the sweep
+     */
+    public File getSweepDirectory() {
+        return new File(resultsDirectory, spec.getName());
+    }
+
+    /**
+     * Get the summary of the sweep.
+     *
+     * @return the summary of the sweep
+     */
+    public File getSummaryFile() {
+        return new File(new File(resultsDirectory, GLOBAL_RESULTS_DIRECTORY),
+                spec.getName() + ".csv");
+    }
+
+    /**
+     * Get the results file of a run.
+     *
+     * @param run  the run
+     * @return the results file of the run
+     */
+    public File getResultsFile(ExperimentRun run) {
+        return new File(new File(getSweepDirectory(), run.getKey()), run.getId() + ".csv");
+    }
+
+    /**
+     * Run the runs of the sweep that have not finished yet and write the
+     * summary of the sweep.
+     *
+     * @return the records of every run of the sweep, in the order of
+     *         {@link SweepSpec#expand()}
+     * @throws IOException          if the results cannot be written, or the
+     *                              previous results of the sweep were
+     *                              produced by a different specification
+     * @throws InterruptedException if the thread is interrupted while
+     *                              waiting for runs
+     */
+    public List<RunRecord> run() throws IOException, InterruptedException {
+        Path sweepDirectory = getSweepDirectory().toPath();
+        if (!resume) {
+            deleteRecursively(sweepDirectory);
+        }
+        Files.createDirectories(sweepDirectory);
+        checkSpec(sweepDirectory.resolve(SPEC_FILE));
+
+        List<ExperimentRun> runs = spec.expand();
+        Map<String, ExperimentRun> idToRun = new LinkedHashMap<String, ExperimentRun>();
+        for (ExperimentRun run : runs) {
+            idToRun.put(run.getId(), run);
+        }
+        Path index = sweepDirectory.resolve(INDEX_FILE);
+        Map<String, RunRecord> records = readIndex(index, idToRun);
+
+        List<ExperimentRun> pending = new ArrayList<ExperimentRun>();
+        for (ExperimentRun run : runs) {
+            if (!records.containsKey(run.getId())) {
+                pending.add(run);
+            }
+        }
+        if (!pending.isEmpty()) {
+            execute(pending, index, records);
+        }
+
+        List<RunRecord> result = new ArrayList<RunRecord>(runs.size());
+        for (ExperimentRun run : runs) {
+            result.add(records.get(run.getId()));
+        }
+        writeSummary(result);
+        return result;
+    }
+
+    /**
+     * Run a single run and write its results file.
+     *
+     * @param run  the run
+     * @return the record of the run
+     * @throws IOException if the results file cannot be written
+     */
+    public RunRecord execute(ExperimentRun run) throws IOException {
+        Simulator sim = run.createSetup().getSimulator(new SimulationContext(run.getSeed()));
+        while (sim.getSimulationTime() < spec.getTimeLimit()) {
+            sim.step(SimConfig.TIME_STEP);
+        }
+        if (!run.isFinished(sim)) {
+            return new RunRecord(run, null);
+        }
+        SimulatorResult result = sim.produceResult();
+        String csvResult = sim.produceResultsCSV();
+
+        // write to a temporary file first so that an interrupted sweep never
+        // leaves a truncated results file behind
+        Path file = getResultsFile(run).toPath();
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, Collections.singletonList(csvResult), CHARSET);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        return new RunRecord(run, run.produceGlobalStatsCSV(result));
+    }
+
+    /////////////////////////////////
+    // PRIVATE METHODS
+    /////////////////////////////////
+
+    /**
+     * Run runs on the thread pool, appending the record of each run to the
+     * index as the run finishes.
+     */
+    private void execute(List<ExperimentRun> pending, Path index,
+                         Map<String, RunRecord> records)
+            throws IOException, InterruptedException {
+        ExecutorService executor =
+                Executors.newFixedThreadPool(Math.min(threads, pending.size()));
+        BufferedWriter writer = Files.newBufferedWriter(index, CHARSET,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        try {
+            CompletionService<RunRecord> completionService =
+                    new ExecutorCompletionService<RunRecord>(executor);
+            for (final ExperimentRun run : pending) {
+                completionService.submit(new Callable<RunRecord>() {
+                    @Override
+                    public RunRecord call() throws Exception {
+                        return execute(run);
+                    }
+                });
+            }
+            for (int i = 0; i < pending.size(); i++) {
+                RunRecord record;
+                try {
+                    record = completionService.take().get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    } else {
+                        throw new RuntimeException(cause);
+                    }
+                }
+                writer.write(record.toCSV());
+                writer.newLine();
+                writer.flush();
+                records.put(record.getRun().getId(), record);
+            }
+        } finally {
+            executor.shutdownNow();
+            writer.close();
+        }
+    }
+
+    /**
+     * Write the specification of the sweep, or check that it matches the
+     * specification of the previous results of the sweep.
+     */
+    private void checkSpec(Path specFile) throws IOException {
+        JSONObject json = spec.toJSON();
+        if (Files.exists(specFile)) {
+            Reader reader = Files.newBufferedReader(specFile, CHARSET);
+            Object previous;
+            try {
+                previous = new JSONParser().parse(reader);
+            } catch (ParseException e) {
+                throw new IOException("Malformed sweep specification " + specFile, e);
+            } finally {
+                reader.close();
+            }
+            if (!json.equals(previous)) {
+                throw new IOException("The results in " + specFile.getParent()
+                        + " were produced by a different specification of the sweep");
+            }
+        } else {
+            Files.write(specFile, Collections.singletonList(json.toJSONString()), CHARSET);
+        }
+    }
+
+    /**
+     * Read the records of the index, and rewrite the index without any
+     * malformed lines, such as a line cut short when a previous execution
+     * was killed.
+     */
+    private Map<String, RunRecord> readIndex(Path index, Map<String, ExperimentRun> idToRun)
+            throws IOException {
+        Map<String, RunRecord> records = new LinkedHashMap<String, RunRecord>();
+        if (!Files.exists(index)) {
+            return records;
+        }
+        int columns = CoreMergeResult.produceGlobalStatsCSVHeader().split(",").length;
+        List<String> lines = Files.readAllLines(index, CHARSET);
+        for (String line : lines) {
+            RunRecord record = RunRecord.parse(line, idToRun, columns);
+            if (record != null) {
+                records.put(record.getRun().getId(), record);
+            }
+        }
+        if (records.size() != lines.size()) {
+            List<String> kept = new ArrayList<String>(records.size());
+            for (RunRecord record : records.values()) {
+                kept.add(record.toCSV());
+            }
+            Files.write(index, kept, CHARSET);
+        }
+        return records;
+    }
+
+    /**
+     * Write the summary of the sweep: for each combination of parameter
+     * values, the global statistics of each run and their mean, followed by a
+     * table of the means.
+     */
+    private void writeSummary(List<RunRecord> records) throws IOException {
+        String header = CoreMergeResult.produceGlobalStatsCSVHeader();
+        List<String> summary = new ArrayList<String>();
+        List<String> meanTable = new ArrayList<String>();
+        meanTable.add("," + header);
+
+        int from = 0;
+        while (from < records.size()) {
+            ExperimentRun first = records.get(from).getRun();
+            int to = from + spec.getReplications();
+            List<RunRecord> group = records.subList(from, to);
+
+            summary.add("Results for " + first.getLabel());
+            summary.add(header);
+            for (RunRecord record : group) {
+                if (record.isCompleted()) {
+                    summary.add(record.getGlobalStatsCSV());
+                } else {
+                    summary.add("FAILED TO COMPLETE AFTER " + spec.getTimeLimit() + " SECONDS");
+                }
+            }
+            String mean = produceMeanRow(group);
+            if (mean == null) {
+                summary.add("All results failed to complete");
+            } else {
+                String title = ExperimentRun.join(first.getSweptValues(), ",");
+                summary.add(MEAN_ROW_INDICATOR + "," + title);
+                summary.add(mean);
+                meanTable.add(title + "," + mean);
+            }
+            summary.add("");
+            summary.add("");
+            from = to;
+        }
+        summary.addAll(meanTable);
+
+        Path file = getSummaryFile().toPath();
+        Files.createDirectories(file.getParent());
+        Files.write(file, summary, CHARSET);
+    }
+
+    /**
+     * Compute the mean of the global statistics of the completed runs of a
+     * group.  Counts are averaged with integer division, as they always have
+     * been in the summaries.
+     *
+     * @return the mean row; null if no run completed
+     */
+    private String produceMeanRow(List<RunRecord> group) {
+        double[] totals = null;
+        long[] counts = null;
+        boolean[] integral = null;
+        int completed = 0;
+        for (RunRecord record : group) {
+            if (!record.isCompleted()) {
+                continue;
+            }
+            String[] stats = record.getGlobalStatsCSV().split(",");
+            if (totals == null) {
+                totals = new double[stats.length];
+                counts = new long[stats.length];
+                integral = new boolean[stats.length];
+                for (int i = 0; i < stats.length; i++) {
+                    integral[i] = true;
+                }
+            }
+            for (int i = 0; i < stats.length; i++) {
+                totals[i] += Double.parseDouble(stats[i]);
+                if (integral[i]) {
+                    try {
+                        counts[i] += Long.parseLong(stats[i]);
+                    } catch (NumberFormatException e) {
+                        integral[i] = false;
+                    }
+                }
+            }
+            completed++;
+        }
+        if (completed == 0) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < totals.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            if (integral[i]) {
+                sb.append((double) (counts[i] / completed));
+            } else {
+                sb.append(totals[i] / completed);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Delete a directory and everything in it.
+     */
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                    throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e)
+                    throws IOException {
+                if (e != null) {
+                    throw e;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,185 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.experiment;
+
+import java.util.Map;
+
+/**
+ * The outcome of a run of a sweep, as recorded in the index of the sweep.
+ * A record is a line of the form
+ * <code>id,seed,COMPLETED,global stats...</code> or
+ * <code>id,seed,FAILED</code>.
+ */
+public class RunRecord {
+
+    /////////////////////////////////
+    // NESTED CLASSES
+    /////////////////////////////////
+
+    /**
+     * The outcome of a run.
+     */
+    public enum Status {
+        /** Every vehicle left the map within the time limit */
+        COMPLETED,
+        /** Vehicles remained on the map at the time limit */
+        FAILED
+    }
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The run */
+    private final ExperimentRun run;
+    /** The outcome of the run */
+    private final Status status;
+    /** The global statistics of the run; null if the run failed */
+    private final String globalStatsCSV;
+
+    /////////////////////////////////
+    // CLASS METHODS
+    /////////////////////////////////
+
+    /**
+     * Parse a line of the index of a sweep.
+     *
+     * @param line     the line
+     * @param runs     the runs of the sweep, by identifier
+     * @param columns  the number of columns of the global statistics
+     * @return the record; null if the line is malformed or does not describe
+     *         a run of the sweep
+     */
+    static RunRecord parse(String line, Map<String, ExperimentRun> runs, int columns) {
+        String[] fields = line.split(",", 4);
+        if (fields.length < 3) {
+            return null;
+        }
+        ExperimentRun run = runs.get(fields[0]);
+        if (run == null || !fields[1].equals(Long.toString(run.getSeed()))) {
+            return null;
+        }
+        if (fields[2].equals(Status.FAILED.toString()) && fields.length == 3) {
+            return new RunRecord(run, null);
+        }
+        if (!fields[2].equals(Status.COMPLETED.toString()) || fields.length < 4) {
+            return null;
+        }
+        String[] stats = fields[3].split(",", -1);
+        if (stats.length != columns) {
+            return null;
+        }
+        try {
+            for (String stat : stats) {
+                Double.parseDouble(stat);
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return new RunRecord(run, fields[3]);
+    }
+
+    /////////////////////////////////
+    // CONSTRUCTORS
+    /////////////////////////////////
+
+    /**
+     * Create a record.
+     *
+     * @param run             the run
+     * @param globalStatsCSV  the global statistics of the run; null if the
+     *                        run failed
+     */
+    RunRecord(ExperimentRun run, String globalStatsCSV) {
+        this.run = run;
+        this.status = (globalStatsCSV == null) ? Status.FAILED : Status.COMPLETED;
+        this.globalStatsCSV = globalStatsCSV;
+    }
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Get the run.
+     *
+     * @return the run
+     */
+    public ExperimentRun getRun() {
+        return run;
+    }
+
+    /**
+     * Get the outcome of the run.
+     *
+     * @return the outcome of the run
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Whether every vehicle left the map within the time limit.
+     *
+     * @return whether the run completed
+     */
+    public boolean isCompleted() {
+        return status == Status.COMPLETED;
+    }
+
+    /**
+     * Get the global statistics of the run.
+     *
+     * @return the global statistics as a CSV row; null if the run failed
+     */
+    public String getGlobalStatsCSV() {
+        return globalStatsCSV;
+    }
+
+    /**
+     * Get the line of the index of the sweep that describes this record.
+     *
+     * @return the line of the index
+     */
+    public String toCSV() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(run.getId());
+        sb.append(',');
+        sb.append(run.getSeed());
+        sb.append(',');
+        sb.append(status);
+        if (isCompleted()) {
+            sb.append(',');
+            sb.append(globalStatsCSV);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,640 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.experiment;
+
+import aim4.sim.setup.merge.S2SSimSetup;
+import aim4.sim.setup.merge.enums.ProtocolType;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A declarative description of a parameter sweep: the simulator to run, the
+ * values of each parameter, the number of replications of each combination of
+ * values and where the spawn schedules of each replication can be found.  A
+ * specification can be built in code or loaded from a JSON file whose keys are
+ * the names of the setters, e.g.
+ *
+ * <pre>
+ * {"name": "SPEED_LIMIT", "simulator": "MERGE", "protocol": "QUEUE",
+ *  "trafficRates": [1000], "targetSpeedLimits": [10, 20, 30, 40],
+ *  "mergeSpeedLimits": [10, 20, 30, 40], "replications": 20,
+ *  "timeLimit": 5000, "scheduleDirectory": "schedules/speedLimit",
+ *  "schedulePattern": "{road}_{speedLimit}_{replication}.json"}
+ * </pre>
+ */
+public class SweepSpec {
+
+    /////////////////////////////////
+    // CONSTANTS
+    /////////////////////////////////
+
+    /** The default number of replications of each combination of values */
+    public static final int DEFAULT_REPLICATIONS = 1;
+    /** The default amount of simulated time, in seconds, given to each run */
+    public static final double DEFAULT_TIME_LIMIT = 5000.0;
+    /** The default seed from which the seed of each run is derived */
+    public static final long DEFAULT_SEED = 0L;
+
+    /**
+     * The placeholders that may appear in a schedule file pattern.  Road
+     * specific values are those of the road whose schedule is being named.
+     */
+    public static final String ROAD_PLACEHOLDER = "{road}";
+    public static final String REPLICATION_PLACEHOLDER = "{replication}";
+    public static final String TRAFFIC_RATE_PLACEHOLDER = "{trafficRate}";
+    public static final String SPEED_LIMIT_PLACEHOLDER = "{speedLimit}";
+    public static final String LEAD_IN_PLACEHOLDER = "{leadIn}";
+    public static final String ANGLE_PLACEHOLDER = "{angle}";
+
+    /////////////////////////////////
+    // NESTED CLASSES
+    /////////////////////////////////
+
+    /**
+     * The simulators a sweep can run.
+     */
+    public enum SimulatorType {
+        /** A merge simulator created by an {@link S2SSimSetup} */
+        MERGE,
+        /**
+         * An AIM simulator created by a
+         * {@link aim4.sim.setup.aim.MergeMimicSimSetup}, which uses the target
+         * road speed limit and lead in distance and needs spawn schedules.
+         */
+        AIM_MERGE_MIMIC
+    }
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The name of the sweep, used to name its results */
+    private final String name;
+    /** The simulator to run */
+    private final SimulatorType simulatorType;
+    /** The merging protocol of merge simulators */
+    private ProtocolType protocol = ProtocolType.QUEUE;
+    /** The traffic rates, in vehicles per hour */
+    private List<Double> trafficRates =
+            values(S2SSimSetup.DEFAULT_TRAFFIC_LEVEL * 3600);
+    /** The speed limits of the target road */
+    private List<Double> targetSpeedLimits =
+            values(S2SSimSetup.DEFAULT_TARGET_LANE_SPEED_LIMIT);
+    /** The speed limits of the merging road */
+    private List<Double> mergeSpeedLimits =
+            values(S2SSimSetup.DEFAULT_MERGING_LANE_SPEED_LIMIT);
+    /** The lead in distances of the target road */
+    private List<Double> targetLeadInDistances =
+            values(S2SSimSetup.DEFAULT_TARGET_LEAD_IN_DISTANCE);
+    /** The lead in distances of the merging road */
+    private List<Double> mergeLeadInDistances =
+            values(S2SSimSetup.DEFAULT_MERGE_LEAD_IN_DISTANCE);
+    /** The merging angles */
+    private List<Double> mergingAngles =
+            values(S2SSimSetup.DEFAULT_MERGING_ANGLE);
+    /** The lead out distance of the target road */
+    private double targetLeadOutDistance =
+            S2SSimSetup.DEFAULT_TARGET_LEAD_OUT_DISTANCE;
+    /** The number of replications of each combination of values */
+    private int replications = DEFAULT_REPLICATIONS;
+    /** The amount of simulated time given to each run */
+    private double timeLimit = DEFAULT_TIME_LIMIT;
+    /** The seed from which the seed of each run is derived */
+    private long seed = DEFAULT_SEED;
+    /** The directory of the spawn schedules; null if there are none */
+    private File scheduleDirectory = null;
+    /** The pattern of the names of the spawn schedules */
+    private String schedulePattern = null;
+
+    /////////////////////////////////
+    // CLASS METHODS
+    /////////////////////////////////
+
+    /**
+     * Load a sweep specification from a JSON file.  Relative schedule
+     * directories are resolved against the working directory.
+     *
+     * @param file  the JSON file
+     * @return the sweep specification
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static SweepSpec load(File file) throws IOException {
+        Reader reader = new FileReader(file);
+        try {
+            return fromJSON((JSONObject) new JSONParser().parse(reader));
+        } catch (ParseException e) {
+            throw new IOException("Malformed sweep specification " + file, e);
+        } catch (ClassCastException e) {
+            throw new IOException("Malformed sweep specification " + file, e);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Create a sweep specification from its JSON representation.
+     *
+     * @param json  the JSON representation
+     * @return the sweep specification
+     */
+    public static SweepSpec fromJSON(JSONObject json) {
+        if (!json.containsKey("name") || !json.containsKey("simulator")) {
+            throw new IllegalArgumentException(
+                    "A sweep specification needs a name and a simulator");
+        }
+        SweepSpec spec = new SweepSpec((String) json.get("name"),
+                SimulatorType.valueOf((String) json.get("simulator")));
+        if (json.containsKey("protocol")) {
+            spec.setProtocol(ProtocolType.valueOf((String) json.get("protocol")));
+        }
+        if (json.containsKey("trafficRates")) {
+            spec.trafficRates = values((JSONArray) json.get("trafficRates"));
+        }
+        if (json.containsKey("targetSpeedLimits")) {
+            spec.targetSpeedLimits = values((JSONArray) json.get("targetSpeedLimits"));
+        }
+        if (json.containsKey("mergeSpeedLimits")) {
+            spec.mergeSpeedLimits = values((JSONArray) json.get("mergeSpeedLimits"));
+        }
+        if (json.containsKey("targetLeadInDistances")) {
+            spec.targetLeadInDistances = values((JSONArray) json.get("targetLeadInDistances"));
+        }
+        if (json.containsKey("mergeLeadInDistances")) {
+            spec.mergeLeadInDistances = values((JSONArray) json.get("mergeLeadInDistances"));
+        }
+        if (json.containsKey("mergingAngles")) {
+            spec.mergingAngles = values((JSONArray) json.get("mergingAngles"));
+        }
+        if (json.containsKey("targetLeadOutDistance")) {
+            spec.setTargetLeadOutDistance(((Number) json.get("targetLeadOutDistance")).doubleValue());
+        }
+        if (json.containsKey("replications")) {
+            spec.setReplications(((Number) json.get("replications")).intValue());
+        }
+        if (json.containsKey("timeLimit")) {
+            spec.setTimeLimit(((Number) json.get("timeLimit")).doubleValue());
+        }
+        if (json.containsKey("seed")) {
+            spec.setSeed(((Number) json.get("seed")).longValue());
+        }
+        if (json.containsKey("scheduleDirectory")) {
+            spec.setSchedules(new File((String) json.get("scheduleDirectory")),
+                    (String) json.get("schedulePattern"));
+        }
+        return spec;
+    }
+
+    /**
+     * Format a parameter value the way it appears in file names and results:
+     * whole numbers without a fractional part.
+     *
+     * @param value  the value
+     * @return the formatted value
+     */
+    public static String formatValue(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            return Long.toString((long) value);
+        } else {
+            return Double.toString(value);
+        }
+    }
+
+    /**
+     * Copy a list of values.
+     */
+    private static List<Double> values(double... values) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("A parameter needs at least one value");
+        }
+        List<Double> list = new ArrayList<Double>(values.length);
+        for (double value : values) {
+            list.add(value);
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Copy a JSON array of numbers.
+     */
+    private static List<Double> values(JSONArray array) {
+        double[] values = new double[array.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = ((Number) array.get(i)).doubleValue();
+        }
+        return values(values);
+    }
+
+    /////////////////////////////////
+    // CONSTRUCTORS
+    /////////////////////////////////
+
+    /**
+     * Create a sweep specification in which every parameter has its default
+     * value.
+     *
+     * @param name           the name of the sweep, used to name its results
+     * @param simulatorType  the simulator to run
+     */
+    public SweepSpec(String name, SimulatorType simulatorType) {
+        this.name = name;
+        this.simulatorType = simulatorType;
+    }
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    // setters
+
+    /**
+     * Set the merging protocol of merge simulators.
+     *
+     * @param protocol  the merging protocol
+     */
+    public void setProtocol(ProtocolType protocol) {
+        this.protocol = protocol;
+    }
+
+    /**
+     * Set the traffic rates.
+     *
+     * @param trafficRates  the traffic rates, in vehicles per hour
+     */
+    public void setTrafficRates(double... trafficRates) {
+        this.trafficRates = values(trafficRates);
+    }
+
+    /**
+     * Set the speed limits of the target road.
+     *
+     * @param speedLimits  the speed limits
+     */
+    public void setTargetSpeedLimits(double... speedLimits) {
+        this.targetSpeedLimits = values(speedLimits);
+    }
+
+    /**
+     * Set the speed limits of the merging road.
+     *
+     * @param speedLimits  the speed limits
+     */
+    public void setMergeSpeedLimits(double... speedLimits) {
+        this.mergeSpeedLimits = values(speedLimits);
+    }
+
+    /**
+     * Set the lead in distances of the target road.
+     *
+     * @param leadInDistances  the lead in distances
+     */
+    public void setTargetLeadInDistances(double... leadInDistances) {
+        this.targetLeadInDistances = values(leadInDistances);
+    }
+
+    /**
+     * Set the lead in distances of the merging road.
+     *
+     * @param leadInDistances  the lead in distances
+     */
+    public void setMergeLeadInDistances(double... leadInDistances) {
+        this.mergeLeadInDistances = values(leadInDistances);
+    }
+
+    /**
+     * Set the merging angles.
+     *
+     * @param mergingAngles  the merging angles, in degrees
+     */
+    public void setMergingAngles(double... mergingAngles) {
+        this.mergingAngles = values(mergingAngles);
+    }
+
+    /**
+     * Set the lead out distance of the target road.
+     *
+     * @param targetLeadOutDistance  the lead out distance
+     */
+    public void setTargetLeadOutDistance(double targetLeadOutDistance) {
+        this.targetLeadOutDistance = targetLeadOutDistance;
+    }
+
+    /**
+     * Set the number of replications of each combination of values.
+     *
+     * @param replications  the number of replications
+     */
+    public void setReplications(int replications) {
+        if (replications < 1) {
+            throw new IllegalArgumentException("A sweep needs at least one replication");
+        }
+        this.replications = replications;
+    }
+
+    /**
+     * Set the amount of simulated time given to each run.  Runs in which
+     * vehicles remain after this time are recorded as failed.
+     *
+     * @param timeLimit  the amount of simulated time, in seconds
+     */
+    public void setTimeLimit(double timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * Set the seed from which the seed of each run is derived.
+     *
+     * @param seed  the seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Set where the spawn schedules of the runs can be found.  The pattern
+     * names the schedule of a road in a run with the placeholders of this
+     * class, e.g. <code>{road}_{trafficRate}_{replication}.json</code>, where
+     * <code>{road}</code> is the first letter of the road name and
+     * replications are numbered from one.
+     *
+     * @param scheduleDirectory  the directory of the spawn schedules
+     * @param schedulePattern    the pattern of the names of the schedules
+     */
+    public void setSchedules(File scheduleDirectory, String schedulePattern) {
+        if (schedulePattern == null) {
+            throw new IllegalArgumentException("Spawn schedules need a pattern");
+        }
+        this.scheduleDirectory = scheduleDirectory;
+        this.schedulePattern = schedulePattern;
+    }
+
+    // getters
+
+    /**
+     * Get the name of the sweep.
+     *
+     * @return the name of the sweep
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the simulator to run.
+     *
+     * @return the simulator to run
+     */
+    public SimulatorType getSimulatorType() {
+        return simulatorType;
+    }
+
+    /**
+     * Get the merging protocol of merge simulators.
+     *
+     * @return the merging protocol
+     */
+    public ProtocolType getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * Get the lead out distance of the target road.
+     *
+     * @return the lead out distance
+     */
+    public double getTargetLeadOutDistance() {
+        return targetLeadOutDistance;
+    }
+
+    /**
+     * Get the number of replications of each combination of values.
+     *
+     * @return the number of replications
+     */
+    public int getReplications() {
+        return replications;
+    }
+
+    /**
+     * Get the amount of simulated time given to each run.
+     *
+     * @return the amount of simulated time, in seconds
+     */
+    public double getTimeLimit() {
+        return timeLimit;
+    }
+
+    /**
+     * Get the seed from which the seed of each run is derived.
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the directory of the spawn schedules.
+     *
+     * @return the directory of the spawn schedules; null if the runs have no
+     *         spawn schedules
+     */
+    public File getScheduleDirectory() {
+        return scheduleDirectory;
+    }
+
+    /**
+     * Get the pattern of the names of the spawn schedules.
+     *
+     * @return the pattern of the names of the spawn schedules; null if the
+     *         runs have no spawn schedules
+     */
+    public String getSchedulePattern() {
+        return schedulePattern;
+    }
+
+    /**
+     * Whether the runs use spawn schedules.
+     *
+     * @return whether the runs use spawn schedules
+     */
+    public boolean hasSchedules() {
+        return schedulePattern != null;
+    }
+
+    // expansion
+
+    /**
+     * Expand the sweep into its runs.  The runs of a combination of values are
+     * consecutive and ordered by replication.
+     *
+     * @return the runs of the sweep
+     */
+    public List<ExperimentRun> expand() {
+        if (simulatorType == SimulatorType.AIM_MERGE_MIMIC && !hasSchedules()) {
+            throw new IllegalStateException(
+                    "Sweeps of " + simulatorType + " simulators need spawn schedules");
+        }
+        List<ExperimentRun> runs = new ArrayList<ExperimentRun>();
+        for (double trafficRate : trafficRates) {
+            for (double targetSpeedLimit : targetSpeedLimits) {
+                for (double mergeSpeedLimit : mergeSpeedLimits) {
+                    for (double targetLeadIn : targetLeadInDistances) {
+                        for (double mergeLeadIn : mergeLeadInDistances) {
+                            for (double mergingAngle : mergingAngles) {
+                                for (int i = 1; i <= replications; i++) {
+                                    runs.add(new ExperimentRun(this, i,
+                                            trafficRate,
+                                            targetSpeedLimit, mergeSpeedLimit,
+                                            targetLeadIn, mergeLeadIn,
+                                            mergingAngle));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Get the names of the parameters which take more than one value, in the
+     * order their values appear in the keys of runs.
+     *
+     * @return the names of the swept parameters
+     */
+    public List<String> getSweptParameterNames() {
+        List<String> names = new ArrayList<String>();
+        if (trafficRates.size() > 1) {
+            names.add("Traffic Rate");
+        }
+        if (mergeSpeedLimits.size() > 1) {
+            names.add("Merge Speed Limit");
+        }
+        if (targetSpeedLimits.size() > 1) {
+            names.add("Target Speed Limit");
+        }
+        if (mergeLeadInDistances.size() > 1) {
+            names.add("Merge Lead In");
+        }
+        if (targetLeadInDistances.size() > 1) {
+            names.add("Target Lead In");
+        }
+        if (mergingAngles.size() > 1) {
+            names.add("Merging Angle");
+        }
+        return names;
+    }
+
+    /**
+     * Get the values of the swept parameters of a run.
+     *
+     * @param run  the run
+     * @return the formatted values of the swept parameters, in the order of
+     *         {@link #getSweptParameterNames()}
+     */
+    List<String> getSweptParameterValues(ExperimentRun run) {
+        List<String> values = new ArrayList<String>();
+        if (trafficRates.size() > 1) {
+            values.add(formatValue(run.getTrafficRate()));
+        }
+        if (mergeSpeedLimits.size() > 1) {
+            values.add(formatValue(run.getMergeSpeedLimit()));
+        }
+        if (targetSpeedLimits.size() > 1) {
+            values.add(formatValue(run.getTargetSpeedLimit()));
+        }
+        if (mergeLeadInDistances.size() > 1) {
+            values.add(formatValue(run.getMergeLeadInDistance()));
+        }
+        if (targetLeadInDistances.size() > 1) {
+            values.add(formatValue(run.getTargetLeadInDistance()));
+        }
+        if (mergingAngles.size() > 1) {
+            values.add(formatValue(run.getMergingAngle()));
+        }
+        return values;
+    }
+
+    /**
+     * Get the JSON representation of this specification, which
+     * {@link #fromJSON(JSONObject)} turns back into an equivalent
+     * specification.
+     *
+     * @return the JSON representation
+     */
+    @SuppressWarnings("unchecked")
+    public JSONObject toJSON() {
+        JSONObject json = new JSONObject();
+        json.put("name", name);
+        json.put("simulator", simulatorType.toString());
+        json.put("protocol", protocol.toString());
+        json.put("trafficRates", toJSONArray(trafficRates));
+        json.put("targetSpeedLimits", toJSONArray(targetSpeedLimits));
+        json.put("mergeSpeedLimits", toJSONArray(mergeSpeedLimits));
+        json.put("targetLeadInDistances", toJSONArray(targetLeadInDistances));
+        json.put("mergeLeadInDistances", toJSONArray(mergeLeadInDistances));
+        json.put("mergingAngles", toJSONArray(mergingAngles));
+        json.put("targetLeadOutDistance", targetLeadOutDistance);
+        json.put("replications", (long) replications);
+        json.put("timeLimit", timeLimit);
+        json.put("seed", seed);
+        if (hasSchedules()) {
+            json.put("scheduleDirectory", scheduleDirectory.getPath());
+            json.put("schedulePattern", schedulePattern);
+        }
+        return json;
+    }
+
+    /////////////////////////////////
+    // PRIVATE METHODS
+    /////////////////////////////////
+
+    /**
+     * Convert a list of values to a JSON array.
+     */
+    @SuppressWarnings("unchecked")
+    private JSONArray toJSONArray(List<Double> values) {
+        JSONArray array = new JSONArray();
+        array.addAll(values);
+        return array;
+    }
+}
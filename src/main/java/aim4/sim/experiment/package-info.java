@@ -0,0 +1,5 @@
+/**
+ * This package contains the declarative parameter sweeps and the runner that
+ * executes their runs in parallel.
+ */
+package aim4.sim.experiment;
@@ -0,0 +1,216 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.profile;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of non-negative durations in the style of HdrHistogram.  Values
+ * are counted in buckets whose width grows with the magnitude of the value,
+ * so that every value is stored with a relative error below 1% in a fixed
+ * amount of memory.  Recording a value never allocates.
+ */
+public class LatencyHistogram {
+
+    /////////////////////////////////
+    // CONSTANTS
+    /////////////////////////////////
+
+    /**
+     * The number of bits of a value that are kept exactly.
+     */
+    private static final int SUB_BUCKET_BITS = 7;
+
+    /**
+     * The number of buckets per power of two.
+     */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The largest value that can be told apart from larger values; larger
+     * values are counted as this value.  About 2.4 hours in nanoseconds.
+     */
+    public static final long HIGHEST_TRACKABLE_VALUE = (1L << 43) - 1;
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The counts of the buckets */
+    private final long[] counts = new long[indexOf(HIGHEST_TRACKABLE_VALUE) + 1];
+    /** The number of recorded values */
+    private long totalCount;
+    /** The sum of the recorded values */
+    private long sum;
+    /** The smallest recorded value */
+    private long min = Long.MAX_VALUE;
+    /** The largest recorded value */
+    private long max;
+
+    /////////////////////////////////
+    // CLASS METHODS
+    /////////////////////////////////
+
+    /**
+     * Get the index of the bucket of a value.
+     *
+     * @param value  the value
+     * @return the index of the bucket
+     */
+    private static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    }
+
+    /**
+     * Get the largest value counted in a bucket.
+     *
+     * @param index  the index of the bucket
+     * @return the largest value counted in the bucket
+     */
+    private static long highestValueOf(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long lowest = (long) (index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Record a value.
+     *
+     * @param value  the value; negative values are recorded as zero
+     */
+    public void record(long value) {
+        long v = Math.min(Math.max(value, 0), HIGHEST_TRACKABLE_VALUE);
+        counts[indexOf(v)]++;
+        totalCount++;
+        sum += v;
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+    }
+
+    /**
+     * Get the number of recorded values.
+     *
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * Get the smallest recorded value.
+     *
+     * @return the smallest recorded value, or 0 if there is none
+     */
+    public long getMin() {
+        return (totalCount == 0) ? 0 : min;
+    }
+
+    /**
+     * Get the largest recorded value.
+     *
+     * @return the largest recorded value, or 0 if there is none
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Get the mean of the recorded values.
+     *
+     * @return the mean of the recorded values, or 0 if there is none
+     */
+    public double getMean() {
+        return (totalCount == 0) ? 0.0 : (double) sum / totalCount;
+    }
+
+    /**
+     * Get the value at a percentile: the smallest value such that the given
+     * percentage of the recorded values are less than or equal to it, to
+     * within the precision of the histogram.
+     *
+     * @param percentile  the percentile, between 0 and 100
+     * @return the value at the percentile, or 0 if there is no value
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        double p = Math.min(Math.max(percentile, 0.0), 100.0);
+        long target = Math.max(1, (long) Math.ceil(p / 100.0 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestValueOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Add the recorded values of another histogram to this histogram.
+     *
+     * @param other  the other histogram
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        if (other.totalCount > 0) {
+            totalCount += other.totalCount;
+            sum += other.sum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+    }
+
+    /**
+     * Forget all recorded values.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+}
@@ -0,0 +1,898 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.profile;
+
+import aim4.sim.results.columnar.Column;
+import aim4.sim.results.columnar.ColumnType;
+import aim4.sim.results.columnar.ColumnarWriter;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Records the wall time and the allocation of each stage of the steps of a
+ * simulator, and the number of active vehicles, delivered messages and
+ * reservations of each step.  The simulator marks the beginning of a step,
+ * the end of each stage and the end of the step; the time and the bytes
+ * allocated by the stepping thread between two marks are charged to the
+ * stage that ends at the second mark.
+ * <p>
+ * The profiler is disabled when it is created, in which case every mark
+ * returns immediately, the history is not allocated and the virtual machine
+ * is not asked to count allocation.  When enabled, each mark reads the clock
+ * and the allocation counter of the thread once, and nothing is allocated
+ * except when the history of steps is queried.  The time of each stage is kept in
+ * a {@link LatencyHistogram}, and the most recent steps are kept in a
+ * bounded history.
+ */
+public class StepProfiler implements StepProfilerMXBean {
+
+    /////////////////////////////////
+    // CONSTANTS
+    /////////////////////////////////
+
+    /**
+     * The default number of steps kept in the history.
+     */
+    public static final int DEFAULT_HISTORY_SIZE = 10000;
+
+    /**
+     * The stages, in order.
+     */
+    private static final StepStage[] STAGES = StepStage.values();
+
+    /**
+     * The thread management bean used to read the allocation counters of
+     * threads, or null if the virtual machine cannot count allocation.
+     */
+    private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN =
+            findAllocationBean();
+
+    /**
+     * Whether the allocation counters of threads have been turned on by an
+     * enabled profiler.
+     */
+    private static volatile boolean allocationCounted;
+
+    /////////////////////////////////
+    // NESTED CLASSES
+    /////////////////////////////////
+
+    /**
+     * The profile of a single step.
+     */
+    public static class StepRecord {
+        /** The simulation time at the end of the step */
+        private final double time;
+        /** The number of active vehicles at the end of the step */
+        private final int activeVehicles;
+        /** The number of messages delivered in the step */
+        private final int messagesDelivered;
+        /** The number of reservations made in the step */
+        private final int reservationsMade;
+        /** The number of reservation requests rejected in the step */
+        private final int reservationsRejected;
+        /** The time spent in each stage, in nanoseconds */
+        private final long[] stageNanos;
+        /** The number of bytes allocated in the step */
+        private final long allocatedBytes;
+
+        /**
+         * Create the profile of a step.
+         *
+         * @param time                  the simulation time at the end of
+         *                              the step
+         * @param activeVehicles        the number of active vehicles
+         * @param messagesDelivered     the number of messages delivered
+         * @param reservationsMade      the number of reservations made
+         * @param reservationsRejected  the number of requests rejected
+         * @param stageNanos            the time spent in each stage
+         * @param allocatedBytes        the number of bytes allocated
+         */
+        private StepRecord(double time, int activeVehicles, int messagesDelivered,
+                           int reservationsMade, int reservationsRejected,
+                           long[] stageNanos, long allocatedBytes) {
+            this.time = time;
+            this.activeVehicles = activeVehicles;
+            this.messagesDelivered = messagesDelivered;
+            this.reservationsMade = reservationsMade;
+            this.reservationsRejected = reservationsRejected;
+            this.stageNanos = stageNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        /**
+         * Get the simulation time at the end of the step.
+         *
+         * @return the simulation time at the end of the step
+         */
+        public double getTime() {
+            return time;
+        }
+
+        /**
+         * Get the number of active vehicles at the end of the step.
+         *
+         * @return the number of active vehicles
+         */
+        public int getActiveVehicles() {
+            return activeVehicles;
+        }
+
+        /**
+         * Get the number of messages delivered in the step.
+         *
+         * @return the number of messages delivered
+         */
+        public int getMessagesDelivered() {
+            return messagesDelivered;
+        }
+
+        /**
+         * Get the number of reservations made in the step.
+         *
+         * @return the number of reservations made
+         */
+        public int getReservationsMade() {
+            return reservationsMade;
+        }
+
+        /**
+         * Get the number of reservation requests rejected in the step.
+         *
+         * @return the number of reservation requests rejected
+         */
+        public int getReservationsRejected() {
+            return reservationsRejected;
+        }
+
+        /**
+         * Get the time spent in a stage of the step.
+         *
+         * @param stage  the stage
+         * @return the time spent in the stage, in nanoseconds
+         */
+        public long getStageNanos(StepStage stage) {
+            return stageNanos[stage.ordinal()];
+        }
+
+        /**
+         * Get the time of the step.
+         *
+         * @return the time of the step, in nanoseconds
+         */
+        public long getNanos() {
+            long nanos = 0;
+            for (long n : stageNanos) {
+                nanos += n;
+            }
+            return nanos;
+        }
+
+        /**
+         * Get the number of bytes allocated in the step.
+         *
+         * @return the number of bytes allocated, or -1 if allocation is not
+         *         tracked
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** Whether the profiler records the steps */
+    private volatile boolean enabled;
+    /** Whether the current step is being recorded */
+    private boolean recording;
+    /** The time of the last mark */
+    private long lastNanos;
+    /** The allocation counter of the stepping thread at the last mark */
+    private long lastBytes;
+    /** The allocation counter of the stepping thread at the start of the step */
+    private long stepStartBytes;
+
+    /** The time spent in each stage in the current step */
+    private final long[] stepStageNanos = new long[STAGES.length];
+    /** The number of messages delivered in the current step */
+    private int stepMessages;
+    /** The number of reservations made in the current step */
+    private int stepReservationsMade;
+    /** The number of reservation requests rejected in the current step */
+    private int stepReservationsRejected;
+
+    /** The number of recorded steps */
+    private long stepCount;
+    /** The total time spent in each stage */
+    private final long[] totalNanos = new long[STAGES.length];
+    /** The total number of bytes allocated in each stage */
+    private final long[] totalBytes = new long[STAGES.length];
+    /** The histograms of the time spent in each stage per step */
+    private final LatencyHistogram[] stageHistograms = new LatencyHistogram[STAGES.length];
+    /** The histogram of the time of a step */
+    private final LatencyHistogram stepHistogram = new LatencyHistogram();
+    /** The number of active vehicles at the end of the last step */
+    private int activeVehicles;
+    /** The total number of messages delivered */
+    private long messagesDelivered;
+    /** The total number of reservations made */
+    private long reservationsMade;
+    /** The total number of reservation requests rejected */
+    private long reservationsRejected;
+
+    /** The number of steps kept in the history */
+    private final int historySize;
+    /** The simulation time at the end of each step in the history */
+    private double[] historyTime;
+    /** The number of active vehicles of each step in the history */
+    private int[] historyActiveVehicles;
+    /** The number of messages delivered in each step in the history */
+    private int[] historyMessages;
+    /** The number of reservations made in each step in the history */
+    private int[] historyReservationsMade;
+    /** The number of requests rejected in each step in the history */
+    private int[] historyReservationsRejected;
+    /** The time spent in each stage of each step in the history */
+    private long[][] historyStageNanos;
+    /** The number of bytes allocated in each step in the history */
+    private long[] historyBytes;
+    /** The index in the history of the next step */
+    private int historyNext;
+
+    /** The name under which the profiler is registered as an MBean */
+    private ObjectName objectName;
+
+    /////////////////////////////////
+    // CLASS METHODS
+    /////////////////////////////////
+
+    /**
+     * Find the thread management bean if it can count the bytes allocated by
+     * a thread.  The counting is not turned on.
+     *
+     * @return the thread management bean, or null if allocation cannot be
+     *         counted
+     */
+    private static com.sun.management.ThreadMXBean findAllocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported()) {
+                return sunBean;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Turn on the allocation counters of threads, which is a setting of the
+     * whole virtual machine, if the virtual machine can count allocation.
+     */
+    private static synchronized void countAllocation() {
+        if (ALLOCATION_BEAN == null || allocationCounted) {
+            return;
+        }
+        try {
+            ALLOCATION_BEAN.setThreadAllocatedMemoryEnabled(true);
+            allocationCounted = true;
+        } catch (UnsupportedOperationException e) {
+            // allocation is not counted
+        }
+    }
+
+    /**
+     * Get the number of bytes allocated by the calling thread so far.
+     *
+     * @return the number of bytes, or 0 if allocation is not counted
+     */
+    private static long allocatedBytes() {
+        return allocationCounted
+                ? ALLOCATION_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId())
+                : 0;
+    }
+
+    /**
+     * Whether the bytes allocated in each stage are counted.  Allocation is
+     * counted once a profiler has been enabled, if the virtual machine can
+     * count it.
+     *
+     * @return whether allocation is counted
+     */
+    public static boolean isAllocationTracked() {
+        return allocationCounted;
+    }
+
+    /////////////////////////////////
+    // CONSTRUCTORS
+    /////////////////////////////////
+
+    /**
+     * Create a disabled profiler that keeps the default number of steps in
+     * its history.
+     */
+    public StepProfiler() {
+        this(DEFAULT_HISTORY_SIZE);
+    }
+
+    /**
+     * Create a disabled profiler.  The history is allocated when the
+     * profiler is first enabled.
+     *
+     * @param historySize  the number of steps kept in the history
+     */
+    public StepProfiler(int historySize) {
+        if (historySize <= 0) {
+            throw new IllegalArgumentException("historySize must be positive: " + historySize);
+        }
+        for (int i = 0; i < STAGES.length; i++) {
+            stageHistograms[i] = new LatencyHistogram();
+        }
+        this.historySize = historySize;
+    }
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    // recording
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The change takes effect at the beginning of the next step.  Enabling
+     * the profiler allocates its history and turns on the allocation
+     * counters of threads.
+     */
+    @Override
+    public synchronized void setEnabled(boolean enabled) {
+        if (enabled) {
+            countAllocation();
+            if (historyTime == null) {
+                historyTime = new double[historySize];
+                historyActiveVehicles = new int[historySize];
+                historyMessages = new int[historySize];
+                historyReservationsMade = new int[historySize];
+                historyReservationsRejected = new int[historySize];
+                historyStageNanos = new long[historySize][STAGES.length];
+                historyBytes = new long[historySize];
+            }
+        }
+        this.enabled = enabled;
+    }
+
+    /**
+     * Mark the beginning of a step.
+     */
+    public synchronized void beginStep() {
+        recording = enabled;
+        if (!recording) {
+            return;
+        }
+        for (int i = 0; i < stepStageNanos.length; i++) {
+            stepStageNanos[i] = 0;
+        }
+        stepMessages = 0;
+        stepReservationsMade = 0;
+        stepReservationsRejected = 0;
+        lastBytes = allocatedBytes();
+        stepStartBytes = lastBytes;
+        lastNanos = System.nanoTime();
+    }
+
+    /**
+     * Mark the end of a stage of the current step.  The time and allocation
+     * since the previous mark are charged to the stage.
+     *
+     * @param stage  the stage that has ended
+     */
+    public synchronized void endStage(StepStage stage) {
+        if (!recording) {
+            return;
+        }
+        long now = System.nanoTime();
+        long bytes = allocatedBytes();
+        int i = stage.ordinal();
+        long nanos = now - lastNanos;
+        stepStageNanos[i] += nanos;
+        totalNanos[i] += nanos;
+        totalBytes[i] += bytes - lastBytes;
+        stageHistograms[i].record(nanos);
+        lastBytes = bytes;
+        // exclude the cost of the bookkeeping from the next stage
+        lastNanos = System.nanoTime();
+    }
+
+    /**
+     * Count a message delivered in the current step.
+     */
+    public synchronized void countMessageDelivered() {
+        if (recording) {
+            stepMessages++;
+        }
+    }
+
+    /**
+     * Count a number of messages delivered in the current step.
+     *
+     * @param n  the number of messages
+     */
+    public synchronized void countMessagesDelivered(int n) {
+        if (recording) {
+            stepMessages += n;
+        }
+    }
+
+    /**
+     * Count a reservation made in the current step.
+     */
+    public synchronized void countReservationMade() {
+        if (recording) {
+            stepReservationsMade++;
+        }
+    }
+
+    /**
+     * Count a reservation request rejected in the current step.
+     */
+    public synchronized void countReservationRejected() {
+        if (recording) {
+            stepReservationsRejected++;
+        }
+    }
+
+    /**
+     * Mark the end of the current step, which must follow the end of its
+     * last stage.
+     *
+     * @param time            the simulation time at the end of the step
+     * @param activeVehicles  the number of active vehicles at the end of
+     *                        the step
+     */
+    public synchronized void endStep(double time, int activeVehicles) {
+        if (!recording) {
+            return;
+        }
+        recording = false;
+        long stepNanos = 0;
+        for (long nanos : stepStageNanos) {
+            stepNanos += nanos;
+        }
+        stepHistogram.record(stepNanos);
+        stepCount++;
+        this.activeVehicles = activeVehicles;
+        messagesDelivered += stepMessages;
+        reservationsMade += stepReservationsMade;
+        reservationsRejected += stepReservationsRejected;
+
+        int h = historyNext;
+        historyTime[h] = time;
+        historyActiveVehicles[h] = activeVehicles;
+        historyMessages[h] = stepMessages;
+        historyReservationsMade[h] = stepReservationsMade;
+        historyReservationsRejected[h] = stepReservationsRejected;
+        System.arraycopy(stepStageNanos, 0, historyStageNanos[h], 0, stepStageNanos.length);
+        historyBytes[h] = isAllocationTracked() ? lastBytes - stepStartBytes : -1;
+        historyNext = (h + 1) % historySize;
+    }
+
+    // queries
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized long getStepCount() {
+        return stepCount;
+    }
+
+    /**
+     * Get the total time spent in a stage.
+     *
+     * @param stage  the stage
+     * @return the total time spent in the stage, in nanoseconds
+     */
+    public synchronized long getTotalNanos(StepStage stage) {
+        return totalNanos[stage.ordinal()];
+    }
+
+    /**
+     * Get the total number of bytes allocated in a stage.
+     *
+     * @param stage  the stage
+     * @return the number of bytes allocated in the stage, or -1 if
+     *         allocation is not tracked
+     */
+    public synchronized long getAllocatedBytes(StepStage stage) {
+        return isAllocationTracked() ? totalBytes[stage.ordinal()] : -1;
+    }
+
+    /**
+     * Get a copy of the histogram of the time spent in a stage per step, in
+     * nanoseconds.
+     *
+     * @param stage  the stage
+     * @return the histogram of the time spent in the stage
+     */
+    public synchronized LatencyHistogram getHistogram(StepStage stage) {
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.add(stageHistograms[stage.ordinal()]);
+        return copy;
+    }
+
+    /**
+     * Get a copy of the histogram of the time of a step, in nanoseconds.
+     *
+     * @return the histogram of the time of a step
+     */
+    public synchronized LatencyHistogram getStepHistogram() {
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.add(stepHistogram);
+        return copy;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized int getActiveVehicles() {
+        return activeVehicles;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized long getMessagesDelivered() {
+        return messagesDelivered;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized long getReservationsMade() {
+        return reservationsMade;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized long getReservationsRejected() {
+        return reservationsRejected;
+    }
+
+    /**
+     * Get the profiles of the most recent steps, oldest first.
+     *
+     * @return the profiles of the steps in the history
+     */
+    public synchronized List<StepRecord> getHistory() {
+        int size = (int) Math.min(stepCount, historySize);
+        List<StepRecord> history = new ArrayList<StepRecord>(size);
+        int start = (historyNext - size + historySize) % historySize;
+        for (int k = 0; k < size; k++) {
+            int h = (start + k) % historySize;
+            history.add(new StepRecord(historyTime[h], historyActiveVehicles[h],
+                    historyMessages[h], historyReservationsMade[h],
+                    historyReservationsRejected[h], historyStageNanos[h].clone(),
+                    historyBytes[h]));
+        }
+        return history;
+    }
+
+    /**
+     * Get the profile of the last recorded step.
+     *
+     * @return the profile of the last step, or null if no step is recorded
+     */
+    public synchronized StepRecord getLastStep() {
+        List<StepRecord> history = getHistory();
+        return history.isEmpty() ? null : history.get(history.size() - 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void reset() {
+        for (int i = 0; i < STAGES.length; i++) {
+            totalNanos[i] = 0;
+            totalBytes[i] = 0;
+            stageHistograms[i].reset();
+        }
+        stepHistogram.reset();
+        stepCount = 0;
+        activeVehicles = 0;
+        messagesDelivered = 0;
+        reservationsMade = 0;
+        reservationsRejected = 0;
+        historyNext = 0;
+    }
+
+    // JMX
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String[] getStageNames() {
+        String[] names = new String[STAGES.length];
+        for (int i = 0; i < STAGES.length; i++) {
+            names[i] = STAGES[i].name();
+        }
+        return names;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized double[] getStageTotalMillis() {
+        double[] millis = new double[STAGES.length];
+        for (int i = 0; i < STAGES.length; i++) {
+            millis[i] = totalNanos[i] / 1e6;
+        }
+        return millis;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized double[] getStageMeanMicros() {
+        double[] micros = new double[STAGES.length];
+        for (int i = 0; i < STAGES.length; i++) {
+            micros[i] = stageHistograms[i].getMean() / 1e3;
+        }
+        return micros;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized double[] getStageP99Micros() {
+        double[] micros = new double[STAGES.length];
+        for (int i = 0; i < STAGES.length; i++) {
+            micros[i] = stageHistograms[i].getValueAtPercentile(99.0) / 1e3;
+        }
+        return micros;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized long[] getStageAllocatedBytes() {
+        long[] bytes = new long[STAGES.length];
+        for (int i = 0; i < STAGES.length; i++) {
+            bytes[i] = getAllocatedBytes(STAGES[i]);
+        }
+        return bytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized double getStepMeanMicros() {
+        return stepHistogram.getMean() / 1e3;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized double getStepP99Micros() {
+        return stepHistogram.getValueAtPercentile(99.0) / 1e3;
+    }
+
+    /**
+     * Register the profiler with the platform MBean server under the name
+     * <code>aim4:type=StepProfiler,name=</code><i>name</i>.
+     *
+     * @param name  the name of the profiler
+     * @return the name under which the profiler is registered
+     * @throws JMException if the profiler cannot be registered
+     */
+    public synchronized ObjectName registerMBean(String name) throws JMException {
+        unregisterMBean();
+        ObjectName on = new ObjectName("aim4:type=StepProfiler,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, on);
+        objectName = on;
+        return on;
+    }
+
+    /**
+     * Unregister the profiler from the platform MBean server if it is
+     * registered.
+     *
+     * @throws JMException if the profiler cannot be unregistered
+     */
+    public synchronized void unregisterMBean() throws JMException {
+        if (objectName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            objectName = null;
+        }
+    }
+
+    // CSV
+
+    /**
+     * Write the statistics of each stage, and of the whole step, as CSV.
+     * Times are in microseconds.
+     *
+     * @param out  where to write the CSV
+     * @throws IOException if the CSV cannot be written
+     */
+    public synchronized void writeSummaryCSV(Appendable out) throws IOException {
+        out.append("Stage,Count,Total (ms),Mean (us),P50 (us),P90 (us),P99 (us),Max (us),"
+                + "Allocated (bytes)\n");
+        for (StepStage stage : STAGES) {
+            appendSummaryRow(out, stage.name(), stageHistograms[stage.ordinal()],
+                    totalNanos[stage.ordinal()], getAllocatedBytes(stage));
+        }
+        long stepNanos = 0;
+        long stepBytes = 0;
+        for (StepStage stage : STAGES) {
+            stepNanos += totalNanos[stage.ordinal()];
+            stepBytes += totalBytes[stage.ordinal()];
+        }
+        appendSummaryRow(out, "STEP", stepHistogram, stepNanos,
+                isAllocationTracked() ? stepBytes : -1);
+    }
+
+    /**
+     * Write the profiles of the steps in the history as CSV, one row per
+     * step.  Times are in microseconds.
+     *
+     * @param out  where to write the CSV
+     * @throws IOException if the CSV cannot be written
+     */
+    public synchronized void writeStepsCSV(Appendable out) throws IOException {
+        out.append("Time,Active Vehicles,Messages Delivered,Reservations Made,"
+                + "Reservations Rejected,Step (us)");
+        for (StepStage stage : STAGES) {
+            out.append(',').append(stage.name()).append(" (us)");
+        }
+        out.append(",Allocated (bytes)\n");
+        for (StepRecord record : getHistory()) {
+            out.append(String.format(Locale.ROOT, "%.2f,%d,%d,%d,%d,%.3f", record.getTime(),
+                    record.getActiveVehicles(), record.getMessagesDelivered(),
+                    record.getReservationsMade(), record.getReservationsRejected(),
+                    record.getNanos() / 1e3));
+            for (StepStage stage : STAGES) {
+                out.append(String.format(Locale.ROOT, ",%.3f",
+                        record.getStageNanos(stage) / 1e3));
+            }
+            out.append(',').append(Long.toString(record.getAllocatedBytes())).append('\n');
+        }
+    }
+
+    // COLUMNAR
+
+    /**
+     * Get the columns of the profiles of the steps in a columnar file: the
+     * columns of {@link #writeStepsCSV}, with times in nanoseconds.
+     *
+     * @return the columns of the profiles of the steps
+     */
+    public static List<Column> getStepColumns() {
+        List<Column> columns = new ArrayList<Column>();
+        columns.add(new Column("Time", ColumnType.DOUBLE));
+        columns.add(new Column("Active Vehicles", ColumnType.INT));
+        columns.add(new Column("Messages Delivered", ColumnType.INT));
+        columns.add(new Column("Reservations Made", ColumnType.INT));
+        columns.add(new Column("Reservations Rejected", ColumnType.INT));
+        columns.add(new Column("Step (ns)", ColumnType.LONG));
+        for (StepStage stage : STAGES) {
+            columns.add(new Column(stage.name() + " (ns)", ColumnType.LONG));
+        }
+        columns.add(new Column("Allocated (bytes)", ColumnType.LONG));
+        return columns;
+    }
+
+    /**
+     * Write the profiles of the steps in the history to a columnar file, one
+     * row per step.  The writer must have the columns of
+     * {@link #getStepColumns()}; it is not closed.
+     *
+     * @param out  the writer of the columnar file
+     * @throws IOException if the rows cannot be written
+     */
+    public synchronized void writeSteps(ColumnarWriter out) throws IOException {
+        if (!out.getColumns().equals(getStepColumns())) {
+            throw new IllegalArgumentException("Not the columns of the steps: " + out.getColumns());
+        }
+        for (StepRecord record : getHistory()) {
+            out.setDouble(0, record.getTime());
+            out.setInt(1, record.getActiveVehicles());
+            out.setInt(2, record.getMessagesDelivered());
+            out.setInt(3, record.getReservationsMade());
+            out.setInt(4, record.getReservationsRejected());
+            out.setLong(5, record.getNanos());
+            for (StepStage stage : STAGES) {
+                out.setLong(6 + stage.ordinal(), record.getStageNanos(stage));
+            }
+            out.setLong(6 + STAGES.length, record.getAllocatedBytes());
+            out.endRow();
+        }
+    }
+
+    /////////////////////////////////
+    // PRIVATE METHODS
+    /////////////////////////////////
+
+    /**
+     * Write a row of the summary CSV.
+     *
+     * @param out             where to write the row
+     * @param name            the name of the row
+     * @param histogram       the histogram of the times of the row
+     * @param totalNanos      the total time of the row
+     * @param allocatedBytes  the number of bytes allocated
+     * @throws IOException if the row cannot be written
+     */
+    private static void appendSummaryRow(Appendable out, String name,
+                                         LatencyHistogram histogram,
+                                         long totalNanos, long allocatedBytes)
+            throws IOException {
+        out.append(String.format(Locale.ROOT,
+                "%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%d\n", name,
+                histogram.getCount(), totalNanos / 1e6, histogram.getMean() / 1e3,
+                histogram.getValueAtPercentile(50) / 1e3,
+                histogram.getValueAtPercentile(90) / 1e3,
+                histogram.getValueAtPercentile(99) / 1e3,
+                histogram.getMax() / 1e3, allocatedBytes));
+    }
+}
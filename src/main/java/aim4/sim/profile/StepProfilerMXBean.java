@@ -0,0 +1,144 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.profile;
+
+/**
+ * The management interface of a {@link StepProfiler}, through which the
+ * profile of a running simulation can be watched with a JMX console.  The
+ * arrays of stage statistics are in the order of {@link #getStageNames()}.
+ */
+public interface StepProfilerMXBean {
+
+    /**
+     * Whether the profiler records the steps.
+     *
+     * @return whether the profiler records the steps
+     */
+    boolean isEnabled();
+
+    /**
+     * Set whether the profiler records the steps.
+     *
+     * @param enabled  whether the profiler records the steps
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Get the number of recorded steps.
+     *
+     * @return the number of recorded steps
+     */
+    long getStepCount();
+
+    /**
+     * Get the names of the stages.
+     *
+     * @return the names of the stages
+     */
+    String[] getStageNames();
+
+    /**
+     * Get the total time spent in each stage, in milliseconds.
+     *
+     * @return the total time spent in each stage
+     */
+    double[] getStageTotalMillis();
+
+    /**
+     * Get the mean time spent in each stage per step, in microseconds.
+     *
+     * @return the mean time spent in each stage per step
+     */
+    double[] getStageMeanMicros();
+
+    /**
+     * Get the 99th percentile of the time spent in each stage per step, in
+     * microseconds.
+     *
+     * @return the 99th percentile of the time spent in each stage
+     */
+    double[] getStageP99Micros();
+
+    /**
+     * Get the number of bytes allocated in each stage.
+     *
+     * @return the number of bytes allocated in each stage, or -1 for every
+     *         stage if allocation is not tracked
+     */
+    long[] getStageAllocatedBytes();
+
+    /**
+     * Get the mean time of a step, in microseconds.
+     *
+     * @return the mean time of a step
+     */
+    double getStepMeanMicros();
+
+    /**
+     * Get the 99th percentile of the time of a step, in microseconds.
+     *
+     * @return the 99th percentile of the time of a step
+     */
+    double getStepP99Micros();
+
+    /**
+     * Get the number of active vehicles at the end of the last step.
+     *
+     * @return the number of active vehicles at the end of the last step
+     */
+    int getActiveVehicles();
+
+    /**
+     * Get the number of messages delivered in all recorded steps.
+     *
+     * @return the number of messages delivered
+     */
+    long getMessagesDelivered();
+
+    /**
+     * Get the number of reservations made in all recorded steps.
+     *
+     * @return the number of reservations made
+     */
+    long getReservationsMade();
+
+    /**
+     * Get the number of reservation requests rejected in all recorded steps.
+     *
+     * @return the number of reservation requests rejected
+     */
+    long getReservationsRejected();
+
+    /**
+     * Forget all recorded steps.
+     */
+    void reset();
+}
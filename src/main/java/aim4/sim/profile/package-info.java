@@ -0,0 +1,6 @@
+/**
+ * This package contains the profiler of the stages of a simulation step,
+ * which records the time and allocation of each stage and the traffic of
+ * each step without attaching an external profiler.
+ */
+package aim4.sim.profile;
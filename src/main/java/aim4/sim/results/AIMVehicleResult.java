@@ -3,7 +3,7 @@ package aim4.sim.results;
 /**
  * Created by Callum on 21/04/2017.
  */
-public class AIMVehicleResult {
+public class AIMVehicleResult implements VehicleResult {
     private int vin;
     private String startingRoad;
     private String specType;
@@ -31,83 +31,70 @@ public class CoreMergeResult implements SimulatorResult {
 
     public CoreMergeResult(List<CoreMergeVehicleResult> vehicleResults) {
         this.vehicleResults = vehicleResults;
-        List<CoreMergeVehicleResult> targetVehicleResults = new ArrayList<CoreMergeVehicleResult>();
-        List<CoreMergeVehicleResult> mergeVehicleResults = new ArrayList<CoreMergeVehicleResult>();
-
-        this.completedVehicles = 0;
-        this.completedMergeVehicles = 0;
-        this.completedTargetVehicles = 0;
-        double lastVehicleTime = 0;
-        double lastTargetVehicleTime = 0;
-        double lastMergeVehicleTime = 0;
-
-        this.maxDelay = Double.MIN_VALUE;
-        this.maxTargetDelay = Double.MIN_VALUE;
-        this.maxMergeDelay = Double.MIN_VALUE;
-        this.minDelay = Double.MAX_VALUE;
-        this.minTargetDelay = Double.MAX_VALUE;
-        this.minMergeDelay = Double.MAX_VALUE;
-        double totalDelay = 0;
-        double totalTargetDelay = 0;
-        double totalMergeDelay = 0;
-
+        DelayStatistics statistics = new DelayStatistics();
+        DelayStatistics targetStatistics = new DelayStatistics();
+        DelayStatistics mergeStatistics = new DelayStatistics();
         for(CoreMergeVehicleResult result : vehicleResults) {
             //Split Vehicles
-            if(result.getStartingRoad() == RoadNames.TARGET_ROAD.toString()) {
-                targetVehicleResults.add(result);
-                //Completed Vehicles
-                this.completedTargetVehicles++;
-                //Throughput Help
-                if(lastTargetVehicleTime < result.getFinishTime())
-                    lastTargetVehicleTime = result.getFinishTime();
-                //Delay
-                if(maxTargetDelay < result.getDelayTime())
-                    maxTargetDelay = result.getDelayTime();
-                if(minTargetDelay > result.getDelayTime())
-                    minTargetDelay = result.getDelayTime();
-                totalTargetDelay += result.getDelayTime();
-
-            }
-            else if(result.getStartingRoad() == RoadNames.MERGING_ROAD.toString()) {
-                mergeVehicleResults.add(result);
-                //Completed Vehicles
-                this.completedMergeVehicles++;
-                //Throughput Help
-                if(lastMergeVehicleTime < result.getFinishTime())
-                    lastMergeVehicleTime = result.getFinishTime();
-                //Delay
-                if(maxMergeDelay < result.getDelayTime())
-                    maxMergeDelay = result.getDelayTime();
-                if(minMergeDelay > result.getDelayTime())
-                    minMergeDelay = result.getDelayTime();
-                totalMergeDelay += result.getDelayTime();
-            }
-            //Completed Vehicles
-            this.completedVehicles++;
-            //Throughput Help
-            if(lastVehicleTime < result.getFinishTime())
-                lastVehicleTime = result.getFinishTime();
-            //Delay
-            if(maxDelay < result.getDelayTime())
-                maxDelay = result.getDelayTime();
-            if(minDelay > result.getDelayTime())
-                minDelay = result.getDelayTime();
-            totalDelay += result.getDelayTime();
+            if(RoadNames.TARGET_ROAD.toString().equals(result.getStartingRoad()))
+                targetStatistics.add(result.getDelayTime(), result.getFinishTime());
+            else if(RoadNames.MERGING_ROAD.toString().equals(result.getStartingRoad()))
+                mergeStatistics.add(result.getDelayTime(), result.getFinishTime());
+            statistics.add(result.getDelayTime(), result.getFinishTime());
+        }
+        //Std. Dev Delay, in a second pass as it has always been computed
+        for(CoreMergeVehicleResult result : vehicleResults) {
+            if(RoadNames.TARGET_ROAD.toString().equals(result.getStartingRoad()))
+                targetStatistics.addDeviation(result.getDelayTime());
+            else if(RoadNames.MERGING_ROAD.toString().equals(result.getStartingRoad()))
+                mergeStatistics.addDeviation(result.getDelayTime());
+            statistics.addDeviation(result.getDelayTime());
         }
+        setStatistics(statistics, targetStatistics, mergeStatistics);
+    }
+
+    /**
+     * Create a result from the running statistics of the vehicles, without
+     * the vehicles themselves, e.g. when they have been streamed to a file by
+     * a {@link VehicleResultsWriter}.
+     */
+    public CoreMergeResult(DelayStatistics statistics,
+                   DelayStatistics targetStatistics,
+                   DelayStatistics mergeStatistics) {
+        this.vehicleResults = new ArrayList<CoreMergeVehicleResult>();
+        setStatistics(statistics, targetStatistics, mergeStatistics);
+    }
+
+    private void setStatistics(DelayStatistics statistics,
+                               DelayStatistics targetStatistics,
+                               DelayStatistics mergeStatistics) {
+        //Completed Vehicles
+        this.completedVehicles = statistics.getCount();
+        this.completedTargetVehicles = targetStatistics.getCount();
+        this.completedMergeVehicles = mergeStatistics.getCount();
+
+        //Delay
+        this.maxDelay = statistics.getMaxDelay();
+        this.maxTargetDelay = targetStatistics.getMaxDelay();
+        this.maxMergeDelay = mergeStatistics.getMaxDelay();
+        this.minDelay = statistics.getMinDelay();
+        this.minTargetDelay = targetStatistics.getMinDelay();
+        this.minMergeDelay = mergeStatistics.getMinDelay();
+
         //Average Delay
-        this.averageDelay = totalDelay / completedVehicles;
-        this.averageTargetDelay = totalTargetDelay / completedTargetVehicles;
-        this.averageMergeDelay = totalMergeDelay / completedMergeVehicles;
+        this.averageDelay = statistics.getAverageDelay();
+        this.averageTargetDelay = targetStatistics.getAverageDelay();
+        this.averageMergeDelay = mergeStatistics.getAverageDelay();
 
         //Std. Dev Delay
-        this.stdDevDelay = calculateStdDeviationDelay(vehicleResults, averageDelay);
-        this.stdDevTargetDelay = calculateStdDeviationDelay(targetVehicleResults, averageTargetDelay);
-        this.stdDevMergeDelay = calculateStdDeviationDelay(mergeVehicleResults, averageMergeDelay);
+        this.stdDevDelay = statistics.getStdDevDelay();
+        this.stdDevTargetDelay = targetStatistics.getStdDevDelay();
+        this.stdDevMergeDelay = mergeStatistics.getStdDevDelay();
 
         //Throughput
-        this.throughput = completedVehicles / lastVehicleTime;
-        this.throughputTarget = completedTargetVehicles / lastTargetVehicleTime;
-        this.throughputMerge = completedMergeVehicles / lastMergeVehicleTime;
+        this.throughput = statistics.getThroughput();
+        this.throughputTarget = targetStatistics.getThroughput();
+        this.throughputMerge = mergeStatistics.getThroughput();
     }
 
     public List<CoreMergeVehicleResult> getVehicleResults() {
@@ -334,16 +321,4 @@ public class CoreMergeResult implements SimulatorResult {
         }
         return sb.toString();
     }
-
-    private double calculateStdDeviationDelay(List<CoreMergeVehicleResult> results, double mean) {
-        double variance = 0;
-
-        double temp = 0;
-        for(CoreMergeVehicleResult result : results) {
-            temp += (result.getDelayTime() - mean)*(result.getDelayTime() - mean);
-        }
-        variance = temp / results.size();
-
-        return Math.sqrt(variance);
-    }
 }
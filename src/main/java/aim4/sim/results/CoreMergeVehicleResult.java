@@ -3,7 +3,7 @@ package aim4.sim.results;
 /**
  * Created by Callum on 21/04/2017.
  */ //Nested Class
-public class CoreMergeVehicleResult {
+public class CoreMergeVehicleResult implements VehicleResult {
     private int vin;
     private String startingRoad;
     private String specType;
@@ -0,0 +1,111 @@
+package aim4.sim.results;
+
+/**
+ * Running statistics of the delays and finish times of a group of completed
+ * vehicles, updated one vehicle at a time without keeping the vehicles.  The
+ * variance is kept with Welford's method, so it stays accurate over runs of
+ * any length, and the average is the running total over the count, as the
+ * results have always computed it.
+ * <p>
+ * Welford's standard deviation can differ in the last bits from the two-pass
+ * one that the results have always computed from the vehicles.  When the
+ * delays can be read again, a second pass with {@link #addDeviation(double)}
+ * gives exactly the two-pass standard deviation.
+ */
+public class DelayStatistics {
+    //STATISTICS//
+    private int count;
+    private double maxDelay;
+    private double minDelay;
+    private double totalDelay;
+    private double runningMean;
+    private double sumOfSquaredDeviations;
+    private double lastFinishTime;
+    //SECOND PASS//
+    private int secondPassCount;
+    private double secondPassSquares;
+
+    public DelayStatistics() {
+        this.count = 0;
+        this.maxDelay = Double.MIN_VALUE;
+        this.minDelay = Double.MAX_VALUE;
+        this.totalDelay = 0;
+        this.runningMean = 0;
+        this.sumOfSquaredDeviations = 0;
+        this.lastFinishTime = 0;
+        this.secondPassCount = 0;
+        this.secondPassSquares = 0;
+    }
+
+    /**
+     * Add a completed vehicle.
+     *
+     * @param delay      the delay of the vehicle
+     * @param finishTime the time at which the vehicle completed
+     */
+    public void add(double delay, double finishTime) {
+        count++;
+        if(lastFinishTime < finishTime)
+            lastFinishTime = finishTime;
+        if(maxDelay < delay)
+            maxDelay = delay;
+        if(minDelay > delay)
+            minDelay = delay;
+        totalDelay += delay;
+
+        double deviation = delay - runningMean;
+        runningMean += deviation / count;
+        sumOfSquaredDeviations += deviation * (delay - runningMean);
+    }
+
+    /**
+     * Add a delay in a second pass over the delays, in the order in which they
+     * were added.  Once every delay has been added again, the standard
+     * deviation is the two-pass one, <code>sqrt(sum((x - mean)^2) / n)</code>.
+     *
+     * @param delay the delay of the vehicle
+     */
+    public void addDeviation(double delay) {
+        double mean = getAverageDelay();
+        secondPassCount++;
+        secondPassSquares += (delay - mean)*(delay - mean);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getMaxDelay() {
+        return maxDelay;
+    }
+
+    public double getMinDelay() {
+        return minDelay;
+    }
+
+    public double getAverageDelay() {
+        return totalDelay / count;
+    }
+
+    /**
+     * Get the population standard deviation of the delays: the two-pass one
+     * if a second pass has covered every delay, or else Welford's.
+     *
+     * @return the standard deviation of the delays, NaN if there are none
+     */
+    public double getStdDevDelay() {
+        if(secondPassCount == count)
+            return Math.sqrt(secondPassSquares / count);
+        return Math.sqrt(sumOfSquaredDeviations / count);
+    }
+
+    /**
+     * Get the number of vehicles completed per second up to the last finish
+     * time.
+     *
+     * @return the throughput
+     */
+    public double getThroughput() {
+        return count / lastFinishTime;
+    }
+}
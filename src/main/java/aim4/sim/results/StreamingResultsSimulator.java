@@ -0,0 +1,28 @@
+package aim4.sim.results;
+
+/**
+ * A simulator that can write the results of its vehicles to a results file as
+ * the vehicles complete, instead of keeping them until the end of the run.
+ */
+public interface StreamingResultsSimulator {
+
+    /**
+     * Set the writer of the results of the vehicles.  It must be set before
+     * the first step.  While a writer is set, the simulator only keeps running
+     * statistics of the completed vehicles, so its result has the global
+     * statistics but no vehicles, and the data collection lines forget the
+     * vehicles that have completed.  The simulator does not close the writer.
+     *
+     * @param writer the writer, or <code>null</code> to keep the results of
+     *               the vehicles in memory
+     */
+    void setResultsWriter(VehicleResultsWriter writer);
+
+    /**
+     * Get the writer of the results of the vehicles.
+     *
+     * @return the writer, or <code>null</code> if the results of the vehicles
+     *         are kept in memory
+     */
+    VehicleResultsWriter getResultsWriter();
+}
@@ -0,0 +1,28 @@
+package aim4.sim.results;
+
+/**
+ * The result of a vehicle that has completed a simulation.
+ */
+public interface VehicleResult {
+    int getVin();
+
+    String getStartingRoad();
+
+    String getSpecType();
+
+    double getStartTime();
+
+    double getFinishTime();
+
+    double getDelayTime();
+
+    double getFinalVelocity();
+
+    double getMaxVelocity();
+
+    double getMinVelocity();
+
+    double getFinalXPos();
+
+    double getFinalYPos();
+}
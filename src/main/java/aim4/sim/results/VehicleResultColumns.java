@@ -0,0 +1,160 @@
+package aim4.sim.results;
+
+import aim4.map.merge.RoadNames;
+import aim4.sim.results.columnar.Column;
+import aim4.sim.results.columnar.ColumnType;
+import aim4.sim.results.columnar.ColumnarReader;
+import aim4.sim.results.columnar.ColumnarWriter;
+import aim4.sim.results.columnar.Compression;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+
+/**
+ * The columns of the results of the vehicles in a columnar file.  The columns
+ * have the names of the columns of the vehicles in a CSV results file, so a
+ * columnar file of results can be exported to the same CSV results file.
+ */
+public class VehicleResultColumns {
+    //COLUMNS//
+    public static final int VIN = 0;
+    public static final int STARTING_ROAD = 1;
+    public static final int VEHICLE_SPEC = 2;
+    public static final int START_TIME = 3;
+    public static final int FINISH_TIME = 4;
+    public static final int DELAY = 5;
+    public static final int FINAL_VELOCITY = 6;
+    public static final int MAX_VELOCITY = 7;
+    public static final int MIN_VELOCITY = 8;
+    public static final int FINAL_X_POSITION = 9;
+    public static final int FINAL_Y_POSITION = 10;
+
+    public static final List<Column> COLUMNS = Collections.unmodifiableList(Arrays.asList(
+            new Column("VIN", ColumnType.INT),
+            new Column("Starting Road", ColumnType.STRING),
+            new Column("Vehicle Spec", ColumnType.STRING),
+            new Column("Start Time", ColumnType.DOUBLE),
+            new Column("Finish Time", ColumnType.DOUBLE),
+            new Column("Delay", ColumnType.DOUBLE),
+            new Column("Final Velocity", ColumnType.DOUBLE),
+            new Column("Max Velocity", ColumnType.DOUBLE),
+            new Column("Min Velocity", ColumnType.DOUBLE),
+            new Column("Final X Position", ColumnType.DOUBLE),
+            new Column("Final Y Position", ColumnType.DOUBLE)));
+
+    private VehicleResultColumns() {
+    }
+
+    /**
+     * Create a writer of the results of the vehicles to a columnar file.
+     *
+     * @param file        the file
+     * @param params      the parameters of the run
+     * @param compression the compression of the blocks
+     * @return the writer
+     * @throws IOException if the file cannot be created
+     */
+    public static ColumnarWriter createWriter(File file, Map<String, String> params,
+                                              Compression compression) throws IOException {
+        return new ColumnarWriter(file, COLUMNS, params, compression);
+    }
+
+    /**
+     * Write the result of a vehicle as a row.
+     *
+     * @param writer the writer of the columnar file
+     * @param result the result of the vehicle
+     * @throws IOException if the row cannot be written
+     */
+    public static void add(ColumnarWriter writer, VehicleResult result) throws IOException {
+        writer.setInt(VIN, result.getVin());
+        writer.setString(STARTING_ROAD, result.getStartingRoad());
+        writer.setString(VEHICLE_SPEC, result.getSpecType());
+        writer.setDouble(START_TIME, result.getStartTime());
+        writer.setDouble(FINISH_TIME, result.getFinishTime());
+        writer.setDouble(DELAY, result.getDelayTime());
+        writer.setDouble(FINAL_VELOCITY, result.getFinalVelocity());
+        writer.setDouble(MAX_VELOCITY, result.getMaxVelocity());
+        writer.setDouble(MIN_VELOCITY, result.getMinVelocity());
+        writer.setDouble(FINAL_X_POSITION, result.getFinalXPos());
+        writer.setDouble(FINAL_Y_POSITION, result.getFinalYPos());
+        writer.endRow();
+    }
+
+    /**
+     * Whether a columnar file holds the results of vehicles.
+     *
+     * @param reader the reader of the columnar file
+     * @return whether the file holds the results of vehicles
+     */
+    public static boolean isVehicleResults(ColumnarReader reader) {
+        return reader.getColumns().equals(COLUMNS);
+    }
+
+    /**
+     * Compute the global statistics of the vehicles of a columnar file, as
+     * they would have been computed from the vehicles in memory.
+     *
+     * @param reader the reader of the columnar file
+     * @return a result with the global statistics but no vehicles
+     */
+    public static CoreMergeResult produceResult(ColumnarReader reader) {
+        DelayStatistics statistics = new DelayStatistics();
+        DelayStatistics targetStatistics = new DelayStatistics();
+        DelayStatistics mergeStatistics = new DelayStatistics();
+        PrimitiveIterator.OfDouble delays = reader.doubles(COLUMNS.get(DELAY).getName());
+        PrimitiveIterator.OfDouble finishTimes = reader.doubles(COLUMNS.get(FINISH_TIME).getName());
+        Iterator<String> roads = reader.strings(COLUMNS.get(STARTING_ROAD).getName());
+        while(delays.hasNext()) {
+            double delay = delays.nextDouble();
+            double finishTime = finishTimes.nextDouble();
+            String road = roads.next();
+            //Split Vehicles
+            if(RoadNames.TARGET_ROAD.toString().equals(road))
+                targetStatistics.add(delay, finishTime);
+            else if(RoadNames.MERGING_ROAD.toString().equals(road))
+                mergeStatistics.add(delay, finishTime);
+            statistics.add(delay, finishTime);
+        }
+        //Std. Dev Delay, in a second pass as it has always been computed
+        delays = reader.doubles(COLUMNS.get(DELAY).getName());
+        roads = reader.strings(COLUMNS.get(STARTING_ROAD).getName());
+        while(delays.hasNext()) {
+            double delay = delays.nextDouble();
+            String road = roads.next();
+            if(RoadNames.TARGET_ROAD.toString().equals(road))
+                targetStatistics.addDeviation(delay);
+            else if(RoadNames.MERGING_ROAD.toString().equals(road))
+                mergeStatistics.addDeviation(delay);
+            statistics.addDeviation(delay);
+        }
+        return new CoreMergeResult(statistics, targetStatistics, mergeStatistics);
+    }
+
+    /**
+     * Write the results of the vehicles of a columnar file as the CSV that
+     * {@link CoreMergeResult#produceCSVString()} produces for the same
+     * vehicles.
+     *
+     * @param reader the reader of the columnar file
+     * @param out    where to write the CSV
+     * @throws IOException if the CSV cannot be written
+     */
+    public static void exportResultsCSV(ColumnarReader reader, Appendable out) throws IOException {
+        if(!isVehicleResults(reader))
+            throw new IllegalArgumentException("Not the results of vehicles: " + reader.getFile());
+        out.append(CoreMergeResult.produceGlobalStatsCSVHeader());
+        out.append('\n');
+        out.append(produceResult(reader).produceGlobalStatsCSV());
+        out.append('\n');
+        out.append('\n');
+        reader.exportCSV(out);
+        out.append('\n');
+    }
+}
@@ -0,0 +1,285 @@
+package aim4.sim.results;
+
+import aim4.map.merge.RoadNames;
+import aim4.sim.results.columnar.ColumnarWriter;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the results of the vehicles to a results file as the vehicles
+ * complete, so that a simulation of any length keeps only running statistics
+ * of its vehicles in memory.
+ * <p>
+ * The rows of the vehicles are buffered and written to a temporary file next
+ * to the results file.  When the writer is closed, the delays are read back
+ * from the rows for the two-pass standard deviation, the global statistics
+ * are written to the results file and the rows are transferred after them.  The
+ * results file has the same content as the batch runner writes from
+ * {@link CoreMergeResult#produceCSVString()}, whose layout {@link AIMResult}
+ * shares, followed by a line separator.
+ * <p>
+ * Alternatively, the rows can be written to a columnar file with the columns
+ * of {@link VehicleResultColumns}, from which the same results file can be
+ * exported.
+ */
+public class VehicleResultsWriter implements Closeable {
+    //CONSTANTS//
+    /** The default size of the buffer of rows, in bytes */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    /** The suffix of the temporary file of rows */
+    public static final String ROWS_FILE_SUFFIX = ".rows";
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    //FILES//
+    private final File file;
+    private final File rowsFile;
+    private final FileChannel rows;
+    private final ByteBuffer buffer;
+    private final StringBuilder row;
+    private final ColumnarWriter columns;
+    private boolean closed;
+
+    //STATISTICS//
+    private final DelayStatistics statistics;
+    private final DelayStatistics targetStatistics;
+    private final DelayStatistics mergeStatistics;
+
+    public VehicleResultsWriter(File file) throws IOException {
+        this(file, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a writer of a results file.
+     *
+     * @param file       the results file
+     * @param bufferSize the size of the buffer of rows, in bytes
+     * @throws IOException if the temporary file of rows cannot be created
+     */
+    public VehicleResultsWriter(File file, int bufferSize) throws IOException {
+        if(bufferSize <= 0)
+            throw new IllegalArgumentException("The buffer size must be positive: " + bufferSize);
+        this.file = file;
+        this.rowsFile = new File(file.getPath() + ROWS_FILE_SUFFIX);
+        this.rows = FileChannel.open(rowsFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.row = new StringBuilder();
+        this.columns = null;
+        this.closed = false;
+        this.statistics = new DelayStatistics();
+        this.targetStatistics = new DelayStatistics();
+        this.mergeStatistics = new DelayStatistics();
+    }
+
+    /**
+     * Create a writer of the rows of the vehicles to a columnar file.  The
+     * writer closes the columnar writer when it is closed.
+     *
+     * @param columns the writer of the columnar file, with the columns of
+     *                {@link VehicleResultColumns}
+     */
+    public VehicleResultsWriter(ColumnarWriter columns) {
+        if(!columns.getColumns().equals(VehicleResultColumns.COLUMNS))
+            throw new IllegalArgumentException("Not the columns of the results of vehicles: "
+                    + columns.getColumns());
+        this.file = columns.getFile();
+        this.rowsFile = null;
+        this.rows = null;
+        this.buffer = null;
+        this.row = null;
+        this.columns = columns;
+        this.closed = false;
+        this.statistics = new DelayStatistics();
+        this.targetStatistics = new DelayStatistics();
+        this.mergeStatistics = new DelayStatistics();
+    }
+
+    /**
+     * Add the result of a completed vehicle.
+     *
+     * @param result the result of the vehicle
+     * @throws IOException if the row of the vehicle cannot be written
+     */
+    public void add(VehicleResult result) throws IOException {
+        if(closed)
+            throw new IllegalStateException("The results file has been written: " + file);
+        //Split Vehicles
+        if(RoadNames.TARGET_ROAD.toString().equals(result.getStartingRoad()))
+            targetStatistics.add(result.getDelayTime(), result.getFinishTime());
+        else if(RoadNames.MERGING_ROAD.toString().equals(result.getStartingRoad()))
+            mergeStatistics.add(result.getDelayTime(), result.getFinishTime());
+        statistics.add(result.getDelayTime(), result.getFinishTime());
+
+        if(columns != null) {
+            VehicleResultColumns.add(columns, result);
+            return;
+        }
+        row.setLength(0);
+        row.append(result.getVin());
+        row.append(',');
+        row.append(result.getStartingRoad());
+        row.append(',');
+        row.append(result.getSpecType());
+        row.append(',');
+        row.append(result.getStartTime());
+        row.append(',');
+        row.append(result.getFinishTime());
+        row.append(',');
+        row.append(result.getDelayTime());
+        row.append(',');
+        row.append(result.getFinalVelocity());
+        row.append(',');
+        row.append(result.getMaxVelocity());
+        row.append(',');
+        row.append(result.getMinVelocity());
+        row.append(',');
+        row.append(result.getFinalXPos());
+        row.append(',');
+        row.append(result.getFinalYPos());
+        row.append('\n');
+        write(row.toString().getBytes(CHARSET));
+    }
+
+    public DelayStatistics getStatistics() {
+        return statistics;
+    }
+
+    public DelayStatistics getTargetStatistics() {
+        return targetStatistics;
+    }
+
+    public DelayStatistics getMergeStatistics() {
+        return mergeStatistics;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Write the results file and delete the temporary file of rows, or close
+     * the columnar file.  Closing the writer again does nothing.
+     *
+     * @throws IOException if the results file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if(closed)
+            return;
+        closed = true;
+        if(columns != null) {
+            columns.close();
+            return;
+        }
+        try {
+            flush();
+            addDeviations();
+            StringBuilder sb = new StringBuilder();
+            sb.append(CoreMergeResult.produceGlobalStatsCSVHeader());
+            sb.append('\n');
+            sb.append(new CoreMergeResult(statistics, targetStatistics, mergeStatistics)
+                    .produceGlobalStatsCSV());
+            sb.append('\n');
+            sb.append('\n');
+            sb.append(CoreMergeResult.produceVehicleStatsCSVHeader());
+            sb.append('\n');
+
+            FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                writeFully(out, ByteBuffer.wrap(sb.toString().getBytes(CHARSET)));
+                long size = rows.size();
+                for(long position = 0; position < size; ) {
+                    position += rows.transferTo(position, size - position, out);
+                }
+                writeFully(out, ByteBuffer.wrap(("\n" + System.lineSeparator()).getBytes(CHARSET)));
+            } finally {
+                out.close();
+            }
+        } finally {
+            rows.close();
+            Files.deleteIfExists(rowsFile.toPath());
+        }
+    }
+
+    /**
+     * Delete the temporary file of rows without writing the results file, or
+     * delete the columnar file, e.g. when the run has failed.  Closing the writer afterwards does
+     * nothing.
+     *
+     * @throws IOException if the temporary file of rows cannot be deleted
+     */
+    public void discard() throws IOException {
+        if(closed)
+            return;
+        closed = true;
+        if(columns != null) {
+            columns.discard();
+            return;
+        }
+        try {
+            rows.close();
+        } finally {
+            Files.deleteIfExists(rowsFile.toPath());
+        }
+    }
+
+    //HELPERS//
+    /**
+     * Read the starting roads and delays back from the rows, for the second
+     * pass of the standard deviation of the delays.
+     */
+    private void addDeviations() throws IOException {
+        rows.position(0);
+        BufferedReader reader = new BufferedReader(Channels.newReader(rows, CHARSET.newDecoder(), -1));
+        String line;
+        while((line = reader.readLine()) != null) {
+            int roadStart = line.indexOf(',') + 1;
+            int roadEnd = line.indexOf(',', roadStart);
+            String road = line.substring(roadStart, roadEnd);
+            //the delay is the sixth field, and is read back exactly as it was written
+            int delayStart = roadEnd;
+            for(int field = 2; field < 5; field++)
+                delayStart = line.indexOf(',', delayStart + 1);
+            double delay = Double.parseDouble(line.substring(delayStart + 1, line.indexOf(',', delayStart + 1)));
+            //Split Vehicles
+            if(RoadNames.TARGET_ROAD.toString().equals(road))
+                targetStatistics.addDeviation(delay);
+            else if(RoadNames.MERGING_ROAD.toString().equals(road))
+                mergeStatistics.addDeviation(delay);
+            statistics.addDeviation(delay);
+        }
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        if(bytes.length > buffer.remaining()) {
+            flush();
+            if(bytes.length > buffer.capacity()) {
+                writeFully(rows, ByteBuffer.wrap(bytes));
+                return;
+            }
+        }
+        buffer.put(bytes);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        writeFully(rows, buffer);
+        buffer.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer bytes) throws IOException {
+        while(bytes.hasRemaining())
+            channel.write(bytes);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.results.columnar;
+
+/**
+ * The running count, total, extremes and variance of the values of a column.
+ * The variance is kept with Welford's method, and the summaries of several
+ * files can be merged into one, so the values of many runs can be summarized
+ * without keeping them.
+ */
+public class ColumnSummary {
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The number of values */
+    private long count;
+    /** The total of the values */
+    private double total;
+    /** The smallest value */
+    private double min;
+    /** The largest value */
+    private double max;
+    /** The running mean used for the variance */
+    private double runningMean;
+    /** The sum of the squared deviations from the running mean */
+    private double sumOfSquaredDeviations;
+
+    /////////////////////////////////
+    // CONSTRUCTORS
+    /////////////////////////////////
+
+    /**
+     * Create an empty summary.
+     */
+    public ColumnSummary() {
+        this.count = 0;
+        this.total = 0;
+        this.min = Double.POSITIVE_INFINITY;
+        this.max = Double.NEGATIVE_INFINITY;
+        this.runningMean = 0;
+        this.sumOfSquaredDeviations = 0;
+    }
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Add a value.
+     *
+     * @param value  the value
+     */
+    public void add(double value) {
+        count++;
+        total += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        double deviation = value - runningMean;
+        runningMean += deviation / count;
+        sumOfSquaredDeviations += deviation * (value - runningMean);
+    }
+
+    /**
+     * Add the values of another summary.
+     *
+     * @param other  the other summary
+     */
+    public void merge(ColumnSummary other) {
+        if (other.count == 0) {
+            return;
+        }
+        long n = count + other.count;
+        double delta = other.runningMean - runningMean;
+        sumOfSquaredDeviations += other.sumOfSquaredDeviations
+                + delta * delta * ((double) count * other.count / n);
+        runningMean += delta * other.count / n;
+        count = n;
+        total += other.total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Get the number of values.
+     *
+     * @return the number of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the total of the values.
+     *
+     * @return the total of the values
+     */
+    public double getTotal() {
+        return total;
+    }
+
+    /**
+     * Get the smallest value.
+     *
+     * @return the smallest value, or positive infinity if there is none
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * Get the largest value.
+     *
+     * @return the largest value, or negative infinity if there is none
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Get the mean of the values.
+     *
+     * @return the mean of the values, or NaN if there is none
+     */
+    public double getMean() {
+        return total / count;
+    }
+
+    /**
+     * Get the population standard deviation of the values.
+     *
+     * @return the standard deviation of the values, or NaN if there is none
+     */
+    public double getStdDev() {
+        return Math.sqrt(sumOfSquaredDeviations / count);
+    }
+}
@@ -0,0 +1,618 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.results.columnar;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a file written by a {@link ColumnarWriter}.  The file is mapped into
+ * memory, and only the header, the footer and the position of each column of
+ * each block are read when it is opened.  The values of a column are read
+ * from the mapped file as they are iterated; uncompressed blocks are read in
+ * place, and compressed blocks are inflated one at a time.
+ * <p>
+ * A reader can be used by one thread at a time.
+ */
+public class ColumnarReader implements Closeable {
+
+    /////////////////////////////////
+    // NESTED CLASSES
+    /////////////////////////////////
+
+    /**
+     * Iterates the values of a column block by block.
+     */
+    private abstract class ColumnIterator {
+        /** The index of the column */
+        protected final int column;
+        /** The values of the current block */
+        protected ByteBuffer data;
+        /** The index of the next block */
+        private int nextBlock;
+        /** The number of rows of the current block */
+        private int rows;
+        /** The index of the next row in the current block */
+        protected int row;
+
+        ColumnIterator(int column) {
+            this.column = column;
+            this.nextBlock = 0;
+            this.rows = 0;
+            this.row = 0;
+        }
+
+        public boolean hasNext() {
+            while (row == rows) {
+                if (nextBlock == blockRows.length) {
+                    return false;
+                }
+                data = getValues(nextBlock, column);
+                rows = blockRows[nextBlock];
+                row = 0;
+                nextBlock++;
+            }
+            return true;
+        }
+
+        protected void checkNext() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+        }
+    }
+
+    /**
+     * Iterates the values of an INT or STRING column as integers.
+     */
+    private class IntColumnIterator extends ColumnIterator implements PrimitiveIterator.OfInt {
+        IntColumnIterator(int column) {
+            super(column);
+        }
+
+        @Override
+        public int nextInt() {
+            checkNext();
+            return data.getInt(4 * row++);
+        }
+    }
+
+    /**
+     * Iterates the values of a LONG column.
+     */
+    private class LongColumnIterator extends ColumnIterator implements PrimitiveIterator.OfLong {
+        LongColumnIterator(int column) {
+            super(column);
+        }
+
+        @Override
+        public long nextLong() {
+            checkNext();
+            return data.getLong(8 * row++);
+        }
+    }
+
+    /**
+     * Iterates the values of a numeric column as doubles.
+     */
+    private class DoubleColumnIterator extends ColumnIterator implements PrimitiveIterator.OfDouble {
+        /** The type of the column */
+        private final ColumnType type;
+
+        DoubleColumnIterator(int column) {
+            super(column);
+            this.type = columns.get(column).getType();
+        }
+
+        @Override
+        public double nextDouble() {
+            checkNext();
+            switch (type) {
+                case INT:
+                    return data.getInt(4 * row++);
+                case LONG:
+                    return data.getLong(8 * row++);
+                default:
+                    return data.getDouble(8 * row++);
+            }
+        }
+    }
+
+    /**
+     * Iterates the values of a STRING column.
+     */
+    private class StringColumnIterator extends ColumnIterator implements Iterator<String> {
+        /** The dictionary of the column */
+        private final String[] dictionary;
+
+        StringColumnIterator(int column) {
+            super(column);
+            this.dictionary = dictionaries[column];
+        }
+
+        @Override
+        public String next() {
+            checkNext();
+            int code = data.getInt(4 * row++);
+            return (code < 0) ? null : dictionary[code];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The file */
+    private final File file;
+    /** The mapped file */
+    private MappedByteBuffer buffer;
+    /** The compression of the blocks */
+    private final Compression compression;
+    /** The parameters of the run */
+    private final Map<String, String> params;
+    /** The columns */
+    private final List<Column> columns;
+    /** The dictionary of each STRING column, or null for other columns */
+    private final String[][] dictionaries;
+    /** The number of rows of each block */
+    private final int[] blockRows;
+    /** The position of the values of each column of each block */
+    private final int[][] valuePositions;
+    /** The length of the stored values of each column of each block */
+    private final int[][] valueLengths;
+    /** The number of rows */
+    private final long rowCount;
+    /** The decompressor of the blocks, or null if they are not compressed */
+    private final Inflater inflater;
+
+    /////////////////////////////////
+    // CONSTRUCTORS
+    /////////////////////////////////
+
+    /**
+     * Open a columnar file.
+     *
+     * @param file  the file
+     * @throws IOException if the file cannot be read or is not a columnar
+     *                     file
+     */
+    public ColumnarReader(File file) throws IOException {
+        this.file = file;
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("The file is too large to be mapped: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } finally {
+            // the mapping remains valid after the channel is closed
+            channel.close();
+        }
+
+        ByteBuffer in = buffer.duplicate();
+        checkMagic(in);
+        int version = in.getInt();
+        if (version != ColumnarWriter.VERSION) {
+            throw new IOException("Unknown version " + version + " of " + file);
+        }
+        compression = Compression.values()[in.get()];
+        in.getInt(); // the number of rows of a full block
+        int numParams = in.getInt();
+        Map<String, String> params = new LinkedHashMap<String, String>();
+        for (int i = 0; i < numParams; i++) {
+            String key = readString(in);
+            params.put(key, readString(in));
+        }
+        this.params = Collections.unmodifiableMap(params);
+        int numColumns = in.getInt();
+        List<Column> columns = new ArrayList<Column>(numColumns);
+        for (int i = 0; i < numColumns; i++) {
+            String name = readString(in);
+            columns.add(new Column(name, ColumnType.values()[in.get()]));
+        }
+        this.columns = Collections.unmodifiableList(columns);
+
+        // the footer
+        if (buffer.limit() < 16) {
+            throw new IOException("Truncated columnar file: " + file);
+        }
+        in.position(buffer.limit() - 8);
+        checkMagic(in);
+        in.position((int) buffer.getLong(buffer.limit() - 16));
+        dictionaries = new String[numColumns][];
+        for (int i = 0; i < numColumns; i++) {
+            if (columns.get(i).getType() == ColumnType.STRING) {
+                dictionaries[i] = new String[in.getInt()];
+                for (int j = 0; j < dictionaries[i].length; j++) {
+                    dictionaries[i][j] = readString(in);
+                }
+            }
+        }
+        int numBlocks = in.getInt();
+        long[] blockOffsets = new long[numBlocks];
+        for (int i = 0; i < numBlocks; i++) {
+            blockOffsets[i] = in.getLong();
+        }
+        rowCount = in.getLong();
+
+        // the blocks
+        blockRows = new int[numBlocks];
+        valuePositions = new int[numBlocks][numColumns];
+        valueLengths = new int[numBlocks][numColumns];
+        for (int i = 0; i < numBlocks; i++) {
+            in.position((int) blockOffsets[i]);
+            blockRows[i] = in.getInt();
+            for (int j = 0; j < numColumns; j++) {
+                valueLengths[i][j] = in.getInt();
+                valuePositions[i][j] = in.position();
+                in.position(in.position() + valueLengths[i][j]);
+            }
+        }
+        inflater = (compression == Compression.DEFLATE) ? new Inflater() : null;
+    }
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Get the file.
+     *
+     * @return the file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Get the compression of the blocks.
+     *
+     * @return the compression of the blocks
+     */
+    public Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Get the parameters of the run that produced the table.
+     *
+     * @return the parameters of the run
+     */
+    public Map<String, String> getParams() {
+        return params;
+    }
+
+    /**
+     * Get the columns of the table.
+     *
+     * @return the columns of the table
+     */
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the number of rows of the table.
+     *
+     * @return the number of rows
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Get the index of a column.
+     *
+     * @param name  the name of the column
+     * @return the index of the column
+     * @throws IllegalArgumentException if there is no such column
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).getName().equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No column " + name + " in " + file);
+    }
+
+    /**
+     * Iterate the values of an INT column.
+     *
+     * @param name  the name of the column
+     * @return an iterator of the values of the column
+     */
+    public PrimitiveIterator.OfInt ints(String name) {
+        return new IntColumnIterator(indexOf(name, ColumnType.INT));
+    }
+
+    /**
+     * Iterate the values of a LONG column.
+     *
+     * @param name  the name of the column
+     * @return an iterator of the values of the column
+     */
+    public PrimitiveIterator.OfLong longs(String name) {
+        return new LongColumnIterator(indexOf(name, ColumnType.LONG));
+    }
+
+    /**
+     * Iterate the values of a numeric column, i.e. an INT, LONG or DOUBLE
+     * column, as doubles.
+     *
+     * @param name  the name of the column
+     * @return an iterator of the values of the column
+     */
+    public PrimitiveIterator.OfDouble doubles(String name) {
+        int column = indexOf(name);
+        if (columns.get(column).getType() == ColumnType.STRING) {
+            throw new IllegalArgumentException("Column " + columns.get(column) + " is not numeric");
+        }
+        return new DoubleColumnIterator(column);
+    }
+
+    /**
+     * Iterate the values of a STRING column.
+     *
+     * @param name  the name of the column
+     * @return an iterator of the values of the column
+     */
+    public Iterator<String> strings(String name) {
+        return new StringColumnIterator(indexOf(name, ColumnType.STRING));
+    }
+
+    /**
+     * Get the distinct values of a STRING column, in the order in which they
+     * first appear.
+     *
+     * @param name  the name of the column
+     * @return the distinct values of the column
+     */
+    public List<String> getDictionary(String name) {
+        return Collections.unmodifiableList(
+                Arrays.asList(dictionaries[indexOf(name, ColumnType.STRING)]));
+    }
+
+    /**
+     * Summarize the values of a numeric column.
+     *
+     * @param name  the name of the column
+     * @return the summary of the values of the column
+     */
+    public ColumnSummary summarize(String name) {
+        ColumnSummary summary = new ColumnSummary();
+        for (PrimitiveIterator.OfDouble it = doubles(name); it.hasNext(); ) {
+            summary.add(it.nextDouble());
+        }
+        return summary;
+    }
+
+    /**
+     * Summarize the values of a numeric column for each value of a STRING
+     * column, e.g. the delays of the vehicles of each road.  The rows whose
+     * group is <code>null</code> are left out.
+     *
+     * @param name   the name of the numeric column
+     * @param group  the name of the STRING column
+     * @return the summary of the values of each group, in the order in which
+     *         the groups first appear
+     */
+    public Map<String, ColumnSummary> summarizeBy(String name, String group) {
+        int groupColumn = indexOf(group, ColumnType.STRING);
+        String[] dictionary = dictionaries[groupColumn];
+        ColumnSummary[] summaries = new ColumnSummary[dictionary.length];
+        for (int i = 0; i < summaries.length; i++) {
+            summaries[i] = new ColumnSummary();
+        }
+        PrimitiveIterator.OfDouble values = doubles(name);
+        PrimitiveIterator.OfInt codes = new IntColumnIterator(groupColumn);
+        while (values.hasNext()) {
+            double value = values.nextDouble();
+            int code = codes.nextInt();
+            if (code >= 0) {
+                summaries[code].add(value);
+            }
+        }
+        Map<String, ColumnSummary> result = new LinkedHashMap<String, ColumnSummary>();
+        for (int i = 0; i < summaries.length; i++) {
+            result.put(dictionary[i], summaries[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Write the table as CSV: a row of the names of the columns, followed by
+     * a row per row of the table.  The values are written as
+     * {@link String#valueOf} writes them, and <code>null</code> strings as
+     * empty fields.
+     *
+     * @param out  where to write the CSV
+     * @throws IOException if the CSV cannot be written
+     */
+    public void exportCSV(Appendable out) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(columns.get(i).getName());
+        }
+        out.append('\n');
+        exportRowsCSV(out);
+    }
+
+    /**
+     * Write the rows of the table as CSV, without the names of the columns.
+     *
+     * @param out  where to write the CSV
+     * @throws IOException if the CSV cannot be written
+     */
+    public void exportRowsCSV(Appendable out) throws IOException {
+        ByteBuffer[] data = new ByteBuffer[columns.size()];
+        StringBuilder sb = new StringBuilder();
+        for (int block = 0; block < blockRows.length; block++) {
+            for (int i = 0; i < data.length; i++) {
+                data[i] = getValues(block, i);
+            }
+            for (int row = 0; row < blockRows[block]; row++) {
+                sb.setLength(0);
+                for (int i = 0; i < data.length; i++) {
+                    if (i > 0) {
+                        sb.append(',');
+                    }
+                    switch (columns.get(i).getType()) {
+                        case INT:
+                            sb.append(data[i].getInt(4 * row));
+                            break;
+                        case LONG:
+                            sb.append(data[i].getLong(8 * row));
+                            break;
+                        case DOUBLE:
+                            sb.append(data[i].getDouble(8 * row));
+                            break;
+                        default:
+                            int code = data[i].getInt(4 * row);
+                            if (code >= 0) {
+                                sb.append(dictionaries[i][code]);
+                            }
+                    }
+                }
+                sb.append('\n');
+                out.append(sb);
+            }
+        }
+    }
+
+    /**
+     * Release the mapped file and the decompressor.  The mapping itself is
+     * released when it is garbage collected.
+     */
+    @Override
+    public void close() {
+        buffer = null;
+        if (inflater != null) {
+            inflater.end();
+        }
+    }
+
+    /////////////////////////////////
+    // PRIVATE METHODS
+    /////////////////////////////////
+
+    /**
+     * Get the index of a column of a type.
+     */
+    private int indexOf(String name, ColumnType type) {
+        int column = indexOf(name);
+        if (columns.get(column).getType() != type) {
+            throw new IllegalArgumentException("Column " + columns.get(column)
+                    + " does not hold values of type " + type);
+        }
+        return column;
+    }
+
+    /**
+     * Get the values of a column of a block, in place in the mapped file if
+     * the blocks are not compressed.
+     */
+    private ByteBuffer getValues(int block, int column) {
+        if (buffer == null) {
+            throw new IllegalStateException("The reader has been closed: " + file);
+        }
+        ByteBuffer stored = buffer.duplicate();
+        stored.position(valuePositions[block][column]);
+        stored.limit(valuePositions[block][column] + valueLengths[block][column]);
+        if (inflater == null) {
+            return stored.slice();
+        }
+        byte[] input = new byte[stored.remaining()];
+        stored.get(input);
+        byte[] values = new byte[blockRows[block] * columns.get(column).getType().getWidth()];
+        inflater.reset();
+        inflater.setInput(input);
+        try {
+            int size = 0;
+            while (size < values.length && !inflater.finished()) {
+                size += inflater.inflate(values, size, values.length - size);
+            }
+            if (size != values.length) {
+                throw new IllegalStateException("Truncated block " + block + " of " + file);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt block " + block + " of " + file, e);
+        }
+        return ByteBuffer.wrap(values);
+    }
+
+    /**
+     * Check the magic bytes at the position of a buffer.
+     */
+    private void checkMagic(ByteBuffer in) throws IOException {
+        byte[] magic = new byte[ColumnarWriter.MAGIC.length];
+        if (in.remaining() < magic.length) {
+            throw new IOException("Not a columnar file: " + file);
+        }
+        in.get(magic);
+        if (!Arrays.equals(magic, ColumnarWriter.MAGIC)) {
+            throw new IOException("Not a columnar file: " + file);
+        }
+    }
+
+    /**
+     * Read a string written as its length and its UTF-8 bytes.
+     */
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, ColumnarWriter.CHARSET);
+    }
+}
@@ -0,0 +1,463 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.results.columnar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a table to a columnar file, one row at a time.  The rows are
+ * gathered in blocks of a fixed number of rows, and each block is written as
+ * soon as it is full, column after column, so the writer keeps only one block
+ * in memory however many rows are written.
+ * <p>
+ * The file is laid out as follows; all numbers are big-endian and all strings
+ * are a 32-bit length followed by their UTF-8 bytes.
+ * <pre>
+ * header  := MAGIC version:int compression:byte blockRows:int
+ *            numParams:int (key:string value:string)*
+ *            numColumns:int (name:string type:byte)*
+ * block   := rows:int (length:int bytes)*     one entry per column
+ * footer  := (count:int value:string*)*       one dictionary per STRING column
+ *            numBlocks:int offset:long* rowCount:long
+ * trailer := footerOffset:long MAGIC
+ * </pre>
+ * The bytes of a column in a block are the values of the rows of the block,
+ * each {@link ColumnType#getWidth()} bytes wide, compressed according to the
+ * compression of the file.  A string is stored as its index in the
+ * dictionary of its column, or -1 for <code>null</code>.
+ * <p>
+ * The parameters in the header describe the run that produced the table,
+ * e.g. the options of a batch run.
+ */
+public class ColumnarWriter implements Closeable {
+
+    /////////////////////////////////
+    // CONSTANTS
+    /////////////////////////////////
+
+    /** The bytes at the start and at the end of a columnar file */
+    public static final byte[] MAGIC = {'A', 'I', 'M', '4', 'C', 'O', 'L', 'S'};
+    /** The version of the format */
+    public static final int VERSION = 1;
+    /** The default number of rows of a block */
+    public static final int DEFAULT_BLOCK_ROWS = 4096;
+    /** The charset of the strings */
+    static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /////////////////////////////////
+    // NESTED CLASSES
+    /////////////////////////////////
+
+    /**
+     * A byte array output stream whose bytes can be written to a channel
+     * without copying them.
+     */
+    private static class Bytes extends ByteArrayOutputStream {
+        ByteBuffer asBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The file */
+    private final File file;
+    /** The channel of the file */
+    private final FileChannel channel;
+    /** The columns */
+    private final List<Column> columns;
+    /** The compression of the blocks */
+    private final Compression compression;
+    /** The number of rows of a block */
+    private final int blockRows;
+    /** The values of each column of the current block */
+    private final ByteBuffer[] values;
+    /** The dictionary of each STRING column, or null for other columns */
+    private final List<Map<String, Integer>> dictionaries;
+    /** The compressor of the blocks, or null if they are not compressed */
+    private final Deflater deflater;
+    /** The buffer of the compressed values of a column */
+    private byte[] compressed;
+    /** The bytes of a block */
+    private final Bytes block;
+    /** The offsets of the blocks that have been written */
+    private final List<Long> blockOffsets;
+    /** The number of rows of the current block */
+    private int rows;
+    /** The number of rows that have been written */
+    private long rowCount;
+    /** Whether the writer has been closed */
+    private boolean closed;
+
+    /////////////////////////////////
+    // CONSTRUCTORS
+    /////////////////////////////////
+
+    /**
+     * Create a writer with the default number of rows per block.
+     *
+     * @param file         the file
+     * @param columns      the columns of the table
+     * @param params       the parameters of the run
+     * @param compression  the compression of the blocks
+     * @throws IOException if the file cannot be created
+     */
+    public ColumnarWriter(File file, List<Column> columns, Map<String, String> params,
+                          Compression compression) throws IOException {
+        this(file, columns, params, compression, DEFAULT_BLOCK_ROWS);
+    }
+
+    /**
+     * Create a writer.
+     *
+     * @param file         the file
+     * @param columns      the columns of the table
+     * @param params       the parameters of the run
+     * @param compression  the compression of the blocks
+     * @param blockRows    the number of rows of a block
+     * @throws IOException if the file cannot be created
+     */
+    public ColumnarWriter(File file, List<Column> columns, Map<String, String> params,
+                          Compression compression, int blockRows) throws IOException {
+        if (blockRows <= 0) {
+            throw new IllegalArgumentException("The number of rows of a block must be positive: "
+                    + blockRows);
+        }
+        this.file = file;
+        this.columns = Collections.unmodifiableList(new ArrayList<Column>(columns));
+        this.compression = compression;
+        this.blockRows = blockRows;
+        this.values = new ByteBuffer[columns.size()];
+        this.dictionaries = new ArrayList<Map<String, Integer>>(columns.size());
+        for (int i = 0; i < values.length; i++) {
+            ColumnType type = columns.get(i).getType();
+            values[i] = ByteBuffer.allocate(blockRows * type.getWidth());
+            dictionaries.add(type == ColumnType.STRING ? new HashMap<String, Integer>() : null);
+            clearValues(i, blockRows);
+        }
+        this.deflater = (compression == Compression.DEFLATE) ? new Deflater() : null;
+        this.compressed = new byte[0];
+        this.block = new Bytes();
+        this.blockOffsets = new ArrayList<Long>();
+        this.rows = 0;
+        this.rowCount = 0;
+        this.closed = false;
+
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        DataOutputStream out = new DataOutputStream(block);
+        out.write(MAGIC);
+        out.writeInt(VERSION);
+        out.writeByte(compression.ordinal());
+        out.writeInt(blockRows);
+        out.writeInt(params.size());
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            writeString(out, param.getKey());
+            writeString(out, param.getValue());
+        }
+        out.writeInt(columns.size());
+        for (Column column : columns) {
+            writeString(out, column.getName());
+            out.writeByte(column.getType().ordinal());
+        }
+        writeBlock();
+    }
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Get the file.
+     *
+     * @return the file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Get the columns of the table.
+     *
+     * @return the columns of the table
+     */
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the number of rows that have been ended.
+     *
+     * @return the number of rows
+     */
+    public long getRowCount() {
+        return rowCount + rows;
+    }
+
+    /**
+     * Set the value of an INT column of the current row.
+     *
+     * @param column  the index of the column
+     * @param value   the value
+     */
+    public void setInt(int column, int value) {
+        checkType(column, ColumnType.INT);
+        values[column].putInt(rows * 4, value);
+    }
+
+    /**
+     * Set the value of a LONG column of the current row.
+     *
+     * @param column  the index of the column
+     * @param value   the value
+     */
+    public void setLong(int column, long value) {
+        checkType(column, ColumnType.LONG);
+        values[column].putLong(rows * 8, value);
+    }
+
+    /**
+     * Set the value of a DOUBLE column of the current row.
+     *
+     * @param column  the index of the column
+     * @param value   the value
+     */
+    public void setDouble(int column, double value) {
+        checkType(column, ColumnType.DOUBLE);
+        values[column].putDouble(rows * 8, value);
+    }
+
+    /**
+     * Set the value of a STRING column of the current row.
+     *
+     * @param column  the index of the column
+     * @param value   the value, which may be <code>null</code>
+     */
+    public void setString(int column, String value) {
+        checkType(column, ColumnType.STRING);
+        int code = -1;
+        if (value != null) {
+            Map<String, Integer> dictionary = dictionaries.get(column);
+            Integer known = dictionary.get(value);
+            if (known == null) {
+                known = dictionary.size();
+                dictionary.put(value, known);
+            }
+            code = known;
+        }
+        values[column].putInt(rows * 4, code);
+    }
+
+    /**
+     * End the current row.  The columns of the row that have not been set
+     * are zero, or <code>null</code> for STRING columns.
+     *
+     * @throws IOException if the block of the row is full and cannot be
+     *                     written
+     */
+    public void endRow() throws IOException {
+        if (closed) {
+            throw new IllegalStateException("The writer has been closed: " + file);
+        }
+        rows++;
+        if (rows == blockRows) {
+            flushBlock();
+        }
+    }
+
+    /**
+     * Write the last block and the footer, and close the file.  Closing the
+     * writer again does nothing.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (rows > 0) {
+                flushBlock();
+            }
+            long footerOffset = channel.position();
+            DataOutputStream out = new DataOutputStream(block);
+            for (int i = 0; i < values.length; i++) {
+                Map<String, Integer> dictionary = dictionaries.get(i);
+                if (dictionary != null) {
+                    String[] strings = new String[dictionary.size()];
+                    for (Map.Entry<String, Integer> entry : dictionary.entrySet()) {
+                        strings[entry.getValue()] = entry.getKey();
+                    }
+                    out.writeInt(strings.length);
+                    for (String string : strings) {
+                        writeString(out, string);
+                    }
+                }
+            }
+            out.writeInt(blockOffsets.size());
+            for (long offset : blockOffsets) {
+                out.writeLong(offset);
+            }
+            out.writeLong(rowCount);
+            out.writeLong(footerOffset);
+            out.write(MAGIC);
+            writeBlock();
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+            channel.close();
+        }
+    }
+
+    /**
+     * Close the file and delete it, e.g. when the run has failed.  Closing
+     * the writer afterwards does nothing.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    public void discard() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (deflater != null) {
+                deflater.end();
+            }
+            channel.close();
+        } finally {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    /////////////////////////////////
+    // PRIVATE METHODS
+    /////////////////////////////////
+
+    /**
+     * Check the type of a column.
+     */
+    private void checkType(int column, ColumnType type) {
+        if (columns.get(column).getType() != type) {
+            throw new IllegalArgumentException("Column " + columns.get(column)
+                    + " does not hold values of type " + type);
+        }
+    }
+
+    /**
+     * Write the rows of the current block and clear it.
+     */
+    private void flushBlock() throws IOException {
+        blockOffsets.add(channel.position());
+        DataOutputStream out = new DataOutputStream(block);
+        out.writeInt(rows);
+        for (int i = 0; i < values.length; i++) {
+            byte[] raw = values[i].array();
+            int length = rows * (raw.length / blockRows);
+            if (deflater == null) {
+                out.writeInt(length);
+                out.write(raw, 0, length);
+            } else {
+                deflater.reset();
+                deflater.setInput(raw, 0, length);
+                deflater.finish();
+                int size = 0;
+                while (!deflater.finished()) {
+                    if (size == compressed.length) {
+                        compressed = Arrays.copyOf(compressed, Math.max(1024, 2 * size));
+                    }
+                    size += deflater.deflate(compressed, size, compressed.length - size);
+                }
+                out.writeInt(size);
+                out.write(compressed, 0, size);
+            }
+            clearValues(i, rows);
+        }
+        writeBlock();
+        rowCount += rows;
+        rows = 0;
+    }
+
+    /**
+     * Unset the values of the first rows of a column.
+     */
+    private void clearValues(int column, int n) {
+        if (columns.get(column).getType() == ColumnType.STRING) {
+            for (int i = 0; i < n; i++) {
+                values[column].putInt(i * 4, -1);
+            }
+        } else {
+            Arrays.fill(values[column].array(), 0, n * columns.get(column).getType().getWidth(),
+                    (byte) 0);
+        }
+    }
+
+    /**
+     * Write the gathered bytes to the file.
+     */
+    private void writeBlock() throws IOException {
+        ByteBuffer bytes = block.asBuffer();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        block.reset();
+    }
+
+    /**
+     * Write a string as its length and its UTF-8 bytes.
+     */
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(CHARSET);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * This package contains a compact columnar binary format for tables of
+ * results, such as the results of the vehicles and the profiles of the steps
+ * of a run, with a writer that appends rows in blocks and a reader that
+ * memory-maps the file.
+ */
+package aim4.sim.results.columnar;
@@ -1,10 +1,33 @@
 package aim4.sim.setup;
 
+import aim4.sim.SimulationContext;
 import aim4.sim.Simulator;
 
 /**
  * Created by Callum on 15/11/2016.
  */
 public interface SimSetup {
+    /**
+     * Create the simulator in the simulation context of the calling thread.
+     *
+     * @return the simulator
+     */
     Simulator getSimulator();
+
+    /**
+     * Create the simulator in the given simulation context. The simulator and everything it creates use the VIN
+     * registry, random number generator, map and debug points of that context, so simulators created in different
+     * contexts can be stepped on different threads at the same time.
+     *
+     * @param context the simulation context
+     * @return the simulator
+     */
+    default Simulator getSimulator(SimulationContext context) {
+        SimulationContext previous = context.bind();
+        try {
+            return getSimulator();
+        } finally {
+            previous.bind();
+        }
+    }
 }
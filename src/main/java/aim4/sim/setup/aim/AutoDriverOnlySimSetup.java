@@ -34,6 +34,7 @@ import aim4.config.Debug;
 import aim4.config.SimConfig;
 import aim4.driver.aim.pilot.V2IPilot;
 import aim4.im.aim.v2i.batch.RoadBasedReordering;
+import aim4.im.aim.v2i.reservation.ReservationArray;
 import aim4.im.aim.v2i.reservation.ReservationGridManager;
 import aim4.map.aim.GridIntersectionMap;
 import aim4.map.aim.GridMapUtil;
@@ -83,6 +84,13 @@ public class AutoDriverOnlySimSetup extends BasicSimSetup implements AIMSimSetup
   private boolean isEdgeTileTimeBufferEnabled = true;
   /** The granularity of the reservation grid */
   private double granularity = 1.0;
+  /** The storage used to keep the reservations in the grids */
+  private ReservationArray.Backend reservationBackend =
+    ReservationArray.Backend.TREE_MAP;
+  /** The maximum number of footprints cached per intersection */
+  private int footprintCacheSize = 0;
+  /** How far the arrival time of a request may be pushed back, in seconds */
+  private double arrivalSearchHorizon = 0.0;
   /** The processing interval for the batch mode */
   private double processingInterval = RoadBasedReordering.DEFAULT_PROCESSING_INTERVAL;
   /** The name of the file about the traffic volume */
@@ -225,6 +233,37 @@ public class AutoDriverOnlySimSetup extends BasicSimSetup implements AIMSimSetup
     this.granularity = granularity;
   }
 
+  /**
+   * Set the storage used to keep the reservations in the grids.
+   *
+   * @param reservationBackend  the storage used to keep the reservations
+   */
+  public void setReservationBackend(ReservationArray.Backend reservationBackend) {
+    this.reservationBackend = reservationBackend;
+  }
+
+  /**
+   * Set the maximum number of footprints cached by each intersection
+   * manager.
+   *
+   * @param footprintCacheSize  the maximum number of footprints; zero
+   *                            disables the cache
+   */
+  public void setFootprintCacheSize(int footprintCacheSize) {
+    this.footprintCacheSize = footprintCacheSize;
+  }
+
+  /**
+   * Set how far the intersection managers may push back the arrival time of
+   * a request when searching for the earliest feasible arrival time.
+   *
+   * @param arrivalSearchHorizon  the arrival search horizon, in seconds;
+   *                              zero disables the search
+   */
+  public void setArrivalSearchHorizon(double arrivalSearchHorizon) {
+    this.arrivalSearchHorizon = arrivalSearchHorizon;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -247,7 +286,10 @@ public class AutoDriverOnlySimSetup extends BasicSimSetup implements AIMSimSetup
                     internalTileTimeBufferSize,
                     edgeTileTimeBufferSize,
                     isEdgeTileTimeBufferEnabled,
-                    granularity);  // granularity
+                    granularity,  // granularity
+                    reservationBackend,
+                    footprintCacheSize,
+                    arrivalSearchHorizon);
 
 /* for demo */
 /*
@@ -100,7 +100,7 @@ public class MergeMimicSimSetup implements AIMSimSetup {
 
         Map<String, Double> specToExpectedTimeMergeLane = simulateExpectedMergeLaneTimes(layout);
         Map<String, Double> specToExpectedTimeTargetLane = simulateExpectedTargetLaneTimes(layout);
-        Debug.currentMap = layout;
+        Debug.setCurrentMap(layout);
 
         return new AutoDriverOnlySimulator(layout, true, specToExpectedTimeMergeLane,specToExpectedTimeTargetLane);
     }
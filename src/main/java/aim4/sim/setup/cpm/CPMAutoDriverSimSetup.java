@@ -4,6 +4,7 @@ import aim4.map.cpm.CPMBasicMap;
 import aim4.map.cpm.CPMMap;
 import aim4.map.cpm.CPMMapUtil;
 import aim4.map.cpm.CPMCarParkWithStatus;
+import aim4.map.cpm.parking.StatusMonitor;
 import aim4.sim.simulator.cpm.CPMAutoDriverSimulator;
 import aim4.sim.Simulator;
 
@@ -12,6 +13,9 @@ import aim4.sim.Simulator;
  */
 public class CPMAutoDriverSimSetup extends BasicCPMSimSetup {
 
+    /** How the status monitor chooses the parking lanes of entering vehicles. */
+    private StatusMonitor.AllocationPolicy parkingAllocation = StatusMonitor.AllocationPolicy.MOST_SPACE;
+
     /**
      * Create a setup for the simulator in which all vehicles are autonomous.
      *
@@ -21,6 +25,16 @@ public class CPMAutoDriverSimSetup extends BasicCPMSimSetup {
         super(basicSimSetup);
     }
 
+    /**
+     * Set how the status monitor chooses the parking lanes of vehicles
+     * entering the car park.
+     *
+     * @param parkingAllocation  the allocation policy
+     */
+    public void setParkingAllocation(StatusMonitor.AllocationPolicy parkingAllocation) {
+        this.parkingAllocation = parkingAllocation;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -33,7 +47,8 @@ public class CPMAutoDriverSimSetup extends BasicCPMSimSetup {
                 currentTime,
                 numberOfParkingLanes,
                 parkingLength,
-                accessLength);
+                accessLength,
+                parkingAllocation);
 
         if (spawnSpecType == CPMMapUtil.SpawnSpecType.SINGLE)
         // Set up the correct spawn point
@@ -56,6 +56,8 @@ public class S2SSimSetup implements MergeSimSetup {
     File targetSpawnSchedule;
     /**The json file dictating merge spawn times and types**/
     File mergeSpawnSchedule;
+    /**The maximum number of trajectories cached by the merge managers, zero disables the cache**/
+    int trajectoryCacheSize = 0;
 
     public S2SSimSetup(ProtocolType protocol, double trafficLevel,
                             double targetLaneSpeedLimit, double mergingLaneSpeedLimit,
@@ -108,13 +110,15 @@ public class S2SSimSetup implements MergeSimSetup {
                                 0.15,
                                 0.15,
                                 true,
-                                1.0);
+                                1.0,
+                                trajectoryCacheSize);
                 MergeMapUtil.setFCFSGridMergeManagers(layout, currentTime, mergeGridReservationConfig);
                 setSpawnSpecs(layout);
                 return new V2IMergeSimulator(layout, mergingProtocol, specToExpectedTimeMergeLane, specToExpectedTimeTargetLane);
             case AIM_NO_GRID:
                 ReservationMergeManager.Config mergeReservationConfig =
-                        new ReservationMergeManager.Config(SimConfig.TIME_STEP, SimConfig.MERGE_TIME_STEP);
+                        new ReservationMergeManager.Config(SimConfig.TIME_STEP, SimConfig.MERGE_TIME_STEP,
+                                trajectoryCacheSize);
                 MergeMapUtil.setFCFSMergeManagers(layout, currentTime, mergeReservationConfig);
                 setSpawnSpecs(layout);
                 return new V2IMergeSimulator(layout, mergingProtocol, specToExpectedTimeMergeLane, specToExpectedTimeTargetLane);
@@ -186,6 +190,14 @@ public class S2SSimSetup implements MergeSimSetup {
             throw new IllegalArgumentException("Both target and merge spawn schedules must be set");
     }
 
+    /**
+     * Set the maximum number of trajectories of test vehicles cached by the merge managers of the AIM protocols.
+     * @param trajectoryCacheSize the maximum number of trajectories; zero disables the cache
+     */
+    public void setTrajectoryCacheSize(int trajectoryCacheSize) {
+        this.trajectoryCacheSize = trajectoryCacheSize;
+    }
+
     public double getTrafficLevel() {
         return trafficLevel;
     }
@@ -2,6 +2,7 @@ package aim4.sim.simulator.aim;
 
 import aim4.map.aim.BasicIntersectionMap;
 import aim4.sim.Simulator;
+import aim4.sim.UdpListener;
 import aim4.sim.results.AIMResult;
 import aim4.vehicle.aim.AIMVehicleSimModel;
 import aim4.vehicle.aim.ProxyVehicleSimModel;
@@ -29,5 +30,14 @@ public interface AIMSimulator extends Simulator {
      */
     void addProxyVehicle(ProxyVehicleSimModel vehicle);
 
+    /**
+     * Set the UDP listener whose received messages are processed at the
+     * beginning of every time step.
+     *
+     * @param udpListener  the UDP listener, or null to stop processing
+     *                     received messages
+     */
+    void setUdpListener(UdpListener udpListener);
+
     AIMResult produceResult();
 }
@@ -45,18 +45,32 @@ import aim4.map.lane.Lane;
 import aim4.map.merge.RoadNames;
 import aim4.msg.aim.i2v.I2VMessage;
 import aim4.msg.aim.v2i.V2IMessage;
+import aim4.sim.CollisionCheck;
+import aim4.sim.ManagerInboxes;
+import aim4.sim.ParallelStepExecutor;
+import aim4.sim.ParallelStepSimulator;
+import aim4.sim.SimulationContext;
+import aim4.sim.UdpListener;
+import aim4.sim.VinIndex;
+import aim4.sim.profile.ProfiledSimulator;
+import aim4.sim.profile.StepProfiler;
+import aim4.sim.profile.StepStage;
 import aim4.sim.results.AIMResult;
 import aim4.sim.results.AIMVehicleResult;
+import aim4.sim.results.StreamingResultsSimulator;
+import aim4.sim.results.VehicleResultsWriter;
+import aim4.vehicle.VehicleLaneOrdering;
 import aim4.vehicle.VehicleSpec;
 import aim4.vehicle.VehicleSpecDatabase;
-import aim4.vehicle.VehicleUtil;
+import aim4.vehicle.VehicleSpatialIndex;
 import aim4.vehicle.VinRegistry;
 import aim4.vehicle.aim.*;
 
 import java.awt.*;
-import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.List;
 import java.util.Queue;
@@ -64,7 +78,9 @@ import java.util.Queue;
 /**
  * The autonomous drivers only simulator.
  */
-public class AutoDriverOnlySimulator implements AIMSimulator {
+public class AutoDriverOnlySimulator implements AIMSimulator, ProfiledSimulator,
+                                                ParallelStepSimulator,
+                                                StreamingResultsSimulator {
 
     /////////////////////////////////
     // NESTED CLASSES
@@ -113,9 +129,36 @@ public class AutoDriverOnlySimulator implements AIMSimulator {
     private int totalBitsTransmittedByCompletedVehicles;
     /** The total number of bits received by the completed vehicles */
     private int totalBitsReceivedByCompletedVehicles;
+    /** The spatial index of the active vehicles */
+    private VehicleSpatialIndex<AIMVehicleSimModel> vehicleIndex;
+    /** The order of the active vehicles on the lanes */
+    private VehicleLaneOrdering<AIMVehicleSimModel> vehicleOrdering;
+    /** The simulation context in which the simulator was created */
+    private SimulationContext context;
+    /** The profiler of the steps */
+    private final StepProfiler profiler = new StepProfiler();
+    /** The executor of the parallel phases, or null to run them serially */
+    private ParallelStepExecutor stepExecutor;
+    /** Whether the intersection managers act in parallel on the executor */
+    private boolean parallelManagers;
+    /** What is done about collisions between vehicles in merge mode */
+    private CollisionCheck collisionCheck = CollisionCheck.COUNT;
+    /** The pairs of VINs of the vehicles that have collided */
+    private final Set<Long> collidedPairs = new HashSet<Long>();
+    /** The collisions found in the current step */
+    private final List<VehicleSpatialIndex.Collision<AIMVehicleSimModel>> collisions =
+            new ArrayList<VehicleSpatialIndex.Collision<AIMVehicleSimModel>>();
+    /** The active vehicles indexed by VIN, rebuilt for the communication */
+    private final VinIndex<AIMVehicleSimModel> vinIndex =
+            new VinIndex<AIMVehicleSimModel>();
+    /** The inboxes of the intersection managers */
+    private ManagerInboxes<V2IMessage> imInboxes;
+    /** The UDP listener of the proxy vehicles, or null if there is none */
+    private volatile UdpListener udpListener;
 
     //Results aids//
     private List<AIMVehicleResult> vehiclesRecord;
+    private VehicleResultsWriter resultsWriter;
     private Map<String, Double> specToExpectedTimeMergeLane;
     private Map<String, Double> specToExpectedTimeTargetLane;
 
@@ -146,7 +189,22 @@ public class AutoDriverOnlySimulator implements AIMSimulator {
                                    Map<String, Double> specToExpectedTimeTargetLane){
         this.mergeMode = mergeMode;
         this.basicIntersectionMap = basicIntersectionMap;
+        this.context = SimulationContext.current();
         this.vinToVehicles = new HashMap<Integer,AIMVehicleSimModel>();
+        this.vehicleIndex = new VehicleSpatialIndex<AIMVehicleSimModel>(
+                basicIntersectionMap.getDimensions(), vinToVehicles.values());
+        this.vehicleOrdering = new VehicleLaneOrdering<AIMVehicleSimModel>(
+                basicIntersectionMap.getRoads(), vinToVehicles.values(), true) {
+            @Override
+            protected boolean isOrdered(AIMVehicleSimModel vehicle, Lane lane) {
+                // Exclude the vehicles that are already inside (partially or
+                // entirely) the intersection
+                IntersectionManager im =
+                        lane.getLaneIM().nextIntersectionManager(vehicle.getPosition());
+                return lane.getLaneIM().distanceToNextIntersection(vehicle.getPosition())>0
+                        || im == null || !im.intersects(vehicle.getShape().getBounds2D());
+            }
+        };
         if(mergeMode) {
             Map<String, Double> fakeDelayTimes = new HashMap<String, Double>();
             for(int specID = 0; specID < VehicleSpecDatabase.getNumOfSpec(); specID++)
@@ -180,37 +238,52 @@ public class AutoDriverOnlySimulator implements AIMSimulator {
      */
     @Override
     public synchronized AutoDriverOnlySimStepResult step(double timeStep) {
+        context.bind();
+        profiler.beginStep();
         if (Debug.PRINT_SIMULATOR_STAGE) {
             System.err.printf("--------------------------------------\n");
             System.err.printf("------SIM:spawnVehicles---------------\n");
         }
+        UdpListener listener = udpListener;
+        if (listener != null) {
+            listener.processReceivedMessages();
+        }
+        vehicleIndex.invalidate();  // proxy vehicles may have moved
         spawnVehicles(timeStep);
+        profiler.endStage(StepStage.SPAWN);
         if (Debug.PRINT_SIMULATOR_STAGE) {
             System.err.printf("------SIM:provideSensorInput---------------\n");
         }
         provideSensorInput();
+        profiler.endStage(StepStage.SENSOR_INPUT);
         if (Debug.PRINT_SIMULATOR_STAGE) {
             System.err.printf("------SIM:letDriversAct---------------\n");
         }
         letDriversAct();
+        profiler.endStage(StepStage.DRIVERS_ACT);
         if (Debug.PRINT_SIMULATOR_STAGE) {
             System.err.printf("------SIM:letIntersectionManagersAct--------------\n");
         }
         letIntersectionManagersAct(timeStep);
+        profiler.endStage(StepStage.MANAGERS_ACT);
         if (Debug.PRINT_SIMULATOR_STAGE) {
             System.err.printf("------SIM:communication---------------\n");
         }
         communication();
+        profiler.endStage(StepStage.COMMUNICATION);
         if (Debug.PRINT_SIMULATOR_STAGE) {
             System.err.printf("------SIM:moveVehicles---------------\n");
         }
         moveVehicles(timeStep);
+        profiler.endStage(StepStage.MOVE);
         if (Debug.PRINT_SIMULATOR_STAGE) {
             System.err.printf("------SIM:cleanUpCompletedVehicles---------------\n");
         }
         List<AIMVehicleSimModel> completedVehicles = new ArrayList<AIMVehicleSimModel>();
         if(mergeMode) {
-            //checkForCollisions(); TODO: Fix collision prevention so that this can be run.
+            if (collisionCheck != CollisionCheck.OFF) {
+                checkForCollisions();
+            }
             completedVehicles = calculateCompletedVehicles();
         }
 
@@ -224,6 +297,8 @@ public class AutoDriverOnlySimulator implements AIMSimulator {
         currentTime += timeStep;
         // debug
         checkClocks();
+        profiler.endStage(StepStage.CLEANUP);
+        profiler.endStep(currentTime, vinToVehicles.size());
 
         return new AutoDriverOnlySimStepResult(completedVINs);
     }
@@ -242,6 +317,107 @@ public class AutoDriverOnlySimulator implements AIMSimulator {
         return basicIntersectionMap;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StepProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void setStepExecutor(ParallelStepExecutor executor) {
+        this.stepExecutor = executor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized ParallelStepExecutor getStepExecutor() {
+        return stepExecutor;
+    }
+
+    /**
+     * Set whether the intersection managers act in parallel on the step
+     * executor, if there is one.  The intersection managers share no mutable
+     * state, and their outboxes are delivered in their order afterwards, so
+     * the results are identical to those of the serial loop.
+     *
+     * @param parallelManagers  whether the intersection managers act in
+     *                          parallel
+     */
+    public synchronized void setParallelManagers(boolean parallelManagers) {
+        this.parallelManagers = parallelManagers;
+    }
+
+    /**
+     * Whether the intersection managers act in parallel on the step executor,
+     * if there is one.
+     *
+     * @return whether the intersection managers act in parallel
+     */
+    public synchronized boolean isParallelManagers() {
+        return parallelManagers;
+    }
+
+    /**
+     * Set what is done about collisions between vehicles after they move.
+     * Collisions are only looked for in merge mode, where they are counted
+     * by default.
+     *
+     * @param collisionCheck  what is done about collisions
+     */
+    public synchronized void setCollisionCheck(CollisionCheck collisionCheck) {
+        this.collisionCheck = collisionCheck;
+    }
+
+    /**
+     * Get what is done about collisions between vehicles after they move.
+     *
+     * @return what is done about collisions
+     */
+    public synchronized CollisionCheck getCollisionCheck() {
+        return collisionCheck;
+    }
+
+    /**
+     * Get the number of pairs of vehicles that have collided so far, if
+     * collisions are counted.
+     *
+     * @return the number of pairs of vehicles that have collided
+     */
+    public synchronized int getNumOfCollisions() {
+        return collidedPairs.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UnsupportedOperationException if the simulator is not in merge
+     *                                       mode, in which no results are
+     *                                       recorded
+     */
+    @Override
+    public synchronized void setResultsWriter(VehicleResultsWriter writer) {
+        if (vehiclesRecord == null) {
+            throw new UnsupportedOperationException(
+                    "Vehicle results are only recorded in merge mode");
+        }
+        this.resultsWriter = writer;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized VehicleResultsWriter getResultsWriter() {
+        return resultsWriter;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -333,6 +509,15 @@ public class AutoDriverOnlySimulator implements AIMSimulator {
         }
 
         vinToVehicles.put(vehicle.getVIN(), vehicle);
+        vehicleIndex.invalidate();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setUdpListener(UdpListener udpListener) {
+        this.udpListener = udpListener;
     }
 
 
@@ -358,6 +543,7 @@ public class AutoDriverOnlySimulator implements AIMSimulator {
                         AIMVehicleSimModel vehicle = makeVehicle(spawnPoint, spawnSpec);
                         VinRegistry.registerVehicle(vehicle); // Get vehicle a VIN number
                         vinToVehicles.put(vehicle.getVIN(), vehicle);
+                        vehicleIndex.invalidate();
                         break; // only handle the first spawn vehicle
                         // TODO: need to fix this
                     }
@@ -374,15 +560,9 @@ public class AutoDriverOnlySimulator implements AIMSimulator {
      * @return Whether the spawn point can spawn any vehicle
      */
     private boolean canSpawnVehicle(AIMSpawnPoint spawnPoint) {
-        // TODO: can be made much faster.
         assert spawnPoint.getNoVehicleZone() instanceof Rectangle2D;
         Rectangle2D noVehicleZone = (Rectangle2D) spawnPoint.getNoVehicleZone();
-        for(AIMVehicleSimModel vehicle : vinToVehicles.values()) {
-            if (vehicle.getShape().intersects(noVehicleZone)) {
-                return false;
-            }
-        }
-        return true;
+        return !vehicleIndex.anyShapeIntersects(noVehicleZone);
     }
 
     /**
@@ -431,119 +611,27 @@ public class AutoDriverOnlySimulator implements AIMSimulator {
     // STEP 2
     /////////////////////////////////
 
-    /**
-     * Compute the lists of vehicles of all lanes.
-     *
-     * @return a mapping from lanes to lists of vehicles sorted by their
-     *         distance on their lanes
-     */
-    private Map<Lane,SortedMap<Double,AIMVehicleSimModel>> computeVehicleLists() {
-        // Set up the structure that will hold all the Vehicles as they are
-        // currently ordered in the Lanes
-        Map<Lane,SortedMap<Double,AIMVehicleSimModel>> vehicleLists =
-                new HashMap<Lane,SortedMap<Double,AIMVehicleSimModel>>();
-        for(Road road : basicIntersectionMap.getRoads()) {
-            for(Lane lane : road.getLanes()) {
-                vehicleLists.put(lane, new TreeMap<Double,AIMVehicleSimModel>());
-            }
-        }
-        // Now add each of the Vehicles, but make sure to exclude those that are
-        // already inside (partially or entirely) the intersection
-        for(AIMVehicleSimModel vehicle : vinToVehicles.values()) {
-            // Find out what lanes it is in.
-            Set<Lane> lanes = vehicle.getDriver().getCurrentlyOccupiedLanes();
-            for(Lane lane : lanes) {
-                // Find out what IntersectionManager is coming up for this vehicle
-                IntersectionManager im =
-                        lane.getLaneIM().nextIntersectionManager(vehicle.getPosition());
-                // Only include this Vehicle if it is not in the intersection.
-                if(lane.getLaneIM().distanceToNextIntersection(vehicle.getPosition())>0
-                        || im == null || !im.intersects(vehicle.getShape().getBounds2D())) {
-                    // Now find how far along the lane it is.
-                    double dst = lane.distanceAlongLane(vehicle.getPosition());
-                    // Now add it to the map.
-                    vehicleLists.get(lane).put(dst, vehicle);
-                }
-            }
-        }
-        // Now consolidate the lists based on lanes
-        for(Road road : basicIntersectionMap.getRoads()) {
-            for(Lane lane : road.getLanes()) {
-                // We may have already removed this Lane from the map
-                if(vehicleLists.containsKey(lane)) {
-                    Lane currLane = lane;
-                    // Now run through the lanes
-                    while(currLane.hasNextLane()) {
-                        currLane = currLane.getNextLane();
-                        // Put everything from the next lane into the original lane
-                        // and remove the mapping for the next lane
-                        vehicleLists.get(lane).putAll(vehicleLists.remove(currLane));
-                    }
-                }
-            }
-        }
-
-        return vehicleLists;
-    }
-
-    /**
-     * Compute the next vehicles of all vehicles.
-     *
-     * @param vehicleLists  a mapping from lanes to lists of vehicles sorted by
-     *                      their distance on their lanes
-     * @return a mapping from vehicles to next vehicles
-     */
-    private Map<AIMVehicleSimModel, AIMVehicleSimModel> computeNextVehicle(
-            Map<Lane,SortedMap<Double,AIMVehicleSimModel>> vehicleLists) {
-        // At this point we should only have mappings for start Lanes, and they
-        // should include all the Lanes they run into.  Now we need to turn this
-        // into a hash map that maps Vehicles to the next vehicle in the Lane
-        // or any Lane the Lane runs into
-        Map<AIMVehicleSimModel, AIMVehicleSimModel> nextVehicle =
-                new HashMap<AIMVehicleSimModel,AIMVehicleSimModel>();
-        // For each of the ordered lists of vehicles
-        for(SortedMap<Double,AIMVehicleSimModel> vehicleList : vehicleLists.values()) {
-            AIMVehicleSimModel lastVehicle = null;
-            // Go through the Vehicles in order of their position in the Lane
-            for(AIMVehicleSimModel currVehicle : vehicleList.values()) {
-                if(lastVehicle != null) {
-                    // Create the mapping from the previous Vehicle to the current one
-                    nextVehicle.put(lastVehicle,currVehicle);
-                }
-                lastVehicle = currVehicle;
-            }
-        }
-
-        return nextVehicle;
-    }
-
     /**
      * Provide each vehicle with sensor information to allow it to make
-     * decisions.  This works first by making an ordered list for each Lane of
-     * all the vehicles in that Lane, in order from the start of the Lane to
-     * the end of the Lane.  We must make sure to leave out all vehicles that
-     * are in the intersection.  We must also concatenate the lists for lanes
-     * that feed into one another.  Then, for each vehicle, depending on the
-     * state of its sensors, we provide it with the appropriate sensor input.
+     * decisions.  This works first by bringing up to date the order of the
+     * vehicles on each Lane, from the start of the Lane to the end of the
+     * Lane.  The ordering leaves out all vehicles that are in the
+     * intersection and concatenates lanes that feed into one another.  Then,
+     * for each vehicle, depending on the state of its sensors, we provide it
+     * with the appropriate sensor input.
      */
     private void provideSensorInput() {
-        Map<Lane,SortedMap<Double,AIMVehicleSimModel>> vehicleLists =
-                computeVehicleLists();
-        Map<AIMVehicleSimModel, AIMVehicleSimModel> nextVehicle =
-                computeNextVehicle(vehicleLists);
+        vehicleOrdering.update();
 
-        provideIntervalInfo(nextVehicle);
-        provideVehicleTrackingInfo(vehicleLists);
+        provideIntervalInfo();
+        provideVehicleTrackingInfo();
         provideTrafficSignal();
     }
 
     /**
      * Provide sensing information to the intervalometers of all vehicles.
-     *
-     * @param nextVehicle  a mapping from vehicles to next vehicles
      */
-    private void provideIntervalInfo(
-            Map<AIMVehicleSimModel, AIMVehicleSimModel> nextVehicle) {
+    private void provideIntervalInfo() {
 
         // Now that we have this list set up, let's provide input to all the
         // Vehicles.
@@ -556,11 +644,12 @@ public class AutoDriverOnlySimulator implements AIMSimulator {
                     case DISABLED:
                         // Find the interval to the next vehicle
                         double interval;
+                        AIMVehicleSimModel nextVehicle = vehicleOrdering.getLeader(autoVehicle);
                         // If there is a next vehicle, then calculate it
-                        if(nextVehicle.containsKey(autoVehicle)) {
+                        if(nextVehicle != null) {
                             // It's the distance from the front of this Vehicle to the point
                             // at the rear of the Vehicle in front of it
-                            interval = calcInterval(autoVehicle, nextVehicle.get(autoVehicle));
+                            interval = calcInterval(autoVehicle, nextVehicle);
                         } else { // Otherwise, just set it to the maximum possible value
                             interval = Double.MAX_VALUE;
                         }
@@ -587,12 +676,8 @@ public class AutoDriverOnlySimulator implements AIMSimulator {
 
     /**
      * Provide tracking information to vehicles.
-     *
-     * @param vehicleLists  a mapping from lanes to lists of vehicles sorted by
-     *                      their distance on their lanes
      */
-    private void provideVehicleTrackingInfo(
-            Map<Lane, SortedMap<Double, AIMVehicleSimModel>> vehicleLists) {
+    private void provideVehicleTrackingInfo() {
         // Vehicle Tracking
         for(AIMVehicleSimModel vehicle: vinToVehicles.values()) {
             // If the vehicle is autonomous
@@ -611,26 +696,19 @@ public class AutoDriverOnlySimulator implements AIMSimulator {
                     AIMVehicleSimModel frontVehicle = null ;
                     AIMVehicleSimModel rearVehicle = null ;
 
-                    // only consider the vehicles on the target lane
-                    SortedMap<Double,AIMVehicleSimModel> vehiclesOnTargetLane =
-                            vehicleLists.get(targetLane);
-
+                    // only consider the vehicles on the target lane and
                     // compute the distances and the corresponding vehicles
-                    try {
-                        double d = vehiclesOnTargetLane.tailMap(dst).firstKey();
-                        frontVehicle = vehiclesOnTargetLane.get(d);
+                    int front = vehicleOrdering.ceilingIndex(targetLane, dst);
+                    if(front >= 0) {
+                        double d = vehicleOrdering.getPosition(targetLane, front);
+                        frontVehicle = vehicleOrdering.getVehicle(targetLane, front);
                         frontDst = (d-dst)-frontVehicle.getSpec().getLength();
-                    } catch(NoSuchElementException e) {
-                        frontDst = Double.MAX_VALUE;
-                        frontVehicle = null;
                     }
-                    try {
-                        double d = vehiclesOnTargetLane.headMap(dst).lastKey();
-                        rearVehicle = vehiclesOnTargetLane.get(d);
+                    int rear = vehicleOrdering.lowerIndex(targetLane, dst);
+                    if(rear >= 0) {
+                        double d = vehicleOrdering.getPosition(targetLane, rear);
+                        rearVehicle = vehicleOrdering.getVehicle(targetLane, rear);
                         rearDst = dst-d;
-                    } catch(NoSuchElementException e) {
-                        rearDst = Double.MAX_VALUE;
-                        rearVehicle = null;
                     }
 
                     // assign the sensor readings
@@ -693,19 +771,7 @@ public class AutoDriverOnlySimulator implements AIMSimulator {
         // From Chiu: Kurt, if you think this function is not okay, probably
         // we should talk to see what to do.
         Point2D pos = vehicle.getPosition();
-        if(nextVehicle.getShape().contains(pos)) {
-            return 0.0;
-        } else {
-            // TODO: make it more efficient
-            double interval = Double.MAX_VALUE ;
-            for(Line2D edge : nextVehicle.getEdges()) {
-                double dst = edge.ptSegDist(pos);
-                if(dst < interval){
-                    interval = dst;
-                }
-            }
-            return interval;
-        }
+        return nextVehicle.getOrientedBox().distanceTo(pos.getX(), pos.getY());
     }
     // Kurt's code:
     // interval = vehicle.getPosition().
@@ -755,6 +821,10 @@ public class AutoDriverOnlySimulator implements AIMSimulator {
      * Allow each driver to act.
      */
     private void letDriversAct() {
+        if (stepExecutor != null) {
+            stepExecutor.letDriversAct(vinToVehicles.values());
+            return;
+        }
         for(AIMVehicleSimModel vehicle : vinToVehicles.values()) {
             vehicle.getDriver().act();
         }
@@ -769,9 +839,23 @@ public class AutoDriverOnlySimulator implements AIMSimulator {
      *
      * @param timeStep  the time step
      */
-    private void letIntersectionManagersAct(double timeStep) {
-        for(IntersectionManager im : basicIntersectionMap.getIntersectionManagers()) {
-            im.act(timeStep);
+    private void letIntersectionManagersAct(final double timeStep) {
+        final List<IntersectionManager> ims =
+                basicIntersectionMap.getIntersectionManagers();
+        if (parallelManagers && stepExecutor != null) {
+            // each manager only touches its own inbox, reservations and
+            // outbox; the outboxes are delivered in order in communication()
+            stepExecutor.forEachManager(ims.size(),
+                    new ParallelStepExecutor.ManagerWork() {
+                @Override
+                public void run(int index) {
+                    ims.get(index).act(timeStep);
+                }
+            });
+        } else {
+            for(IntersectionManager im : ims) {
+                im.act(timeStep);
+            }
         }
     }
 
@@ -783,68 +867,142 @@ public class AutoDriverOnlySimulator implements AIMSimulator {
      * Deliver the V2I and I2V messages.
      */
     private void communication() {
+        vinIndex.rebuild(vinToVehicles);
         deliverV2IMessages();
         deliverI2VMessages();
 //    deliverV2VMessages();
     }
 
     /**
-     * Deliver the V2I messages.
+     * Get the inboxes of the intersection managers, creating them the first
+     * time or when the intersection managers have changed.
+     *
+     * @return the inboxes of the intersection managers
+     */
+    private ManagerInboxes<V2IMessage> getImInboxes() {
+        List<IntersectionManager> ims =
+                basicIntersectionMap.getIntersectionManagers();
+        if (imInboxes == null || imInboxes.size() != ims.size()) {
+            int[] ids = new int[ims.size()];
+            Point2D[] centroids = new Point2D[ims.size()];
+            for (int i = 0; i < ims.size(); i++) {
+                ids[i] = ims.get(i).getId();
+                centroids[i] = ims.get(i).getIntersection().getCentroid();
+            }
+            imInboxes = new ManagerInboxes<V2IMessage>(ids, centroids);
+        }
+        return imInboxes;
+    }
+
+    /**
+     * Deliver the V2I messages.  The messages are first partitioned by
+     * intersection manager in one pass over the vehicles, keeping the ones
+     * within the transmission range, and then each intersection manager
+     * receives its messages, in parallel if there is a step executor.
      */
     private void deliverV2IMessages() {
-        // Go through each vehicle and deliver each of its messages
+        final ManagerInboxes<V2IMessage> inboxes = getImInboxes();
+        // Go through each vehicle and partition its messages
         for(AIMVehicleSimModel vehicle : vinToVehicles.values()) {
             // Start with V2I messages
             if (vehicle instanceof AIMAutoVehicleSimModel) {
                 AIMAutoVehicleSimModel sender = (AIMAutoVehicleSimModel)vehicle;
                 Queue<V2IMessage> v2iOutbox = sender.getV2IOutbox();
-                while(!v2iOutbox.isEmpty()) {
-                    V2IMessage msg = v2iOutbox.poll();
-                    V2IManager receiver =
-                            (V2IManager) basicIntersectionMap.getImRegistry().get(msg.getImId());
-                    // Calculate the distance the message must travel
-                    double txDistance =
-                            sender.getPosition().distance(
-                                    receiver.getIntersection().getCentroid());
-                    // Find out if the message will make it that far
-                    if(transmit(txDistance, sender.getTransmissionPower())) {
-                        // Actually deliver the message
-                        receiver.receive(msg);
-                        // Add the delivery to the debugging information
+                if (v2iOutbox.isEmpty()) {
+                    continue;
+                }
+                Point2D position = sender.getPosition();
+                double power = sender.getTransmissionPower();
+                V2IMessage msg;
+                while((msg = v2iOutbox.poll()) != null) {
+                    int index = inboxes.indexOf(msg.getImId());
+                    // Find out if the message will make it to the intersection
+                    if(transmit(inboxes.distanceSq(index, position), power)) {
+                        inboxes.add(index, msg);
                     }
                     // Either way, we increment the number of transmitted messages
                 }
             }
         }
+        // Actually deliver the messages
+        final List<IntersectionManager> ims =
+                basicIntersectionMap.getIntersectionManagers();
+        ParallelStepExecutor.ManagerWork work =
+                new ParallelStepExecutor.ManagerWork() {
+            @Override
+            public void run(int index) {
+                V2IManager receiver = (V2IManager) ims.get(index);
+                for (V2IMessage msg : inboxes.get(index)) {
+                    receiver.receive(msg);
+                }
+            }
+        };
+        if (stepExecutor != null) {
+            stepExecutor.forEachManager(inboxes.size(), work);
+        } else {
+            for (int i = 0; i < inboxes.size(); i++) {
+                work.run(i);
+            }
+        }
+        profiler.countMessagesDelivered(inboxes.getNumOfMessages());
+        inboxes.clear();
     }
 
     /**
-     * Deliver the I2V messages.
+     * Deliver the I2V messages.  The messages are delivered in the order of
+     * the intersection managers, since a vehicle may receive messages from
+     * more than one of them.
      */
     private void deliverI2VMessages() {
+        ManagerInboxes<V2IMessage> inboxes = getImInboxes();
+        List<IntersectionManager> ims =
+                basicIntersectionMap.getIntersectionManagers();
+        int delivered = 0;
         // Now deliver all the I2V messages
-        for(IntersectionManager im : basicIntersectionMap.getIntersectionManagers()) {
-            V2IManager senderIM = (V2IManager)im;
+        for(int index = 0; index < ims.size(); index++) {
+            V2IManager senderIM = (V2IManager) ims.get(index);
+            double power = senderIM.getTransmissionPower();
             for(Iterator<I2VMessage> i2vIter = senderIM.outboxIterator();
                 i2vIter.hasNext();) {
                 I2VMessage msg = i2vIter.next();
+                countReservation(msg.getMessageType());
                 AIMAutoVehicleSimModel vehicle =
-                        (AIMAutoVehicleSimModel)VinRegistry.getVehicleFromVIN(
-                                msg.getVin());
-                // Calculate the distance the message must travel
-                double txDistance =
-                        senderIM.getIntersection().getCentroid().distance(
-                                vehicle.getPosition());
+                        (AIMAutoVehicleSimModel) vinIndex.get(msg.getVin());
+                if (vehicle == null) {
+                    continue;  // the vehicle has left the simulation
+                }
                 // Find out if the message will make it that far
-                if(transmit(txDistance, senderIM.getTransmissionPower())) {
+                if(transmit(inboxes.distanceSq(index, vehicle.getPosition()),
+                            power)) {
                     // Actually deliver the message
                     vehicle.receive(msg);
+                    delivered++;
                 }
             }
             // Done delivering the IntersectionManager's messages, so clear the
             // outbox.
             senderIM.clearOutbox();
         }
+        profiler.countMessagesDelivered(delivered);
+    }
+
+    /**
+     * Count the reservation made or rejected by an I2V message, whether or
+     * not the message reaches its vehicle.
+     *
+     * @param type  the type of the message
+     */
+    private void countReservation(I2VMessage.Type type) {
+        switch (type) {
+            case CONFIRM:
+                profiler.countReservationMade();
+                break;
+            case REJECT:
+                profiler.countReservationRejected();
+                break;
+            default:
+                break;
+        }
     }
 
 //  private void deliverV2VMessages() {
@@ -924,13 +1082,13 @@ public class AutoDriverOnlySimulator implements AIMSimulator {
     /**
      * Whether the transmission of a message is successful
      *
-     * @param distance  the distance of the transmission
-     * @param power     the power of the transmission
+     * @param distanceSq  the square of the distance of the transmission
+     * @param power       the power of the transmission
      * @return whether the transmission of a messsage is successful
      */
-    private boolean transmit(double distance, double power) {
-        // Simple for now
-        return distance <= power;
+    private boolean transmit(double distanceSq, double power) {
+        // Simple for now: the distance is at most the power
+        return distanceSq <= power * power;
     }
 
 
@@ -944,35 +1102,52 @@ public class AutoDriverOnlySimulator implements AIMSimulator {
      * @param timeStep  the time step
      */
     private void moveVehicles(double timeStep) {
-        for(AIMVehicleSimModel vehicle : vinToVehicles.values()) {
-            Point2D p1 = vehicle.getPosition();
-            vehicle.move(timeStep);
-            Point2D p2 = vehicle.getPosition();
-            for(DataCollectionLine line : basicIntersectionMap.getDataCollectionLines()) {
-                line.intersect(vehicle, currentTime, p1, p2);
+        if (stepExecutor != null) {
+            stepExecutor.moveVehicles(vinToVehicles.values(),
+                                      basicIntersectionMap.getDataCollectionLines(),
+                                      currentTime, timeStep);
+            for(AIMVehicleSimModel vehicle : vinToVehicles.values()) {
+                if (Debug.isPrintVehicleStateOfVIN(vehicle.getVIN())) {
+                    vehicle.printState();
+                }
             }
-            if (Debug.isPrintVehicleStateOfVIN(vehicle.getVIN())) {
-                vehicle.printState();
+        } else {
+            for(AIMVehicleSimModel vehicle : vinToVehicles.values()) {
+                Point2D p1 = vehicle.getPosition();
+                vehicle.move(timeStep);
+                Point2D p2 = vehicle.getPosition();
+                for(DataCollectionLine line : basicIntersectionMap.getDataCollectionLines()) {
+                    line.intersect(vehicle, currentTime, p1, p2);
+                }
+                if (Debug.isPrintVehicleStateOfVIN(vehicle.getVIN())) {
+                    vehicle.printState();
+                }
             }
         }
+        vehicleIndex.invalidate();
     }
 
     /**
-     * Detects collisions. Currently not used because vehicles collide - Go figure.
+     * Detects collisions, and counts them or stops the simulation at the
+     * first one as the collision check says.
      */
     private void checkForCollisions() {
-        Integer[] keys = vinToVehicles.keySet().toArray(new Integer[]{});
-        for(int i = 0; i < keys.length - 1; i++) { //-1 because we won't compare the last element with anything.
-            Integer[] keysToCompare = Arrays.copyOfRange(keys, i + 1, keys.length);
-            AIMVehicleSimModel vehicle1 = vinToVehicles.get(keys[i]);
-            for(int j = 0; j < keysToCompare.length; j++) {
-                AIMVehicleSimModel vehicle2 = vinToVehicles.get(keysToCompare[j]);
-                if(VehicleUtil.collision(vehicle1, vehicle2)) {
-                    throw new RuntimeException(String.format("There was a collision between vehicles %d and %d",
-                            vehicle1.getVIN(),
-                            vehicle2.getVIN()));
-                }
+        if (collisionCheck == CollisionCheck.FAIL) {
+            VehicleSpatialIndex.Collision<AIMVehicleSimModel> collision =
+                    vehicleIndex.findCollision();
+            if(collision != null) {
+                throw new RuntimeException(String.format("There was a collision between vehicles %d and %d",
+                        collision.getFirst().getVIN(),
+                        collision.getSecond().getVIN()));
             }
+            return;
+        }
+        collisions.clear();
+        vehicleIndex.collectCollisions(collisions);
+        for (VehicleSpatialIndex.Collision<AIMVehicleSimModel> collision : collisions) {
+            int vin1 = collision.getFirst().getVIN();
+            int vin2 = collision.getSecond().getVIN();
+            collidedPairs.add(((long) Math.min(vin1, vin2) << 32) | Math.max(vin1, vin2));
         }
     }
 
@@ -991,27 +1166,28 @@ public class AutoDriverOnlySimulator implements AIMSimulator {
 
         Rectangle2D mapBoundary = basicIntersectionMap.getDimensions();
 
-        List<Integer> removedVINs = new ArrayList<Integer>(vinToVehicles.size());
-        for(int vin : vinToVehicles.keySet()) {
-            AIMVehicleSimModel v = vinToVehicles.get(vin);
-            // If the vehicle is no longer in the layout
-            // TODO: this should be replaced with destination zone.
-            if(!v.getShape().intersects(mapBoundary)) {
-                // Process all the things we need to from this vehicle
-                if (v instanceof AIMAutoVehicleSimModel) {
-                    AIMAutoVehicleSimModel v2 = (AIMAutoVehicleSimModel)v;
-                    totalBitsTransmittedByCompletedVehicles += v2.getBitsTransmitted();
-                    totalBitsReceivedByCompletedVehicles += v2.getBitsReceived();
-                }
-                removedVINs.add(vin);
+        // If the vehicle is no longer in the layout
+        // TODO: this should be replaced with destination zone.
+        List<AIMVehicleSimModel> removedVehicles = new ArrayList<AIMVehicleSimModel>();
+        vehicleIndex.collectOutside(mapBoundary, removedVehicles);
+        for(AIMVehicleSimModel v : removedVehicles) {
+            // Process all the things we need to from this vehicle
+            if (v instanceof AIMAutoVehicleSimModel) {
+                AIMAutoVehicleSimModel v2 = (AIMAutoVehicleSimModel)v;
+                totalBitsTransmittedByCompletedVehicles += v2.getBitsTransmitted();
+                totalBitsReceivedByCompletedVehicles += v2.getBitsReceived();
             }
         }
         // Remove the marked vehicles
-        for(int vin : removedVINs) {
-            vinToVehicles.remove(vin);
-            completedVINs.add(vin);
+        for(AIMVehicleSimModel v : removedVehicles) {
+            vinToVehicles.remove(v.getVIN());
+            v.retire();
+            completedVINs.add(v.getVIN());
             numOfCompletedVehicles++;
         }
+        if (!removedVehicles.isEmpty()) {
+            vehicleIndex.invalidate();
+        }
 
         return completedVINs;
     }
@@ -1021,17 +1197,14 @@ public class AutoDriverOnlySimulator implements AIMSimulator {
         List<AIMVehicleSimModel> completedVehicles = new LinkedList<AIMVehicleSimModel>();
 
         Rectangle2D mapBoundary = basicIntersectionMap.getDimensions();
-        for(int vin : vinToVehicles.keySet()) {
-            if(!vinToVehicles.get(vin).getShape().intersects(mapBoundary))
-                completedVehicles.add(vinToVehicles.get(vin));
-        }
+        vehicleIndex.collectOutside(mapBoundary, completedVehicles);
 
         return completedVehicles;
     }
 
     private void recordCompletedVehicles(List<AIMVehicleSimModel> completedVehicles) {
         for(AIMVehicleSimModel vehicle : completedVehicles) {
-            vehiclesRecord.add(new AIMVehicleResult(
+            AIMVehicleResult result = new AIMVehicleResult(
                     vehicle.getVIN(),
                     vehicle.getStartingRoad().toString(),
                     vehicle.getSpec().getName(),
@@ -1043,7 +1216,19 @@ public class AutoDriverOnlySimulator implements AIMSimulator {
                     vehicle.getMinVelocity(),
                     vehicle.getFinalXPos(),
                     vehicle.getFinalYPos()
-            ));
+            );
+            if (resultsWriter == null) {
+                vehiclesRecord.add(result);
+                continue;
+            }
+            try {
+                resultsWriter.add(result);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            for (DataCollectionLine line : basicIntersectionMap.getDataCollectionLines()) {
+                line.forget(vehicle.getVIN());
+            }
         }
     }
 
@@ -1097,6 +1282,15 @@ public class AutoDriverOnlySimulator implements AIMSimulator {
     }
 
     public AIMResult produceResult() {
+        if (vehiclesRecord == null) {
+            throw new UnsupportedOperationException(
+                    "Vehicle results are only recorded in merge mode");
+        }
+        if (resultsWriter != null) {
+            return new AIMResult(resultsWriter.getStatistics(),
+                                 resultsWriter.getTargetStatistics(),
+                                 resultsWriter.getMergeStatistics());
+        }
         return new AIMResult(vehiclesRecord);
     }
 
@@ -11,8 +11,10 @@ import aim4.map.cpm.parking.ParkingLane;
 import aim4.map.cpm.parking.SensoredLine;
 import aim4.map.cpm.parking.StatusMonitor;
 import aim4.map.lane.Lane;
+import aim4.sim.SimulationContext;
 import aim4.sim.Simulator;
 import aim4.sim.results.SimulatorResult;
+import aim4.vehicle.VehicleLaneOrdering;
 import aim4.vehicle.VehicleSimModel;
 import aim4.vehicle.VehicleSpec;
 import aim4.vehicle.VinRegistry;
@@ -20,7 +22,6 @@ import aim4.vehicle.cpm.CPMBasicAutoVehicle;
 import sun.reflect.generics.reflectiveObjects.NotImplementedException;
 
 import java.awt.*;
-import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.*;
@@ -78,6 +79,10 @@ public class CPMAutoDriverSimulator implements Simulator {
     protected int numOfCompletedVehicles;
     /** A list of parked vehicles */
     protected List<CPMBasicAutoVehicle> parkedVehicles;
+    /** The order of the active vehicles on the lanes */
+    protected VehicleLaneOrdering<CPMBasicAutoVehicle> vehicleOrdering;
+    /** The simulation context in which the simulator was created */
+    protected SimulationContext context;
     /** The total number of bits transmitted by the completed vehicles */
     private int totalBitsTransmittedByCompletedVehicles;
     /** The total number of bits received by the completed vehicles */
@@ -85,8 +90,11 @@ public class CPMAutoDriverSimulator implements Simulator {
 
     public CPMAutoDriverSimulator(CPMBasicMap map){
         this.map = map;
+        this.context = SimulationContext.current();
         this.vinToVehicles = new HashMap<Integer,CPMBasicAutoVehicle>();
         this.parkedVehicles = new ArrayList<CPMBasicAutoVehicle>();
+        this.vehicleOrdering = new VehicleLaneOrdering<CPMBasicAutoVehicle>(
+                map.getRoads(), vinToVehicles.values(), true);
 
         currentTime = 0.0;
         numOfCompletedVehicles = 0;
@@ -98,6 +106,7 @@ public class CPMAutoDriverSimulator implements Simulator {
 
     @Override
     public SimStepResult step(double timeStep) {
+        context.bind();
         spawnVehicles(timeStep);
         provideSensorInput();
         findNextVehicles();
@@ -209,109 +218,23 @@ public class CPMAutoDriverSimulator implements Simulator {
 
     /**
      * Provide each vehicle with sensor information to allow it to make
-     * decisions.  This works first by making an ordered list for each Lane of
-     * all the vehicles in that Lane, in order from the start of the Lane to
-     * the end of the Lane.  We must make sure to leave out all vehicles that
-     * are in the intersection.  We must also concatenate the lists for lanes
-     * that feed into one another.  Then, for each vehicle, depending on the
-     * state of its sensors, we provide it with the appropriate sensor input.
+     * decisions.  This works first by bringing up to date the order of the
+     * vehicles on each Lane, from the start of the Lane to the end of the
+     * Lane, concatenating lanes that feed into one another.  Then, for each
+     * vehicle, depending on the state of its sensors, we provide it with the
+     * appropriate sensor input.
      */
     protected void provideSensorInput() {
-        Map<Lane,SortedMap<Double,CPMBasicAutoVehicle>> vehicleLists =
-                computeVehicleLists();
-        Map<CPMBasicAutoVehicle, CPMBasicAutoVehicle> nextVehicle =
-                computeNextVehicle(vehicleLists);
+        vehicleOrdering.update();
 
-        provideIntervalInfo(nextVehicle);
-        provideVehicleTrackingInfo(vehicleLists);
-    }
-
-    /**
-     * Compute the lists of vehicles of all lanes.
-     *
-     * @return a mapping from lanes to lists of vehicles sorted by their
-     *         distance on their lanes
-     */
-    private Map<Lane,SortedMap<Double,CPMBasicAutoVehicle>> computeVehicleLists() {
-        // Set up the structure that will hold all the Vehicles as they are
-        // currently ordered in the Lanes
-        Map<Lane,SortedMap<Double,CPMBasicAutoVehicle>> vehicleLists =
-                new HashMap<Lane,SortedMap<Double,CPMBasicAutoVehicle>>();
-        for(Road road : map.getRoads()) {
-            for(Lane lane : road.getLanes()) {
-                vehicleLists.put(lane, new TreeMap<Double,CPMBasicAutoVehicle>());
-            }
-        }
-        // Now add each of the Vehicles, but make sure to exclude those that are
-        // already inside (partially or entirely) the intersection
-        for(CPMBasicAutoVehicle vehicle : vinToVehicles.values()) {
-            // Find out what lanes it is in.
-            Set<Lane> lanes = vehicle.getDriver().getCurrentlyOccupiedLanes();
-            for(Lane lane : lanes) {
-                // Now find how far along the lane it is.
-                double dst = lane.distanceAlongLane(vehicle.getPosition());
-                // Now add it to the map.
-                vehicleLists.get(lane).put(dst, vehicle);
-            }
-        }
-        // Now consolidate the lists based on lanes
-        for(Road road : map.getRoads()) {
-            for(Lane lane : road.getLanes()) {
-                // We may have already removed this Lane from the map
-                if(vehicleLists.containsKey(lane)) {
-                    Lane currLane = lane;
-                    // Now run through the lanes
-                    while(currLane.hasNextLane()) {
-                        currLane = currLane.getNextLane();
-                        // Put everything from the next lane into the original lane
-                        // and remove the mapping for the next lane
-                        vehicleLists.get(lane).putAll(vehicleLists.remove(currLane));
-                    }
-                }
-            }
-        }
-
-        return vehicleLists;
-    }
-
-    /**
-     * Compute the next vehicles of all vehicles.
-     *
-     * @param vehicleLists  a mapping from lanes to lists of vehicles sorted by
-     *                      their distance on their lanes
-     * @return a mapping from vehicles to next vehicles
-     */
-    private Map<CPMBasicAutoVehicle, CPMBasicAutoVehicle> computeNextVehicle(
-            Map<Lane,SortedMap<Double,CPMBasicAutoVehicle>> vehicleLists) {
-        // At this point we should only have mappings for start Lanes, and they
-        // should include all the Lanes they run into.  Now we need to turn this
-        // into a hash map that maps Vehicles to the next vehicle in the Lane
-        // or any Lane the Lane runs into
-        Map<CPMBasicAutoVehicle, CPMBasicAutoVehicle> nextVehicle =
-                new HashMap<CPMBasicAutoVehicle,CPMBasicAutoVehicle>();
-        // For each of the ordered lists of vehicles
-        for(SortedMap<Double,CPMBasicAutoVehicle> vehicleList : vehicleLists.values()) {
-            CPMBasicAutoVehicle lastVehicle = null;
-            // Go through the Vehicles in order of their position in the Lane
-            for(CPMBasicAutoVehicle currVehicle : vehicleList.values()) {
-                if(lastVehicle != null) {
-                    // Create the mapping from the previous Vehicle to the current one
-                    nextVehicle.put(lastVehicle,currVehicle);
-                }
-                lastVehicle = currVehicle;
-            }
-        }
-
-        return nextVehicle;
+        provideIntervalInfo();
+        provideVehicleTrackingInfo();
     }
 
     /**
      * Provide sensing information to the intervalometers of all vehicles.
-     *
-     * @param nextVehicle  a mapping from vehicles to next vehicles
      */
-    private void provideIntervalInfo(
-            Map<CPMBasicAutoVehicle, CPMBasicAutoVehicle> nextVehicle) {
+    private void provideIntervalInfo() {
 
         // Now that we have this list set up, let's provide input to all the
         // Vehicles.
@@ -322,11 +245,12 @@ public class CPMAutoDriverSimulator implements Simulator {
                     case DISABLED:
                         // Find the interval to the next vehicle
                         double interval;
+                        CPMBasicAutoVehicle nextVehicle = vehicleOrdering.getLeader(vehicle);
                         // If there is a next vehicle, then calculate it
-                        if(nextVehicle.containsKey(vehicle)) {
+                        if(nextVehicle != null) {
                             // It's the distance from the front of this Vehicle to the point
                             // at the rear of the Vehicle in front of it
-                            interval = calcInterval(vehicle, nextVehicle.get(vehicle));
+                            interval = calcInterval(vehicle, nextVehicle);
                         } else { // Otherwise, just set it to the maximum possible value
                             interval = Double.MAX_VALUE;
                         }
@@ -363,29 +287,13 @@ public class CPMAutoDriverSimulator implements Simulator {
         // From Chiu: Kurt, if you think this function is not okay, probably
         // we should talk to see what to do.
         Point2D pos = vehicle.getPosition();
-        if(nextVehicle.getShape().contains(pos)) {
-            return 0.0;
-        } else {
-            // TODO: make it more efficient
-            double interval = Double.MAX_VALUE ;
-            for(Line2D edge : nextVehicle.getEdges()) {
-                double dst = edge.ptSegDist(pos);
-                if(dst < interval){
-                    interval = dst;
-                }
-            }
-            return interval;
-        }
+        return nextVehicle.getOrientedBox().distanceTo(pos.getX(), pos.getY());
     }
 
     /**
      * Provide tracking information to vehicles.
-     *
-     * @param vehicleLists  a mapping from lanes to lists of vehicles sorted by
-     *                      their distance on their lanes
      */
-    private void provideVehicleTrackingInfo(
-            Map<Lane, SortedMap<Double, CPMBasicAutoVehicle>> vehicleLists) {
+    private void provideVehicleTrackingInfo() {
         // Vehicle Tracking
         for(CPMBasicAutoVehicle vehicle: vinToVehicles.values()) {
             // If the vehicle is autonomous
@@ -404,26 +312,19 @@ public class CPMAutoDriverSimulator implements Simulator {
                     CPMBasicAutoVehicle frontVehicle = null ;
                     CPMBasicAutoVehicle rearVehicle = null ;
 
-                    // only consider the vehicles on the target lane
-                    SortedMap<Double,CPMBasicAutoVehicle> vehiclesOnTargetLane =
-                            vehicleLists.get(targetLane);
-
+                    // only consider the vehicles on the target lane and
                     // compute the distances and the corresponding vehicles
-                    try {
-                        double d = vehiclesOnTargetLane.tailMap(dst).firstKey();
-                        frontVehicle = vehiclesOnTargetLane.get(d);
+                    int front = vehicleOrdering.ceilingIndex(targetLane, dst);
+                    if(front >= 0) {
+                        double d = vehicleOrdering.getPosition(targetLane, front);
+                        frontVehicle = vehicleOrdering.getVehicle(targetLane, front);
                         frontDst = (d-dst)-frontVehicle.getSpec().getLength();
-                    } catch(NoSuchElementException e) {
-                        frontDst = Double.MAX_VALUE;
-                        frontVehicle = null;
                     }
-                    try {
-                        double d = vehiclesOnTargetLane.headMap(dst).lastKey();
-                        rearVehicle = vehiclesOnTargetLane.get(d);
+                    int rear = vehicleOrdering.lowerIndex(targetLane, dst);
+                    if(rear >= 0) {
+                        double d = vehicleOrdering.getPosition(targetLane, rear);
+                        rearVehicle = vehicleOrdering.getVehicle(targetLane, rear);
                         rearDst = dst-d;
-                    } catch(NoSuchElementException e) {
-                        rearDst = Double.MAX_VALUE;
-                        rearVehicle = null;
                     }
 
                     // assign the sensor readings
@@ -635,8 +536,9 @@ public class CPMAutoDriverSimulator implements Simulator {
         }
         // Remove the marked vehicles
         for(int vin : removedVINs) {
-            completedVehicles.add(vinToVehicles.get(vin));
-            vinToVehicles.remove(vin);
+            CPMBasicAutoVehicle vehicle = vinToVehicles.remove(vin);
+            vehicle.retire();
+            completedVehicles.add(vehicle);
             numOfCompletedVehicles++;
         }
         return completedVehicles;
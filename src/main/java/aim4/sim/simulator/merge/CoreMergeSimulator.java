@@ -3,22 +3,34 @@ package aim4.sim.simulator.merge;
 import aim4.map.DataCollectionLine;
 import aim4.map.merge.MergeMap;
 import aim4.map.merge.RoadNames;
+import aim4.sim.CollisionCheck;
+import aim4.sim.ParallelStepExecutor;
+import aim4.sim.ParallelStepSimulator;
+import aim4.sim.SimulationContext;
+import aim4.sim.profile.ProfiledSimulator;
+import aim4.sim.profile.StepProfiler;
+import aim4.sim.profile.StepStage;
 import aim4.sim.results.CoreMergeResult;
 import aim4.sim.results.CoreMergeVehicleResult;
+import aim4.sim.results.StreamingResultsSimulator;
+import aim4.sim.results.VehicleResultsWriter;
 import aim4.sim.setup.merge.enums.ProtocolType;
 import aim4.sim.simulator.merge.helper.SensorInputHelper;
 import aim4.sim.simulator.merge.helper.SpawnHelper;
-import aim4.vehicle.VehicleUtil;
+import aim4.vehicle.VehicleSpatialIndex;
 import aim4.vehicle.merge.MergeVehicleSimModel;
 
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 /**
  * Created by Callum on 08/03/2017.
  */
-public class CoreMergeSimulator implements MergeSimulator {
+public class CoreMergeSimulator implements MergeSimulator, ProfiledSimulator, ParallelStepSimulator,
+        StreamingResultsSimulator {
     //NESTED CLASSES//
     public static class CoreMergeSimStepResult implements SimStepResult {
         private Map<Integer, MergeVehicleSimModel> completedVehicles;
@@ -41,9 +53,25 @@ public class CoreMergeSimulator implements MergeSimulator {
     private int numberOfCompletedVehicles;
     /* The protocol type */
     protected ProtocolType protocolType;
+    /* The spatial index of the active vehicles */
+    protected VehicleSpatialIndex<MergeVehicleSimModel> vehicleIndex;
+    /* The simulation context in which the simulator was created */
+    protected SimulationContext context;
+    /* The profiler of the steps */
+    protected final StepProfiler profiler = new StepProfiler();
+    /* The executor of the parallel phases, or null to run them serially */
+    protected ParallelStepExecutor stepExecutor;
+    /* What is done about collisions between vehicles */
+    protected CollisionCheck collisionCheck = CollisionCheck.COUNT;
+    /* The pairs of VINs of the vehicles that have collided */
+    private final Set<Long> collidedPairs = new HashSet<Long>();
+    /* The collisions found in the current step */
+    private final List<VehicleSpatialIndex.Collision<MergeVehicleSimModel>> collisions =
+            new ArrayList<VehicleSpatialIndex.Collision<MergeVehicleSimModel>>();
 
     //RESULTS//
     protected List<CoreMergeVehicleResult> vehiclesRecord;
+    protected VehicleResultsWriter resultsWriter;
     protected Map<String, Double> specToExpectedTimeMergeLane;
     protected Map<String, Double> specToExpectedTimeTargetLane;
 
@@ -62,13 +90,16 @@ public class CoreMergeSimulator implements MergeSimulator {
                               Map<String, Double> specToExpectedTimeTargetLane){
         this.map = map;
         this.protocolType = protocolType;
+        this.context = SimulationContext.current();
         this.vinToVehicles = new HashMap<Integer, MergeVehicleSimModel>();
         this.vehiclesRecord = new ArrayList<CoreMergeVehicleResult>();
 
         currentTime = 0.0;
         numberOfCompletedVehicles = 0;
 
-        this.spawnHelper = new SpawnHelper(map, vinToVehicles);
+        this.vehicleIndex =
+                new VehicleSpatialIndex<MergeVehicleSimModel>(map.getDimensions(), vinToVehicles.values());
+        this.spawnHelper = new SpawnHelper(map, vinToVehicles, vehicleIndex);
         this.sensorInputHelper = new SensorInputHelper(map, vinToVehicles);
         this.specToExpectedTimeMergeLane = specToExpectedTimeMergeLane;
         this.specToExpectedTimeTargetLane = specToExpectedTimeTargetLane;
@@ -76,17 +107,26 @@ public class CoreMergeSimulator implements MergeSimulator {
 
     @Override
     public synchronized CoreMergeSimStepResult step(double timeStep) {
+        context.bind();
+        profiler.beginStep();
         spawnHelper.spawnVehicles(timeStep, protocolType);
+        profiler.endStage(StepStage.SPAWN);
         sensorInputHelper.provideSensorInput();
+        profiler.endStage(StepStage.SENSOR_INPUT);
         letDriversAct();
+        profiler.endStage(StepStage.DRIVERS_ACT);
         moveVehicles(timeStep);
-        //checkForCollisions(); TODO: Fix collision prevention so that this can be run.
+        profiler.endStage(StepStage.MOVE);
+        if(collisionCheck != CollisionCheck.OFF)
+            checkForCollisions();
 
         Map<Integer, MergeVehicleSimModel> completedVehicles = cleanUpCompletedVehicles();
         provideCompletedVehiclesWithResultsInfo(completedVehicles);
         recordCompletedVehicles(completedVehicles);
         updateMaxMinVelocities();
         incrementCurrentTime(timeStep);
+        profiler.endStage(StepStage.CLEANUP);
+        profiler.endStep(getSimulationTime(), vinToVehicles.size());
 
         return new CoreMergeSimStepResult(completedVehicles);
     }
@@ -96,6 +136,51 @@ public class CoreMergeSimulator implements MergeSimulator {
         return map;
     }
 
+    @Override
+    public StepProfiler getProfiler() {
+        return profiler;
+    }
+
+    @Override
+    public void setStepExecutor(ParallelStepExecutor executor) {
+        this.stepExecutor = executor;
+    }
+
+    /**
+     * Set what is done about collisions between vehicles after they move.  Collisions are counted by default.
+     * @param collisionCheck what is done about collisions
+     */
+    public synchronized void setCollisionCheck(CollisionCheck collisionCheck) {
+        this.collisionCheck = collisionCheck;
+    }
+
+    public synchronized CollisionCheck getCollisionCheck() {
+        return collisionCheck;
+    }
+
+    /**
+     * Get the number of pairs of vehicles that have collided so far, if collisions are counted.
+     * @return the number of pairs of vehicles that have collided
+     */
+    public synchronized int getNumOfCollisions() {
+        return collidedPairs.size();
+    }
+
+    @Override
+    public ParallelStepExecutor getStepExecutor() {
+        return stepExecutor;
+    }
+
+    @Override
+    public void setResultsWriter(VehicleResultsWriter writer) {
+        this.resultsWriter = writer;
+    }
+
+    @Override
+    public VehicleResultsWriter getResultsWriter() {
+        return resultsWriter;
+    }
+
     @Override
     public double getSimulationTime() {
         return currentTime;
@@ -132,12 +217,21 @@ public class CoreMergeSimulator implements MergeSimulator {
 
     //STEP DRIVERS//
     protected void letDriversAct() {
+        if(stepExecutor != null) {
+            stepExecutor.letDriversAct(vinToVehicles.values());
+            return;
+        }
         for(MergeVehicleSimModel vehicle : vinToVehicles.values()) {
             vehicle.getDriver().act();
         }
     }
 
     protected void moveVehicles(double timestep) {
+        if(stepExecutor != null) {
+            stepExecutor.moveVehicles(vinToVehicles.values(), map.getDataCollectionLines(), currentTime, timestep);
+            vehicleIndex.invalidate();
+            return;
+        }
         for(MergeVehicleSimModel vehicle : vinToVehicles.values()) {
             Point2D p1 = vehicle.getPosition();
             vehicle.move(timestep);
@@ -146,6 +240,7 @@ public class CoreMergeSimulator implements MergeSimulator {
                 line.intersect(vehicle, currentTime, p1, p2);
             }
         }
+        vehicleIndex.invalidate();
     }
 
     //CLEAN UP//
@@ -154,39 +249,40 @@ public class CoreMergeSimulator implements MergeSimulator {
 
         Rectangle2D mapBoundary = map.getDimensions();
 
-        List<MergeVehicleSimModel> removedVehicles = new ArrayList<MergeVehicleSimModel>(vinToVehicles.size());
-        for(int vin : vinToVehicles.keySet()) {
-            MergeVehicleSimModel v = vinToVehicles.get(vin);
-            if(!v.getShape().intersects(mapBoundary)){
-                removedVehicles.add(v);
-            }
-        }
+        List<MergeVehicleSimModel> removedVehicles = new ArrayList<MergeVehicleSimModel>();
+        vehicleIndex.collectOutside(mapBoundary, removedVehicles);
         for(MergeVehicleSimModel vehicle : removedVehicles) {
             vinToVehicles.remove(vehicle.getVIN());
+            vehicle.retire();
             completedVehicles.put(vehicle.getVIN(), vehicle);
             numberOfCompletedVehicles++;
         }
+        if(!removedVehicles.isEmpty())
+            vehicleIndex.invalidate();
 
         return completedVehicles;
     }
 
     //CHECKS//
     /**
-     * Detects collisions. Currently not used because vehicles collide - Go figure.
+     * Detects collisions, and counts them or stops the simulation at the first one as the collision check says.
      */
     protected void checkForCollisions() {
-        Integer[] keys = vinToVehicles.keySet().toArray(new Integer[]{});
-        for(int i = 0; i < keys.length - 1; i++) { //-1 because we won't compare the last element with anything.
-            Integer[] keysToCompare = Arrays.copyOfRange(keys, i + 1, keys.length);
-            MergeVehicleSimModel vehicle1 = vinToVehicles.get(keys[i]);
-            for(int j = 0; j < keysToCompare.length; j++) {
-                MergeVehicleSimModel vehicle2 = vinToVehicles.get(keysToCompare[j]);
-                if(VehicleUtil.collision(vehicle1, vehicle2)) {
-                    throw new RuntimeException(String.format("There was a collision between vehicles %d and %d",
-                            vehicle1.getVIN(),
-                            vehicle2.getVIN()));
-                }
+        if(collisionCheck == CollisionCheck.FAIL) {
+            VehicleSpatialIndex.Collision<MergeVehicleSimModel> collision = vehicleIndex.findCollision();
+            if(collision != null) {
+                throw new RuntimeException(String.format("There was a collision between vehicles %d and %d",
+                        collision.getFirst().getVIN(),
+                        collision.getSecond().getVIN()));
             }
+            return;
+        }
+        collisions.clear();
+        vehicleIndex.collectCollisions(collisions);
+        for(VehicleSpatialIndex.Collision<MergeVehicleSimModel> collision : collisions) {
+            int vin1 = collision.getFirst().getVIN();
+            int vin2 = collision.getSecond().getVIN();
+            collidedPairs.add(((long) Math.min(vin1, vin2) << 32) | Math.max(vin1, vin2));
         }
     }
 
@@ -196,6 +292,11 @@ public class CoreMergeSimulator implements MergeSimulator {
     }
 
     public CoreMergeResult produceResult() {
+        if(resultsWriter != null) {
+            return new CoreMergeResult(resultsWriter.getStatistics(),
+                    resultsWriter.getTargetStatistics(),
+                    resultsWriter.getMergeStatistics());
+        }
         CoreMergeResult result = new CoreMergeResult(vehiclesRecord);
         return result;
     }
@@ -238,7 +339,7 @@ public class CoreMergeSimulator implements MergeSimulator {
     protected void recordCompletedVehicles(Map<Integer, MergeVehicleSimModel> completedVehicles) {
         for(int vin : completedVehicles.keySet()) {
             MergeVehicleSimModel vehicle = completedVehicles.get(vin);
-            vehiclesRecord.add(new CoreMergeVehicleResult(
+            CoreMergeVehicleResult result = new CoreMergeVehicleResult(
                     vin,
                     vehicle.getStartingRoad().toString(),
                     vehicle.getSpec().getName(),
@@ -250,7 +351,18 @@ public class CoreMergeSimulator implements MergeSimulator {
                     vehicle.getMinVelocity(),
                     vehicle.getFinalXPos(),
                     vehicle.getFinalYPos()
-            ));
+            );
+            if(resultsWriter == null) {
+                vehiclesRecord.add(result);
+                continue;
+            }
+            try {
+                resultsWriter.add(result);
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            for(DataCollectionLine line : map.getDataCollectionLines())
+                line.forget(vin);
         }
     }
 
@@ -5,12 +5,18 @@ import aim4.im.merge.V2IEnabledMergeManager;
 import aim4.map.merge.MergeMap;
 import aim4.msg.merge.i2v.I2VMergeMessage;
 import aim4.msg.merge.v2i.V2IMergeMessage;
+import aim4.sim.CollisionCheck;
+import aim4.sim.ManagerInboxes;
+import aim4.sim.ParallelStepExecutor;
+import aim4.sim.VinIndex;
+import aim4.sim.profile.StepStage;
 import aim4.sim.setup.merge.enums.ProtocolType;
-import aim4.vehicle.VinRegistry;
 import aim4.vehicle.merge.MergeV2IAutoVehicleSimModel;
 import aim4.vehicle.merge.MergeVehicleSimModel;
 
+import java.awt.geom.Point2D;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 
@@ -18,7 +24,11 @@ import java.util.Queue;
  * Created by Callum on 13/04/2017.
  */
 public class V2IMergeSimulator extends CoreMergeSimulator {
-
+    //COMMUNICATION AIDS//
+    /* The active vehicles indexed by VIN, rebuilt for the communication */
+    private final VinIndex<MergeVehicleSimModel> vinIndex = new VinIndex<MergeVehicleSimModel>();
+    /* The inboxes of the merge managers */
+    private ManagerInboxes<V2IMergeMessage> mmInboxes;
 
     public V2IMergeSimulator(MergeMap map, ProtocolType protocolType) {
         super(map, protocolType);
@@ -34,19 +44,30 @@ public class V2IMergeSimulator extends CoreMergeSimulator {
     // ACTION //
     @Override
     public synchronized CoreMergeSimStepResult step(double timeStep) {
+        context.bind();
+        profiler.beginStep();
         spawnHelper.spawnVehicles(timeStep, protocolType);
+        profiler.endStage(StepStage.SPAWN);
         sensorInputHelper.provideSensorInput();
+        profiler.endStage(StepStage.SENSOR_INPUT);
         letDriversAct();
+        profiler.endStage(StepStage.DRIVERS_ACT);
         letMergeManagersAct(timeStep);
+        profiler.endStage(StepStage.MANAGERS_ACT);
         communication();
+        profiler.endStage(StepStage.COMMUNICATION);
         moveVehicles(timeStep);
-        //checkForCollisions(); TODO: Fix collision prevention so that this can be run.
+        profiler.endStage(StepStage.MOVE);
+        if(collisionCheck != CollisionCheck.OFF)
+            checkForCollisions();
 
         Map<Integer, MergeVehicleSimModel> completedVehicles = cleanUpCompletedVehicles();
         provideCompletedVehiclesWithResultsInfo(completedVehicles);
         recordCompletedVehicles(completedVehicles);
         updateMaxMinVelocities();
         incrementCurrentTime(timeStep);
+        profiler.endStage(StepStage.CLEANUP);
+        profiler.endStep(getSimulationTime(), getVinToVehicles().size());
 
         return new CoreMergeSimStepResult(completedVehicles);
     }
@@ -58,71 +79,137 @@ public class V2IMergeSimulator extends CoreMergeSimulator {
 
     // COMMUNICATION //
     private void communication() {
+        vinIndex.rebuild(getVinToVehicles());
         deliverV2IMessages();
         deliverI2VMessages();
     }
 
+    /**
+     * Get the inboxes of the merge managers, creating them the first time or when the merge managers have changed.
+     *
+     * @return the inboxes of the merge managers
+     */
+    private ManagerInboxes<V2IMergeMessage> getMMInboxes() {
+        List<MergeManager> mms = getMap().getMergeManagers();
+        if(mmInboxes == null || mmInboxes.size() != mms.size()) {
+            int[] ids = new int[mms.size()];
+            Point2D[] centroids = new Point2D[mms.size()];
+            for(int i = 0; i < mms.size(); i++) {
+                ids[i] = mms.get(i).getId();
+                centroids[i] = mms.get(i).getMergeConnection().getCentroid();
+            }
+            mmInboxes = new ManagerInboxes<V2IMergeMessage>(ids, centroids);
+        }
+        return mmInboxes;
+    }
+
+    /**
+     * Deliver the V2I messages. The messages are partitioned by merge manager in one pass over the vehicles, keeping
+     * the ones within the transmission range, and then each merge manager receives its messages, in parallel if
+     * there is a step executor.
+     */
     private void deliverV2IMessages() {
-        //Loop each vehicle and deliver messages
+        final ManagerInboxes<V2IMergeMessage> inboxes = getMMInboxes();
+        //Loop each vehicle and partition its messages
         for(MergeVehicleSimModel vehicle : getVinToVehicles().values()){
             if(vehicle instanceof MergeV2IAutoVehicleSimModel) {
                 MergeV2IAutoVehicleSimModel sender = (MergeV2IAutoVehicleSimModel) vehicle;
                 Queue<V2IMergeMessage> v2iOutbox = sender.getV2IOutbox();
-                while(!v2iOutbox.isEmpty()) {
-                    V2IMergeMessage msg = v2iOutbox.poll();
-                    V2IEnabledMergeManager receiver =
-                            (V2IEnabledMergeManager) getMap().getMMRegistry().get(msg.getMMID());
-                    //Calculate distance message must travel
-                    double txDistance =
-                            sender.getPosition().distance(
-                                    receiver.getMergeConnection().getCentroid());
+                if(v2iOutbox.isEmpty())
+                    continue;
+                Point2D position = sender.getPosition();
+                double power = sender.getTransmissionPower();
+                V2IMergeMessage msg;
+                while((msg = v2iOutbox.poll()) != null) {
+                    int index = inboxes.indexOf(msg.getMMID());
                     //Find out if message can make it there.
-                    if(transmit(txDistance, sender.getTransmissionPower())) {
-                        receiver.receive(msg);
-                    }
+                    if(transmit(inboxes.distanceSq(index, position), power))
+                        inboxes.add(index, msg);
                 }
             }
         }
+        //Deliver the messages
+        final List<MergeManager> mms = getMap().getMergeManagers();
+        ParallelStepExecutor.ManagerWork work = new ParallelStepExecutor.ManagerWork() {
+            @Override
+            public void run(int index) {
+                V2IEnabledMergeManager receiver = (V2IEnabledMergeManager) mms.get(index);
+                for(V2IMergeMessage msg : inboxes.get(index))
+                    receiver.receive(msg);
+            }
+        };
+        if(stepExecutor != null) {
+            stepExecutor.forEachManager(inboxes.size(), work);
+        } else {
+            for(int i = 0; i < inboxes.size(); i++)
+                work.run(i);
+        }
+        profiler.countMessagesDelivered(inboxes.getNumOfMessages());
+        inboxes.clear();
     }
 
     /**
-     * Deliver the I2V messages.
+     * Deliver the I2V messages. The messages are delivered in the order of the merge managers, since a vehicle may
+     * receive messages from more than one of them.
      */
     private void deliverI2VMessages() {
+        ManagerInboxes<V2IMergeMessage> inboxes = getMMInboxes();
+        List<MergeManager> mms = getMap().getMergeManagers();
+        int delivered = 0;
         // Now deliver all the I2V messages
-        for(MergeManager im : getMap().getMergeManagers()) {
-            V2IEnabledMergeManager senderMM = (V2IEnabledMergeManager)im;
+        for(int index = 0; index < mms.size(); index++) {
+            V2IEnabledMergeManager senderMM = (V2IEnabledMergeManager) mms.get(index);
+            double power = senderMM.getTransmissionPower();
             for(Iterator<I2VMergeMessage> i2vIter = senderMM.outboxIterator();
                 i2vIter.hasNext();) {
                 I2VMergeMessage msg = i2vIter.next();
+                countReservation(msg.getMessageType());
                 MergeV2IAutoVehicleSimModel vehicle =
-                        (MergeV2IAutoVehicleSimModel) VinRegistry.getVehicleFromVIN(
-                                msg.getVin());
-                // Calculate the distance the message must travel
-                double txDistance =
-                        senderMM.getMergeConnection().getCentroid().distance(
-                                vehicle.getPosition());
+                        (MergeV2IAutoVehicleSimModel) vinIndex.get(msg.getVin());
+                if(vehicle == null)
+                    continue; // the vehicle has left the simulation
                 // Find out if the message will make it that far
-                if(transmit(txDistance, senderMM.getTransmissionPower())) {
+                if(transmit(inboxes.distanceSq(index, vehicle.getPosition()), power)) {
                     // Actually deliver the message
                     vehicle.receive(msg);
+                    delivered++;
                 }
             }
             // Done delivering the IntersectionManager's messages, so clear the
             // outbox.
             senderMM.clearOutbox();
         }
+        profiler.countMessagesDelivered(delivered);
+    }
+
+    /**
+     * Count the reservation made or rejected by an I2V message, whether or
+     * not the message reaches its vehicle.
+     *
+     * @param type  the type of the message
+     */
+    private void countReservation(I2VMergeMessage.Type type) {
+        switch (type) {
+            case CONFIRM:
+                profiler.countReservationMade();
+                break;
+            case REJECT:
+                profiler.countReservationRejected();
+                break;
+            default:
+                break;
+        }
     }
 
     /**
      * Whether the transmission of a message is successful
      *
-     * @param distance  the distance of the transmission
-     * @param power     the power of the transmission
+     * @param distanceSq  the square of the distance of the transmission
+     * @param power       the power of the transmission
      * @return whether the transmission of a messsage is successful
      */
-    private boolean transmit(double distance, double power) {
-        // Simple for now
-        return distance <= power;
+    private boolean transmit(double distanceSq, double power) {
+        // Simple for now: the distance is at most the power
+        return distanceSq <= power * power;
     }
 }
@@ -1,15 +1,14 @@
 package aim4.sim.simulator.merge.helper;
 
 import aim4.driver.merge.MergeAutoDriver;
-import aim4.map.Road;
 import aim4.map.lane.Lane;
 import aim4.map.merge.MergeMap;
+import aim4.vehicle.VehicleLaneOrdering;
 import aim4.vehicle.merge.MergeAutoVehicleSimModel;
 import aim4.vehicle.merge.MergeVehicleSimModel;
 
-import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
-import java.util.*;
+import java.util.Map;
 
 /**
  * Created by Callum on 15/03/2017.
@@ -17,6 +16,7 @@ import java.util.*;
 public class SensorInputHelper {
     MergeMap map;
     Map<Integer, MergeVehicleSimModel> vinToVehicles;
+    VehicleLaneOrdering<MergeVehicleSimModel> vehicleOrdering;
 
     /**
      * Provides sensor input for the
@@ -27,79 +27,30 @@ public class SensorInputHelper {
     public SensorInputHelper(MergeMap map, Map<Integer, MergeVehicleSimModel> vinToVehicles) {
         this.map = map;
         this.vinToVehicles = vinToVehicles;
+        this.vehicleOrdering =
+                new VehicleLaneOrdering<MergeVehicleSimModel>(map.getRoads(), vinToVehicles.values(), false);
     }
 
     /**
      * Provides sensor input to all of the vehicles on all of the lanes.
      */
     public void provideSensorInput() {
-        Map<Lane, SortedMap<Double, MergeVehicleSimModel>> vehicleLists = computeVehicleLists();
-        Map<MergeVehicleSimModel, MergeVehicleSimModel> nextVehicle = computeNextVehicle(vehicleLists);
+        vehicleOrdering.update();
 
-        provideIntervalInfo(nextVehicle);
-        providePrecedingVehicleVIN(nextVehicle);
-        provideVehicleTrackingInfo(vehicleLists);
+        provideIntervalInfo();
+        providePrecedingVehicleVIN();
+        provideVehicleTrackingInfo();
     }
 
-    /**
-     * Computes a list of all of the vehicles on the lanes.
-     *
-     * @return a mapping from lanes to lists of vehicles sorted by their distance on their lanes.
-     */
-    private Map<Lane, SortedMap<Double, MergeVehicleSimModel>> computeVehicleLists() {
-        //Creating the structure for the vehicle mapping
-        Map<Lane, SortedMap<Double, MergeVehicleSimModel>> vehicleLists =
-                new HashMap<Lane, SortedMap<Double, MergeVehicleSimModel>>();
-        for (Road road : map.getRoads()) {
-            for (Lane lane : road.getLanes()) {
-                vehicleLists.put(lane, new TreeMap<Double, MergeVehicleSimModel>());
-            }
-        }
-
-        //Adding all of the vehicles
-        for (MergeVehicleSimModel vehicle : vinToVehicles.values()) {
-            Set<Lane> lanes = vehicle.getDriver().getCurrentlyOccupiedLanes();
-            for (Lane lane : lanes) {
-                double distanceAlongLane = lane.distanceAlongLane(vehicle.getPosition());
-                vehicleLists.get(lane).put(distanceAlongLane, vehicle);
-            }
-        }
-
-        return vehicleLists;
-    }
-
-    /**
-     * Finds the preceding vehicle for all of the vehicles. This is the preceding vehicle for the lane the vehicle is
-     * currently on.
-     *
-     * @param vehicleLists
-     * @return
-     */
-    private Map<MergeVehicleSimModel, MergeVehicleSimModel> computeNextVehicle(
-            Map<Lane, SortedMap<Double, MergeVehicleSimModel>> vehicleLists) {
-        Map<MergeVehicleSimModel, MergeVehicleSimModel> nextVehicle =
-                new HashMap<MergeVehicleSimModel, MergeVehicleSimModel>();
-        for (SortedMap<Double, MergeVehicleSimModel> vehicleList : vehicleLists.values()) {
-            MergeVehicleSimModel lastVehicle = null;
-            for (MergeVehicleSimModel currVehicle : vehicleList.values()) {
-                if (lastVehicle != null) {
-                    nextVehicle.put(lastVehicle, currVehicle);
-                }
-                lastVehicle = currVehicle;
-            }
-        }
-
-        return nextVehicle;
-    }
-
-    private void provideIntervalInfo(Map<MergeVehicleSimModel, MergeVehicleSimModel> nextVehicle) {
+    private void provideIntervalInfo() {
         for (MergeVehicleSimModel mergeVehicle : vinToVehicles.values()) {
             if (mergeVehicle instanceof MergeAutoVehicleSimModel) {
                 MergeAutoVehicleSimModel autoVehicle = (MergeAutoVehicleSimModel) mergeVehicle;
 
                 double interval;
-                if (nextVehicle.containsKey(autoVehicle)) {
-                    interval = calcInterval(autoVehicle, nextVehicle.get(autoVehicle));
+                MergeVehicleSimModel nextVehicle = vehicleOrdering.getLeader(autoVehicle);
+                if (nextVehicle != null) {
+                    interval = calcInterval(autoVehicle, nextVehicle);
                 } else {
                     interval = Double.MAX_VALUE;
                 }
@@ -110,20 +61,21 @@ public class SensorInputHelper {
 
     }
 
-    private void providePrecedingVehicleVIN(Map<MergeVehicleSimModel, MergeVehicleSimModel> nextVehicle) {
+    private void providePrecedingVehicleVIN() {
         for (MergeVehicleSimModel mergeVehicle : vinToVehicles.values()) {
             if(mergeVehicle instanceof MergeAutoVehicleSimModel) {
                 MergeAutoVehicleSimModel autoVehicle = (MergeAutoVehicleSimModel) mergeVehicle;
 
-                if(nextVehicle.containsKey(autoVehicle))
-                    autoVehicle.setPrecedingVehicleVIN(nextVehicle.get(autoVehicle).getVIN());
+                MergeVehicleSimModel nextVehicle = vehicleOrdering.getLeader(autoVehicle);
+                if(nextVehicle != null)
+                    autoVehicle.setPrecedingVehicleVIN(nextVehicle.getVIN());
                 else
                     autoVehicle.setPrecedingVehicleVIN(0);
             }
         }
     }
 
-    private void provideVehicleTrackingInfo(Map<Lane, SortedMap<Double, MergeVehicleSimModel>> vehicleLists) {
+    private void provideVehicleTrackingInfo() {
         for(MergeVehicleSimModel vehicle : vinToVehicles.values()) {
             if(vehicle instanceof MergeVehicleSimModel) {
                 MergeAutoVehicleSimModel autoVehicle = (MergeAutoVehicleSimModel) vehicle;
@@ -140,26 +92,19 @@ public class SensorInputHelper {
                     MergeVehicleSimModel frontVehicle = null;
                     MergeVehicleSimModel rearVehicle = null;
 
-                    //only consider the vehicles on the target tracking lane
-                    SortedMap<Double, MergeVehicleSimModel> vehiclesOnTargetLane =
-                            vehicleLists.get(targetLaneForTracking);
-
+                    //only consider the vehicles on the target tracking lane and
                     // compute the distances and the corresponding vehicles
-                    try {
-                        double d = vehiclesOnTargetLane.tailMap(dst).firstKey();
-                        frontVehicle = vehiclesOnTargetLane.get(d);
+                    int front = vehicleOrdering.ceilingIndex(targetLaneForTracking, dst);
+                    if(front >= 0) {
+                        double d = vehicleOrdering.getPosition(targetLaneForTracking, front);
+                        frontVehicle = vehicleOrdering.getVehicle(targetLaneForTracking, front);
                         frontDst = (d-dst)-frontVehicle.getSpec().getLength();
-                    } catch(NoSuchElementException e) {
-                        frontDst = Double.MAX_VALUE;
-                        frontVehicle = null;
                     }
-                    try {
-                        double d = vehiclesOnTargetLane.headMap(dst).lastKey();
-                        rearVehicle = vehiclesOnTargetLane.get(d);
+                    int rear = vehicleOrdering.lowerIndex(targetLaneForTracking, dst);
+                    if(rear >= 0) {
+                        double d = vehicleOrdering.getPosition(targetLaneForTracking, rear);
+                        rearVehicle = vehicleOrdering.getVehicle(targetLaneForTracking, rear);
                         rearDst = dst-d;
-                    } catch(NoSuchElementException e) {
-                        rearDst = Double.MAX_VALUE;
-                        rearVehicle = null;
                     }
 
                     //assign the sensor readings
@@ -187,17 +132,6 @@ public class SensorInputHelper {
 
     private double calcInterval(MergeVehicleSimModel vehicle, MergeVehicleSimModel nextVehicle) {
         Point2D pos = vehicle.getPosition();
-        if(nextVehicle.getShape().contains(pos)) {
-            return 0.0;
-        } else {
-            double interval = Double.MAX_VALUE;
-            for(Line2D edge : nextVehicle.getEdges()) {
-                double dst = edge.ptSegDist(pos);
-                if(dst < interval) {
-                    interval = dst;
-                }
-            }
-            return interval;
-        }
+        return nextVehicle.getOrientedBox().distanceTo(pos.getX(), pos.getY());
     }
 }
@@ -7,6 +7,7 @@ import aim4.map.merge.MergeMap;
 import aim4.map.merge.MergeSpawnPoint;
 import aim4.map.merge.RoadNames;
 import aim4.sim.setup.merge.enums.ProtocolType;
+import aim4.vehicle.VehicleSpatialIndex;
 import aim4.vehicle.VehicleSpec;
 import aim4.vehicle.VinRegistry;
 import aim4.vehicle.merge.*;
@@ -22,10 +23,25 @@ import java.util.Map;
 public class SpawnHelper {
     private MergeMap map;
     private Map<Integer, MergeVehicleSimModel> vinToVehicles;
+    private VehicleSpatialIndex<MergeVehicleSimModel> vehicleIndex;
 
     public SpawnHelper(MergeMap map, Map<Integer, MergeVehicleSimModel> vinToVehicles){
+        this(map, vinToVehicles,
+                new VehicleSpatialIndex<MergeVehicleSimModel>(map.getDimensions(), vinToVehicles.values()));
+    }
+
+    /**
+     * Creates a SpawnHelper which checks the no vehicle zones against a spatial index shared with the simulator.
+     * @param map The map
+     * @param vinToVehicles The active vehicles
+     * @param vehicleIndex The spatial index of the active vehicles
+     */
+    public SpawnHelper(MergeMap map,
+                       Map<Integer, MergeVehicleSimModel> vinToVehicles,
+                       VehicleSpatialIndex<MergeVehicleSimModel> vehicleIndex){
         this.map = map;
         this.vinToVehicles = vinToVehicles;
+        this.vehicleIndex = vehicleIndex;
     }
 
     /**
@@ -35,6 +51,7 @@ public class SpawnHelper {
      * @return A List of the Vehicles spawned. Null if no vehicles spawned.
      */
     public List<MergeVehicleSimModel> spawnVehicles(double timeStep, ProtocolType protocolType) {
+        vehicleIndex.invalidate(); //Vehicles may have moved since the last call
         for(MergeSpawnPoint spawnPoint : map.getSpawnPoints()) {
             List<MergeSpawnPoint.MergeSpawnSpec> spawnSpecs = spawnPoint.act(timeStep);
             if(!spawnSpecs.isEmpty()){
@@ -44,6 +61,7 @@ public class SpawnHelper {
                         MergeVehicleSimModel vehicle = setupVehicle(spawnPoint, spawnSpec, protocolType);
                         VinRegistry.registerVehicle(vehicle);
                         vinToVehicles.put(vehicle.getVIN(), vehicle);
+                        vehicleIndex.invalidate();
                         spawnedVehicles.add(vehicle);
                         if(!canSpawnVehicle(spawnPoint))
                             break;
@@ -63,12 +81,7 @@ public class SpawnHelper {
     private boolean canSpawnVehicle(MergeSpawnPoint spawnPoint) {
         assert spawnPoint.getNoVehicleZone() instanceof Path2D;
         Path2D noVehicleZone = (Path2D) spawnPoint.getNoVehicleZone();
-        for(MergeVehicleSimModel vehicle : vinToVehicles.values()) {
-            if (noVehicleZone.intersects(vehicle.getShape().getBounds2D())) {
-                return false;
-            }
-        }
-        return true;
+        return !vehicleIndex.anyBoundsIntersect(noVehicleZone);
     }
 
     /**
@@ -0,0 +1,349 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.util;
+
+import java.awt.Shape;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The four corners of a rectangle, such as a vehicle, kept as primitive
+ * coordinates, with geometric tests that do not allocate.  The corners are
+ * rounded to single precision, like the shapes made by
+ * {@link GeomUtil#convertPointsToShape(java.awt.geom.Point2D[])}, so that
+ * the tests agree with the same tests on those shapes.  The corners go
+ * around the rectangle in order; for a vehicle they are front left, rear
+ * left, rear right and front right.
+ */
+public class OrientedBox {
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The x-coordinates of the corners */
+  private final double[] xs = new double[4];
+  /** The y-coordinates of the corners */
+  private final double[] ys = new double[4];
+  /** The smallest x-coordinate of the corners */
+  private double minX;
+  /** The smallest y-coordinate of the corners */
+  private double minY;
+  /** The largest x-coordinate of the corners */
+  private double maxX;
+  /** The largest y-coordinate of the corners */
+  private double maxY;
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Set the corners of the box.
+   *
+   * @param x0  the x-coordinate of the first corner
+   * @param y0  the y-coordinate of the first corner
+   * @param x1  the x-coordinate of the second corner
+   * @param y1  the y-coordinate of the second corner
+   * @param x2  the x-coordinate of the third corner
+   * @param y2  the y-coordinate of the third corner
+   * @param x3  the x-coordinate of the fourth corner
+   * @param y3  the y-coordinate of the fourth corner
+   */
+  public void set(double x0, double y0, double x1, double y1,
+                  double x2, double y2, double x3, double y3) {
+    xs[0] = (float) x0;
+    ys[0] = (float) y0;
+    xs[1] = (float) x1;
+    ys[1] = (float) y1;
+    xs[2] = (float) x2;
+    ys[2] = (float) y2;
+    xs[3] = (float) x3;
+    ys[3] = (float) y3;
+    minX = Math.min(Math.min(xs[0], xs[1]), Math.min(xs[2], xs[3]));
+    minY = Math.min(Math.min(ys[0], ys[1]), Math.min(ys[2], ys[3]));
+    maxX = Math.max(Math.max(xs[0], xs[1]), Math.max(xs[2], xs[3]));
+    maxY = Math.max(Math.max(ys[0], ys[1]), Math.max(ys[2], ys[3]));
+  }
+
+  /**
+   * Get the x-coordinate of a corner.
+   *
+   * @param i  the index of the corner
+   * @return the x-coordinate of the corner
+   */
+  public double getX(int i) {
+    return xs[i];
+  }
+
+  /**
+   * Get the y-coordinate of a corner.
+   *
+   * @param i  the index of the corner
+   * @return the y-coordinate of the corner
+   */
+  public double getY(int i) {
+    return ys[i];
+  }
+
+  /**
+   * Get the smallest x-coordinate of the corners.
+   *
+   * @return the smallest x-coordinate of the corners
+   */
+  public double getMinX() {
+    return minX;
+  }
+
+  /**
+   * Get the smallest y-coordinate of the corners.
+   *
+   * @return the smallest y-coordinate of the corners
+   */
+  public double getMinY() {
+    return minY;
+  }
+
+  /**
+   * Get the largest x-coordinate of the corners.
+   *
+   * @return the largest x-coordinate of the corners
+   */
+  public double getMaxX() {
+    return maxX;
+  }
+
+  /**
+   * Get the largest y-coordinate of the corners.
+   *
+   * @return the largest y-coordinate of the corners
+   */
+  public double getMaxY() {
+    return maxY;
+  }
+
+  /**
+   * Whether a point is inside the box or on its boundary.
+   *
+   * @param x  the x-coordinate of the point
+   * @param y  the y-coordinate of the point
+   * @return whether the point is inside the box or on its boundary
+   */
+  public boolean contains(double x, double y) {
+    if (x < minX || x > maxX || y < minY || y > maxY) {
+      return false;
+    }
+    boolean hasPositive = false;
+    boolean hasNegative = false;
+    for(int k = 0; k < 4; k++) {
+      int k2 = (k + 1) & 3;
+      double cross = (xs[k2] - xs[k]) * (y - ys[k])
+          - (ys[k2] - ys[k]) * (x - xs[k]);
+      if (cross > 0) {
+        hasPositive = true;
+      } else if (cross < 0) {
+        hasNegative = true;
+      }
+    }
+    return !(hasPositive && hasNegative);
+  }
+
+  /**
+   * Get the distance from a point to the nearest edge of the box.
+   *
+   * @param x  the x-coordinate of the point
+   * @param y  the y-coordinate of the point
+   * @return the distance from the point to the nearest edge of the box
+   */
+  public double distanceToEdges(double x, double y) {
+    double distSq = Double.MAX_VALUE;
+    for(int k = 0; k < 4; k++) {
+      int k2 = (k + 1) & 3;
+      distSq = Math.min(distSq,
+          Line2D.ptSegDistSq(xs[k], ys[k], xs[k2], ys[k2], x, y));
+    }
+    return Math.sqrt(distSq);
+  }
+
+  /**
+   * Get the distance from a point to the box; zero if the point is inside
+   * the box.
+   *
+   * @param x  the x-coordinate of the point
+   * @param y  the y-coordinate of the point
+   * @return the distance from the point to the box
+   */
+  public double distanceTo(double x, double y) {
+    return contains(x, y) ? 0.0 : distanceToEdges(x, y);
+  }
+
+  /**
+   * Whether the box overlaps an axis-aligned rectangle.
+   *
+   * @param x  the smallest x-coordinate of the rectangle
+   * @param y  the smallest y-coordinate of the rectangle
+   * @param w  the width of the rectangle
+   * @param h  the height of the rectangle
+   * @return whether the interiors of the box and the rectangle overlap
+   */
+  public boolean intersects(double x, double y, double w, double h) {
+    if (w <= 0 || h <= 0
+        || maxX <= x || minX >= x + w || maxY <= y || minY >= y + h) {
+      return false;
+    }
+    // the axes of the rectangle are covered by the bounds, so only the
+    // normals of the edges of the box remain
+    for(int k = 0; k < 2; k++) {
+      double nx = ys[k + 1] - ys[k];
+      double ny = xs[k] - xs[k + 1];
+      double minB = Double.POSITIVE_INFINITY;
+      double maxB = Double.NEGATIVE_INFINITY;
+      for(int m = 0; m < 4; m++) {
+        double p = nx * xs[m] + ny * ys[m];
+        minB = Math.min(minB, p);
+        maxB = Math.max(maxB, p);
+      }
+      double c = nx * x + ny * y;
+      double pw = nx * w;
+      double ph = ny * h;
+      double minR = c + Math.min(0, pw) + Math.min(0, ph);
+      double maxR = c + Math.max(0, pw) + Math.max(0, ph);
+      if (maxB <= minR || maxR <= minB) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Whether the box overlaps another box.
+   *
+   * @param other  the other box
+   * @return whether the interiors of the boxes overlap
+   */
+  public boolean intersects(OrientedBox other) {
+    if (maxX <= other.minX || other.maxX <= minX
+        || maxY <= other.minY || other.maxY <= minY) {
+      return false;
+    }
+    return !hasSeparatingEdge(this, other) && !hasSeparatingEdge(other, this);
+  }
+
+  /**
+   * Create a shape of the box.
+   *
+   * @return the shape of the box
+   */
+  public Shape toShape() {
+    GeneralPath result = new GeneralPath();
+    appendTo(result);
+    return result;
+  }
+
+  /**
+   * Append the outline of the box to a path, so that a path can be reused
+   * for drawing many boxes.
+   *
+   * @param path  the path
+   */
+  public void appendTo(GeneralPath path) {
+    path.moveTo((float) xs[0], (float) ys[0]);
+    for(int k = 1; k < 4; k++) {
+      path.lineTo((float) xs[k], (float) ys[k]);
+    }
+    path.closePath();
+  }
+
+  /**
+   * Create the corners of the box as points.
+   *
+   * @return the corners of the box
+   */
+  public Point2D[] toPoints() {
+    Point2D[] points = new Point2D[4];
+    for(int k = 0; k < 4; k++) {
+      points[k] = new Point2D.Double(xs[k], ys[k]);
+    }
+    return points;
+  }
+
+  /**
+   * Create the edges of the box.
+   *
+   * @return the edges of the box
+   */
+  public List<Line2D> toEdges() {
+    List<Line2D> edges = new ArrayList<Line2D>(4);
+    for(int k = 0; k < 4; k++) {
+      int k2 = (k + 1) & 3;
+      edges.add(new Line2D.Double(xs[k], ys[k], xs[k2], ys[k2]));
+    }
+    return edges;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Whether one of the edges of a box separates it from another box.
+   *
+   * @param a  the box whose edges are tested
+   * @param b  the other box
+   * @return whether one of the edges separates the boxes
+   */
+  private static boolean hasSeparatingEdge(OrientedBox a, OrientedBox b) {
+    for(int k = 0; k < 2; k++) {
+      // the normal of the edge from corner k to corner k + 1
+      double nx = a.ys[k + 1] - a.ys[k];
+      double ny = a.xs[k] - a.xs[k + 1];
+      double minA = Double.POSITIVE_INFINITY;
+      double maxA = Double.NEGATIVE_INFINITY;
+      double minB = Double.POSITIVE_INFINITY;
+      double maxB = Double.NEGATIVE_INFINITY;
+      for(int m = 0; m < 4; m++) {
+        double pa = nx * a.xs[m] + ny * a.ys[m];
+        double pb = nx * b.xs[m] + ny * b.ys[m];
+        minA = Math.min(minA, pa);
+        maxA = Math.max(maxA, pa);
+        minB = Math.min(minB, pb);
+        maxB = Math.max(maxB, pb);
+      }
+      if (maxA <= minB || maxB <= minA) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -376,4 +376,36 @@ public class TiledArea {
     return occupiedTiles;
   }
 
+  /**
+   * Get the list of tiles that are occupied by the given box.  This gives
+   * the same tiles as {@link #findOccupiedTiles(Shape)} on the shape of the
+   * box without creating the shape.
+   *
+   * @param box  the box for which to find occupied tiles
+   * @return  the List of tiles that are occupied by the given box
+   */
+  public List<Tile> findOccupiedTiles(OrientedBox box) {
+    List<Tile> occupiedTiles = new ArrayList<Tile>();
+    int firstColumn =
+      Math.max(0, (int)((box.getMinX() - rectangle.getMinX()) / xLength));
+    int lastColumn =
+      Math.min(xNum - 1, (int)((box.getMaxX() - rectangle.getMinX()) / xLength));
+    int firstRow =
+      Math.max(0, (int)((box.getMinY() - rectangle.getMinY()) / yLength));
+    int lastRow =
+      Math.min(yNum - 1, (int)((box.getMaxY() - rectangle.getMinY()) / yLength));
+    for(int c = firstColumn; c <= lastColumn; c++) {
+      for(int r = firstRow; r <= lastRow; r++) {
+        if(tiles[c][r] != null) {
+          Rectangle2D rect = tiles[c][r].getRectangle();
+          if (box.intersects(rect.getX(), rect.getY(),
+                             rect.getWidth(), rect.getHeight())) {
+            occupiedTiles.add(tiles[c][r]);
+          }
+        }
+      }
+    }
+    return occupiedTiles;
+  }
+
 }
@@ -44,6 +44,7 @@ import aim4.map.track.TrackPosition;
 import aim4.noise.DoubleGauge;
 import aim4.util.GeomMath;
 import aim4.util.GeomUtil;
+import aim4.util.OrientedBox;
 import aim4.util.Util;
 
 /**
@@ -1099,6 +1100,11 @@ public abstract class BasicVehicle implements VehicleSimModel {
    */
   protected int vin;
 
+  /**
+   * The registry of the simulation context in which the vehicle was created.
+   */
+  private final VinRegistry vinRegistry;
+
   /** The characteristics of the vehicle */
   protected VehicleSpec spec;
 
@@ -1151,13 +1157,19 @@ public abstract class BasicVehicle implements VehicleSimModel {
    */
   private Point2D memoGaugePointBetweenFrontWheels;
   /**
-   * Memoization cache for {@link #getShape()}.
+   * The corners of the vehicle, updated whenever the vehicle moves.
+   */
+  private final OrientedBox box = new OrientedBox();
+  /**
+   * Memoization cache for {@link #getShape()}; null until the shape is
+   * asked for after the vehicle moves.
    */
-  private Shape memoGetShape;
+  private volatile Shape memoGetShape;
   /**
-   * Memoization cache for {@link #gaugeShape()}.
+   * Memoization cache for {@link #gaugeShape()}; null until the shape is
+   * asked for after the vehicle moves.
    */
-  private Shape memoGaugeShape;
+  private volatile Shape memoGaugeShape;
 
   /////////////////////////////////
   // CONSTRUCTORS
@@ -1183,6 +1195,7 @@ public abstract class BasicVehicle implements VehicleSimModel {
                       double targetVelocity,
                       double currentTime) {
     this.vin = -1;    // no vin by default
+    this.vinRegistry = VinRegistry.current();
     this.spec = spec;  // assume spec is a constant and will not change
 
     movement = new MoveToTargetVelocityMovement(spec,
@@ -1201,40 +1214,33 @@ public abstract class BasicVehicle implements VehicleSimModel {
   }
 
   /////////////////////////////////
-  // FINALIZE
+  // PUBLIC METHODS
   /////////////////////////////////
 
   /**
    * {@inheritDoc}
    */
   @Override
-  protected void finalize() throws Throwable {
-    super.finalize();
-    // Make sure that the vehicle is unregistered from the Vehicle Registry.
-    if (vin >= 0) {
-      VinRegistry.unregisterVehicle(vin);
-      vin = -1;
-    }
+  public int getVIN() {
+    return vin;
   }
 
-  /////////////////////////////////
-  // PUBLIC METHODS
-  /////////////////////////////////
-
   /**
    * {@inheritDoc}
    */
   @Override
-  public int getVIN() {
-    return vin;
+  public void setVIN(int vin) {
+    this.vin = vin;
   }
 
   /**
    * {@inheritDoc}
    */
   @Override
-  public void setVIN(int vin) {
-    this.vin = vin;
+  public void retire() {
+    if (vin >= 0 && vinRegistry.getVehicle(vin) == this) {
+      vinRegistry.unregister(vin);
+    }
   }
 
   /**
@@ -1379,7 +1385,12 @@ public abstract class BasicVehicle implements VehicleSimModel {
    */
   @Override
   public Shape getShape() {
-    return memoGetShape;
+    Shape shape = memoGetShape;
+    if (shape == null) {
+      shape = box.toShape();
+      memoGetShape = shape;
+    }
+    return shape;
   }
 
   /**
@@ -1387,7 +1398,12 @@ public abstract class BasicVehicle implements VehicleSimModel {
    */
   @Override
   public Shape gaugeShape() {
-    return memoGaugeShape;
+    Shape shape = memoGaugeShape;
+    if (shape == null) {
+      shape = GeomUtil.convertPointsToShape(gaugeCornerPoints());
+      memoGaugeShape = shape;
+    }
+    return shape;
   }
 
   /**
@@ -1406,7 +1422,26 @@ public abstract class BasicVehicle implements VehicleSimModel {
    */
   @Override
   public List<Line2D> getEdges() {
-    return GeomMath.polygonalShapePerimeterSegments(getShape());
+    return box.toEdges();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public OrientedBox getOrientedBox() {
+    return box;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void getOrientedBox(double extra, OrientedBox result) {
+    spec.getCornerPoints(extra,
+                         movement.getPosition(),
+                         movement.getHeading(),
+                         result);
   }
 
   /**
@@ -1710,8 +1745,9 @@ public abstract class BasicVehicle implements VehicleSimModel {
     speedometer.record(movement.getVelocity());
 
     memoGaugePosition = new Point2D.Double(xometer.read(), yometer.read());
-    memoGetShape = GeomUtil.convertPointsToShape(getCornerPoints());
-    memoGaugeShape = GeomUtil.convertPointsToShape(gaugeCornerPoints());
+    spec.getCornerPoints(movement.getPosition(), movement.getHeading(), box);
+    memoGetShape = null;
+    memoGaugeShape = null;
     memoGaugePointBetweenFrontWheels =
         spec.getPointBetweenFrontWheels(gaugePosition(), gaugeHeading());
   }
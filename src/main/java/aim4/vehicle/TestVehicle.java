@@ -0,0 +1,110 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.vehicle;
+
+import java.awt.geom.Point2D;
+
+import aim4.driver.Driver;
+
+/**
+ * A vehicle for the internal simulations of the intersection managers,
+ * which move a copy of a requesting vehicle through the intersection to
+ * find the space-time it occupies.  A test vehicle has no driver, no
+ * communication and no VIN; it is never registered in the vehicle registry
+ * and so needs no retirement.
+ */
+public class TestVehicle extends BasicVehicle {
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Construct a test vehicle.
+   *
+   * @param spec            the vehicle's specification
+   * @param pos             the initial position of the vehicle
+   * @param heading         the initial heading of the vehicle
+   * @param steeringAngle   the initial steering angle of the vehicle
+   * @param velocity        the initial velocity of the vehicle
+   * @param targetVelocity  the initial target velocity
+   * @param acceleration    the initial acceleration of the vehicle
+   * @param currentTime     the current time
+   */
+  public TestVehicle(VehicleSpec spec,
+                     Point2D pos,
+                     double heading,
+                     double steeringAngle,
+                     double velocity,
+                     double targetVelocity,
+                     double acceleration,
+                     double currentTime) {
+    super(spec, pos, heading, velocity, steeringAngle, acceleration,
+          targetVelocity, currentTime);
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * {@inheritDoc}
+   *
+   * A test vehicle has no driver.
+   */
+  @Override
+  public Driver getDriver() {
+    return null;
+  }
+
+  /**
+   * A test vehicle cannot be driven.
+   *
+   * @param driver  the driver
+   * @throws UnsupportedOperationException always
+   */
+  @Override
+  public void setDriver(Driver driver) {
+    throw new UnsupportedOperationException("A test vehicle has no driver");
+  }
+
+  /**
+   * A test vehicle cannot be registered.
+   *
+   * @param vin  the VIN
+   * @throws UnsupportedOperationException always
+   */
+  @Override
+  public void setVIN(int vin) {
+    throw new UnsupportedOperationException("A test vehicle has no VIN");
+  }
+
+}
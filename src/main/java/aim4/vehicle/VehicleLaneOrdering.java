@@ -0,0 +1,510 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.vehicle;
+
+import aim4.map.Road;
+import aim4.map.lane.Lane;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The order of the vehicles along each lane of a map, kept across time
+ * steps.  Each call to {@link #update()} reads the positions of the vehicles
+ * and repairs the previous order with an insertion sort, which is linear
+ * when, as usual, no vehicle has overtaken another since the last update.
+ * <p>
+ * Lanes that run into one another can be chained into a single ordering,
+ * in which case the positions of the vehicles are their distances along
+ * their own lanes.  When two vehicles share a position, only the one
+ * recorded last is visible, as if the vehicles had been put into a sorted
+ * map lane by lane.
+ *
+ * @param <V> the type of the vehicles
+ */
+public class VehicleLaneOrdering<V extends VehicleSimModel> {
+
+    /////////////////////////////////
+    // NESTED CLASSES
+    /////////////////////////////////
+
+    /**
+     * A vehicle on a lane.
+     */
+    private final class Entry {
+        /** The vehicle */
+        final V vehicle;
+        /** The lane */
+        final Lane lane;
+        /** The ordering of the lane */
+        final LaneOrder order;
+        /** The position of the lane in the chain of lanes of the ordering */
+        final int rank;
+        /** The distance of the vehicle along the lane */
+        double position;
+        /** The update in which the vehicle was last seen on the lane */
+        int stamp;
+        /** The sequence number of the entry in the last update */
+        int seq;
+        /** The index of the entry in the ordering */
+        int index;
+        /** Whether the entry is hidden by another one at the same position */
+        boolean shadowed;
+        /** The next visible entry in the ordering */
+        Entry leader;
+        /** The previous visible entry in the ordering */
+        Entry follower;
+        /** The next entry of the same vehicle */
+        Entry nextOfVehicle;
+
+        /**
+         * Create an entry.
+         *
+         * @param vehicle  the vehicle
+         * @param lane     the lane
+         * @param order    the ordering of the lane
+         */
+        Entry(V vehicle, Lane lane, LaneOrder order) {
+            this.vehicle = vehicle;
+            this.lane = lane;
+            this.order = order;
+            this.rank = order.lanes.indexOf(lane);
+        }
+
+        /**
+         * Whether this entry is recorded after another one at the same
+         * position.
+         *
+         * @param other  the other entry
+         * @return whether this entry is recorded after the other one
+         */
+        boolean isRecordedAfter(Entry other) {
+            return rank > other.rank || (rank == other.rank && seq > other.seq);
+        }
+    }
+
+    /**
+     * The ordering of the vehicles on a chain of lanes.
+     */
+    private final class LaneOrder {
+        /** The chain of lanes */
+        final List<Lane> lanes = new ArrayList<Lane>(1);
+        /** The index of this ordering */
+        final int index;
+        /** The positions of the entries, in order */
+        double[] positions = new double[16];
+        /** The entries, in order */
+        Entry[] entries = newEntryArray(16);
+        /** The number of entries */
+        int size = 0;
+
+        /**
+         * Create an ordering.
+         *
+         * @param index  the index of the ordering
+         */
+        LaneOrder(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Add a new entry at the end of the ordering.
+         *
+         * @param entry  the entry
+         */
+        void add(Entry entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            entries[size++] = entry;
+        }
+
+        /**
+         * Drop the entries not seen in the given update and sort the rest.
+         *
+         * @param currentStamp  the current update
+         */
+        void repair(int currentStamp) {
+            // drop stale entries, keeping the previous order
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                Entry e = entries[i];
+                if (e.stamp == currentStamp) {
+                    entries[n] = e;
+                    positions[n] = e.position;
+                    n++;
+                }
+            }
+            Arrays.fill(entries, n, size, null);
+            size = n;
+            // insertion sort
+            for (int i = 1; i < size; i++) {
+                double p = positions[i];
+                if (positions[i - 1] <= p) {
+                    continue;
+                }
+                Entry e = entries[i];
+                int j = i - 1;
+                while (j >= 0 && positions[j] > p) {
+                    positions[j + 1] = positions[j];
+                    entries[j + 1] = entries[j];
+                    j--;
+                }
+                positions[j + 1] = p;
+                entries[j + 1] = e;
+            }
+            // hide all but the last recorded entry at each position and link
+            // the visible entries
+            Entry lastVisible = null;
+            int i = 0;
+            while (i < size) {
+                Entry winner = entries[i];
+                int j = i;
+                while (j + 1 < size && positions[j + 1] == positions[i]) {
+                    j++;
+                    if (entries[j].isRecordedAfter(winner)) {
+                        winner = entries[j];
+                    }
+                }
+                for (int k = i; k <= j; k++) {
+                    Entry e = entries[k];
+                    e.index = k;
+                    e.shadowed = (e != winner);
+                    e.leader = null;
+                    e.follower = null;
+                }
+                if (lastVisible != null) {
+                    lastVisible.leader = winner;
+                    winner.follower = lastVisible;
+                }
+                lastVisible = winner;
+                i = j + 1;
+            }
+        }
+
+        /**
+         * Get the index of the first visible entry whose position is at
+         * least the given one.
+         *
+         * @param position  the position
+         * @return the index, or -1 if there is no such entry
+         */
+        int ceilingIndex(double position) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (positions[mid] < position) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            while (lo < size && entries[lo].shadowed) {
+                lo++;
+            }
+            return lo < size ? lo : -1;
+        }
+
+        /**
+         * Get the index of the last visible entry whose position is less
+         * than the given one.
+         *
+         * @param position  the position
+         * @return the index, or -1 if there is no such entry
+         */
+        int lowerIndex(double position) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (positions[mid] < position) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            int i = lo - 1;
+            while (i >= 0 && entries[i].shadowed) {
+                i--;
+            }
+            return i;
+        }
+    }
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The vehicles to order */
+    private final Collection<? extends V> source;
+    /** The orderings, in the order of the roads and lanes of the map */
+    private final List<LaneOrder> orders = new ArrayList<LaneOrder>();
+    /** A mapping from lanes to the orderings they belong to */
+    private final Map<Lane, LaneOrder> laneToOrder = new HashMap<Lane, LaneOrder>();
+    /** A mapping from vehicles to their first entry */
+    private final Map<V, Entry> vehicleToEntries = new IdentityHashMap<V, Entry>();
+    /** The current update */
+    private int stamp = 0;
+
+    /////////////////////////////////
+    // CLASS CONSTRUCTORS
+    /////////////////////////////////
+
+    /**
+     * Create an ordering of the vehicles on the lanes of the given roads.
+     *
+     * @param roads       the roads
+     * @param source      the vehicles to order; read at each update
+     * @param chainLanes  whether to order the vehicles on lanes that run into
+     *                    one another together
+     */
+    public VehicleLaneOrdering(Collection<? extends Road> roads,
+                               Collection<? extends V> source,
+                               boolean chainLanes) {
+        this.source = source;
+        for (Road road : roads) {
+            for (Lane lane : road.getLanes()) {
+                if (!laneToOrder.containsKey(lane)) {
+                    LaneOrder order = new LaneOrder(orders.size());
+                    orders.add(order);
+                    Lane currLane = lane;
+                    while (currLane != null && !laneToOrder.containsKey(currLane)) {
+                        order.lanes.add(currLane);
+                        laneToOrder.put(currLane, order);
+                        currLane = (chainLanes && currLane.hasNextLane()) ?
+                                currLane.getNextLane() : null;
+                    }
+                }
+            }
+        }
+    }
+
+    /////////////////////////////////
+    // PROTECTED METHODS
+    /////////////////////////////////
+
+    /**
+     * Whether the vehicle should be ordered on a lane it occupies.
+     *
+     * @param vehicle  the vehicle
+     * @param lane     a lane the vehicle occupies
+     * @return whether the vehicle should be ordered on the lane
+     */
+    protected boolean isOrdered(V vehicle, Lane lane) {
+        return true;
+    }
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Bring the ordering up to date with the positions of the vehicles.
+     */
+    public void update() {
+        stamp++;
+        int seq = 0;
+        int orderedVehicles = 0;
+        for (V vehicle : source) {
+            Entry head = vehicleToEntries.get(vehicle);
+            Entry first = head;
+            for (Lane lane : vehicle.getDriver().getCurrentlyOccupiedLanes()) {
+                LaneOrder order = laneToOrder.get(lane);
+                if (order == null || !isOrdered(vehicle, lane)) {
+                    continue;
+                }
+                Entry e = head;
+                while (e != null && e.lane != lane) {
+                    e = e.nextOfVehicle;
+                }
+                if (e == null) {
+                    e = new Entry(vehicle, lane, order);
+                    e.nextOfVehicle = head;
+                    head = e;
+                    order.add(e);
+                }
+                e.position = lane.distanceAlongLane(vehicle.getPosition());
+                e.stamp = stamp;
+                e.seq = seq++;
+            }
+            // unlink the lanes the vehicle has left
+            while (head != null && head.stamp != stamp) {
+                head = head.nextOfVehicle;
+            }
+            for (Entry e = head; e != null; e = e.nextOfVehicle) {
+                while (e.nextOfVehicle != null && e.nextOfVehicle.stamp != stamp) {
+                    e.nextOfVehicle = e.nextOfVehicle.nextOfVehicle;
+                }
+            }
+            if (head == null) {
+                if (first != null) {
+                    vehicleToEntries.remove(vehicle);
+                }
+            } else {
+                if (head != first) {
+                    vehicleToEntries.put(vehicle, head);
+                }
+                orderedVehicles++;
+            }
+        }
+        // forget the vehicles that are gone
+        if (vehicleToEntries.size() > orderedVehicles) {
+            for (Iterator<Entry> it = vehicleToEntries.values().iterator(); it.hasNext(); ) {
+                if (it.next().stamp != stamp) {
+                    it.remove();
+                }
+            }
+        }
+        for (LaneOrder order : orders) {
+            order.repair(stamp);
+        }
+    }
+
+    /**
+     * Get the vehicle immediately ahead of the given vehicle on its lanes.
+     * If the vehicle is ordered on several lanes, the vehicle ahead on the
+     * last of them is returned.
+     *
+     * @param vehicle  the vehicle
+     * @return the vehicle ahead, or <code>null</code> if there is none
+     */
+    public V getLeader(V vehicle) {
+        Entry best = null;
+        for (Entry e = vehicleToEntries.get(vehicle); e != null; e = e.nextOfVehicle) {
+            if (!e.shadowed && e.leader != null && (best == null || isAfter(e, best))) {
+                best = e;
+            }
+        }
+        return best == null ? null : best.leader.vehicle;
+    }
+
+    /**
+     * Get the vehicle immediately behind the given vehicle on its lanes.
+     * If the vehicle is ordered on several lanes, the vehicle behind on the
+     * first of them is returned.
+     *
+     * @param vehicle  the vehicle
+     * @return the vehicle behind, or <code>null</code> if there is none
+     */
+    public V getFollower(V vehicle) {
+        Entry best = null;
+        for (Entry e = vehicleToEntries.get(vehicle); e != null; e = e.nextOfVehicle) {
+            if (!e.shadowed && e.follower != null && (best == null || isAfter(best, e))) {
+                best = e;
+            }
+        }
+        return best == null ? null : best.follower.vehicle;
+    }
+
+    /**
+     * Get the index of the first vehicle on the ordering of a lane whose
+     * distance along its lane is at least the given distance.
+     *
+     * @param lane      the lane
+     * @param position  the distance along the lane
+     * @return the index, or -1 if there is no such vehicle
+     */
+    public int ceilingIndex(Lane lane, double position) {
+        return laneToOrder.get(lane).ceilingIndex(position);
+    }
+
+    /**
+     * Get the index of the last vehicle on the ordering of a lane whose
+     * distance along its lane is less than the given distance.
+     *
+     * @param lane      the lane
+     * @param position  the distance along the lane
+     * @return the index, or -1 if there is no such vehicle
+     */
+    public int lowerIndex(Lane lane, double position) {
+        return laneToOrder.get(lane).lowerIndex(position);
+    }
+
+    /**
+     * Get a vehicle on the ordering of a lane.
+     *
+     * @param lane   the lane
+     * @param index  the index returned by {@link #ceilingIndex(Lane, double)}
+     *               or {@link #lowerIndex(Lane, double)}
+     * @return the vehicle
+     */
+    public V getVehicle(Lane lane, int index) {
+        return laneToOrder.get(lane).entries[index].vehicle;
+    }
+
+    /**
+     * Get the distance of a vehicle along its lane on the ordering of a lane.
+     *
+     * @param lane   the lane
+     * @param index  the index returned by {@link #ceilingIndex(Lane, double)}
+     *               or {@link #lowerIndex(Lane, double)}
+     * @return the distance of the vehicle along its lane
+     */
+    public double getPosition(Lane lane, int index) {
+        return laneToOrder.get(lane).positions[index];
+    }
+
+    /////////////////////////////////
+    // PRIVATE METHODS
+    /////////////////////////////////
+
+    /**
+     * Whether an entry comes after another in the order of the orderings
+     * and of the positions.
+     *
+     * @param e      the entry
+     * @param other  the other entry
+     * @return whether the entry comes after the other one
+     */
+    private boolean isAfter(Entry e, Entry other) {
+        return e.order.index > other.order.index
+                || (e.order == other.order && e.index > other.index);
+    }
+
+    /**
+     * Create an array of entries.
+     *
+     * @param length  the length of the array
+     * @return the array
+     */
+    @SuppressWarnings("unchecked")
+    private Entry[] newEntryArray(int length) {
+        return (Entry[]) new VehicleLaneOrdering<?>.Entry[length];
+    }
+}
@@ -2,6 +2,7 @@ package aim4.vehicle;
 
 import aim4.driver.BasicDriver;
 import aim4.driver.Driver;
+import aim4.util.OrientedBox;
 
 import java.awt.*;
 import java.awt.geom.Line2D;
@@ -25,6 +26,14 @@ public interface VehicleSimModel extends VehicleDriverModel {
     */
     void setVIN(int vin);
 
+    /**
+     * Retire the vehicle when it leaves the simulation.  The vehicle is
+     * removed from the vehicle registry, but its VIN stays issued.  Retiring
+     * a vehicle that has not been registered or has already been retired
+     * does nothing.
+     */
+    void retire();
+
     /**
      * Set this Vehicle's Driver.
      *
@@ -106,6 +115,24 @@ public interface VehicleSimModel extends VehicleDriverModel {
      */
     java.util.List<Line2D> getEdges();
 
+    /**
+     * Get the corners of this Vehicle as primitive coordinates.  The box is
+     * updated in place whenever the Vehicle moves and must not be modified.
+     *
+     * @return the corners of this Vehicle
+     */
+    OrientedBox getOrientedBox();
+
+    /**
+     * Get the corners of this Vehicle, if it were larger in each dimension,
+     * without allocating a {@link Shape}.
+     *
+     * @param extra   the fixed extra amount by which to increase the size of
+     *                the Vehicle in each dimension
+     * @param result  the box to which the corners are written
+     */
+    void getOrientedBox(double extra, OrientedBox result);
+
     /**
      * Get the Shapes of each of the wheels.
      *
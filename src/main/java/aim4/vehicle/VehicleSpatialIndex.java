@@ -0,0 +1,499 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.vehicle;
+
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.Collection;
+
+import aim4.util.OrientedBox;
+
+/**
+ * A uniform grid of the bounding boxes of vehicles, used to find the
+ * vehicles near a region without testing every vehicle.  The index is a
+ * snapshot of a live collection of vehicles; it must be invalidated whenever
+ * the vehicles move or the collection changes, and is rebuilt by the next
+ * query.
+ *
+ * @param <V> the type of the vehicles
+ */
+public class VehicleSpatialIndex<V extends VehicleSimModel> {
+
+    /////////////////////////////////
+    // CONSTANTS
+    /////////////////////////////////
+
+    /**
+     * The default length, in meters, of the sides of a cell.
+     */
+    public static final double DEFAULT_CELL_SIZE = 10.0;
+
+    /////////////////////////////////
+    // NESTED CLASSES
+    /////////////////////////////////
+
+    /**
+     * A pair of vehicles whose shapes overlap.
+     *
+     * @param <V> the type of the vehicles
+     */
+    public static class Collision<V> {
+        /** The first vehicle */
+        private final V first;
+        /** The second vehicle */
+        private final V second;
+
+        /**
+         * Create a collision.
+         *
+         * @param first   the first vehicle
+         * @param second  the second vehicle
+         */
+        public Collision(V first, V second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        /**
+         * Get the first vehicle.
+         *
+         * @return the first vehicle
+         */
+        public V getFirst() {
+            return first;
+        }
+
+        /**
+         * Get the second vehicle.
+         *
+         * @return the second vehicle
+         */
+        public V getSecond() {
+            return second;
+        }
+    }
+
+    /////////////////////////////////
+    // PRIVATE FIELDS
+    /////////////////////////////////
+
+    /** The x-coordinate of the lower left corner of the grid */
+    private final double minX;
+    /** The y-coordinate of the lower left corner of the grid */
+    private final double minY;
+    /** The length of the sides of a cell */
+    private final double cellSize;
+    /** The number of cells in the x direction */
+    private final int xNum;
+    /** The number of cells in the y direction */
+    private final int yNum;
+    /** The vehicles to be indexed */
+    private final Collection<? extends V> source;
+    /** Whether the vehicles have changed since the index was built */
+    private boolean isStale;
+
+    /** The number of vehicles in the index */
+    private int vehicleNum;
+    /** The vehicles, in the order they were given */
+    private Object[] vehicles;
+    /** The oriented box of each vehicle */
+    private OrientedBox[] boxes;
+    /** The minimum x, minimum y, maximum x and maximum y of each vehicle */
+    private double[] bounds;
+    /** The first and last cell column and row covered by each vehicle */
+    private int[] cellRanges;
+    /** The start of the items of each cell; the last entry is the end */
+    private int[] cellStart;
+    /** The indices of the vehicles in each cell, cell after cell */
+    private int[] cellItems;
+    /** The next free position of each cell while the index is built */
+    private int[] cellFill;
+
+    /////////////////////////////////
+    // CONSTRUCTORS
+    /////////////////////////////////
+
+    /**
+     * Create a spatial index covering an area with cells of the default
+     * size.  Vehicles outside the area are kept in the cells on its border.
+     *
+     * @param area    the area
+     * @param source  the vehicles to be indexed
+     */
+    public VehicleSpatialIndex(Rectangle2D area, Collection<? extends V> source) {
+        this(area, source, DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Create a spatial index covering an area.  Vehicles outside the area are
+     * kept in the cells on its border.
+     *
+     * @param area      the area
+     * @param source    the vehicles to be indexed
+     * @param cellSize  the length of the sides of a cell
+     */
+    public VehicleSpatialIndex(Rectangle2D area, Collection<? extends V> source,
+                               double cellSize) {
+        this.source = source;
+        this.isStale = true;
+        this.minX = area.getMinX();
+        this.minY = area.getMinY();
+        this.cellSize = cellSize;
+        this.xNum = Math.max(1, (int) Math.ceil(area.getWidth() / cellSize));
+        this.yNum = Math.max(1, (int) Math.ceil(area.getHeight() / cellSize));
+        this.vehicles = new Object[16];
+        this.boxes = new OrientedBox[16];
+        this.bounds = new double[16 * 4];
+        this.cellRanges = new int[16 * 4];
+        this.cellStart = new int[xNum * yNum + 1];
+        this.cellFill = new int[xNum * yNum];
+        this.cellItems = new int[16];
+    }
+
+    /////////////////////////////////
+    // PUBLIC METHODS
+    /////////////////////////////////
+
+    /**
+     * Mark the index as out of date, so that the next query rebuilds it.
+     */
+    public void invalidate() {
+        isStale = true;
+    }
+
+    /**
+     * Get the number of vehicles in the index.
+     *
+     * @return the number of vehicles in the index
+     */
+    public int size() {
+        refresh();
+        return vehicleNum;
+    }
+
+    /**
+     * Whether the shape of any vehicle intersects a rectangle.
+     *
+     * @param rect  the rectangle
+     * @return whether the shape of any vehicle intersects the rectangle
+     */
+    public boolean anyShapeIntersects(Rectangle2D rect) {
+        refresh();
+        int cx0 = cellX(rect.getMinX());
+        int cy0 = cellY(rect.getMinY());
+        int cx1 = cellX(rect.getMaxX());
+        int cy1 = cellY(rect.getMaxY());
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                int c = cy * xNum + cx;
+                for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                    int i = cellItems[k];
+                    if (boundsIntersect(i, rect)
+                            && intersects(boxes[i], rect)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether a shape intersects the bounding box of any vehicle.
+     *
+     * @param zone  the shape
+     * @return whether the shape intersects the bounding box of any vehicle
+     */
+    public boolean anyBoundsIntersect(Shape zone) {
+        refresh();
+        Rectangle2D rect = zone.getBounds2D();
+        int cx0 = cellX(rect.getMinX());
+        int cy0 = cellY(rect.getMinY());
+        int cx1 = cellX(rect.getMaxX());
+        int cy1 = cellY(rect.getMaxY());
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                int c = cy * xNum + cx;
+                for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                    int i = cellItems[k];
+                    if (boundsIntersect(i, rect)
+                            && zone.intersects(bounds[i * 4],
+                                               bounds[i * 4 + 1],
+                                               bounds[i * 4 + 2] - bounds[i * 4],
+                                               bounds[i * 4 + 3] - bounds[i * 4 + 1])) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Add the vehicles whose shapes do not intersect a rectangle to a
+     * collection, in the order in which the index was built.
+     *
+     * @param rect  the rectangle
+     * @param out   the collection to which the vehicles are added
+     */
+    public void collectOutside(Rectangle2D rect, Collection<? super V> out) {
+        refresh();
+        for (int i = 0; i < vehicleNum; i++) {
+            if (bounds[i * 4] >= rect.getMinX() && bounds[i * 4 + 2] <= rect.getMaxX()
+                    && bounds[i * 4 + 1] >= rect.getMinY()
+                    && bounds[i * 4 + 3] <= rect.getMaxY()) {
+                continue; // the bounding box is inside the rectangle
+            }
+            if (!boundsIntersect(i, rect) || !intersects(boxes[i], rect)) {
+                out.add(vehicle(i));
+            }
+        }
+    }
+
+    /**
+     * Find a pair of vehicles whose shapes overlap.  Pairs of vehicles whose
+     * bounding boxes share a cell are tested with
+     * {@link OrientedBox#intersects(OrientedBox)}.
+     *
+     * @return a pair of vehicles whose shapes overlap; null if there is none
+     */
+    public Collision<V> findCollision() {
+        refresh();
+        for (int c = 0; c < xNum * yNum; c++) {
+            for (int a = cellStart[c]; a < cellStart[c + 1]; a++) {
+                int i = cellItems[a];
+                for (int b = a + 1; b < cellStart[c + 1]; b++) {
+                    int j = cellItems[b];
+                    if (boundsIntersect(i, j) && isFirstSharedCell(i, j, c)
+                            && boxes[i].intersects(boxes[j])) {
+                        return new Collision<V>(vehicle(i), vehicle(j));
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Add every pair of vehicles whose shapes overlap to a collection, each
+     * pair once.
+     *
+     * @param out  the collection to which the pairs are added
+     */
+    public void collectCollisions(Collection<? super Collision<V>> out) {
+        refresh();
+        for (int c = 0; c < xNum * yNum; c++) {
+            for (int a = cellStart[c]; a < cellStart[c + 1]; a++) {
+                int i = cellItems[a];
+                for (int b = a + 1; b < cellStart[c + 1]; b++) {
+                    int j = cellItems[b];
+                    if (boundsIntersect(i, j) && isFirstSharedCell(i, j, c)
+                            && boxes[i].intersects(boxes[j])) {
+                        out.add(new Collision<V>(vehicle(i), vehicle(j)));
+                    }
+                }
+            }
+        }
+    }
+
+    /////////////////////////////////
+    // PRIVATE METHODS
+    /////////////////////////////////
+
+    /**
+     * Rebuild the index from the current shapes of the vehicles if it is out
+     * of date.
+     */
+    private void refresh() {
+        if (isStale) {
+            rebuild();
+            isStale = false;
+        }
+    }
+
+    /**
+     * Replace the content of the index with the current shapes of the
+     * vehicles.
+     */
+    private void rebuild() {
+        vehicleNum = 0;
+        ensureVehicleCapacity(source.size());
+        Arrays.fill(cellStart, 0);
+        int itemNum = 0;
+        for (V v : source) {
+            int i = vehicleNum++;
+            vehicles[i] = v;
+            OrientedBox box = v.getOrientedBox();
+            boxes[i] = box;
+            double x0 = box.getMinX();
+            double y0 = box.getMinY();
+            double x1 = box.getMaxX();
+            double y1 = box.getMaxY();
+            bounds[i * 4] = x0;
+            bounds[i * 4 + 1] = y0;
+            bounds[i * 4 + 2] = x1;
+            bounds[i * 4 + 3] = y1;
+            int cx0 = cellX(x0);
+            int cy0 = cellY(y0);
+            int cx1 = cellX(x1);
+            int cy1 = cellY(y1);
+            cellRanges[i * 4] = cx0;
+            cellRanges[i * 4 + 1] = cy0;
+            cellRanges[i * 4 + 2] = cx1;
+            cellRanges[i * 4 + 3] = cy1;
+            for (int cy = cy0; cy <= cy1; cy++) {
+                for (int cx = cx0; cx <= cx1; cx++) {
+                    cellStart[cy * xNum + cx + 1]++;
+                }
+            }
+            itemNum += (cx1 - cx0 + 1) * (cy1 - cy0 + 1);
+        }
+        for (int c = 0; c < xNum * yNum; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        if (cellItems.length < itemNum) {
+            cellItems = new int[Math.max(itemNum, cellItems.length * 2)];
+        }
+        System.arraycopy(cellStart, 0, cellFill, 0, xNum * yNum);
+        for (int i = 0; i < vehicleNum; i++) {
+            for (int cy = cellRanges[i * 4 + 1]; cy <= cellRanges[i * 4 + 3]; cy++) {
+                for (int cx = cellRanges[i * 4]; cx <= cellRanges[i * 4 + 2]; cx++) {
+                    cellItems[cellFill[cy * xNum + cx]++] = i;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Get the vehicle at an index.
+     *
+     * @param i  the index
+     * @return the vehicle
+     */
+    @SuppressWarnings("unchecked")
+    private V vehicle(int i) {
+        return (V) vehicles[i];
+    }
+
+    /**
+     * Make sure the arrays can hold a number of vehicles.
+     *
+     * @param n  the number of vehicles
+     */
+    private void ensureVehicleCapacity(int n) {
+        if (vehicles.length < n) {
+            int capacity = Math.max(n, vehicles.length * 2);
+            vehicles = new Object[capacity];
+            boxes = new OrientedBox[capacity];
+            bounds = new double[capacity * 4];
+            cellRanges = new int[capacity * 4];
+        } else {
+            Arrays.fill(vehicles, n, vehicles.length, null);
+            Arrays.fill(boxes, n, boxes.length, null);
+        }
+    }
+
+    /**
+     * Get the column of the cell containing an x-coordinate.
+     *
+     * @param x  the x-coordinate
+     * @return the column, clamped to the grid
+     */
+    private int cellX(double x) {
+        int cx = (int) Math.floor((x - minX) / cellSize);
+        return Math.min(Math.max(cx, 0), xNum - 1);
+    }
+
+    /**
+     * Get the row of the cell containing a y-coordinate.
+     *
+     * @param y  the y-coordinate
+     * @return the row, clamped to the grid
+     */
+    private int cellY(double y) {
+        int cy = (int) Math.floor((y - minY) / cellSize);
+        return Math.min(Math.max(cy, 0), yNum - 1);
+    }
+
+    /**
+     * Whether the bounding box of a vehicle intersects a rectangle.
+     *
+     * @param i     the index of the vehicle
+     * @param rect  the rectangle
+     * @return whether the bounding box intersects the rectangle
+     */
+    private boolean boundsIntersect(int i, Rectangle2D rect) {
+        return bounds[i * 4] <= rect.getMaxX() && bounds[i * 4 + 2] >= rect.getMinX()
+                && bounds[i * 4 + 1] <= rect.getMaxY()
+                && bounds[i * 4 + 3] >= rect.getMinY();
+    }
+
+    /**
+     * Whether the bounding boxes of two vehicles intersect.
+     *
+     * @param i  the index of the first vehicle
+     * @param j  the index of the second vehicle
+     * @return whether the bounding boxes intersect
+     */
+    private boolean boundsIntersect(int i, int j) {
+        return bounds[i * 4] < bounds[j * 4 + 2] && bounds[j * 4] < bounds[i * 4 + 2]
+                && bounds[i * 4 + 1] < bounds[j * 4 + 3]
+                && bounds[j * 4 + 1] < bounds[i * 4 + 3];
+    }
+
+    /**
+     * Whether a cell is the first cell, in the order of the grid, that is
+     * covered by both of two vehicles, so that each pair is tested once.
+     *
+     * @param i  the index of the first vehicle
+     * @param j  the index of the second vehicle
+     * @param c  the cell
+     * @return whether the cell is the first cell covered by both vehicles
+     */
+    private boolean isFirstSharedCell(int i, int j, int c) {
+        int cx = Math.max(cellRanges[i * 4], cellRanges[j * 4]);
+        int cy = Math.max(cellRanges[i * 4 + 1], cellRanges[j * 4 + 1]);
+        return cy * xNum + cx == c;
+    }
+
+    /**
+     * Whether a box intersects a rectangle.
+     *
+     * @param box   the box
+     * @param rect  the rectangle
+     * @return whether the box intersects the rectangle
+     */
+    private static boolean intersects(OrientedBox box, Rectangle2D rect) {
+        return box.intersects(rect.getX(), rect.getY(), rect.getWidth(), rect.getHeight());
+    }
+}
@@ -35,6 +35,7 @@ import java.awt.geom.GeneralPath;
 import java.awt.geom.Point2D;
 
 import aim4.config.SimConfig;
+import aim4.util.OrientedBox;
 
 /**
  * The characteristics of the vehicle
@@ -513,6 +514,55 @@ public class VehicleSpec {
   }
 
 
+  /**
+   * Set a box to the corners of the Vehicle.
+   *
+   * @param pos      the position of the vehicle
+   * @param heading  the heading of the vehicle
+   * @param result   the box to which the corners are written
+   */
+  public void getCornerPoints(Point2D pos, double heading,
+                              OrientedBox result) {
+    getCornerPoints(0.0, pos, heading, result);
+  }
+
+  /**
+   * Set a box to the corners of the Vehicle, assuming it is larger in each
+   * dimension by a fixed amount.  The corners are the same as the ones of
+   * {@link #getCornerPoints(double, Point2D, double)}, or of
+   * {@link #getCornerPoints(Point2D, double)} if extra is zero.
+   *
+   * @param extra    the fixed amount to add to each dimension of the Vehicle.
+   * @param pos      the position of the vehicle
+   * @param heading  the heading of the vehicle
+   * @param result   the box to which the corners are written
+   */
+  public void getCornerPoints(double extra, Point2D pos, double heading,
+                              OrientedBox result) {
+    double x0, y0, x3, y3;
+    if (extra == 0.0) {
+      x0 = pos.getX() + halfWidth * Math.cos(heading + Math.PI/2);
+      y0 = pos.getY() + halfWidth * Math.sin(heading + Math.PI/2);
+      x3 = pos.getX() + halfWidth * Math.cos(heading - Math.PI/2);
+      y3 = pos.getY() + halfWidth * Math.sin(heading - Math.PI/2);
+    } else {
+      x0 = pos.getX() + (extra/2) * Math.cos(heading) +
+           ((width + extra)/2) * Math.cos(heading + Math.PI/2);
+      y0 = pos.getY() + (extra/2) * Math.sin(heading) +
+           ((width + extra)/2) * Math.sin(heading + Math.PI/2);
+      x3 = pos.getX() + (extra/2) * Math.cos(heading) +
+           ((width + extra)/2) * Math.cos(heading - Math.PI/2);
+      y3 = pos.getY() + (extra/2) * Math.sin(heading) +
+           ((width + extra)/2) * Math.sin(heading - Math.PI/2);
+    }
+    result.set(x0, y0,
+               x0 + (length + extra) * Math.cos(heading + Math.PI),
+               y0 + (length + extra) * Math.sin(heading + Math.PI),
+               x3 + (length + extra) * Math.cos(heading - Math.PI),
+               y3 + (length + extra) * Math.sin(heading - Math.PI),
+               x3, y3);
+  }
+
   /**
    * Get the point between the rear wheels.
    *
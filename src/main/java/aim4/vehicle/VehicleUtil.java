@@ -40,15 +40,17 @@ import aim4.im.merge.MergeManager;
 import aim4.map.lane.Lane;
 import aim4.map.merge.MergeMap;
 import aim4.util.GeomMath;
+import aim4.util.OrientedBox;
 import aim4.util.Util;
 import aim4.vehicle.aim.AIMBasicAutoVehicle;
 import aim4.vehicle.merge.MergeBasicAutoVehicle;
 
 import java.awt.geom.Area;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * The utility functions for vehicles.
@@ -102,12 +104,13 @@ public class VehicleUtil {
 
     /**
      * Memoization caches for max turn velocities for various vehicle
-     * specification.
+     * specification.  They are concurrent maps because drivers may act in
+     * parallel.
      */
-    private static Map<String,Map<List<Integer>, Double>>
-            memoMaxTurnVelocity = new HashMap<String,Map<List<Integer>,Double>>();
-    private static Map<String,Map<List<Integer>, Double>>
-            memoMaxTurnVelocityMerge = new HashMap<String,Map<List<Integer>,Double>>();
+    private static ConcurrentMap<String,ConcurrentMap<List<Integer>, Double>>
+            memoMaxTurnVelocity = new ConcurrentHashMap<String,ConcurrentMap<List<Integer>,Double>>();
+    private static ConcurrentMap<String,ConcurrentMap<List<Integer>, Double>>
+            memoMaxTurnVelocityMerge = new ConcurrentHashMap<String,ConcurrentMap<List<Integer>,Double>>();
 
 
     /////////////////////////////////
@@ -139,8 +142,8 @@ public class VehicleUtil {
         // check to see if the spec has been seem before.
         if (!memoMaxTurnVelocity.containsKey(spec.getName())) {
             // if not, create a map for it
-            memoMaxTurnVelocity.put(spec.getName(),
-                    new HashMap<List<Integer>,Double>());
+            memoMaxTurnVelocity.putIfAbsent(spec.getName(),
+                    new ConcurrentHashMap<List<Integer>,Double>());
         }
 
         // check to see if the max turn velocity has been stored in the cache
@@ -187,8 +190,8 @@ public class VehicleUtil {
         // check to see if the spec has been seem before.
         if (!memoMaxTurnVelocityMerge.containsKey(spec.getName())) {
             // if not, create a map for it
-            memoMaxTurnVelocityMerge.put(spec.getName(),
-                    new HashMap<List<Integer>,Double>());
+            memoMaxTurnVelocityMerge.putIfAbsent(spec.getName(),
+                    new ConcurrentHashMap<List<Integer>,Double>());
         }
 
         // check to see if the max turn velocity has been stored in the cache
@@ -749,6 +752,12 @@ public class VehicleUtil {
         if (area.contains(v.getPosition()) || area.contains(v.getPointAtRear())) {
             return true;
         } else {
+            // The vehicle cannot meet the area if their bounds do not
+            OrientedBox box = v.getOrientedBox();
+            if (!area.getBounds2D().intersects(box.getMinX(), box.getMinY(),
+                    box.getMaxX() - box.getMinX(), box.getMaxY() - box.getMinY())) {
+                return false;
+            }
             // We actually have to check to see if the Area of the
             // Vehicle and the Area of the IntersectionManager have a nonempty
             // intersection
@@ -773,6 +782,12 @@ public class VehicleUtil {
         if (area.contains(v.getPointAtMiddleFront(Constants.DOUBLE_EQUAL_PRECISION)) || area.contains(v.getPointAtRear())) {
             return true;
         } else {
+            // The vehicle cannot meet the area if their bounds do not
+            OrientedBox box = v.getOrientedBox();
+            if (!area.getBounds2D().intersects(box.getMinX(), box.getMinY(),
+                    box.getMaxX() - box.getMinX(), box.getMaxY() - box.getMinY())) {
+                return false;
+            }
             // We actually have to check to see if the Area of the
             // Vehicle and the Area of the IntersectionManager have a nonempty
             // intersection
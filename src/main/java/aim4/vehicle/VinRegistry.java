@@ -30,69 +30,282 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.vehicle;
 
-import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 
 import aim4.driver.aim.AIMDriver;
 import aim4.driver.cpm.CPMV2VDriver;
 import aim4.map.Road;
 import aim4.map.SpawnPoint;
+import aim4.sim.SimulationContext;
 
 /**
  * The Vehicle Registry, the class that issues VIN to vehicles.
+ * <p>
+ * Each simulation context owns a registry.  The static methods act on the
+ * registry of the simulation context of the calling thread.
+ * <p>
+ * VINs are issued in increasing order, so the registry keeps its records in
+ * arrays indexed by VIN.  The specification, spawn point and destination
+ * road of every issued VIN are kept for the whole simulation, as small
+ * indices into tables of the distinct values.  Registered vehicles are kept
+ * in a window of VINs that slides forward as vehicles are retired, until
+ * they are removed by {@link BasicVehicle#retire()}.  A VIN too far from
+ * the VINs already in the arrays, e.g. one brought by a proxy vehicle, is
+ * kept in a hash map instead, so that the arrays never span a large gap.
  */
 public class VinRegistry {
 
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * A table that gives each distinct value, including null, a small index.
+   * Values are compared by identity.
+   */
+  private static class ValueTable<T> {
+    /** The values, by index */
+    private final List<T> values = new ArrayList<T>();
+    /** The indices of the values */
+    private final Map<T,Integer> indices = new IdentityHashMap<T,Integer>();
+
+    /**
+     * Get the index of a value, adding the value if it is new.
+     *
+     * @param value  the value
+     * @return the index of the value
+     */
+    int indexOf(T value) {
+      Integer index = indices.get(value);
+      if (index == null) {
+        index = values.size();
+        values.add(value);
+        indices.put(value, index);
+      }
+      return index;
+    }
+
+    /**
+     * Get the value with a given index.
+     *
+     * @param index  the index
+     * @return the value
+     */
+    T get(int index) {
+      return values.get(index);
+    }
+  }
+
   /////////////////////////////////
   // PRIVATE FIELDS
   /////////////////////////////////
 
+  /** The first VIN issued by the registry. */
+  private static final int FIRST_VIN = 1000;
+
+  /** The initial number of VINs the arrays can hold. */
+  private static final int INITIAL_CAPACITY = 256;
+
+  /**
+   * The number of unused slots, in addition to the number of VINs in use,
+   * above which a VIN is kept in a hash map instead of an array.
+   */
+  private static final int MAX_UNUSED_SLOTS = 1024;
+
   /**
    * This generates a unique identifier for each vehicle, starting with 1000.
    */
-  private static int vinGenerator = 1000;
+  private int vinGenerator;
 
+  /** The VIN at index zero of the record arrays. */
+  private int recordBase;
+  /** The number of VINs covered by the record arrays. */
+  private int recordLength;
   /**
-   * A map from VINs to Vehicles.
+   * The index of the specification of each VIN in {@link #specs}; -1 if the
+   * VIN has not been issued.
    */
-  private static Map<Integer,WeakReference<VehicleSimModel>> vinToVehicle =
-    new HashMap<Integer,WeakReference<VehicleSimModel>>();
+  private int[] specIndices;
+  /** The index of the spawn point of each VIN in {@link #spawnPoints}. */
+  private int[] spawnPointIndices;
+  /** The index of the destination road of each VIN in {@link #destRoads}. */
+  private int[] destRoadIndices;
 
   /**
-   * A map from VINs to VehicleSpec.
+   * The indices of the specification, spawn point and destination road of
+   * the VINs too far from the record arrays.
    */
-  private static Map<Integer,VehicleSpec> vinToVehicleSpec =
-    new HashMap<Integer,VehicleSpec>();
+  private Map<Integer,int[]> sparseRecords;
+
+  /** The distinct vehicle specifications. */
+  private ValueTable<VehicleSpec> specs;
 
   // TODO: remove the following in the future
 
+  /** The distinct spawn points. */
+  private ValueTable<SpawnPoint> spawnPoints;
+  /** The distinct destination roads. */
+  private ValueTable<Road> destRoads;
+
+  /** The VIN at index zero of {@link #vehicles}. */
+  private int vehicleBase;
+  /** The number of VINs covered by {@link #vehicles}. */
+  private int vehicleLength;
+  /** The index of the first registered vehicle in {@link #vehicles}. */
+  private int firstVehicle;
+  /** The number of registered vehicles. */
+  private int numOfVehicles;
+  /** The registered vehicles, by VIN; null for the other VINs. */
+  private VehicleSimModel[] vehicles;
+  /** The registered vehicles whose VINs are too far from the window. */
+  private Map<Integer,VehicleSimModel> sparseVehicles;
+
+
+  /////////////////////////////////
+  // PUBLIC STATIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the registry of the simulation context of the calling thread.
+   *
+   * @return the registry
+   */
+  public static VinRegistry current() {
+    return SimulationContext.current().getVinRegistry();
+  }
+
+  /**
+   * Reset the registry.
+   */
+  public static void reset() {
+    current().clear();
+  }
+
+  /**
+   * Put the vehicle to the registry.
+   *
+   * @param vehicle  the vehicle
+   * @return  a new VIN for the vehicle
+   */
+  public static int registerVehicle(VehicleSimModel vehicle) {
+    return current().register(vehicle);
+  }
+
+  /**
+   * Register the vehicle with an existing VIN.
+   *
+   * @param vehicle  the vehicle
+   * @param vin      the given VIN
+   * @return true if the VIN has not been issued to other vehicle; false if
+   *         the VIN has been used by other vehicle.
+   */
+  public static boolean registerVehicleWithExistingVIN(VehicleSimModel vehicle,
+                                                       int vin) {
+    return current().registerWithExistingVIN(vehicle, vin);
+  }
+
+  /**
+   * Remove the vehicle from the registry.
+   * This function should only be used by BasicVehicle.java
+   *
+   * @param vin  the VIN of the vehicle
+   */
+  public static void unregisterVehicle(int vin) {
+    current().unregister(vin);
+  }
+
   /**
-   * A map from VINs to spawn points.
+   * Whether or not the VIN has been issued.
+   *
+   * @param vin  the VIN of the vehicle
+   * @return whether of not the VIN has been issued.
    */
-  private static Map<Integer,SpawnPoint> vinToSpawnPoint =
-    new HashMap<Integer,SpawnPoint>();
+  public static boolean isVINexist(int vin) {
+    return current().isIssued(vin);
+  }
 
   /**
-   * A map from VINs to destination roads.
+   * Given a VIN, get the vehicle with that VIN.
+   *
+   * @param vin the VIN of the desired vehicle
+   * @return the corresponding vehicle object; null if the vehicle has been
+   *         retired.
    */
-  private static Map<Integer,Road> vinToDestRoad =
-    new HashMap<Integer,Road>();
+  public static VehicleSimModel getVehicleFromVIN(int vin) {
+    return current().getVehicle(vin);
+  }
 
+  /**
+   * Given a VIN, get the vehicle specification with that VIN.
+   *
+   * @param vin  the VIN of the desired vehicle
+   * @return the corresponding vehicle specification
+   */
+  public static VehicleSpec getVehicleSpecFromVIN(int vin) {
+    return current().getVehicleSpec(vin);
+  }
+
+  /**
+   * Get a spawn point from the VIN of a vehicle
+   *
+   * @param vin  the VIN of the vehicle
+   * @return the spawn point
+   */
+  public static SpawnPoint getSpawnPointFromVIN(int vin) {
+    return current().getSpawnPoint(vin);
+  }
+
+  /**
+   * Get the destination road from the VIN of a vehicle
+   *
+   * @param vin  the VIN of the vehicle
+   * @return the destination road
+   */
+  public static Road getDestRoadFromVIN(int vin) {
+    return current().getDestRoad(vin);
+  }
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create an empty registry.  Use the registry of a
+   * {@link SimulationContext} rather than creating one.
+   */
+  public VinRegistry() {
+    clear();
+  }
 
   /////////////////////////////////
   // PUBLIC METHODS
   /////////////////////////////////
 
   /**
-   * Reset the registry.
+   * Clear the registry.
    */
-  public static void reset() {
-    vinGenerator = 1000;
-    vinToVehicle = new HashMap<Integer,WeakReference<VehicleSimModel>>();
-    vinToVehicleSpec = new HashMap<Integer,VehicleSpec>();
-    vinToSpawnPoint = new HashMap<Integer,SpawnPoint>();
-    vinToDestRoad = new HashMap<Integer,Road>();
+  public void clear() {
+    vinGenerator = FIRST_VIN;
+    recordBase = FIRST_VIN;
+    recordLength = 0;
+    specIndices = newRecordArray(INITIAL_CAPACITY);
+    spawnPointIndices = new int[INITIAL_CAPACITY];
+    destRoadIndices = new int[INITIAL_CAPACITY];
+    sparseRecords = new HashMap<Integer,int[]>();
+    specs = new ValueTable<VehicleSpec>();
+    spawnPoints = new ValueTable<SpawnPoint>();
+    destRoads = new ValueTable<Road>();
+    vehicleBase = FIRST_VIN;
+    vehicleLength = 0;
+    firstVehicle = 0;
+    numOfVehicles = 0;
+    vehicles = new VehicleSimModel[INITIAL_CAPACITY];
+    sparseVehicles = new HashMap<Integer,VehicleSimModel>();
   }
 
   /**
@@ -101,19 +314,20 @@ public class VinRegistry {
    * @param vehicle  the vehicle
    * @return  a new VIN for the vehicle
    */
-  public static int registerVehicle(VehicleSimModel vehicle) {
-    assert vinToVehicle.get(vinGenerator) == null;
+  public int register(VehicleSimModel vehicle) {
+    assert getVehicle(vinGenerator) == null;
     int vin = vinGenerator;
-    vinToVehicle.put(vin, new WeakReference<VehicleSimModel>(vehicle));
-    vinToVehicleSpec.put(vin, vehicle.getSpec());
+    SpawnPoint spawnPoint = null;
+    Road destRoad = null;
     if(vehicle.getDriver() instanceof AIMDriver) { //TODO: Ugly, fix.
-      vinToSpawnPoint.put(vin, ((AIMDriver) vehicle.getDriver()).getSpawnPoint());
-      vinToDestRoad.put(vin, ((AIMDriver) vehicle.getDriver()).getDestination());
+      spawnPoint = ((AIMDriver) vehicle.getDriver()).getSpawnPoint();
+      destRoad = ((AIMDriver) vehicle.getDriver()).getDestination();
     }
     if(vehicle.getDriver() instanceof CPMV2VDriver) { //TODO: Ugly, fix.
-      vinToSpawnPoint.put(vin, ((CPMV2VDriver) vehicle.getDriver()).getSpawnPoint());
+      spawnPoint = ((CPMV2VDriver) vehicle.getDriver()).getSpawnPoint();
     }
-
+    putRecord(vin, vehicle.getSpec(), spawnPoint, destRoad);
+    putVehicle(vin, vehicle);
 
     vehicle.setVIN(vin);
 
@@ -129,26 +343,22 @@ public class VinRegistry {
    * @return true if the VIN has not been issued to other vehicle; false if
    *         the VIN has been used by other vehicle.
    */
-  public static boolean registerVehicleWithExistingVIN(VehicleSimModel vehicle,
-                                                       int vin) {
+  public boolean registerWithExistingVIN(VehicleSimModel vehicle, int vin) {
     assert vin >= 0;
-    if (vinToVehicle.containsKey(vin)) {
+    if (getVehicle(vin) != null) {
       return false;  // the VIN has been used by some other vehicle
     } else {
       assert vehicle.getVIN() < 0;
 
-      vinToVehicle.put(vin, new WeakReference<VehicleSimModel>(vehicle));
-      vinToVehicleSpec.put(vin, vehicle.getSpec());
+      SpawnPoint spawnPoint = null;
+      Road destRoad = null;
       // TODO: think how to resolve the problem.
       if(vehicle.getDriver() instanceof AIMDriver) { //TODO: Ugly, fix.
-          if (vehicle.getDriver() != null) {
-              vinToSpawnPoint.put(vin, ((AIMDriver) vehicle.getDriver()).getSpawnPoint());
-              vinToDestRoad.put(vin, ((AIMDriver) vehicle.getDriver()).getDestination());
-          } else {
-              vinToSpawnPoint.put(vin, null);
-              vinToDestRoad.put(vin, null);
-          }
+        spawnPoint = ((AIMDriver) vehicle.getDriver()).getSpawnPoint();
+        destRoad = ((AIMDriver) vehicle.getDriver()).getDestination();
       }
+      putRecord(vin, vehicle.getSpec(), spawnPoint, destRoad);
+      putVehicle(vin, vehicle);
 
       vehicle.setVIN(vin);
       if (vin >= vinGenerator) {
@@ -159,22 +369,27 @@ public class VinRegistry {
   }
 
   /**
-   * Remove the vehicle from the registry.
-   * This function should only be used by BasicVehicle.java
+   * Remove the vehicle from the registry.  The records of the VIN are kept.
    *
    * @param vin  the VIN of the vehicle
    */
-  public static void unregisterVehicle(int vin) {
-    if (vinToVehicle.containsKey(vin)) {
-      vinToVehicle.remove(vin);
-      // do not remove the following
-//      vinToVehicleSpec.remove(vin);
-//      vinToSpawnPoint.remove(vin);
-//      vinToDestRoad.remove(vin);
-    } else {
+  public void unregister(int vin) {
+    if (getVehicle(vin) == null) {
       throw new RuntimeException("VehicleRegistry:unregisterVehicle: " +
                                  "Cannot unregister a vehicle twice");
     }
+    numOfVehicles--;
+    int i = vin - vehicleBase;
+    if (i < firstVehicle || i >= vehicleLength || vehicles[i] == null) {
+      sparseVehicles.remove(vin);
+      return;
+    }
+    vehicles[i] = null;
+    if (i == firstVehicle) {
+      while(firstVehicle < vehicleLength && vehicles[firstVehicle] == null) {
+        firstVehicle++;
+      }
+    }
   }
 
   /**
@@ -183,29 +398,23 @@ public class VinRegistry {
    * @param vin  the VIN of the vehicle
    * @return whether of not the VIN has been issued.
    */
-  public static boolean isVINexist(int vin) {
-    return vinToVehicleSpec.containsKey(vin);
+  public boolean isIssued(int vin) {
+    return recordIndex(vin) >= 0 || sparseRecord(vin) != null;
   }
 
   /**
    * Given a VIN, get the vehicle with that VIN.
    *
    * @param vin the VIN of the desired vehicle
-   * @return the corresponding vehicle object; null if the vehicle object
-   *         has been destroyed.
+   * @return the corresponding vehicle object; null if the vehicle has been
+   *         retired.
    */
-  public static VehicleSimModel getVehicleFromVIN(int vin) {
-    WeakReference<VehicleSimModel> wr = vinToVehicle.get(vin);
-    if(wr == null) {
-      return null;
-    }
-    // Unwrap the reference
-    VehicleSimModel v = wr.get();
-    // If it's null, then the Vehicle no longer exists
-    if(v == null) {
-      vinToVehicle.remove(vin);
+  public VehicleSimModel getVehicle(int vin) {
+    int i = vin - vehicleBase;
+    if (i >= firstVehicle && i < vehicleLength && vehicles[i] != null) {
+      return vehicles[i];
     }
-    return v;
+    return sparseVehicles.isEmpty() ? null : sparseVehicles.get(vin);
   }
 
   /**
@@ -214,8 +423,13 @@ public class VinRegistry {
    * @param vin  the VIN of the desired vehicle
    * @return the corresponding vehicle specification
    */
-  public static VehicleSpec getVehicleSpecFromVIN(int vin) {
-    return vinToVehicleSpec.get(vin);
+  public VehicleSpec getVehicleSpec(int vin) {
+    int i = recordIndex(vin);
+    if (i >= 0) {
+      return specs.get(specIndices[i]);
+    }
+    int[] record = sparseRecord(vin);
+    return (record != null) ? specs.get(record[0]) : null;
   }
 
   /**
@@ -224,8 +438,13 @@ public class VinRegistry {
    * @param vin  the VIN of the vehicle
    * @return the spawn point
    */
-  public static SpawnPoint getSpawnPointFromVIN(int vin) {
-    return vinToSpawnPoint.get(vin);
+  public SpawnPoint getSpawnPoint(int vin) {
+    int i = recordIndex(vin);
+    if (i >= 0) {
+      return spawnPoints.get(spawnPointIndices[i]);
+    }
+    int[] record = sparseRecord(vin);
+    return (record != null) ? spawnPoints.get(record[1]) : null;
   }
 
   /**
@@ -234,17 +453,192 @@ public class VinRegistry {
    * @param vin  the VIN of the vehicle
    * @return the destination road
    */
-  public static Road getDestRoadFromVIN(int vin) {
-    return vinToDestRoad.get(vin);
+  public Road getDestRoad(int vin) {
+    int i = recordIndex(vin);
+    if (i >= 0) {
+      return destRoads.get(destRoadIndices[i]);
+    }
+    int[] record = sparseRecord(vin);
+    return (record != null) ? destRoads.get(record[2]) : null;
+  }
+
+  /**
+   * Get the number of registered vehicles, which have not been retired.
+   *
+   * @return the number of registered vehicles
+   */
+  public int getNumOfVehicles() {
+    return numOfVehicles;
   }
 
   /////////////////////////////////
-  // CONSTRUCTORS
+  // PRIVATE METHODS
   /////////////////////////////////
 
   /**
-   * This class should never be instantiated.
+   * Get the index of the records of a VIN.
+   *
+   * @param vin  the VIN
+   * @return the index of the records of the VIN; -1 if the VIN has not been
+   *         issued
+   */
+  private int recordIndex(int vin) {
+    int i = vin - recordBase;
+    if (i < 0 || i >= recordLength || specIndices[i] < 0) {
+      return -1;
+    }
+    return i;
+  }
+
+  /**
+   * Get the indices of the records of a VIN kept in the hash map.
+   *
+   * @param vin  the VIN
+   * @return the indices of the specification, spawn point and destination
+   *         road of the VIN; null if the VIN is not in the hash map
+   */
+  private int[] sparseRecord(int vin) {
+    return sparseRecords.isEmpty() ? null : sparseRecords.get(vin);
+  }
+
+  /**
+   * Record the specification, spawn point and destination road of a VIN.
+   * The record arrays are extended to the VIN only if it adds at most
+   * {@link #MAX_UNUSED_SLOTS} unused slots to them.
+   *
+   * @param vin         the VIN
+   * @param spec        the vehicle specification
+   * @param spawnPoint  the spawn point
+   * @param destRoad    the destination road
    */
-  private VinRegistry(){};
+  private void putRecord(int vin, VehicleSpec spec, SpawnPoint spawnPoint,
+                         Road destRoad) {
+    if (recordLength == 0) {
+      recordBase = vin;
+    }
+    if (vin < (long) recordBase - MAX_UNUSED_SLOTS
+        || vin >= (long) recordBase + recordLength + MAX_UNUSED_SLOTS) {
+      sparseRecords.put(vin, new int[] { specs.indexOf(spec),
+                                         spawnPoints.indexOf(spawnPoint),
+                                         destRoads.indexOf(destRoad) });
+      return;
+    }
+    if (!sparseRecords.isEmpty()) {
+      sparseRecords.remove(vin);
+    }
+    if (vin < recordBase) {
+      // a VIN given by a proxy vehicle can be below the first issued VIN
+      int shift = recordBase - vin;
+      specIndices = copyRecordArray(specIndices, shift, recordLength + shift);
+      spawnPointIndices = copyRecordArray(spawnPointIndices, shift,
+                                          recordLength + shift);
+      destRoadIndices = copyRecordArray(destRoadIndices, shift,
+                                        recordLength + shift);
+      recordBase = vin;
+      recordLength += shift;
+    }
+    int i = vin - recordBase;
+    if (i >= specIndices.length) {
+      int capacity = Math.max(i + 1, specIndices.length * 2);
+      specIndices = copyRecordArray(specIndices, 0, capacity);
+      spawnPointIndices = copyRecordArray(spawnPointIndices, 0, capacity);
+      destRoadIndices = copyRecordArray(destRoadIndices, 0, capacity);
+    }
+    specIndices[i] = specs.indexOf(spec);
+    spawnPointIndices[i] = spawnPoints.indexOf(spawnPoint);
+    destRoadIndices[i] = destRoads.indexOf(destRoad);
+    recordLength = Math.max(recordLength, i + 1);
+  }
+
+  /**
+   * Put a vehicle in the window of registered vehicles.  The retired
+   * vehicles at the start of the window are dropped when the window has to
+   * grow.  The vehicle is kept in the hash map instead if the window would
+   * have more than {@link #MAX_UNUSED_SLOTS} unused slots.
+   *
+   * @param vin      the VIN
+   * @param vehicle  the vehicle
+   */
+  private void putVehicle(int vin, VehicleSimModel vehicle) {
+    int numInWindow = numOfVehicles - sparseVehicles.size();
+    if (numInWindow > 0) {
+      long first = Math.min(vehicleBase + firstVehicle, vin);
+      long last = Math.max(vehicleBase + vehicleLength, vin + 1L);
+      if (last - first > 2L * (numInWindow + 1) + MAX_UNUSED_SLOTS) {
+        sparseVehicles.put(vin, vehicle);
+        numOfVehicles++;
+        return;
+      }
+    }
+    if (numInWindow == 0) {
+      // start a new window at the VIN; all slots are already empty
+      vehicleBase = vin;
+      vehicleLength = 0;
+      firstVehicle = 0;
+    } else if (vin < vehicleBase + firstVehicle) {
+      // move the window back to the VIN
+      int first = vehicleBase + firstVehicle;
+      int last = vehicleBase + vehicleLength;
+      VehicleSimModel[] window =
+        new VehicleSimModel[Math.max(vehicles.length, 2 * (last - vin))];
+      System.arraycopy(vehicles, firstVehicle, window, first - vin,
+                       last - first);
+      vehicles = window;
+      vehicleBase = vin;
+      vehicleLength = last - vin;
+      firstVehicle = 0;
+    } else if (vin - vehicleBase >= vehicles.length) {
+      // drop the retired vehicles at the start of the window
+      int first = vehicleBase + firstVehicle;
+      int length = vehicleLength - firstVehicle;
+      VehicleSimModel[] window = vehicles;
+      if (vin - first >= vehicles.length) {
+        window = new VehicleSimModel[Math.max(vin - first + 1,
+                                              vehicles.length * 2)];
+      }
+      System.arraycopy(vehicles, firstVehicle, window, 0, length);
+      if (window == vehicles) {
+        Arrays.fill(vehicles, length, vehicleLength, null);
+      }
+      vehicles = window;
+      vehicleBase = first;
+      vehicleLength = length;
+      firstVehicle = 0;
+    }
+    int i = vin - vehicleBase;
+    vehicles[i] = vehicle;
+    numOfVehicles++;
+    vehicleLength = Math.max(vehicleLength, i + 1);
+    firstVehicle = Math.min(firstVehicle, i);
+  }
+
+  /**
+   * Create an array of records of VINs that have not been issued.
+   *
+   * @param capacity  the number of VINs
+   * @return the array
+   */
+  private static int[] newRecordArray(int capacity) {
+    int[] array = new int[capacity];
+    Arrays.fill(array, -1);
+    return array;
+  }
+
+  /**
+   * Copy an array of records to a new array of a given size, starting at a
+   * given index.  The rest of the new array is filled with records of VINs
+   * that have not been issued.
+   *
+   * @param array     the array
+   * @param shift     the index of the copy of the first record
+   * @param capacity  the size of the new array
+   * @return the new array
+   */
+  private static int[] copyRecordArray(int[] array, int shift, int capacity) {
+    int[] copy = newRecordArray(capacity);
+    System.arraycopy(array, 0, copy, shift,
+                     Math.min(array.length, capacity - shift));
+    return copy;
+  }
 
 }
@@ -0,0 +1,145 @@
+package aim4.cpm.map.parking;
+
+import aim4.map.cpm.CPMCarParkWithStatus;
+import aim4.map.cpm.parking.ParkingLane;
+import aim4.map.cpm.parking.StatusMonitor;
+import aim4.map.cpm.parking.StatusMonitor.AllocationPolicy;
+import aim4.sim.simulator.cpm.CPMAutoDriverSimulator;
+import aim4.vehicle.VehicleSpec;
+import aim4.vehicle.cpm.CPMBasicAutoVehicle;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that the Status Monitor allocates the same parking lanes as a scan of
+ * all the lanes, for both allocation policies, as vehicles of different lengths enter, relocate and exit.
+ */
+public class StatusMonitorAllocationTest {
+    private final static int STEPS = 5000;
+    private final static double[] VEHICLE_LENGTHS = {3.0, 4.0, 4.5, 6.0};
+
+    @Test
+    public void testMostSpaceMatchesScan() throws Exception {
+        checkAgainstScan(AllocationPolicy.MOST_SPACE);
+    }
+
+    @Test
+    public void testBestFitMatchesScan() throws Exception {
+        checkAgainstScan(AllocationPolicy.BEST_FIT);
+    }
+
+    @Test
+    public void testBestFitFillsTheFullestLane() throws Exception {
+        CPMCarParkWithStatus map = new CPMCarParkWithStatus(4, 10.0, 0.0, 3, 20, 5);
+        StatusMonitor monitor = new StatusMonitor(map.getParkingArea(), AllocationPolicy.BEST_FIT);
+        CPMBasicAutoVehicle first = mockVehicle(4.0);
+        monitor.vehicleOnEntry(first);
+        ParkingLane lane = monitor.getVehicles().get(first);
+        assertEquals(lowestId(map.getParkingArea().getParkingLanes()), lane.getId());
+        CPMBasicAutoVehicle second = mockVehicle(4.0);
+        monitor.vehicleOnEntry(second);
+        assertSame(lane, monitor.getVehicles().get(second));
+    }
+
+    /**
+     * Run random entries, relocations and exits and compare the allocated
+     * lanes and the space left with a scan of all the lanes.
+     */
+    private void checkAgainstScan(AllocationPolicy policy) {
+        Random random = new Random(11L);
+        CPMCarParkWithStatus map = new CPMCarParkWithStatus(4, 10.0, 0.0, 7, 30, 5);
+        List<ParkingLane> lanes = map.getParkingArea().getParkingLanes();
+        StatusMonitor monitor = new StatusMonitor(map.getParkingArea(), policy);
+        Map<ParkingLane, Double> space = new IdentityHashMap<ParkingLane, Double>();
+        for (ParkingLane lane : lanes) {
+            space.put(lane, lane.getTotalParkingLength());
+        }
+        List<CPMBasicAutoVehicle> parked = new ArrayList<CPMBasicAutoVehicle>();
+
+        for (int step = 0; step < STEPS; step++) {
+            int action = random.nextInt(3);
+            if (action == 0 || parked.isEmpty()) {
+                double length = VEHICLE_LENGTHS[random.nextInt(VEHICLE_LENGTHS.length)];
+                ParkingLane expected = scan(lanes, space, policy, spaceTaken(length));
+                assertEquals(expected != null, monitor.roomForVehicle(length));
+                if (expected != null) {
+                    CPMBasicAutoVehicle vehicle = mockVehicle(length);
+                    monitor.vehicleOnEntry(vehicle);
+                    assertSame(expected, monitor.getVehicles().get(vehicle));
+                    space.put(expected, space.get(expected) - spaceTaken(length));
+                    parked.add(vehicle);
+                }
+            } else if (action == 1) {
+                CPMBasicAutoVehicle vehicle = parked.get(random.nextInt(parked.size()));
+                double length = vehicle.getSpec().getLength();
+                ParkingLane from = monitor.getVehicles().get(vehicle);
+                space.put(from, space.get(from) + spaceTaken(length));
+                ParkingLane expected = scan(lanes, space, policy, spaceTaken(length));
+                monitor.vehicleOnReEntry(vehicle);
+                assertSame(expected, monitor.getVehicles().get(vehicle));
+                space.put(expected, space.get(expected) - spaceTaken(length));
+            } else {
+                CPMBasicAutoVehicle vehicle = parked.remove(random.nextInt(parked.size()));
+                ParkingLane from = monitor.getVehicles().get(vehicle);
+                monitor.vehicleOnExit(vehicle);
+                space.put(from, space.get(from) + spaceTaken(vehicle.getSpec().getLength()));
+            }
+            for (ParkingLane lane : lanes) {
+                assertEquals(space.get(lane), monitor.getParkingSpaceLeft(lane), 0.0);
+            }
+        }
+    }
+
+    /**
+     * Find the lane for a vehicle by scanning all the lanes; null if there is no room.
+     */
+    private ParkingLane scan(List<ParkingLane> lanes, Map<ParkingLane, Double> space,
+                             AllocationPolicy policy, double spaceNeeded) {
+        ParkingLane best = null;
+        for (ParkingLane lane : lanes) {
+            double s = space.get(lane);
+            if (s <= spaceNeeded) {
+                continue;
+            }
+            if (best == null) {
+                best = lane;
+                continue;
+            }
+            double b = space.get(best);
+            boolean better = (policy == AllocationPolicy.MOST_SPACE) ? s > b : s < b;
+            if (better || (s == b && lane.getId() < best.getId())) {
+                best = lane;
+            }
+        }
+        return best;
+    }
+
+    private double spaceTaken(double vehicleLength) {
+        return vehicleLength + CPMAutoDriverSimulator.MIN_DISTANCE_BETWEEN_PARKED_VEHICLES;
+    }
+
+    private int lowestId(List<ParkingLane> lanes) {
+        int id = Integer.MAX_VALUE;
+        for (ParkingLane lane : lanes) {
+            id = Math.min(id, lane.getId());
+        }
+        return id;
+    }
+
+    private CPMBasicAutoVehicle mockVehicle(double length) {
+        VehicleSpec spec = mock(VehicleSpec.class);
+        when(spec.getLength()).thenReturn(length);
+        CPMBasicAutoVehicle vehicle = mock(CPMBasicAutoVehicle.class);
+        when(vehicle.getSpec()).thenReturn(spec);
+        return vehicle;
+    }
+}
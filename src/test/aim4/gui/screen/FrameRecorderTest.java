@@ -0,0 +1,171 @@
+package aim4.gui.screen;
+
+import aim4.config.Constants;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that the frame recorder writes every frame it
+ * accepts, numbered from the first frame number, with the pixels the frame
+ * had when it was recorded, that it accounts for the frames it drops, and
+ * that offering a frame never waits for the encoders.
+ */
+public class FrameRecorderTest {
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("frames").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testWritesPngFrames() throws Exception {
+        FrameRecorder recorder = new FrameRecorder(dir, 5, FrameRecorder.Format.PNG,
+                FrameRecorder.OverflowPolicy.BLOCK, 2, 2);
+        BufferedImage frame = new BufferedImage(30, 20, BufferedImage.TYPE_INT_RGB);
+        for (int i = 0; i < 6; i++) {
+            paint(frame, i);
+            assertTrue(recorder.record(frame));
+        }
+        recorder.close();
+        assertEquals(6, recorder.getNumOfWrittenFrames());
+        assertEquals(0, recorder.getNumOfDroppedFrames());
+        assertEquals(11, recorder.getNextFrameNumber());
+        for (int i = 0; i < 6; i++) {
+            BufferedImage image = ImageIO.read(new File(dir, Constants.LEADING_ZEROES.format(5 + i) + ".png"));
+            assertEquals(30, image.getWidth());
+            assertEquals(20, image.getHeight());
+            assertEquals(color(i).getRGB(), image.getRGB(7, 3));
+            assertEquals(Color.BLACK.getRGB(), image.getRGB(29, 19));
+        }
+    }
+
+    @Test
+    public void testWritesRawFramesAndTheirSizes() throws Exception {
+        FrameRecorder recorder = new FrameRecorder(dir, 0, FrameRecorder.Format.RAW,
+                FrameRecorder.OverflowPolicy.BLOCK, 1, 1);
+        BufferedImage small = new BufferedImage(4, 3, BufferedImage.TYPE_INT_RGB);
+        BufferedImage large = new BufferedImage(6, 5, BufferedImage.TYPE_INT_RGB);
+        paint(small, 1);
+        recorder.record(small);
+        recorder.record(small);
+        paint(large, 2);
+        recorder.record(large);
+        recorder.close();
+
+        byte[] bytes = Files.readAllBytes(new File(dir, "00000002.rgb").toPath());
+        assertEquals(6 * 5 * 3, bytes.length);
+        int rgb = color(2).getRGB();
+        assertEquals((byte) (rgb >> 16), bytes[0]);
+        assertEquals((byte) (rgb >> 8), bytes[1]);
+        assertEquals((byte) rgb, bytes[2]);
+        assertEquals(4 * 3 * 3, new File(dir, "00000000.rgb").length());
+
+        List<String> sizes = Files.readAllLines(
+                new File(dir, FrameRecorder.RAW_SIZES_FILE_NAME).toPath(), Charset.forName("UTF-8"));
+        assertEquals(3, sizes.size());
+        assertEquals("0,4,3", sizes.get(1));
+        assertEquals("2,6,5", sizes.get(2));
+    }
+
+    @Test
+    public void testDroppedFramesAreCounted() throws Exception {
+        FrameRecorder recorder = new FrameRecorder(dir, 0, FrameRecorder.Format.PNG,
+                FrameRecorder.OverflowPolicy.DROP, 1, 1);
+        BufferedImage frame = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        int accepted = 0;
+        for (int i = 0; i < 40; i++) {
+            paint(frame, i);
+            if (recorder.record(frame)) {
+                accepted++;
+            }
+        }
+        recorder.close();
+        assertTrue(accepted >= 1);
+        assertEquals(accepted, recorder.getNumOfWrittenFrames());
+        assertEquals(40 - accepted, recorder.getNumOfDroppedFrames());
+        assertEquals(accepted, dir.listFiles().length);
+    }
+
+    @Test
+    public void testOfferNeverWaitsWhenTheProducerWaits() throws Exception {
+        FrameRecorder recorder = new FrameRecorder(dir, 0, FrameRecorder.Format.PNG,
+                FrameRecorder.OverflowPolicy.BLOCK, 1, 1);
+        BufferedImage frame = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        for (int i = 0; i < 20; i++) {
+            // the producer waits for a slot, so the offer finds one
+            recorder.awaitFreeSlot();
+            paint(frame, i);
+            assertTrue(recorder.offer(frame));
+        }
+        // without waiting, the offers are dropped rather than blocking
+        int accepted = 0;
+        for (int i = 0; i < 40; i++) {
+            if (recorder.offer(frame)) {
+                accepted++;
+            }
+        }
+        recorder.close();
+        assertEquals(20 + accepted, recorder.getNumOfWrittenFrames());
+        assertEquals(40 - accepted, recorder.getNumOfDroppedFrames());
+    }
+
+    @Test
+    public void testFramesDroppedBeforeTheRecorderAreCounted() throws Exception {
+        FrameRecorder recorder = new FrameRecorder(dir, 0, FrameRecorder.Format.PNG,
+                FrameRecorder.OverflowPolicy.DROP, 1, 1);
+        assertEquals(FrameRecorder.OverflowPolicy.DROP, recorder.getPolicy());
+        BufferedImage frame = new BufferedImage(4, 3, BufferedImage.TYPE_INT_RGB);
+        recorder.countDroppedFrame();
+        recorder.countDroppedFrame();
+        assertTrue(recorder.offer(frame));
+        recorder.close();
+        assertEquals(1, recorder.getNumOfWrittenFrames());
+        assertEquals(2, recorder.getNumOfDroppedFrames());
+        assertEquals(1, recorder.getNextFrameNumber());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCannotRecordAfterClose() throws Exception {
+        FrameRecorder recorder = new FrameRecorder(dir, 0, FrameRecorder.Format.PNG,
+                FrameRecorder.OverflowPolicy.BLOCK);
+        recorder.close();
+        recorder.record(new BufferedImage(2, 2, BufferedImage.TYPE_INT_RGB));
+    }
+
+    /**
+     * Paint a frame black with a colored square in its top left corner.
+     */
+    private void paint(BufferedImage frame, int i) {
+        Graphics g = frame.getGraphics();
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, frame.getWidth(), frame.getHeight());
+        g.setColor(color(i));
+        g.fillRect(0, 0, frame.getWidth() / 2, frame.getHeight() / 2);
+        g.dispose();
+    }
+
+    private Color color(int i) {
+        return new Color(40 * (i % 6), 255 - 30 * (i % 8), 17 * i % 256);
+    }
+}
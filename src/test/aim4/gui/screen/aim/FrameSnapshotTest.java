@@ -0,0 +1,69 @@
+package aim4.gui.screen.aim;
+
+import aim4.vehicle.VehicleSpec;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that a frame snapshot keeps every vehicle added
+ * to it, and that the outline it gives for a vehicle has the corners of the
+ * vehicle's specification.
+ */
+public class FrameSnapshotTest {
+    private final static VehicleSpec SPEC =
+            new VehicleSpec("TEST", 4.5, -45.0, 60.0, -17.0, 4.0, 1.75, 1.0, 3.0,
+                    1.0, 0.3, 0.25, Math.PI / 3, Math.PI / 2);
+
+    @Test
+    public void testKeepsVehiclesBeyondCapacity() throws Exception {
+        FrameSnapshot frame = new FrameSnapshot(2.5, 0);
+        for (int i = 0; i < 50; i++) {
+            frame.addVehicle(1000 + i, 0, i, -i, 0.1 * i, 4.0, 1.75,
+                    (i % 2 == 0) ? Color.YELLOW : Color.WHITE, (i % 3 == 0) ? null : "info");
+        }
+        assertEquals(2.5, frame.getSimulationTime(), 0.0);
+        assertEquals(50, frame.getNumOfVehicles());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, frame.indexOf(1000 + i));
+            assertEquals(i, frame.getX(i), 0.0);
+            assertEquals(-i, frame.getY(i), 0.0);
+            assertEquals(0.1 * i, frame.getHeading(i), 0.0);
+            assertEquals(((i % 2 == 0) ? Color.YELLOW : Color.WHITE).getRGB(), frame.getColor(i));
+            assertEquals((i % 3 == 0) ? null : "info", frame.getInfoString(i));
+        }
+        assertEquals(-1, frame.indexOf(999));
+    }
+
+    @Test
+    public void testOutlineHasTheCornersOfTheSpec() throws Exception {
+        Random random = new Random(3L);
+        FrameSnapshot frame = new FrameSnapshot(0.0, 1);
+        Path2D.Double path = new Path2D.Double();
+        for (int i = 0; i < 100; i++) {
+            double x = random.nextDouble() * 100;
+            double y = random.nextDouble() * 100;
+            double heading = random.nextDouble() * 2 * Math.PI;
+            frame.addVehicle(i, 0, x, y, heading, SPEC.getLength(), SPEC.getWidth(), Color.YELLOW, null);
+            frame.getOutline(i, path);
+
+            Point2D[] corners = SPEC.getCornerPoints(new Point2D.Double(x, y), heading);
+            double[] coords = new double[6];
+            int k = 0;
+            for (PathIterator it = path.getPathIterator(null); !it.isDone(); it.next()) {
+                if (it.currentSegment(coords) != PathIterator.SEG_CLOSE) {
+                    assertEquals(corners[k].getX(), coords[0], 1e-9);
+                    assertEquals(corners[k].getY(), coords[1], 1e-9);
+                    k++;
+                }
+            }
+            assertEquals(4, k);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package aim4.gui.screen.merge.components;
+
+import org.junit.Test;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that the table models of the stat screens show
+ * the same rows, in the same order, as a map kept in insertion order, and that
+ * they fire one event for all the changes staged between two flushes.
+ */
+public class TableModelTest {
+    private final static String[] HEADINGS = new String[]{"VIN", "Value"};
+
+    @Test
+    public void testKeyedModelMatchesOrderedMap() throws Exception {
+        Random random = new Random(23L);
+        MapKeyTableModel model = new MapKeyTableModel(HEADINGS);
+        EventCounter events = new EventCounter();
+        model.addTableModelListener(events);
+        Map<Integer, Object[]> expected = new LinkedHashMap<Integer, Object[]>();
+
+        for (int frame = 0; frame < 500; frame++) {
+            int changes = 1 + random.nextInt(20);
+            for (int i = 0; i < changes; i++) {
+                int vin = random.nextInt(200);
+                if (random.nextInt(3) == 0) {
+                    model.removeRow(vin);
+                    expected.remove(vin);
+                } else {
+                    Object[] row = new Object[]{vin, random.nextDouble()};
+                    model.addOrUpdateRow(vin, row);
+                    // replacing a value keeps the position of the key
+                    expected.put(vin, row);
+                }
+            }
+            events.count = 0;
+            model.applyStagedChanges();
+            assertTrue(events.count <= 2);
+
+            assertEquals(expected.size(), model.getRowCount());
+            int index = 0;
+            for (Map.Entry<Integer, Object[]> entry : expected.entrySet()) {
+                assertEquals(entry.getKey(), model.getValueAt(index, 0));
+                assertSame(entry.getValue()[1], model.getValueAt(index, 1));
+                index++;
+            }
+        }
+    }
+
+    @Test
+    public void testKeyedModelFiresRangedEventsWithoutRemovals() throws Exception {
+        MapKeyTableModel model = new MapKeyTableModel(HEADINGS);
+        EventCounter events = new EventCounter();
+        model.addTableModelListener(events);
+        for (int vin = 0; vin < 10; vin++) {
+            model.addOrUpdateRow(vin, new Object[]{vin, 0.0});
+        }
+        model.applyStagedChanges();
+        assertEquals(1, events.count);
+        assertEquals(TableModelEvent.INSERT, events.last.getType());
+        assertEquals(0, events.last.getFirstRow());
+        assertEquals(9, events.last.getLastRow());
+
+        model.addOrUpdateRow(3, new Object[]{3, 1.0});
+        model.addOrUpdateRow(6, new Object[]{6, 1.0});
+        model.removeRow(42); // no such row
+        model.applyStagedChanges();
+        assertEquals(2, events.count);
+        assertEquals(TableModelEvent.UPDATE, events.last.getType());
+        assertEquals(3, events.last.getFirstRow());
+        assertEquals(6, events.last.getLastRow());
+        assertEquals(10, model.getRowCount());
+    }
+
+    @Test
+    public void testAppendOnlyModelKeepsEveryRow() throws Exception {
+        AppendOnlyTableModel model = new AppendOnlyTableModel(HEADINGS);
+        EventCounter events = new EventCounter();
+        model.addTableModelListener(events);
+        List<Object[]> expected = new ArrayList<Object[]>();
+        int vin = 0;
+        for (int frame = 0; frame < 50; frame++) {
+            int first = expected.size();
+            for (int i = 0; i < 97; i++) {
+                Object[] row = new Object[]{vin++, (double) i};
+                model.appendRow(row);
+                expected.add(row);
+            }
+            events.count = 0;
+            model.applyStagedRows();
+            assertEquals(1, events.count);
+            assertEquals(TableModelEvent.INSERT, events.last.getType());
+            assertEquals(first, events.last.getFirstRow());
+            assertEquals(expected.size() - 1, events.last.getLastRow());
+        }
+        assertEquals(expected.size(), model.getRowCount());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i)[0], model.getValueAt(i, 0));
+        }
+        events.count = 0;
+        model.applyStagedRows();
+        assertEquals(0, events.count);
+    }
+
+    private static class EventCounter implements TableModelListener {
+        int count = 0;
+        TableModelEvent last = null;
+
+        @Override
+        public void tableChanged(TableModelEvent e) {
+            count++;
+            last = e;
+        }
+    }
+}
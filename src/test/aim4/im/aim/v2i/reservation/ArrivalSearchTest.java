@@ -0,0 +1,120 @@
+package aim4.im.aim.v2i.reservation;
+
+import aim4.config.Debug;
+import aim4.config.SimConfig;
+import aim4.im.aim.v2i.V2IManager;
+import aim4.map.aim.GridIntersectionMap;
+import aim4.map.aim.GridMapUtil;
+import aim4.map.lane.Lane;
+import aim4.msg.aim.v2i.Request.VehicleSpecForRequestMsg;
+import aim4.sim.SimulationContext;
+import aim4.vehicle.VehicleSpec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that the search for the earliest feasible
+ * arrival time agrees with the pass/fail query: it keeps a free arrival time,
+ * pushes a blocked one back to the first free grid time step within the
+ * horizon and gives up beyond the horizon.
+ */
+public class ArrivalSearchTest {
+    private final static double ARRIVAL_TIME = 1.01;
+    private final static double ARRIVAL_VELOCITY = 10.0;
+    private final static VehicleSpecForRequestMsg SPEC = new VehicleSpecForRequestMsg(
+            new VehicleSpec("TEST", 4.5, -45.0, 60.0, -17.0, 4.0, 1.75, 1.0, 3.0,
+                    1.0, 0.3, 0.25, Math.PI / 3, Math.PI / 2));
+
+    private SimulationContext previous;
+    private int laneId;
+
+    @Before
+    public void setUp() throws Exception {
+        previous = new SimulationContext(1L).bind();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        previous.bind();
+    }
+
+    @Test
+    public void testFreeArrivalTimeIsKept() throws Exception {
+        for (int footprintCacheSize : new int[]{0, 100}) {
+            ReservationGridManager manager = makeManager(2.0, footprintCacheSize);
+            ReservationGridManager.Plan plan = manager.queryEarliest(makeQuery(1, ARRIVAL_TIME));
+            ReservationGridManager.Plan expected = manager.query(makeQuery(1, ARRIVAL_TIME));
+            assertNotNull(plan);
+            assertEquals(ARRIVAL_TIME, plan.getArrivalTime(), 0.0);
+            assertEquals(expected.getExitTime(), plan.getExitTime(), 1e-9);
+            assertEquals(describe(expected), describe(plan));
+        }
+    }
+
+    @Test
+    public void testBlockedArrivalTimeIsPushedToFirstFreeGridTimeStep() throws Exception {
+        ReservationGridManager manager = makeManager(2.0, 0);
+        manager.accept(manager.query(makeQuery(1, ARRIVAL_TIME)));
+        assertNull(manager.query(makeQuery(2, ARRIVAL_TIME)));
+
+        ReservationGridManager.Plan plan = manager.queryEarliest(makeQuery(2, ARRIVAL_TIME));
+        assertNotNull(plan);
+        double shift = (plan.getArrivalTime() - ARRIVAL_TIME) / SimConfig.GRID_TIME_STEP;
+        assertTrue(shift >= 1);
+        assertEquals(Math.round(shift), shift, 1e-6);
+
+        ReservationGridManager.Plan expected = manager.query(makeQuery(2, plan.getArrivalTime()));
+        assertNotNull(expected);
+        assertEquals(describe(expected), describe(plan));
+        assertNull(manager.query(makeQuery(2, plan.getArrivalTime() - SimConfig.GRID_TIME_STEP)));
+    }
+
+    @Test
+    public void testNoPlanBeyondHorizon() throws Exception {
+        ReservationGridManager manager = makeManager(SimConfig.GRID_TIME_STEP, 0);
+        manager.accept(manager.query(makeQuery(1, ARRIVAL_TIME)));
+        assertNull(manager.queryEarliest(makeQuery(2, ARRIVAL_TIME)));
+    }
+
+    /**
+     * Make the reservation grid manager of a single intersection.
+     */
+    private ReservationGridManager makeManager(double arrivalSearchHorizon, int footprintCacheSize) {
+        GridIntersectionMap layout = new GridIntersectionMap(0.0, 1, 1, 4.0, 25.0, 1, 1.0, 150.0);
+        Debug.setCurrentMap(layout);
+        ReservationGridManager.Config config =
+                new ReservationGridManager.Config(SimConfig.TIME_STEP, SimConfig.GRID_TIME_STEP,
+                        0.25, 0.05, 0.25, true, 1.0, ReservationArray.Backend.TREE_MAP,
+                        footprintCacheSize, arrivalSearchHorizon);
+        GridMapUtil.setFCFSManagers(layout, 0.0, config);
+        V2IManager im = (V2IManager) layout.getIntersectionManagers().get(0);
+        Lane lane = im.getIntersection().getEntryLanes().get(0);
+        laneId = lane.getId();
+        return im.getReservationGridManager();
+    }
+
+    /**
+     * Make a query for a vehicle going straight through the intersection.
+     */
+    private ReservationGridManager.Query makeQuery(int vin, double arrivalTime) {
+        return new ReservationGridManager.Query(vin, arrivalTime, ARRIVAL_VELOCITY, laneId, laneId,
+                SPEC, ARRIVAL_VELOCITY, true);
+    }
+
+    /**
+     * Describe the tile-times reserved by a plan.
+     */
+    private List<String> describe(ReservationGridManager.Plan plan) {
+        List<String> tileTimes = new ArrayList<String>();
+        for (ReservationGrid.TimeTile tileTime : plan.getWorkingList()) {
+            tileTimes.add(tileTime.getDiscreteTime() + ":" + tileTime.getTileId());
+        }
+        return tileTimes;
+    }
+}
@@ -0,0 +1,57 @@
+package aim4.im.aim.v2i.reservation;
+
+import aim4.msg.aim.v2i.Request.VehicleSpecForRequestMsg;
+import aim4.vehicle.VehicleSpec;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that the footprint cache quantises its keys,
+ * evicts the least recently used footprint and counts hits and misses.
+ */
+public class FootprintCacheTest {
+    private final static double GRID_TIME_STEP = 0.02;
+    private final static VehicleSpecForRequestMsg SPEC = new VehicleSpecForRequestMsg(
+            new VehicleSpec("TEST", 4.5, -45.0, 60.0, -17.0, 4.0, 1.75, 1.0, 3.0,
+                    1.0, 0.3, 0.25, Math.PI / 3, Math.PI / 2));
+
+    @Test
+    public void testKeysWithinResolutionAreEqual() throws Exception {
+        FootprintCache cache = new FootprintCache(10);
+        FootprintCache.Key a = cache.makeKey(1, 2, SPEC, 10.001, 15.0, true, 0.0051, GRID_TIME_STEP);
+        FootprintCache.Key b = cache.makeKey(1, 2, SPEC, 10.002, 15.0, true, 0.0049, GRID_TIME_STEP);
+        FootprintCache.Key c = cache.makeKey(1, 2, SPEC, 10.2, 15.0, true, 0.0051, GRID_TIME_STEP);
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertFalse(a.equals(c));
+        assertEquals(10.0, a.getArrivalVelocity(), 1e-9);
+        assertEquals(0.005, a.getPhase(GRID_TIME_STEP), 1e-9);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedFootprintIsEvicted() throws Exception {
+        FootprintCache cache = new FootprintCache(2);
+        FootprintCache.Key a = cache.makeKey(1, 2, SPEC, 10.0, 15.0, true, 0.0, GRID_TIME_STEP);
+        FootprintCache.Key b = cache.makeKey(1, 3, SPEC, 10.0, 15.0, true, 0.0, GRID_TIME_STEP);
+        FootprintCache.Key c = cache.makeKey(1, 4, SPEC, 10.0, 15.0, true, 0.0, GRID_TIME_STEP);
+        FootprintCache.Footprint footprint =
+                new FootprintCache.Footprint(new int[]{1, 2}, new int[]{5, 6}, 2, 10.0);
+
+        assertNull(cache.get(a));
+        cache.put(a, footprint);
+        cache.put(b, footprint);
+        assertSame(footprint, cache.get(a));
+        cache.put(c, footprint);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(a));
+        assertNull(cache.get(b));
+        assertNotNull(cache.get(c));
+
+        FootprintCache.FootprintCacheStatCollector stats = cache.getStatCollector();
+        assertEquals(3, stats.getHits());
+        assertEquals(2, stats.getMisses());
+        assertEquals(1, stats.getEvictions());
+    }
+}
@@ -0,0 +1,135 @@
+package aim4.im.aim.v2i.reservation;
+
+import aim4.im.aim.v2i.reservation.ReservationArray.Backend;
+import aim4.im.aim.v2i.reservation.ReservationArray.TimeTile;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that the ring buffer backend of the reservation
+ * array gives the same answers as the tree map backend, and that the
+ * occupancy bitmap of either backend agrees with its table.
+ */
+public class ReservationArrayBackendTest {
+    private final static int X_NUM = 5;
+    private final static int Y_NUM = 5;
+    private final static int OPERATIONS = 4000;
+
+    @Test
+    public void testRingBufferMatchesTreeMap() throws Exception {
+        ReservationArray treeMap = new ReservationArray(X_NUM * Y_NUM, Backend.TREE_MAP);
+        ReservationArray ringBuffer = new ReservationArray(X_NUM * Y_NUM, Backend.RING_BUFFER);
+        Random random = new Random(42);
+        int currentTime = 0;
+        int nextRid = 1000;
+        for (int op = 0; op < OPERATIONS; op++) {
+            int choice = random.nextInt(10);
+            if (choice < 6) {
+                List<TimeTile> workingList = randomWorkingList(random, currentTime);
+                int rid = nextRid++;
+                assertEquals(treeMap.reserve(rid, workingList), ringBuffer.reserve(rid, workingList));
+            } else if (choice < 8) {
+                int rid = 1000 + random.nextInt(nextRid - 999);
+                assertEquals(treeMap.cancel(rid), ringBuffer.cancel(rid));
+            } else {
+                currentTime += random.nextInt(40);
+                treeMap.cleanUp(currentTime);
+                ringBuffer.cleanUp(currentTime);
+            }
+            assertSameAnswers(treeMap, ringBuffer, currentTime, nextRid);
+        }
+    }
+
+    @Test
+    public void testFarFutureReservationGrowsRing() throws Exception {
+        ReservationArray treeMap = new ReservationArray(X_NUM * Y_NUM, Backend.TREE_MAP);
+        ReservationArray ringBuffer = new ReservationArray(X_NUM * Y_NUM, Backend.RING_BUFFER);
+        List<TimeTile> workingList = new ArrayList<TimeTile>();
+        workingList.add(new TimeTile(10, 3));
+        workingList.add(new TimeTile(2000, 4));
+        workingList.add(new TimeTile(5, 3));
+        assertEquals(treeMap.reserve(1, workingList), ringBuffer.reserve(1, workingList));
+        assertSameAnswers(treeMap, ringBuffer, 0, 2);
+
+        treeMap.cleanUp(11);
+        ringBuffer.cleanUp(11);
+        assertSameAnswers(treeMap, ringBuffer, 11, 2);
+
+        treeMap.cleanUp(3000);
+        ringBuffer.cleanUp(3000);
+        assertSameAnswers(treeMap, ringBuffer, 3000, 2);
+        assertEquals(-1, ringBuffer.getLastReservedDiscreteTime());
+    }
+
+    @Test
+    public void testMaskChecksAllItsWords() throws Exception {
+        int numOfTiles = 150;
+        ReservationArray array = new ReservationArray(numOfTiles, Backend.RING_BUFFER);
+        List<TimeTile> workingList = new ArrayList<TimeTile>();
+        workingList.add(new TimeTile(7, 3));
+        workingList.add(new TimeTile(7, 130));
+        assertTrue(array.reserve(1, workingList));
+
+        OccupancyBitmap.Mask mask = new OccupancyBitmap.Mask(numOfTiles);
+        mask.add(64);
+        mask.add(129);
+        assertFalse(array.isAnyReserved(7, mask));
+        mask.add(130);
+        assertTrue(array.isAnyReserved(7, mask));
+        assertFalse(array.isAnyReserved(6, mask));
+        mask.clear();
+        assertTrue(mask.isEmpty());
+        mask.add(3);
+        assertTrue(array.isAnyReserved(7, mask));
+
+        array.cancel(1);
+        assertFalse(array.isAnyReserved(7, mask));
+        assertFalse(array.isReserved(7, 130));
+    }
+
+    private List<TimeTile> randomWorkingList(Random random, int currentTime) {
+        List<TimeTile> workingList = new ArrayList<TimeTile>();
+        int dt = currentTime + random.nextInt(200) - 10;
+        int steps = 1 + random.nextInt(20);
+        int tid = random.nextInt(X_NUM * Y_NUM);
+        for (int i = 0; i < steps; i++) {
+            workingList.add(new TimeTile(dt + i, tid));
+            if (random.nextBoolean()) {
+                workingList.add(new TimeTile(dt + i, (tid + 1) % (X_NUM * Y_NUM)));
+            }
+            tid = (tid + random.nextInt(3)) % (X_NUM * Y_NUM);
+        }
+        return workingList;
+    }
+
+    private void assertSameAnswers(ReservationArray expected, ReservationArray actual,
+                                   int currentTime, int nextRid) {
+        assertEquals(expected.getLastReservedDiscreteTime(), actual.getLastReservedDiscreteTime());
+        for (int dt = currentTime - 20; dt < currentTime + 250; dt++) {
+            for (int tid = 0; tid < X_NUM * Y_NUM; tid++) {
+                assertEquals(expected.isReserved(dt, tid), actual.isReserved(dt, tid));
+                assertEquals(expected.getReservationId(dt, tid) >= 0, expected.isReserved(dt, tid));
+                assertEquals(actual.getReservationId(dt, tid) >= 0, actual.isReserved(dt, tid));
+                assertEquals(expected.getReservationId(dt, tid), actual.getReservationId(dt, tid));
+            }
+            List<Integer> expectedTiles = expected.getReservedTilesAtTime(dt);
+            List<Integer> actualTiles = actual.getReservedTilesAtTime(dt);
+            Collections.sort(expectedTiles);
+            Collections.sort(actualTiles);
+            assertEquals(expectedTiles, actualTiles);
+            assertEquals(expected.getVinOfReservedTilesAtTime(dt), actual.getVinOfReservedTilesAtTime(dt));
+        }
+        for (int rid = Math.max(0, nextRid - 200); rid < nextRid; rid++) {
+            assertEquals(expected.hasReservation(rid), actual.hasReservation(rid));
+            assertEquals(expected.getLastReservedDiscreteTime(rid), actual.getLastReservedDiscreteTime(rid));
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package aim4.im.merge.reservation;
+
+import aim4.config.SimConfig;
+import aim4.im.merge.V2IMergeGridManager;
+import aim4.im.merge.V2IMergeManager;
+import aim4.im.merge.reservation.grid.ReservationMergeGrid;
+import aim4.im.merge.reservation.grid.ReservationMergeGridManager;
+import aim4.im.merge.reservation.nogrid.ReservationMerge;
+import aim4.im.merge.reservation.nogrid.ReservationMergeManager;
+import aim4.map.lane.Lane;
+import aim4.map.merge.MergeMapUtil;
+import aim4.map.merge.S2SMergeMap;
+import aim4.msg.merge.v2i.Request.VehicleSpecForRequestMsg;
+import aim4.vehicle.VehicleSpecDatabase;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that the merge trajectory cache quantises its keys, is warmed when the merge managers
+ * are set, stays within its size, counts hits and misses, and that queries answered from it match queries answered
+ * by simulating the test vehicle.
+ */
+public class MergeTrajectoryCacheTest {
+    private final static double SPEED_LIMIT = 25.0;
+    private final static double LEAD_IN_DISTANCE = 150.0;
+    private final static double LEAD_OUT_DISTANCE = 150.0;
+    private final static double MERGE_ANGLE = 45.0;
+    private final static double ARRIVAL_TIME = 5.0;
+    private final static double ARRIVAL_VELOCITY = 20.0;
+    private final static VehicleSpecForRequestMsg SPEC =
+            new VehicleSpecForRequestMsg(VehicleSpecDatabase.getVehicleSpecByName("COUPE"));
+
+    @Test
+    public void testKeysWithinResolutionAreEqual() throws Exception {
+        S2SMergeMap map = createMap();
+        MergeTrajectoryCache cache = new MergeTrajectoryCache(10);
+        double timeStep = SimConfig.GRID_TIME_STEP;
+        MergeTrajectoryCache.Key a = cache.makeKey(map.getMergeConnections().get(0), 1, SPEC,
+                10.001, 15.0, true, 0.26 * timeStep, timeStep);
+        MergeTrajectoryCache.Key b = cache.makeKey(map.getMergeConnections().get(0), 1, SPEC,
+                10.002, 15.0, true, 0.24 * timeStep, timeStep);
+        MergeTrajectoryCache.Key c = cache.makeKey(map.getMergeConnections().get(0), 1, SPEC,
+                10.2, 15.0, true, 0.26 * timeStep, timeStep);
+        MergeTrajectoryCache.Key d = cache.makeKey(createMap().getMergeConnections().get(0), 1, SPEC,
+                10.001, 15.0, true, 0.26 * timeStep, timeStep);
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertFalse(a.equals(c));
+        assertFalse(a.equals(d));
+        assertEquals(10.0, a.getArrivalVelocity(), 1e-9);
+        assertEquals(0.25 * timeStep, a.getPhase(timeStep), 1e-9);
+    }
+
+    @Test
+    public void testGridQueriesMatchSimulatedQueries() throws Exception {
+        S2SMergeMap simulatedMap = createMap();
+        MergeMapUtil.setFCFSGridMergeManagers(simulatedMap, 0, createGridConfig(0));
+        ReservationMergeGridManager simulated =
+                ((V2IMergeGridManager) simulatedMap.getMergeManagers().get(0)).getReservationMergeGridManager();
+        assertNull(simulated.getTrajectoryCache());
+
+        S2SMergeMap cachedMap = createMap();
+        MergeMapUtil.setFCFSGridMergeManagers(cachedMap, 0, createGridConfig(1000));
+        ReservationMergeGridManager cached =
+                ((V2IMergeGridManager) cachedMap.getMergeManagers().get(0)).getReservationMergeGridManager();
+        MergeTrajectoryCache cache = cached.getTrajectoryCache();
+        assertNotNull(cache);
+        assertTrue(cache.getStatCollector().getWarmed() > 0);
+        assertEquals(cache.getStatCollector().getWarmed(), cache.size());
+
+        for (int i = 0; i < cachedMap.getMergeConnections().get(0).getEntryLanes().size(); i++) {
+            Lane arrivalLane = cachedMap.getMergeConnections().get(0).getEntryLanes().get(i);
+            Lane departureLane = cachedMap.getMergeConnections().get(0).getExitLanes().get(0);
+            ReservationMergeGridManager.Query query = new ReservationMergeGridManager.Query(1, ARRIVAL_TIME,
+                    ARRIVAL_VELOCITY, arrivalLane.getId(), departureLane.getId(), SPEC, SPEED_LIMIT, true);
+            ReservationMergeGridManager.Plan expected = simulated.query(query);
+            for (int repeat = 0; repeat < 2; repeat++) {
+                ReservationMergeGridManager.Plan actual = cached.query(query);
+                assertEquals(expected.getWorkingList().size(), actual.getWorkingList().size());
+                for (int j = 0; j < expected.getWorkingList().size(); j++) {
+                    ReservationMergeGrid.TimeTile e = expected.getWorkingList().get(j);
+                    ReservationMergeGrid.TimeTile a = actual.getWorkingList().get(j);
+                    assertEquals(e.getDiscreteTime(), a.getDiscreteTime());
+                    assertEquals(e.getTileId(), a.getTileId());
+                }
+                assertEquals(expected.getExitTime(), actual.getExitTime(), 1e-9);
+                assertEquals(expected.getExitVelocity(), actual.getExitVelocity(), 1e-9);
+            }
+            // a reserved trajectory is rejected whether or not it is cached
+            simulated.accept(expected);
+            cached.accept(cached.query(query));
+            ReservationMergeGridManager.Query other = new ReservationMergeGridManager.Query(2, ARRIVAL_TIME,
+                    ARRIVAL_VELOCITY, arrivalLane.getId(), departureLane.getId(), SPEC, SPEED_LIMIT, true);
+            assertNull(simulated.query(other));
+            assertNull(cached.query(other));
+            simulated.cancel(1);
+            cached.cancel(1);
+        }
+        assertTrue(cache.getStatCollector().getHits() > 0);
+        assertEquals(cache.getStatCollector().getHits(),
+                cache.getStatCollector().getHitRate()
+                        * (cache.getStatCollector().getHits() + cache.getStatCollector().getMisses()), 1e-9);
+    }
+
+    @Test
+    public void testNoGridQueriesMatchSimulatedQueries() throws Exception {
+        S2SMergeMap simulatedMap = createMap();
+        MergeMapUtil.setFCFSMergeManagers(simulatedMap, 0,
+                new ReservationMergeManager.Config(SimConfig.TIME_STEP, SimConfig.MERGE_TIME_STEP));
+        ReservationMergeManager simulated =
+                ((V2IMergeManager) simulatedMap.getMergeManagers().get(0)).getReservationMergeManager();
+
+        S2SMergeMap cachedMap = createMap();
+        MergeMapUtil.setFCFSMergeManagers(cachedMap, 0,
+                new ReservationMergeManager.Config(SimConfig.TIME_STEP, SimConfig.MERGE_TIME_STEP, 1000));
+        ReservationMergeManager cached =
+                ((V2IMergeManager) cachedMap.getMergeManagers().get(0)).getReservationMergeManager();
+        assertNotNull(cached.getTrajectoryCache());
+
+        Lane arrivalLane = cachedMap.getMergeConnections().get(0).getEntryLanes().get(0);
+        Lane departureLane = cachedMap.getMergeConnections().get(0).getExitLanes().get(0);
+        ReservationMergeManager.Query query = new ReservationMergeManager.Query(1, ARRIVAL_TIME,
+                ARRIVAL_VELOCITY, arrivalLane.getId(), departureLane.getId(), SPEC, SPEED_LIMIT, true);
+        ReservationMergeManager.Plan expected = simulated.query(query);
+        ReservationMergeManager.Plan actual = cached.query(query);
+        assertEquals(expected.getWorkingList().size(), actual.getWorkingList().size());
+        for (int j = 0; j < expected.getWorkingList().size(); j++) {
+            ReservationMerge.TimeReservation e = expected.getWorkingList().get(j);
+            ReservationMerge.TimeReservation a = actual.getWorkingList().get(j);
+            assertEquals(e.getDiscreteTime(), a.getDiscreteTime());
+        }
+        assertEquals(expected.getExitTime(), actual.getExitTime(), 1e-9);
+        assertEquals(expected.getExitVelocity(), actual.getExitVelocity(), 1e-9);
+    }
+
+    @Test
+    public void testCacheStaysWithinItsSize() throws Exception {
+        S2SMergeMap map = createMap();
+        MergeMapUtil.setFCFSGridMergeManagers(map, 0, createGridConfig(3));
+        MergeTrajectoryCache cache = ((V2IMergeGridManager) map.getMergeManagers().get(0))
+                .getReservationMergeGridManager().getTrajectoryCache();
+        assertEquals(3, cache.size());
+        assertEquals(cache.getStatCollector().getWarmed() - 3, cache.getStatCollector().getEvictions());
+    }
+
+    private S2SMergeMap createMap() {
+        return new S2SMergeMap(0, SPEED_LIMIT, SPEED_LIMIT, LEAD_IN_DISTANCE, LEAD_OUT_DISTANCE,
+                LEAD_IN_DISTANCE, MERGE_ANGLE);
+    }
+
+    private ReservationMergeGridManager.Config createGridConfig(int trajectoryCacheSize) {
+        return new ReservationMergeGridManager.Config(SimConfig.TIME_STEP, SimConfig.GRID_TIME_STEP,
+                0.1, 0.15, 0.15, true, 1.0, trajectoryCacheSize);
+    }
+}
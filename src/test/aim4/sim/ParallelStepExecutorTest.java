@@ -0,0 +1,149 @@
+package aim4.sim;
+
+import aim4.config.SimConfig;
+import aim4.map.DataCollectionLine;
+import aim4.sim.setup.aim.AutoDriverOnlySimSetup;
+import aim4.sim.setup.aim.BasicSimSetup;
+import aim4.sim.setup.merge.S2SSimSetup;
+import aim4.sim.setup.merge.enums.ProtocolType;
+import aim4.sim.simulator.aim.AIMSimulator;
+import aim4.sim.simulator.aim.AutoDriverOnlySimulator;
+import aim4.sim.simulator.merge.MergeSimulator;
+import aim4.vehicle.VehicleSimModel;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that running the driver, intersection manager and vehicle-move phases of the steps in
+ * parallel gives bit-identical vehicle states, completed vehicles and data collection line records to running them
+ * serially.
+ */
+public class ParallelStepExecutorTest {
+    private final static long SEED = 42L;
+    private final static int THREADS = 4;
+    private final static double AIM_SIMULATION_TIME = 40.0;
+    private final static double AIM_MANAGERS_SIMULATION_TIME = 25.0;
+    private final static double MERGE_SIMULATION_TIME = 60.0;
+
+    @Test
+    public void testAIMGridMatchesSerialSteps() throws Exception {
+        assertEquals(runAIMSimulation(2, 2, AIM_SIMULATION_TIME, null, false), runAIMSimulationInParallel());
+    }
+
+    @Test
+    public void testAIMGridMatchesSerialStepsWithParallelManagers() throws Exception {
+        String expected = runAIMSimulation(3, 3, AIM_MANAGERS_SIMULATION_TIME, null, false);
+        ParallelStepExecutor executor = new ParallelStepExecutor(THREADS);
+        try {
+            assertEquals(expected, runAIMSimulation(3, 3, AIM_MANAGERS_SIMULATION_TIME, executor, true));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testMergeMatchesSerialSteps() throws Exception {
+        assertEquals(runMergeSimulation(null), runMergeSimulationInParallel());
+    }
+
+    @Test
+    public void testExceptionsAreRethrown() throws Exception {
+        ParallelStepExecutor executor = new ParallelStepExecutor(THREADS);
+        try {
+            executor.letDriversAct(Collections.singletonList((VehicleSimModel) null));
+            fail("The exception of a driver should reach the caller");
+        } catch (NullPointerException e) {
+            // expected
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private String runAIMSimulationInParallel() {
+        ParallelStepExecutor executor = new ParallelStepExecutor(THREADS);
+        try {
+            return runAIMSimulation(2, 2, AIM_SIMULATION_TIME, executor, false);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private String runMergeSimulationInParallel() {
+        ParallelStepExecutor executor = new ParallelStepExecutor(THREADS);
+        try {
+            return runMergeSimulation(executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Run an AIM simulation on a grid and describe its final state.
+     */
+    private String runAIMSimulation(int columns, int rows, double time, ParallelStepExecutor executor,
+                                    boolean parallelManagers) {
+        AutoDriverOnlySimSetup setup = new AutoDriverOnlySimSetup(
+                new BasicSimSetup(columns, rows, 4, 25.0, 2, 1, 150, 0.4, 1.0));
+        AIMSimulator sim = (AIMSimulator) setup.getSimulator(new SimulationContext(SEED));
+        ((ParallelStepSimulator) sim).setStepExecutor(executor);
+        ((AutoDriverOnlySimulator) sim).setParallelManagers(parallelManagers);
+        int maxActiveVehicles = 0;
+        while (sim.getSimulationTime() < time) {
+            sim.step(SimConfig.TIME_STEP);
+            maxActiveVehicles = Math.max(maxActiveVehicles, sim.getActiveVehicles().size());
+        }
+        // enough vehicles for the work to be split across the threads
+        assertTrue(maxActiveVehicles > 2 * ParallelStepExecutor.MIN_VEHICLES_PER_TASK);
+        return describe(sim.getNumCompletedVehicles(), sim.getActiveVehicles(),
+                sim.getMap().getDataCollectionLines());
+    }
+
+    /**
+     * Run a merge simulation and describe its final state and results.
+     */
+    private String runMergeSimulation(ParallelStepExecutor executor) {
+        S2SSimSetup setup = new S2SSimSetup(ProtocolType.QUEUE, 0.5,
+                S2SSimSetup.DEFAULT_TARGET_LANE_SPEED_LIMIT, S2SSimSetup.DEFAULT_MERGING_LANE_SPEED_LIMIT,
+                S2SSimSetup.DEFAULT_TARGET_LEAD_IN_DISTANCE, S2SSimSetup.DEFAULT_TARGET_LEAD_OUT_DISTANCE,
+                S2SSimSetup.DEFAULT_MERGE_LEAD_IN_DISTANCE, S2SSimSetup.DEFAULT_MERGING_ANGLE);
+        MergeSimulator sim = (MergeSimulator) setup.getSimulator(new SimulationContext(SEED));
+        ((ParallelStepSimulator) sim).setStepExecutor(executor);
+        while (sim.getSimulationTime() < MERGE_SIMULATION_TIME) {
+            sim.step(SimConfig.TIME_STEP);
+        }
+        assertTrue(sim.getNumCompletedVehicles() > 0);
+        return describe(sim.getNumCompletedVehicles(), sim.getVinToVehicles().values(),
+                sim.getMap().getDataCollectionLines())
+                + "\n" + sim.produceResultsCSV();
+    }
+
+    /**
+     * Describe the exact state of the vehicles and the records of the data collection lines.
+     */
+    private String describe(int completedVehicles, Iterable<? extends VehicleSimModel> vehicles,
+                            List<DataCollectionLine> lines) {
+        SortedMap<Integer, String> states = new TreeMap<Integer, String>();
+        for (VehicleSimModel vehicle : vehicles) {
+            states.put(vehicle.getVIN(), Long.toHexString(Double.doubleToLongBits(vehicle.getPosition().getX()))
+                    + "," + Long.toHexString(Double.doubleToLongBits(vehicle.getPosition().getY()))
+                    + "," + Long.toHexString(Double.doubleToLongBits(vehicle.getHeading()))
+                    + "," + Long.toHexString(Double.doubleToLongBits(vehicle.getVelocity())));
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(completedVehicles).append(' ').append(states);
+        for (DataCollectionLine line : lines) {
+            SortedMap<Integer, List<Double>> times = new TreeMap<Integer, List<Double>>();
+            for (int vin : line.getAllVIN()) {
+                times.put(vin, line.getTimes(vin));
+            }
+            sb.append('\n').append(line.getName()).append(' ').append(times);
+        }
+        return sb.toString();
+    }
+}
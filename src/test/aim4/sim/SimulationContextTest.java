@@ -0,0 +1,86 @@
+package aim4.sim;
+
+import aim4.config.SimConfig;
+import aim4.sim.setup.aim.AutoDriverOnlySimSetup;
+import aim4.sim.setup.aim.BasicSimSetup;
+import aim4.sim.simulator.aim.AIMSimulator;
+import aim4.util.Util;
+import aim4.vehicle.VehicleSimModel;
+import aim4.vehicle.VinRegistry;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that simulations created in different simulation contexts are independent, so that
+ * simulations with the same seed give the same result whether they run alone or alongside each other.
+ */
+public class SimulationContextTest {
+    private final static long SEED = 42L;
+    private final static double SIMULATION_TIME = 20.0;
+
+    @Test
+    public void testStaticAccessorsUseBoundContext() throws Exception {
+        SimulationContext context = new SimulationContext(SEED);
+        SimulationContext previous = context.bind();
+        try {
+            assertSame(context, SimulationContext.current());
+            assertSame(context.getRandom(), Util.getRandom());
+            assertSame(context.getVinRegistry(), VinRegistry.current());
+        } finally {
+            previous.bind();
+        }
+        assertSame(previous, SimulationContext.current());
+        assertNotSame(context.getRandom(), Util.getRandom());
+    }
+
+    @Test
+    public void testConcurrentSimulationsMatchSequentialSimulation() throws Exception {
+        String expected = runSimulation(new SimulationContext(SEED));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 2; i++) {
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return runSimulation(new SimulationContext(SEED));
+                    }
+                }));
+            }
+            for (Future<String> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Run an AIM simulation and describe its final state.
+     */
+    private String runSimulation(SimulationContext context) {
+        AutoDriverOnlySimSetup setup = new AutoDriverOnlySimSetup(
+                new BasicSimSetup(1, 1, 4, 25.0, 2, 1, 150, 0.4, 1.0));
+        AIMSimulator sim = (AIMSimulator) setup.getSimulator(context);
+        while (sim.getSimulationTime() < SIMULATION_TIME) {
+            sim.step(SimConfig.TIME_STEP);
+        }
+        SortedMap<Integer, String> positions = new TreeMap<Integer, String>();
+        for (VehicleSimModel vehicle : sim.getActiveVehicles()) {
+            positions.put(vehicle.getVIN(),
+                    String.format("%.6f,%.6f", vehicle.getPosition().getX(), vehicle.getPosition().getY()));
+        }
+        return sim.getNumCompletedVehicles() + " " + positions;
+    }
+}
@@ -0,0 +1,131 @@
+package aim4.sim;
+
+import aim4.config.SimConfig;
+import aim4.msg.aim.udp.UdpHeader;
+import aim4.sim.setup.aim.AutoDriverOnlySimSetup;
+import aim4.sim.setup.aim.BasicSimSetup;
+import aim4.sim.simulator.aim.AIMSimulator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+
+import static org.junit.Assert.*;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that the datagrams received by the UDP listener are decoded by the
+ * listener thread and queued, and are only processed when the simulator steps.
+ */
+public class UdpListenerTest {
+    private final static long TIMEOUT = 5000;
+
+    private SimulationContext previous;
+    private AIMSimulator sim;
+    private UdpListener listener;
+    private DatagramSocket sender;
+    private int port;
+
+    @Before
+    public void setUp() throws Exception {
+        SimulationContext context = new SimulationContext(1L);
+        previous = context.bind();
+        AutoDriverOnlySimSetup setup = new AutoDriverOnlySimSetup(
+                new BasicSimSetup(1, 1, 4, 25.0, 1, 1, 150, 0.0, 1.0));
+        sim = (AIMSimulator) setup.getSimulator(context);
+        // find a free port for the listener
+        DatagramSocket probe = new DatagramSocket(0);
+        port = probe.getLocalPort();
+        probe.close();
+        listener = new UdpListener(port, sim);
+        listener.start();
+        assertTrue(listener.hasStarted());
+        sender = new DatagramSocket();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        sender.close();
+        if (listener.hasStarted()) {
+            listener.stop();
+        }
+        previous.bind();
+    }
+
+    @Test
+    public void testMessagesProcessedAtNextStep() throws Exception {
+        send(message(UdpHeader.UdpMessageType.V2I_Done));
+        send(message(UdpHeader.UdpMessageType.V2I_Cancel, 7));
+        send(message(UdpHeader.UdpMessageType.V2I_Done));
+        assertTrue(waitForPendingMessages(3));
+        Thread.sleep(50);
+        assertEquals(3, listener.getNumOfPendingMessages());
+
+        sim.step(SimConfig.TIME_STEP);
+        assertEquals(0, listener.getNumOfPendingMessages());
+        assertEquals(0, listener.getNumOfDroppedMessages());
+    }
+
+    @Test
+    public void testCorruptedDatagramsAreNotQueued() throws Exception {
+        // a truncated header, a truncated body and an unknown message type
+        send(new byte[] { 1, 2, 3, 4, 5, 6 });
+        send(message(UdpHeader.UdpMessageType.V2I_Cancel));
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(baos);
+        dos.writeFloat(0.0f);
+        dos.writeInt(UdpHeader.UdpMessageType.values().length);
+        dos.writeInt(0);
+        send(baos.toByteArray());
+        // datagrams over the loopback interface arrive in order
+        send(message(UdpHeader.UdpMessageType.V2I_Done));
+        assertTrue(waitForPendingMessages(1));
+        Thread.sleep(50);
+        assertEquals(1, listener.getNumOfPendingMessages());
+    }
+
+    @Test
+    public void testStoppedListenerIsNotProcessed() throws Exception {
+        send(message(UdpHeader.UdpMessageType.V2I_Done));
+        assertTrue(waitForPendingMessages(1));
+        listener.stop();
+        assertFalse(listener.hasStarted());
+        assertEquals(0, listener.getNumOfPendingMessages());
+        sim.step(SimConfig.TIME_STEP);
+    }
+
+    /**
+     * Wait until the given number of messages are waiting for the simulator, or the time is out.
+     */
+    private boolean waitForPendingMessages(int n) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            if (listener.getNumOfPendingMessages() >= n) {
+                return true;
+            }
+            Thread.sleep(5);
+        }
+        return false;
+    }
+
+    private void send(byte[] data) throws Exception {
+        sender.send(new DatagramPacket(data, data.length, InetAddress.getByName("127.0.0.1"), port));
+    }
+
+    private byte[] message(UdpHeader.UdpMessageType type, int... body) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(baos);
+        dos.writeFloat(0.0f);  // time stamp
+        dos.writeInt(type.ordinal());
+        dos.writeInt(0);  // check sum
+        for (int i : body) {
+            dos.writeInt(i);
+        }
+        dos.flush();
+        return baos.toByteArray();
+    }
+}
@@ -0,0 +1,66 @@
+package aim4.sim;
+
+import aim4.vehicle.VehicleSimModel;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that the VIN index finds exactly the vehicles it was built from, whether their VINs
+ * are close together or far apart, and forgets the vehicles that are no longer active when it is rebuilt.
+ */
+public class VinIndexTest {
+
+    @Test
+    public void testDenseVins() throws Exception {
+        Map<Integer, VehicleSimModel> vinToVehicles = new LinkedHashMap<Integer, VehicleSimModel>();
+        for (int vin = 1000; vin < 1200; vin += 2) {
+            vinToVehicles.put(vin, mock(VehicleSimModel.class));
+        }
+        VinIndex<VehicleSimModel> index = new VinIndex<VehicleSimModel>();
+        index.rebuild(vinToVehicles);
+        checkIndex(index, vinToVehicles, 900, 1300);
+    }
+
+    @Test
+    public void testSparseVins() throws Exception {
+        Map<Integer, VehicleSimModel> vinToVehicles = new LinkedHashMap<Integer, VehicleSimModel>();
+        vinToVehicles.put(42, mock(VehicleSimModel.class));
+        vinToVehicles.put(1000000, mock(VehicleSimModel.class));
+        VinIndex<VehicleSimModel> index = new VinIndex<VehicleSimModel>();
+        index.rebuild(vinToVehicles);
+        assertSame(vinToVehicles.get(42), index.get(42));
+        assertSame(vinToVehicles.get(1000000), index.get(1000000));
+        assertNull(index.get(43));
+    }
+
+    @Test
+    public void testRebuildForgetsRemovedVehicles() throws Exception {
+        Map<Integer, VehicleSimModel> vinToVehicles = new LinkedHashMap<Integer, VehicleSimModel>();
+        for (int vin = 1000; vin < 1010; vin++) {
+            vinToVehicles.put(vin, mock(VehicleSimModel.class));
+        }
+        VinIndex<VehicleSimModel> index = new VinIndex<VehicleSimModel>();
+        index.rebuild(vinToVehicles);
+        vinToVehicles.remove(1000);
+        vinToVehicles.remove(1005);
+        vinToVehicles.put(1010, mock(VehicleSimModel.class));
+        index.rebuild(vinToVehicles);
+        checkIndex(index, vinToVehicles, 990, 1020);
+
+        vinToVehicles.clear();
+        index.rebuild(vinToVehicles);
+        checkIndex(index, vinToVehicles, 990, 1020);
+    }
+
+    private void checkIndex(VinIndex<VehicleSimModel> index, Map<Integer, VehicleSimModel> vinToVehicles,
+                            int fromVin, int toVin) {
+        for (int vin = fromVin; vin < toVin; vin++) {
+            assertSame(vinToVehicles.get(vin), index.get(vin));
+        }
+    }
+}
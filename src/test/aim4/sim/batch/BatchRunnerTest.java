@@ -0,0 +1,170 @@
+package aim4.sim.batch;
+
+import aim4.sim.results.VehicleResultColumns;
+import aim4.sim.results.VehicleResultsWriter;
+import aim4.sim.results.columnar.ColumnarReader;
+import aim4.sim.setup.merge.S2SSimSetup;
+import aim4.sim.setup.merge.enums.ProtocolType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that batch runs read their options from arguments and configuration files, and write the
+ * results and timing statistics of the simulation they run.
+ */
+public class BatchRunnerTest {
+    private final static Charset UTF8 = Charset.forName("UTF-8");
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("batch");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        File[] files = directory.toFile().listFiles();
+        for (File file : files) {
+            if (file.isDirectory()) {
+                for (File child : file.listFiles()) {
+                    Files.delete(child.toPath());
+                }
+            }
+            Files.delete(file.toPath());
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testArgumentsOverrideConfigFile() throws Exception {
+        Path config = directory.resolve("merge.properties");
+        Files.write(config, Arrays.asList("sim=s2s", "protocol=queue", "merging-angle=30", "time=50"), UTF8);
+        BatchConfig batchConfig = BatchConfig.parse(
+                new String[]{"--config", config.toString(), "--merging-angle=60", "--target-lead-in", "200"});
+        BatchRunner runner = new BatchRunner(batchConfig);
+
+        assertEquals(BatchRunner.SimType.S2S, runner.getSimType());
+        S2SSimSetup setup = (S2SSimSetup) runner.createSetup();
+        assertEquals(60.0, setup.getMergingAngle(), 0.0);
+        assertEquals(200.0, setup.getTargetLeadInDistance(), 0.0);
+        assertEquals(S2SSimSetup.DEFAULT_MERGE_LEAD_IN_DISTANCE, setup.getMergeLeadInDistance(), 0.0);
+        assertEquals(ProtocolType.QUEUE, batchConfig.getEnum("protocol", ProtocolType.class, null));
+        assertEquals(50.0, batchConfig.getDouble("time", 0), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownOptionIsRejected() throws Exception {
+        BatchConfig.parse(new String[]{"--sim", "aim", "--colums", "2"});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedNumberIsRejected() throws Exception {
+        new BatchRunner(BatchConfig.parse(new String[]{"--sim", "single-lane", "--lane-length=long"})).createSetup();
+    }
+
+    @Test
+    public void testRunWritesResultsAndTiming() throws Exception {
+        File out = directory.resolve("out").toFile();
+        BatchRunner runner = new BatchRunner(BatchConfig.parse(new String[]{
+                "--sim=single-lane", "--time=30", "--seed=1", "--traffic-rate=1800", "--out=" + out.getPath()}));
+        BatchStats stats = runner.run();
+
+        assertEquals(30.0, stats.getSimulatedTime(), 0.05);
+        assertEquals(1500, stats.getSteps(), 1);
+        assertTrue(stats.getCompletedVehicles() > 0);
+        List<String> timing = Files.readAllLines(new File(out, BatchRunner.TIMING_FILE).toPath(), UTF8);
+        assertEquals("Seed,1", timing.get(0));
+        assertTrue(new File(out, BatchRunner.RESULTS_FILE).length() > 0);
+    }
+
+    @Test
+    public void testStreamedResultsMatchResultsInMemory() throws Exception {
+        File inMemory = directory.resolve("memory").toFile();
+        new BatchRunner(BatchConfig.parse(new String[]{
+                "--sim=single-lane", "--time=30", "--seed=1", "--traffic-rate=1800",
+                "--out=" + inMemory.getPath()})).run();
+        File streamed = directory.resolve("streamed").toFile();
+        new BatchRunner(BatchConfig.parse(new String[]{
+                "--sim=single-lane", "--time=30", "--seed=1", "--traffic-rate=1800",
+                "--stream-results=true", "--out=" + streamed.getPath()})).run();
+
+        assertEquals(Files.readAllLines(new File(inMemory, BatchRunner.RESULTS_FILE).toPath(), UTF8),
+                Files.readAllLines(new File(streamed, BatchRunner.RESULTS_FILE).toPath(), UTF8));
+        assertFalse(new File(streamed,
+                BatchRunner.RESULTS_FILE + VehicleResultsWriter.ROWS_FILE_SUFFIX).exists());
+    }
+
+    @Test
+    public void testColumnarResultsExportToCsvResults() throws Exception {
+        File csv = directory.resolve("csv").toFile();
+        new BatchRunner(BatchConfig.parse(new String[]{
+                "--sim=single-lane", "--time=30", "--seed=1", "--traffic-rate=1800",
+                "--out=" + csv.getPath()})).run();
+        String expected = new String(Files.readAllBytes(new File(csv, BatchRunner.RESULTS_FILE).toPath()), UTF8);
+        for (String stream : new String[]{"false", "true"}) {
+            File columnar = directory.resolve("columnar-" + stream).toFile();
+            BatchStats stats = new BatchRunner(BatchConfig.parse(new String[]{
+                    "--sim=single-lane", "--time=30", "--seed=1", "--traffic-rate=1800",
+                    "--results-format=columnar", "--compression=deflate", "--profile=true",
+                    "--stream-results=" + stream, "--out=" + columnar.getPath()})).run();
+            assertFalse(new File(columnar, BatchRunner.RESULTS_FILE).exists());
+            assertFalse(new File(columnar, BatchRunner.PROFILE_STEPS_FILE).exists());
+
+            ColumnarReader results = new ColumnarReader(new File(columnar, BatchRunner.RESULTS_COLUMNAR_FILE));
+            try {
+                assertEquals("1", results.getParams().get("seed"));
+                assertEquals("columnar", results.getParams().get("results-format"));
+                StringBuilder sb = new StringBuilder();
+                VehicleResultColumns.exportResultsCSV(results, sb);
+                // the results file ends with the line separator of the written line
+                assertEquals(expected, sb + System.lineSeparator());
+            } finally {
+                results.close();
+            }
+            ColumnarReader steps = new ColumnarReader(new File(columnar, BatchRunner.PROFILE_STEPS_COLUMNAR_FILE));
+            try {
+                assertEquals(stats.getSteps(), steps.getRowCount());
+            } finally {
+                steps.close();
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStreamingWithoutVehicleResultsIsRejected() throws Exception {
+        File out = directory.resolve("out").toFile();
+        new BatchRunner(BatchConfig.parse(new String[]{
+                "--sim=aim", "--time=1", "--stream-results=true", "--out=" + out.getPath()})).run();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCollisionCheckWithoutMergeIsRejected() throws Exception {
+        File out = directory.resolve("out").toFile();
+        new BatchRunner(BatchConfig.parse(new String[]{
+                "--sim=aim", "--time=1", "--collision-check=fail", "--out=" + out.getPath()})).run();
+    }
+
+    @Test
+    public void testProfileWritesStageAndStepProfiles() throws Exception {
+        File out = directory.resolve("out").toFile();
+        BatchRunner runner = new BatchRunner(BatchConfig.parse(new String[]{
+                "--sim=single-lane", "--time=10", "--seed=1", "--profile=true", "--out=" + out.getPath()}));
+        BatchStats stats = runner.run();
+
+        List<String> profile = Files.readAllLines(new File(out, BatchRunner.PROFILE_FILE).toPath(), UTF8);
+        assertTrue(profile.get(profile.size() - 1).startsWith("STEP," + stats.getSteps() + ","));
+        List<String> steps = Files.readAllLines(new File(out, BatchRunner.PROFILE_STEPS_FILE).toPath(), UTF8);
+        assertEquals(stats.getSteps() + 1, steps.size());
+    }
+}
@@ -0,0 +1,130 @@
+package aim4.sim.experiment;
+
+import aim4.map.merge.MergeMapUtil;
+import aim4.map.merge.RoadNames;
+import aim4.sim.setup.merge.enums.ProtocolType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that a sweep run in parallel records every run in its index and results files, and that
+ * running an interrupted sweep again only simulates the runs missing from its index, reproducing their results.
+ */
+public class ExperimentRunnerTest {
+    private final static Charset UTF8 = Charset.forName("UTF-8");
+    private final static double SCHEDULE_LENGTH = 10.0;
+    private final static double SPEED_LIMIT = 20.0;
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("sweep");
+        for (RoadNames road : RoadNames.values()) {
+            for (int rate : new int[]{1000, 2000}) {
+                for (int i = 1; i <= 2; i++) {
+                    String schedule = MergeMapUtil.createSpawnSchedule(rate / 3600.0, SCHEDULE_LENGTH, SPEED_LIMIT)
+                            .toJSONString();
+                    String name = road.toString().substring(0, 1) + "_" + rate + "_" + i + ".json";
+                    Files.write(directory.resolve(name), Collections.singletonList(schedule), UTF8);
+                }
+            }
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        List<Path> paths = new ArrayList<Path>();
+        collect(directory, paths);
+        Collections.reverse(paths);
+        for (Path path : paths) {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testResumeOnlyRunsMissingRuns() throws Exception {
+        File results = directory.resolve("results").toFile();
+        ExperimentRunner runner = new ExperimentRunner(createSpec(100.0), results, 2);
+        List<RunRecord> records = runner.run();
+        assertEquals(4, records.size());
+        for (RunRecord record : records) {
+            assertTrue(record.isCompleted());
+            assertTrue(runner.getResultsFile(record.getRun()).exists());
+        }
+        assertEquals("2000_2", records.get(3).getRun().getKey() + "_" + records.get(3).getRun().getReplication());
+        assertTrue(runner.getSummaryFile().exists());
+
+        // simulate a sweep killed while recording its last run
+        Path index = new File(runner.getSweepDirectory(), ExperimentRunner.INDEX_FILE).toPath();
+        List<String> lines = Files.readAllLines(index, UTF8);
+        assertEquals(4, lines.size());
+        String lastRun = records.get(3).toCSV();
+        assertTrue(lines.remove(lastRun));
+        lines.add(lastRun.substring(0, lastRun.length() / 2));
+        Files.write(index, lines, UTF8);
+        Files.delete(runner.getResultsFile(records.get(3).getRun()).toPath());
+        // a recorded run is not simulated again, so its deleted results file stays deleted
+        Files.delete(runner.getResultsFile(records.get(0).getRun()).toPath());
+
+        ExperimentRunner resumed = new ExperimentRunner(createSpec(100.0), results, 1);
+        List<RunRecord> resumedRecords = resumed.run();
+        assertEquals(4, resumedRecords.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(records.get(i).toCSV(), resumedRecords.get(i).toCSV());
+        }
+        assertFalse(resumed.getResultsFile(records.get(0).getRun()).exists());
+        assertTrue(resumed.getResultsFile(records.get(3).getRun()).exists());
+        assertEquals(4, Files.readAllLines(index, UTF8).size());
+    }
+
+    @Test(expected = IOException.class)
+    public void testResumeRejectsDifferentSpec() throws Exception {
+        File results = directory.resolve("results").toFile();
+        SweepSpec spec = createSpec(1.0);
+        new ExperimentRunner(spec, results, 1).run();
+        new ExperimentRunner(createSpec(2.0), results, 1).run();
+    }
+
+    @Test
+    public void testSpecSurvivesJSON() throws Exception {
+        SweepSpec spec = createSpec(100.0);
+        assertEquals(spec.toJSON(), SweepSpec.fromJSON(spec.toJSON()).toJSON());
+        List<ExperimentRun> runs = spec.expand();
+        assertEquals(new File(directory.toFile(), "M_1000_2.json"), runs.get(1).getSchedule(RoadNames.MERGING_ROAD));
+        assertEquals("Traffic Rate: 2000", runs.get(2).getLabel());
+    }
+
+    private SweepSpec createSpec(double timeLimit) {
+        SweepSpec spec = new SweepSpec("TEST", SweepSpec.SimulatorType.MERGE);
+        spec.setProtocol(ProtocolType.QUEUE);
+        spec.setTrafficRates(1000, 2000);
+        spec.setTargetSpeedLimits(SPEED_LIMIT);
+        spec.setMergeSpeedLimits(SPEED_LIMIT);
+        spec.setReplications(2);
+        spec.setTimeLimit(timeLimit);
+        spec.setSchedules(directory.toFile(), "{road}_{trafficRate}_{replication}.json");
+        return spec;
+    }
+
+    private void collect(Path path, List<Path> paths) throws IOException {
+        paths.add(path);
+        if (Files.isDirectory(path)) {
+            for (File child : path.toFile().listFiles()) {
+                collect(child.toPath(), paths);
+            }
+        }
+    }
+}
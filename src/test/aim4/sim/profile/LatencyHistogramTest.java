@@ -0,0 +1,70 @@
+package aim4.sim.profile;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that latency histograms give the minimum, maximum, mean and percentiles of the recorded
+ * values to within their precision.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentilesAreWithinOnePercent() throws Exception {
+        Random random = new Random(3);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            // log-uniform between 1 and about 10^9
+            values[i] = (long) Math.exp(random.nextDouble() * 21);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(values[0], histogram.getMin());
+        assertEquals(values[values.length - 1], histogram.getMax());
+        for (double percentile : new double[]{1, 10, 50, 90, 99, 99.9}) {
+            long expected = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long actual = histogram.getValueAtPercentile(percentile);
+            assertTrue(percentile + ": " + expected + " vs " + actual,
+                    actual >= expected && actual <= expected * 1.01 + 1);
+        }
+        assertEquals(values[values.length - 1], histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testSmallValuesAreExact() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 0; v < 200; v++) {
+            histogram.record(v);
+        }
+        assertEquals(99.5, histogram.getMean(), 1e-9);
+        assertEquals(99, histogram.getValueAtPercentile(50));
+        assertEquals(0, histogram.getMin());
+        assertEquals(199, histogram.getMax());
+    }
+
+    @Test
+    public void testAddAndReset() throws Exception {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        a.record(10);
+        b.record(1000000);
+        b.record(-5);
+        a.add(b);
+        assertEquals(3, a.getCount());
+        assertEquals(0, a.getMin());
+        assertEquals(1000000, a.getMax());
+
+        a.reset();
+        assertEquals(0, a.getCount());
+        assertEquals(0, a.getMin());
+        assertEquals(0, a.getMax());
+        assertEquals(0, a.getValueAtPercentile(50));
+    }
+}
@@ -0,0 +1,185 @@
+package aim4.sim.profile;
+
+import aim4.config.SimConfig;
+import aim4.sim.SimulationContext;
+import aim4.sim.Simulator;
+import aim4.sim.setup.aim.AutoDriverOnlySimSetup;
+import aim4.sim.setup.aim.BasicSimSetup;
+import aim4.sim.setup.merge.S2SSimSetup;
+import aim4.sim.setup.merge.enums.ProtocolType;
+import aim4.sim.simulator.aim.AutoDriverOnlySimulator;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that the step profiler records nothing until it is enabled, and then records every
+ * stage of every step of the AIM and V2I merge simulators, the traffic of each step, and can export its profile as
+ * CSV and through JMX.
+ */
+public class StepProfilerTest {
+    private final static double SIMULATION_TIME = 30.0;
+
+    @Test
+    public void testDisabledProfilerRecordsNothing() throws Exception {
+        AutoDriverOnlySimulator sim = createAIMSimulator();
+        run(sim);
+        StepProfiler profiler = sim.getProfiler();
+        assertFalse(profiler.isEnabled());
+        assertEquals(0, profiler.getStepCount());
+        assertEquals(0, profiler.getMessagesDelivered());
+        assertNull(profiler.getLastStep());
+        assertTrue(profiler.getHistory().isEmpty());
+        for (StepStage stage : StepStage.values()) {
+            assertEquals(0, profiler.getTotalNanos(stage));
+        }
+    }
+
+    @Test
+    public void testEnablingAllocatesHistory() throws Exception {
+        StepProfiler profiler = new StepProfiler(4);
+        profiler.beginStep();
+        profiler.endStep(0.0, 0);
+        assertTrue(profiler.getHistory().isEmpty());
+        profiler.setEnabled(true);
+        for (int i = 0; i < 6; i++) {
+            profiler.beginStep();
+            profiler.endStage(StepStage.MOVE);
+            profiler.endStep(i, i);
+        }
+        List<StepProfiler.StepRecord> history = profiler.getHistory();
+        assertEquals(4, history.size());
+        assertEquals(2.0, history.get(0).getTime(), 0.0);
+        assertEquals(5, profiler.getLastStep().getActiveVehicles());
+    }
+
+    @Test
+    public void testCSVIsIndependentOfTheDefaultLocale() throws Exception {
+        StepProfiler profiler = new StepProfiler(4);
+        profiler.setEnabled(true);
+        profiler.beginStep();
+        profiler.endStage(StepStage.MOVE);
+        profiler.endStep(1.5, 1);
+        Locale defaultLocale = Locale.getDefault();
+        StringBuilder summary = new StringBuilder();
+        StringBuilder stepsCSV = new StringBuilder();
+        try {
+            Locale.setDefault(Locale.GERMANY);
+            profiler.writeSummaryCSV(summary);
+            profiler.writeStepsCSV(stepsCSV);
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+        for (StringBuilder csv : new StringBuilder[]{summary, stepsCSV}) {
+            String[] rows = csv.toString().split("\n");
+            int columns = rows[0].split(",").length;
+            for (String row : rows) {
+                assertEquals(row, columns, row.split(",").length);
+            }
+        }
+        assertTrue(stepsCSV.toString().split("\n")[1].startsWith("1.50,1,"));
+    }
+
+    @Test
+    public void testRecordsEveryStageOfAIMSteps() throws Exception {
+        AutoDriverOnlySimulator sim = createAIMSimulator();
+        StepProfiler profiler = sim.getProfiler();
+        profiler.setEnabled(true);
+        int steps = run(sim);
+
+        assertEquals(steps, profiler.getStepCount());
+        assertEquals(steps, profiler.getStepHistogram().getCount());
+        for (StepStage stage : StepStage.values()) {
+            assertEquals(stage.name(), steps, profiler.getHistogram(stage).getCount());
+        }
+        assertTrue(profiler.getMessagesDelivered() > 0);
+        assertTrue(profiler.getReservationsMade() > 0);
+
+        List<StepProfiler.StepRecord> history = profiler.getHistory();
+        assertEquals(steps, history.size());
+        StepProfiler.StepRecord last = profiler.getLastStep();
+        assertEquals(sim.getSimulationTime(), last.getTime(), 0.0);
+        assertEquals(sim.getActiveVehicles().size(), last.getActiveVehicles());
+        long messages = 0;
+        long made = 0;
+        for (StepProfiler.StepRecord record : history) {
+            messages += record.getMessagesDelivered();
+            made += record.getReservationsMade();
+        }
+        assertEquals(profiler.getMessagesDelivered(), messages);
+        assertEquals(profiler.getReservationsMade(), made);
+
+        StringBuilder summary = new StringBuilder();
+        profiler.writeSummaryCSV(summary);
+        String[] rows = summary.toString().split("\n");
+        assertEquals(StepStage.values().length + 2, rows.length);
+        assertTrue(rows[rows.length - 1].startsWith("STEP," + steps + ","));
+        StringBuilder stepsCSV = new StringBuilder();
+        profiler.writeStepsCSV(stepsCSV);
+        assertEquals(steps + 1, stepsCSV.toString().split("\n").length);
+
+        profiler.reset();
+        assertEquals(0, profiler.getStepCount());
+        assertTrue(profiler.getHistory().isEmpty());
+    }
+
+    @Test
+    public void testRecordsManagerStageOfV2IMergeSteps() throws Exception {
+        S2SSimSetup setup = new S2SSimSetup(ProtocolType.AIM_GRID, 0.28,
+                S2SSimSetup.DEFAULT_TARGET_LANE_SPEED_LIMIT, S2SSimSetup.DEFAULT_MERGING_LANE_SPEED_LIMIT,
+                S2SSimSetup.DEFAULT_TARGET_LEAD_IN_DISTANCE, S2SSimSetup.DEFAULT_TARGET_LEAD_OUT_DISTANCE,
+                S2SSimSetup.DEFAULT_MERGE_LEAD_IN_DISTANCE, S2SSimSetup.DEFAULT_MERGING_ANGLE);
+        Simulator sim = setup.getSimulator(new SimulationContext(1L));
+        StepProfiler profiler = ((ProfiledSimulator) sim).getProfiler();
+        profiler.setEnabled(true);
+        int steps = run(sim);
+
+        assertEquals(steps, profiler.getStepCount());
+        assertEquals(steps, profiler.getHistogram(StepStage.MANAGERS_ACT).getCount());
+        assertEquals(steps, profiler.getHistogram(StepStage.COMMUNICATION).getCount());
+        assertTrue(profiler.getMessagesDelivered() > 0);
+        assertTrue(profiler.getReservationsMade() + profiler.getReservationsRejected() > 0);
+    }
+
+    @Test
+    public void testExposedThroughJMX() throws Exception {
+        AutoDriverOnlySimulator sim = createAIMSimulator();
+        StepProfiler profiler = sim.getProfiler();
+        profiler.setEnabled(true);
+        int steps = run(sim);
+
+        ObjectName name = profiler.registerMBean("test");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals((long) steps, server.getAttribute(name, "StepCount"));
+            assertEquals(StepStage.values().length,
+                    ((String[]) server.getAttribute(name, "StageNames")).length);
+            server.invoke(name, "reset", new Object[0], new String[0]);
+            assertEquals(0, profiler.getStepCount());
+        } finally {
+            profiler.unregisterMBean();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+
+    private AutoDriverOnlySimulator createAIMSimulator() {
+        AutoDriverOnlySimSetup setup = new AutoDriverOnlySimSetup(
+                new BasicSimSetup(1, 1, 4, 25.0, 2, 1, 150, 0.4, 1.0));
+        return (AutoDriverOnlySimulator) setup.getSimulator(new SimulationContext(1L));
+    }
+
+    private int run(Simulator sim) {
+        int steps = 0;
+        while (sim.getSimulationTime() < SIMULATION_TIME) {
+            sim.step(SimConfig.TIME_STEP);
+            steps++;
+        }
+        return steps;
+    }
+}
@@ -0,0 +1,185 @@
+package aim4.sim.results;
+
+import aim4.map.merge.RoadNames;
+import aim4.sim.results.columnar.ColumnarReader;
+import aim4.sim.results.columnar.Compression;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that the results file written by the streaming
+ * writer is the same as the one written from the results kept in memory, as is
+ * the one exported from a columnar file of results, and that the running
+ * statistics agree with the statistics of all the delays.
+ */
+public class VehicleResultsWriterTest {
+    private final static Charset UTF8 = Charset.forName("UTF-8");
+
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("results").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testStreamedFileMatchesResultsInMemory() throws Exception {
+        List<CoreMergeVehicleResult> results = randomResults(500, new Random(7L));
+        // a small buffer, so that the rows are flushed many times
+        VehicleResultsWriter writer = new VehicleResultsWriter(new File(dir, "streamed.csv"), 100);
+        for (CoreMergeVehicleResult result : results) {
+            writer.add(result);
+        }
+        writer.close();
+        assertFalse(new File(dir, "streamed.csv" + VehicleResultsWriter.ROWS_FILE_SUFFIX).exists());
+
+        CoreMergeResult inMemory = new CoreMergeResult(results);
+        Files.write(new File(dir, "memory.csv").toPath(),
+                Collections.singletonList(inMemory.produceCSVString()), UTF8);
+        assertTrue(Arrays.equals(Files.readAllBytes(new File(dir, "memory.csv").toPath()),
+                Files.readAllBytes(new File(dir, "streamed.csv").toPath())));
+
+        CoreMergeResult streamed = new CoreMergeResult(writer.getStatistics(),
+                writer.getTargetStatistics(), writer.getMergeStatistics());
+        assertEquals(inMemory.produceGlobalStatsCSV(), streamed.produceGlobalStatsCSV());
+        assertTrue(streamed.getVehicleResults().isEmpty());
+    }
+
+    @Test
+    public void testColumnarFileExportsResultsInMemory() throws Exception {
+        List<CoreMergeVehicleResult> results = randomResults(500, new Random(5L));
+        VehicleResultsWriter writer = new VehicleResultsWriter(VehicleResultColumns.createWriter(
+                new File(dir, "results.col"), Collections.singletonMap("seed", "5"), Compression.DEFLATE));
+        for (CoreMergeVehicleResult result : results) {
+            writer.add(result);
+        }
+        writer.close();
+
+        CoreMergeResult inMemory = new CoreMergeResult(results);
+        ColumnarReader reader = new ColumnarReader(new File(dir, "results.col"));
+        try {
+            assertTrue(VehicleResultColumns.isVehicleResults(reader));
+            assertEquals("5", reader.getParams().get("seed"));
+            StringBuilder sb = new StringBuilder();
+            VehicleResultColumns.exportResultsCSV(reader, sb);
+            assertEquals(inMemory.produceCSVString(), sb.toString());
+            assertEquals(inMemory.produceGlobalStatsCSV(),
+                    VehicleResultColumns.produceResult(reader).produceGlobalStatsCSV());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testRunningStatisticsMatchTwoPassStatistics() throws Exception {
+        Random random = new Random(11L);
+        DelayStatistics statistics = new DelayStatistics();
+        double[] delays = new double[10000];
+        double total = 0;
+        for (int i = 0; i < delays.length; i++) {
+            // a large offset, which a naive sum of squares would not survive
+            delays[i] = 1e6 + random.nextGaussian() * 3;
+            total += delays[i];
+            statistics.add(delays[i], i * 0.5);
+        }
+        double mean = total / delays.length;
+        double squares = 0;
+        for (double delay : delays) {
+            squares += (delay - mean) * (delay - mean);
+        }
+        assertEquals(delays.length, statistics.getCount());
+        assertEquals(mean, statistics.getAverageDelay(), 0.0);
+        assertEquals(Math.sqrt(squares / delays.length), statistics.getStdDevDelay(), 1e-9);
+        assertEquals(delays.length / ((delays.length - 1) * 0.5), statistics.getThroughput(), 0.0);
+    }
+
+    @Test
+    public void testStdDevOfResultsInMemoryIsTheTwoPassOne() throws Exception {
+        Random random = new Random(3L);
+        for (int trial = 0; trial < 200; trial++) {
+            List<CoreMergeVehicleResult> results = randomResults(1 + random.nextInt(50), random);
+            List<AIMVehicleResult> aimResults = new ArrayList<AIMVehicleResult>();
+            for (CoreMergeVehicleResult r : results) {
+                aimResults.add(new AIMVehicleResult(r.getVin(), r.getStartingRoad(), r.getSpecType(),
+                        r.getStartTime(), r.getFinishTime(), r.getDelayTime(), r.getFinalVelocity(),
+                        r.getMaxVelocity(), r.getMinVelocity(), r.getFinalXPos(), r.getFinalYPos()));
+            }
+            CoreMergeResult result = new CoreMergeResult(results);
+            AIMResult aimResult = new AIMResult(aimResults);
+            double stdDev = twoPassStdDev(results, null);
+            double targetStdDev = twoPassStdDev(results, RoadNames.TARGET_ROAD.toString());
+            double mergeStdDev = twoPassStdDev(results, RoadNames.MERGING_ROAD.toString());
+            assertEquals(stdDev, result.getStdDevDelay(), 0.0);
+            assertEquals(targetStdDev, result.getStdDevTargetDelay(), 0.0);
+            assertEquals(mergeStdDev, result.getStdDevMergeDelay(), 0.0);
+            assertEquals(stdDev, aimResult.getStdDevDelay(), 0.0);
+            assertEquals(targetStdDev, aimResult.getStdDevTargetDelay(), 0.0);
+            assertEquals(mergeStdDev, aimResult.getStdDevMergeDelay(), 0.0);
+        }
+    }
+
+    @Test
+    public void testDiscardWritesNothing() throws Exception {
+        VehicleResultsWriter writer = new VehicleResultsWriter(new File(dir, "results.csv"));
+        writer.add(randomResults(1, new Random(1L)).get(0));
+        writer.discard();
+        writer.close();
+        assertEquals(0, dir.listFiles().length);
+    }
+
+    /**
+     * The standard deviation of the delays of the vehicles from a road, or of
+     * all the vehicles if the road is null, as the results computed it before
+     * the running statistics.
+     */
+    private double twoPassStdDev(List<CoreMergeVehicleResult> results, String road) {
+        List<Double> delays = new ArrayList<Double>();
+        double total = 0;
+        for (CoreMergeVehicleResult result : results) {
+            if (road == null || road.equals(result.getStartingRoad())) {
+                delays.add(result.getDelayTime());
+                total += result.getDelayTime();
+            }
+        }
+        double mean = total / delays.size();
+        double temp = 0;
+        for (double delay : delays) {
+            temp += (delay - mean) * (delay - mean);
+        }
+        return Math.sqrt(temp / delays.size());
+    }
+
+    private List<CoreMergeVehicleResult> randomResults(int n, Random random) {
+        List<CoreMergeVehicleResult> results = new ArrayList<CoreMergeVehicleResult>();
+        double time = 0;
+        for (int i = 0; i < n; i++) {
+            time += random.nextDouble();
+            String road = random.nextBoolean()
+                    ? RoadNames.TARGET_ROAD.toString() : RoadNames.MERGING_ROAD.toString();
+            results.add(new CoreMergeVehicleResult(1000 + i, road, "SEDAN",
+                    time - 10, time, random.nextDouble() * 8, random.nextDouble() * 30,
+                    40.0, random.nextDouble(), random.nextDouble() * 300, random.nextDouble() * 50));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,225 @@
+package aim4.sim.results.columnar;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that a columnar file reads back the schema,
+ * parameters and values it was written with, over many blocks and with every
+ * compression, and that its summaries and CSV export agree with the values.
+ */
+public class ColumnarFileTest {
+    private static final List<Column> COLUMNS = Arrays.asList(
+            new Column("Id", ColumnType.INT),
+            new Column("Nanos", ColumnType.LONG),
+            new Column("Value", ColumnType.DOUBLE),
+            new Column("Group", ColumnType.STRING));
+    private static final String[] GROUPS = {"a", "b", null, "c"};
+
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("columnar").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testRoundTripUncompressed() throws Exception {
+        testRoundTrip(Compression.NONE);
+    }
+
+    @Test
+    public void testRoundTripDeflate() throws Exception {
+        testRoundTrip(Compression.DEFLATE);
+    }
+
+    @Test
+    public void testSummariesMatchValues() throws Exception {
+        File file = write(new File(dir, "table.col"), 1000, 64, Compression.DEFLATE);
+        ColumnarReader reader = new ColumnarReader(file);
+        try {
+            double[] values = values(1000);
+            ColumnSummary expected = new ColumnSummary();
+            Map<String, ColumnSummary> expectedByGroup = new TreeMap<String, ColumnSummary>();
+            for (int i = 0; i < values.length; i++) {
+                expected.add(values[i]);
+                String group = GROUPS[i % GROUPS.length];
+                if (group != null) {
+                    if (!expectedByGroup.containsKey(group)) {
+                        expectedByGroup.put(group, new ColumnSummary());
+                    }
+                    expectedByGroup.get(group).add(values[i]);
+                }
+            }
+
+            assertSummaryEquals(expected, reader.summarize("Value"));
+            Map<String, ColumnSummary> byGroup = reader.summarizeBy("Value", "Group");
+            assertEquals(Arrays.asList("a", "b", "c"), Arrays.asList(byGroup.keySet().toArray()));
+            for (String group : expectedByGroup.keySet()) {
+                assertSummaryEquals(expectedByGroup.get(group), byGroup.get(group));
+            }
+
+            // merging the summaries of the groups gives the summary of all of them
+            ColumnSummary merged = new ColumnSummary();
+            for (ColumnSummary summary : byGroup.values()) {
+                merged.merge(summary);
+            }
+            assertEquals(750, merged.getCount());
+            ColumnSummary ungrouped = new ColumnSummary();
+            for (int i = 0; i < values.length; i++) {
+                if (GROUPS[i % GROUPS.length] != null) {
+                    ungrouped.add(values[i]);
+                }
+            }
+            assertEquals(ungrouped.getMean(), merged.getMean(), 1e-12);
+            assertEquals(ungrouped.getStdDev(), merged.getStdDev(), 1e-12);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testExportCSV() throws Exception {
+        File file = write(new File(dir, "table.col"), 5, 2, Compression.NONE);
+        ColumnarReader reader = new ColumnarReader(file);
+        StringBuilder sb = new StringBuilder();
+        try {
+            reader.exportCSV(sb);
+        } finally {
+            reader.close();
+        }
+        double[] values = values(5);
+        StringBuilder expected = new StringBuilder("Id,Nanos,Value,Group\n");
+        for (int i = 0; i < 5; i++) {
+            String group = GROUPS[i % GROUPS.length];
+            expected.append(i).append(',').append(nanos(i)).append(',').append(values[i]).append(',')
+                    .append(group == null ? "" : group).append('\n');
+        }
+        assertEquals(expected.toString(), sb.toString());
+    }
+
+    @Test
+    public void testEmptyTable() throws Exception {
+        File file = write(new File(dir, "empty.col"), 0, 16, Compression.DEFLATE);
+        ColumnarReader reader = new ColumnarReader(file);
+        try {
+            assertEquals(0, reader.getRowCount());
+            assertFalse(reader.doubles("Value").hasNext());
+            assertEquals(0, reader.summarize("Value").getCount());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotAColumnarFile() throws Exception {
+        File file = new File(dir, "results.csv");
+        Files.write(file.toPath(), "VIN,Delay\n1,0.5\n".getBytes("UTF-8"));
+        new ColumnarReader(file);
+    }
+
+    @Test
+    public void testDiscardDeletesFile() throws Exception {
+        ColumnarWriter writer = new ColumnarWriter(new File(dir, "table.col"), COLUMNS,
+                new TreeMap<String, String>(), Compression.NONE);
+        writer.setInt(0, 1);
+        writer.endRow();
+        writer.discard();
+        writer.close();
+        assertEquals(0, dir.listFiles().length);
+    }
+
+    private void testRoundTrip(Compression compression) throws Exception {
+        int rows = 1000;
+        // a small block, so that the rows span many blocks and the last one is partial
+        File file = write(new File(dir, "table.col"), rows, 64, compression);
+        ColumnarReader reader = new ColumnarReader(file);
+        try {
+            assertEquals(COLUMNS, reader.getColumns());
+            assertEquals(compression, reader.getCompression());
+            assertEquals("7", reader.getParams().get("seed"));
+            assertEquals("s2s", reader.getParams().get("sim"));
+            assertEquals(rows, reader.getRowCount());
+
+            double[] values = values(rows);
+            PrimitiveIterator.OfInt ids = reader.ints("Id");
+            PrimitiveIterator.OfLong nanos = reader.longs("Nanos");
+            PrimitiveIterator.OfDouble doubles = reader.doubles("Value");
+            PrimitiveIterator.OfDouble idsAsDoubles = reader.doubles("Id");
+            Iterator<String> groups = reader.strings("Group");
+            for (int i = 0; i < rows; i++) {
+                assertEquals(i, ids.nextInt());
+                assertEquals(nanos(i), nanos.nextLong());
+                assertEquals(values[i], doubles.nextDouble(), 0.0);
+                assertEquals(i, idsAsDoubles.nextDouble(), 0.0);
+                assertEquals(GROUPS[i % GROUPS.length], groups.next());
+            }
+            assertFalse(ids.hasNext());
+            assertFalse(groups.hasNext());
+        } finally {
+            reader.close();
+        }
+    }
+
+    private File write(File file, int rows, int blockRows, Compression compression) throws Exception {
+        Map<String, String> params = new TreeMap<String, String>();
+        params.put("seed", "7");
+        params.put("sim", "s2s");
+        ColumnarWriter writer = new ColumnarWriter(file, COLUMNS, params, compression, blockRows);
+        double[] values = values(rows);
+        for (int i = 0; i < rows; i++) {
+            writer.setInt(0, i);
+            writer.setLong(1, nanos(i));
+            writer.setDouble(2, values[i]);
+            writer.setString(3, GROUPS[i % GROUPS.length]);
+            writer.endRow();
+        }
+        assertEquals(rows, writer.getRowCount());
+        writer.close();
+        return file;
+    }
+
+    private double[] values(int n) {
+        Random random = new Random(3L);
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = 100 + random.nextGaussian() * 5;
+        }
+        return values;
+    }
+
+    private long nanos(int i) {
+        return 1000000000L * i + 17;
+    }
+
+    private void assertSummaryEquals(ColumnSummary expected, ColumnSummary actual) {
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getTotal(), actual.getTotal(), 0.0);
+        assertEquals(expected.getMin(), actual.getMin(), 0.0);
+        assertEquals(expected.getMax(), actual.getMax(), 0.0);
+        assertEquals(expected.getMean(), actual.getMean(), 0.0);
+        assertEquals(expected.getStdDev(), actual.getStdDev(), 0.0);
+    }
+}
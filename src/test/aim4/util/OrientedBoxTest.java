@@ -0,0 +1,142 @@
+package aim4.util;
+
+import org.junit.Test;
+
+import java.awt.Shape;
+import java.awt.geom.Area;
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that the geometric tests of an oriented box
+ * agree with the same tests on the shape made from its corners by
+ * {@link GeomUtil#convertPointsToShape(Point2D[])}, away from the boundaries
+ * where rounding decides the answer.
+ */
+public class OrientedBoxTest {
+    private final static int TRIALS = 2000;
+    /** The distance from a boundary within which a sample point is skipped */
+    private final static double MARGIN = 1e-4;
+
+    private final Random random = new Random(17L);
+
+    @Test
+    public void testContainsAndDistanceAgreeWithShape() throws Exception {
+        OrientedBox box = new OrientedBox();
+        for (int i = 0; i < TRIALS; i++) {
+            Shape shape = randomBox(box);
+            double x = box.getMinX() - 2 + random.nextDouble() * (box.getMaxX() - box.getMinX() + 4);
+            double y = box.getMinY() - 2 + random.nextDouble() * (box.getMaxY() - box.getMinY() + 4);
+            double distance = edgeDistance(box, x, y);
+            assertEquals(distance, box.distanceToEdges(x, y), 1e-9);
+            if (distance > MARGIN) {
+                assertEquals(shape.contains(x, y), box.contains(x, y));
+                assertEquals(shape.contains(x, y) ? 0.0 : distance, box.distanceTo(x, y), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testRectangleIntersectionAgreesWithShape() throws Exception {
+        OrientedBox box = new OrientedBox();
+        for (int i = 0; i < TRIALS; i++) {
+            Shape shape = randomBox(box);
+            double x = box.getMinX() - 3 + random.nextDouble() * (box.getMaxX() - box.getMinX() + 3);
+            double y = box.getMinY() - 3 + random.nextDouble() * (box.getMaxY() - box.getMinY() + 3);
+            double w = 0.1 + random.nextDouble() * 3;
+            double h = 0.1 + random.nextDouble() * 3;
+            if (overlapArea(shape, new Rectangle2D.Double(x, y, w, h)) > MARGIN
+                    || !shape.intersects(x - MARGIN, y - MARGIN, w + 2 * MARGIN, h + 2 * MARGIN)) {
+                assertEquals(shape.intersects(x, y, w, h), box.intersects(x, y, w, h));
+            }
+        }
+    }
+
+    @Test
+    public void testBoxIntersectionAgreesWithArea() throws Exception {
+        OrientedBox box = new OrientedBox();
+        OrientedBox other = new OrientedBox();
+        for (int i = 0; i < TRIALS; i++) {
+            Shape shape = randomBox(box);
+            Shape otherShape = randomBox(other);
+            double area = overlapArea(shape, otherShape);
+            if (area == 0.0 || area > MARGIN) {
+                assertEquals(area > 0.0, box.intersects(other));
+                assertEquals(area > 0.0, other.intersects(box));
+            }
+        }
+    }
+
+    @Test
+    public void testConversionsKeepTheCorners() throws Exception {
+        OrientedBox box = new OrientedBox();
+        randomBox(box);
+        Point2D[] points = box.toPoints();
+        List<Line2D> edges = box.toEdges();
+        assertEquals(4, points.length);
+        assertEquals(4, edges.size());
+        for (int k = 0; k < 4; k++) {
+            assertEquals(box.getX(k), points[k].getX(), 0.0);
+            assertEquals(box.getY(k), points[k].getY(), 0.0);
+            assertEquals(points[k], edges.get(k).getP1());
+            assertEquals(points[(k + 1) % 4], edges.get(k).getP2());
+        }
+        assertEquals(box.toShape().getBounds2D(),
+                GeomUtil.convertPointsToShape(points).getBounds2D());
+    }
+
+    /**
+     * Set a box to a random rectangle and return the shape of its corners.
+     */
+    private Shape randomBox(OrientedBox box) {
+        double cx = random.nextDouble() * 10;
+        double cy = random.nextDouble() * 10;
+        double heading = random.nextDouble() * 2 * Math.PI;
+        double halfLength = 0.5 + random.nextDouble() * 3;
+        double halfWidth = 0.5 + random.nextDouble();
+        double lx = Math.cos(heading) * halfLength;
+        double ly = Math.sin(heading) * halfLength;
+        double wx = -Math.sin(heading) * halfWidth;
+        double wy = Math.cos(heading) * halfWidth;
+        Point2D[] points = new Point2D[]{
+                new Point2D.Double(cx + lx + wx, cy + ly + wy),
+                new Point2D.Double(cx - lx + wx, cy - ly + wy),
+                new Point2D.Double(cx - lx - wx, cy - ly - wy),
+                new Point2D.Double(cx + lx - wx, cy + ly - wy)};
+        box.set(points[0].getX(), points[0].getY(), points[1].getX(), points[1].getY(),
+                points[2].getX(), points[2].getY(), points[3].getX(), points[3].getY());
+        return GeomUtil.convertPointsToShape(points);
+    }
+
+    /**
+     * The distance from a point to the nearest edge of a box, measured on
+     * its corners as points.
+     */
+    private double edgeDistance(OrientedBox box, double x, double y) {
+        double distance = Double.MAX_VALUE;
+        Point2D[] points = box.toPoints();
+        for (int k = 0; k < 4; k++) {
+            distance = Math.min(distance,
+                    new Line2D.Double(points[k], points[(k + 1) % 4]).ptSegDist(x, y));
+        }
+        return distance;
+    }
+
+    /**
+     * The area of the bounds of the overlap of two shapes; zero if they do
+     * not overlap.
+     */
+    private double overlapArea(Shape a, Shape b) {
+        Area area = new Area(a);
+        area.intersect(new Area(b));
+        if (area.isEmpty()) {
+            return 0.0;
+        }
+        return area.getBounds2D().getWidth() * area.getBounds2D().getHeight();
+    }
+}
@@ -0,0 +1,201 @@
+package aim4.vehicle;
+
+import aim4.driver.Driver;
+import aim4.map.Road;
+import aim4.map.lane.Lane;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.awt.geom.Point2D;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that the incrementally repaired lane ordering
+ * gives the same leaders and front/rear vehicles as sorting the vehicles of
+ * each chain of lanes from scratch, as vehicles move, overtake, change lanes,
+ * appear and disappear.
+ */
+public class VehicleLaneOrderingTest {
+    private final static int STEPS = 300;
+
+    /** The current position of each vehicle; the x-coordinate is the distance along any lane */
+    private final Map<VehicleSimModel, Point2D> positions = new HashMap<VehicleSimModel, Point2D>();
+    /** The lanes currently occupied by each vehicle */
+    private final Map<VehicleSimModel, Set<Lane>> occupiedLanes = new HashMap<VehicleSimModel, Set<Lane>>();
+
+    @Test
+    public void testMatchesSortedRebuildWithChainedLanes() throws Exception {
+        checkAgainstRebuild(true, 1);
+    }
+
+    @Test
+    public void testMatchesSortedRebuildWithoutChainedLanes() throws Exception {
+        checkAgainstRebuild(false, 2);
+    }
+
+    private void checkAgainstRebuild(boolean chainLanes, long seed) {
+        Random random = new Random(seed);
+        // road 0 has lanes a -> b, road 1 has lane c
+        Lane b = mockLane(null);
+        Lane a = mockLane(b);
+        Lane c = mockLane(null);
+        List<Road> roads = Arrays.asList(mockRoad(a), mockRoad(b), mockRoad(c));
+        List<Lane> lanes = Arrays.asList(a, b, c);
+
+        Map<Integer, VehicleSimModel> vinToVehicles = new LinkedHashMap<Integer, VehicleSimModel>();
+        VehicleLaneOrdering<VehicleSimModel> ordering =
+                new VehicleLaneOrdering<VehicleSimModel>(roads, vinToVehicles.values(), chainLanes);
+
+        int nextVin = 0;
+        for (int step = 0; step < STEPS; step++) {
+            // spawn, remove, move and change lanes
+            if (vinToVehicles.size() < 40 && random.nextDouble() < 0.5) {
+                VehicleSimModel vehicle = mockVehicle();
+                positions.put(vehicle, new Point2D.Double(random.nextInt(5), 0));
+                occupiedLanes.put(vehicle, new HashSet<Lane>(Collections.singleton(lanes.get(random.nextInt(3)))));
+                vinToVehicles.put(nextVin++, vehicle);
+            }
+            if (!vinToVehicles.isEmpty() && random.nextDouble() < 0.2) {
+                Integer vin = new ArrayList<Integer>(vinToVehicles.keySet()).get(random.nextInt(vinToVehicles.size()));
+                vinToVehicles.remove(vin);
+            }
+            for (VehicleSimModel vehicle : vinToVehicles.values()) {
+                Point2D p = positions.get(vehicle);
+                // coarse positions so that vehicles sometimes share a position
+                p.setLocation(p.getX() + random.nextInt(3) * 0.5, 0);
+                if (random.nextDouble() < 0.05) {
+                    Set<Lane> occupied = occupiedLanes.get(vehicle);
+                    occupied.clear();
+                    occupied.add(lanes.get(random.nextInt(3)));
+                    if (random.nextDouble() < 0.3) {
+                        occupied.add(lanes.get(random.nextInt(3)));
+                    }
+                }
+            }
+
+            ordering.update();
+            Map<Lane, SortedMap<Double, VehicleSimModel>> lists =
+                    rebuild(roads, vinToVehicles.values(), chainLanes);
+
+            for (VehicleSimModel vehicle : vinToVehicles.values()) {
+                assertEquals(expectedLeader(lists, vehicle), ordering.getLeader(vehicle));
+            }
+            for (Lane lane : lists.keySet()) {
+                SortedMap<Double, VehicleSimModel> list = lists.get(lane);
+                for (double dst = -0.25; dst < 200; dst += 0.25) {
+                    int front = ordering.ceilingIndex(lane, dst);
+                    SortedMap<Double, VehicleSimModel> tail = list.tailMap(dst);
+                    if (tail.isEmpty()) {
+                        assertEquals(-1, front);
+                    } else {
+                        assertEquals(tail.firstKey(), ordering.getPosition(lane, front), 0.0);
+                        assertSame(tail.get(tail.firstKey()), ordering.getVehicle(lane, front));
+                    }
+                    int rear = ordering.lowerIndex(lane, dst);
+                    SortedMap<Double, VehicleSimModel> head = list.headMap(dst);
+                    if (head.isEmpty()) {
+                        assertEquals(-1, rear);
+                    } else {
+                        assertEquals(head.lastKey(), ordering.getPosition(lane, rear), 0.0);
+                        assertSame(head.get(head.lastKey()), ordering.getVehicle(lane, rear));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sort the vehicles of each chain of lanes from scratch.
+     */
+    private Map<Lane, SortedMap<Double, VehicleSimModel>> rebuild(List<Road> roads,
+                                                                 Collection<VehicleSimModel> vehicles,
+                                                                 boolean chainLanes) {
+        Map<Lane, SortedMap<Double, VehicleSimModel>> lists = new LinkedHashMap<Lane, SortedMap<Double, VehicleSimModel>>();
+        for (Road road : roads) {
+            for (Lane lane : road.getLanes()) {
+                lists.put(lane, new TreeMap<Double, VehicleSimModel>());
+            }
+        }
+        for (VehicleSimModel vehicle : vehicles) {
+            for (Lane lane : vehicle.getDriver().getCurrentlyOccupiedLanes()) {
+                lists.get(lane).put(lane.distanceAlongLane(vehicle.getPosition()), vehicle);
+            }
+        }
+        if (chainLanes) {
+            for (Road road : roads) {
+                for (Lane lane : road.getLanes()) {
+                    if (lists.containsKey(lane)) {
+                        Lane currLane = lane;
+                        while (currLane.hasNextLane()) {
+                            currLane = currLane.getNextLane();
+                            lists.get(lane).putAll(lists.remove(currLane));
+                        }
+                    }
+                }
+            }
+        }
+        return lists;
+    }
+
+    /**
+     * The leader of a vehicle on the last list in which it has one.
+     */
+    private VehicleSimModel expectedLeader(Map<Lane, SortedMap<Double, VehicleSimModel>> lists,
+                                           VehicleSimModel vehicle) {
+        VehicleSimModel leader = null;
+        for (SortedMap<Double, VehicleSimModel> list : lists.values()) {
+            VehicleSimModel last = null;
+            for (VehicleSimModel curr : list.values()) {
+                if (last == vehicle) {
+                    leader = curr;
+                }
+                last = curr;
+            }
+        }
+        return leader;
+    }
+
+    private Lane mockLane(Lane nextLane) {
+        Lane lane = mock(Lane.class);
+        when(lane.hasNextLane()).thenReturn(nextLane != null);
+        when(lane.getNextLane()).thenReturn(nextLane);
+        when(lane.distanceAlongLane(any(Point2D.class))).thenAnswer(new Answer<Double>() {
+            @Override
+            public Double answer(InvocationOnMock invocation) throws Throwable {
+                return ((Point2D) invocation.getArguments()[0]).getX();
+            }
+        });
+        return lane;
+    }
+
+    private Road mockRoad(Lane lane) {
+        Road road = mock(Road.class);
+        when(road.getLanes()).thenReturn(Collections.singletonList(lane));
+        return road;
+    }
+
+    private VehicleSimModel mockVehicle() {
+        final VehicleSimModel vehicle = mock(VehicleSimModel.class);
+        Driver driver = mock(Driver.class);
+        when(vehicle.getDriver()).thenReturn(driver);
+        when(vehicle.getPosition()).thenAnswer(new Answer<Point2D>() {
+            @Override
+            public Point2D answer(InvocationOnMock invocation) throws Throwable {
+                return positions.get(vehicle);
+            }
+        });
+        when(driver.getCurrentlyOccupiedLanes()).thenAnswer(new Answer<Set<Lane>>() {
+            @Override
+            public Set<Lane> answer(InvocationOnMock invocation) throws Throwable {
+                return occupiedLanes.get(vehicle);
+            }
+        });
+        return vehicle;
+    }
+}
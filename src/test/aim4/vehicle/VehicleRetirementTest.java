@@ -0,0 +1,100 @@
+package aim4.vehicle;
+
+import aim4.config.SimConfig;
+import aim4.sim.SimulationContext;
+import aim4.sim.setup.aim.AutoDriverOnlySimSetup;
+import aim4.sim.setup.aim.BasicSimSetup;
+import aim4.sim.simulator.aim.AutoDriverOnlySimulator;
+import aim4.vehicle.aim.AIMBasicAutoVehicle;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.geom.Point2D;
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that vehicles leave the vehicle registry when
+ * they are retired rather than when they are garbage collected, that
+ * retirement keeps the VIN issued, and that no vehicle needs finalization.
+ */
+public class VehicleRetirementTest {
+    private final static VehicleSpec SPEC =
+            new VehicleSpec("TEST", 4.5, -45.0, 60.0, -17.0, 4.0, 1.75, 1.0, 3.0,
+                    1.0, 0.3, 0.25, Math.PI / 3, Math.PI / 2);
+
+    private SimulationContext previous;
+
+    @Before
+    public void setUp() throws Exception {
+        previous = new SimulationContext(1L).bind();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        previous.bind();
+    }
+
+    @Test
+    public void testRetiredVehicleLeavesRegistry() throws Exception {
+        AIMBasicAutoVehicle vehicle = new AIMBasicAutoVehicle(SPEC, new Point2D.Double(0, 0),
+                0.0, 0.0, 10.0, 10.0, 0.0, 0.0);
+        int vin = VinRegistry.registerVehicle(vehicle);
+        assertSame(vehicle, VinRegistry.getVehicleFromVIN(vin));
+
+        vehicle.retire();
+        assertNull(VinRegistry.getVehicleFromVIN(vin));
+        assertTrue(VinRegistry.isVINexist(vin));
+        assertSame(SPEC, VinRegistry.getVehicleSpecFromVIN(vin));
+        assertEquals(vin, vehicle.getVIN());
+
+        vehicle.retire(); // retiring twice does nothing
+        assertNull(VinRegistry.getVehicleFromVIN(vin));
+    }
+
+    @Test
+    public void testUnregisteredVehicleCanBeRetired() throws Exception {
+        new AIMBasicAutoVehicle(SPEC, new Point2D.Double(0, 0),
+                0.0, 0.0, 10.0, 10.0, 0.0, 0.0).retire();
+        new TestVehicle(SPEC, new Point2D.Double(0, 0), 0.0, 0.0, 10.0, 10.0, 0.0, 0.0).retire();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testTestVehicleCannotBeRegistered() throws Exception {
+        VinRegistry.registerVehicle(
+                new TestVehicle(SPEC, new Point2D.Double(0, 0), 0.0, 0.0, 10.0, 10.0, 0.0, 0.0));
+    }
+
+    @Test
+    public void testVehiclesAreNotFinalizable() throws Exception {
+        for (Class<?> c = AIMBasicAutoVehicle.class; c != Object.class; c = c.getSuperclass()) {
+            for (Method method : c.getDeclaredMethods()) {
+                assertFalse(c + " declares a finalizer",
+                        method.getName().equals("finalize") && method.getParameterTypes().length == 0);
+            }
+        }
+    }
+
+    @Test
+    public void testSimulatorRetiresCompletedVehicles() throws Exception {
+        AutoDriverOnlySimSetup setup = new AutoDriverOnlySimSetup(
+                new BasicSimSetup(1, 1, 4, 25.0, 2, 1, 150, 0.4, 1.0));
+        AutoDriverOnlySimulator sim = (AutoDriverOnlySimulator) setup.getSimulator(SimulationContext.current());
+        Set<Integer> completedVINs = new HashSet<Integer>();
+        while (sim.getSimulationTime() < 60.0) {
+            completedVINs.addAll(sim.step(SimConfig.TIME_STEP).getCompletedVINs());
+        }
+        assertFalse(completedVINs.isEmpty());
+        for (int vin : completedVINs) {
+            assertTrue(VinRegistry.isVINexist(vin));
+            assertNull(VinRegistry.getVehicleFromVIN(vin));
+        }
+        for (VehicleSimModel vehicle : sim.getActiveVehicles()) {
+            assertSame(vehicle, VinRegistry.getVehicleFromVIN(vehicle.getVIN()));
+        }
+    }
+}
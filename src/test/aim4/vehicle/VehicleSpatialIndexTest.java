@@ -0,0 +1,201 @@
+package aim4.vehicle;
+
+import aim4.util.OrientedBox;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.awt.Shape;
+import java.awt.geom.Area;
+import java.awt.geom.Rectangle2D;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that the collisions, spawn zone checks and
+ * boundary checks of the spatial index agree with the checks on the shapes
+ * of the vehicles it replaced, for overlapping, touching and rotated
+ * vehicles and for vehicles that span many cells.
+ */
+public class VehicleSpatialIndexTest {
+    private final static Rectangle2D AREA = new Rectangle2D.Double(0, 0, 40, 40);
+    private final static double DEFAULT_CELL = VehicleSpatialIndex.DEFAULT_CELL_SIZE;
+    private final static int TRIALS = 300;
+    /** The size below which an overlap is too small to be told from touching */
+    private final static double MARGIN = 1e-4;
+
+    private final List<VehicleSimModel> vehicles = new ArrayList<VehicleSimModel>();
+
+    @Test
+    public void testOverlappingBoxesCollide() throws Exception {
+        VehicleSpatialIndex<VehicleSimModel> index = index(DEFAULT_CELL);
+        addVehicle(10, 10, 4, 2, 0);
+        addVehicle(12, 10.5, 4, 2, 0);
+        assertCollisionsMatchArea(index);
+        assertNotNull(index.findCollision());
+    }
+
+    @Test
+    public void testTouchingBoxesDoNotCollide() throws Exception {
+        VehicleSpatialIndex<VehicleSimModel> index = index(DEFAULT_CELL);
+        // end to end, side by side and corner to corner
+        addVehicle(10, 10, 4, 2, 0);
+        addVehicle(14, 10, 4, 2, 0);
+        addVehicle(10, 12, 4, 2, 0);
+        addVehicle(14, 14, 4, 2, 0);
+        assertCollisionsMatchArea(index);
+        assertNull(index.findCollision());
+    }
+
+    @Test
+    public void testRotatedBoxes() throws Exception {
+        VehicleSpatialIndex<VehicleSimModel> index = index(DEFAULT_CELL);
+        // the bounding boxes overlap but the boxes do not
+        addVehicle(10, 10, 6, 1, Math.PI / 4);
+        addVehicle(12.5, 7.5, 6, 1, Math.PI / 4);
+        assertCollisionsMatchArea(index);
+        assertNull(index.findCollision());
+        // crossing at a right angle
+        addVehicle(10, 10, 6, 1, -Math.PI / 4);
+        assertCollisionsMatchArea(index);
+        assertNotNull(index.findCollision());
+    }
+
+    @Test
+    public void testBoxesSpanningCellsAreReportedOnce() throws Exception {
+        // cells much smaller than the vehicles
+        VehicleSpatialIndex<VehicleSimModel> index = index(0.5);
+        addVehicle(10, 10, 8, 3, 0.3);
+        addVehicle(12, 11, 8, 3, -0.2);
+        addVehicle(30, 30, 2, 2, 0);
+        List<VehicleSpatialIndex.Collision<VehicleSimModel>> collisions =
+                new ArrayList<VehicleSpatialIndex.Collision<VehicleSimModel>>();
+        index.collectCollisions(collisions);
+        assertEquals(1, collisions.size());
+        assertCollisionsMatchArea(index);
+    }
+
+    @Test
+    public void testRandomVehiclesMatchShapeChecks() throws Exception {
+        Random random = new Random(5L);
+        int checked = 0;
+        for (int trial = 0; trial < TRIALS; trial++) {
+            vehicles.clear();
+            VehicleSpatialIndex<VehicleSimModel> index = index(1 + random.nextDouble() * 10);
+            int n = 1 + random.nextInt(30);
+            for (int i = 0; i < n; i++) {
+                // some vehicles stick out of the area, or are outside it
+                addVehicle(-5 + random.nextDouble() * 50, -5 + random.nextDouble() * 50,
+                        2 + random.nextDouble() * 6, 1 + random.nextDouble() * 2,
+                        random.nextDouble() * 2 * Math.PI);
+            }
+            if (hasSliver()) {
+                continue;
+            }
+            checked++;
+            assertCollisionsMatchArea(index);
+
+            Rectangle2D zone = new Rectangle2D.Double(random.nextDouble() * 35, random.nextDouble() * 35,
+                    0.5 + random.nextDouble() * 5, 0.5 + random.nextDouble() * 5);
+            boolean anyIntersects = false;
+            for (VehicleSimModel v : vehicles) {
+                anyIntersects |= v.getShape().intersects(zone);
+            }
+            assertEquals(anyIntersects, index.anyShapeIntersects(zone));
+
+            List<VehicleSimModel> outside = new ArrayList<VehicleSimModel>();
+            for (VehicleSimModel v : vehicles) {
+                if (!v.getShape().intersects(AREA)) {
+                    outside.add(v);
+                }
+            }
+            List<VehicleSimModel> collected = new ArrayList<VehicleSimModel>();
+            index.collectOutside(AREA, collected);
+            assertEquals(outside, collected);
+        }
+        assertTrue(checked > TRIALS / 2);
+    }
+
+    private VehicleSpatialIndex<VehicleSimModel> index(double cellSize) {
+        return new VehicleSpatialIndex<VehicleSimModel>(AREA, vehicles, cellSize);
+    }
+
+    /**
+     * Add a vehicle with a rectangular shape.
+     */
+    private void addVehicle(double x, double y, double length, double width, double heading) {
+        double lx = Math.cos(heading) * length / 2;
+        double ly = Math.sin(heading) * length / 2;
+        double wx = -Math.sin(heading) * width / 2;
+        double wy = Math.cos(heading) * width / 2;
+        final OrientedBox box = new OrientedBox();
+        box.set(x + lx + wx, y + ly + wy, x - lx + wx, y - ly + wy,
+                x - lx - wx, y - ly - wy, x + lx - wx, y + ly - wy);
+        VehicleSimModel vehicle = mock(VehicleSimModel.class);
+        when(vehicle.getVIN()).thenReturn(1000 + vehicles.size());
+        when(vehicle.getOrientedBox()).thenReturn(box);
+        when(vehicle.getShape()).thenAnswer(new Answer<Shape>() {
+            @Override
+            public Shape answer(InvocationOnMock invocation) {
+                return box.toShape();
+            }
+        });
+        vehicles.add(vehicle);
+    }
+
+    /**
+     * Check that the index finds exactly the pairs of vehicles that
+     * {@link VehicleUtil#collision(VehicleSimModel, VehicleSimModel)} finds.
+     */
+    private void assertCollisionsMatchArea(VehicleSpatialIndex<VehicleSimModel> index) {
+        index.invalidate();
+        Set<String> expected = new HashSet<String>();
+        for (int i = 0; i < vehicles.size(); i++) {
+            for (int j = i + 1; j < vehicles.size(); j++) {
+                if (VehicleUtil.collision(vehicles.get(i), vehicles.get(j))) {
+                    expected.add(pair(vehicles.get(i), vehicles.get(j)));
+                }
+            }
+        }
+        List<VehicleSpatialIndex.Collision<VehicleSimModel>> collisions =
+                new ArrayList<VehicleSpatialIndex.Collision<VehicleSimModel>>();
+        index.collectCollisions(collisions);
+        Set<String> actual = new HashSet<String>();
+        for (VehicleSpatialIndex.Collision<VehicleSimModel> collision : collisions) {
+            assertTrue(actual.add(pair(collision.getFirst(), collision.getSecond())));
+        }
+        assertEquals(expected, actual);
+
+        VehicleSpatialIndex.Collision<VehicleSimModel> first = index.findCollision();
+        if (expected.isEmpty()) {
+            assertNull(first);
+        } else {
+            assertTrue(expected.contains(pair(first.getFirst(), first.getSecond())));
+        }
+    }
+
+    /**
+     * Whether two vehicles overlap by so little that rounding decides
+     * whether they collide.
+     */
+    private boolean hasSliver() {
+        for (int i = 0; i < vehicles.size(); i++) {
+            for (int j = i + 1; j < vehicles.size(); j++) {
+                Area area = new Area(vehicles.get(i).getShape());
+                area.intersect(new Area(vehicles.get(j).getShape()));
+                Rectangle2D bounds = area.getBounds2D();
+                if (!area.isEmpty() && (bounds.getWidth() < MARGIN || bounds.getHeight() < MARGIN)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private String pair(VehicleSimModel v1, VehicleSimModel v2) {
+        return Math.min(v1.getVIN(), v2.getVIN()) + "-" + Math.max(v1.getVIN(), v2.getVIN());
+    }
+}
@@ -0,0 +1,147 @@
+package aim4.vehicle;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * TEST SUITE PURPOSE: Ensure that the array-backed vehicle registry answers
+ * the same queries as a map from VINs, as vehicles are registered with new
+ * and existing VINs and retired in any order, and that the records of a
+ * VIN outlive the retirement of its vehicle.
+ */
+public class VinRegistryTest {
+    private final static int STEPS = 20000;
+
+    @Test
+    public void testMatchesMapsUnderRandomRegistrationAndRetirement() throws Exception {
+        Random random = new Random(5L);
+        VehicleSpec[] specs = new VehicleSpec[]{mock(VehicleSpec.class), mock(VehicleSpec.class)};
+        VinRegistry registry = new VinRegistry();
+        Map<Integer, VehicleSimModel> vehicles = new HashMap<Integer, VehicleSimModel>();
+        Map<Integer, VehicleSpec> issued = new HashMap<Integer, VehicleSpec>();
+        List<Integer> live = new ArrayList<Integer>();
+
+        for (int step = 0; step < STEPS; step++) {
+            int action = random.nextInt(10);
+            if (action < 5) {
+                VehicleSimModel vehicle = mockVehicle(specs[random.nextInt(specs.length)]);
+                int vin = registry.register(vehicle);
+                assertFalse(issued.containsKey(vin) && vehicles.containsKey(vin));
+                vehicles.put(vin, vehicle);
+                issued.put(vin, vehicle.getSpec());
+                live.add(vin);
+            } else if (action < 6) {
+                VehicleSimModel vehicle = mockVehicle(specs[random.nextInt(specs.length)]);
+                int vin = random.nextInt(3000);
+                boolean free = !vehicles.containsKey(vin);
+                assertEquals(free, registry.registerWithExistingVIN(vehicle, vin));
+                if (free) {
+                    vehicles.put(vin, vehicle);
+                    issued.put(vin, vehicle.getSpec());
+                    live.add(vin);
+                }
+            } else if (!live.isEmpty()) {
+                // mostly retire the oldest vehicles, as in a simulation
+                int k = (action < 9) ? random.nextInt(Math.min(live.size(), 3)) : random.nextInt(live.size());
+                int vin = live.remove(k);
+                registry.unregister(vin);
+                vehicles.remove(vin);
+            }
+            assertEquals(vehicles.size(), registry.getNumOfVehicles());
+            if (step % 97 == 0) {
+                checkQueries(registry, vehicles, issued);
+            }
+        }
+        checkQueries(registry, vehicles, issued);
+    }
+
+    @Test
+    public void testRecordsOutliveRetirement() throws Exception {
+        VinRegistry registry = new VinRegistry();
+        VehicleSpec spec = mock(VehicleSpec.class);
+        VehicleSimModel vehicle = mockVehicle(spec);
+        int vin = registry.register(vehicle);
+        assertEquals(1000, vin);
+        registry.unregister(vin);
+        assertNull(registry.getVehicle(vin));
+        assertTrue(registry.isIssued(vin));
+        assertSame(spec, registry.getVehicleSpec(vin));
+        assertFalse(registry.isIssued(vin + 1));
+        assertNull(registry.getVehicleSpec(vin + 1));
+        assertNull(registry.getSpawnPoint(vin + 1));
+        assertNull(registry.getDestRoad(vin + 1));
+    }
+
+    @Test
+    public void testFarVINsDoNotGrowTheArrays() throws Exception {
+        VinRegistry registry = new VinRegistry();
+        VehicleSpec spec = mock(VehicleSpec.class);
+        VehicleSpec proxySpec = mock(VehicleSpec.class);
+        VehicleSimModel vehicle = mockVehicle(spec);
+        int vin = registry.register(vehicle);
+        // a proxy vehicle far above, and one far below, the issued VINs
+        VehicleSimModel high = mockVehicle(proxySpec);
+        VehicleSimModel low = mockVehicle(proxySpec);
+        assertTrue(registry.registerWithExistingVIN(high, 2000000000));
+        assertTrue(registry.registerWithExistingVIN(low, 0));
+        assertFalse(registry.registerWithExistingVIN(mockVehicle(proxySpec), 2000000000));
+        assertEquals(3, registry.getNumOfVehicles());
+        assertSame(vehicle, registry.getVehicle(vin));
+        assertSame(high, registry.getVehicle(2000000000));
+        assertSame(low, registry.getVehicle(0));
+        assertSame(proxySpec, registry.getVehicleSpec(2000000000));
+        assertSame(proxySpec, registry.getVehicleSpec(0));
+        assertFalse(registry.isIssued(1999999999));
+
+        // the next VIN follows the proxy VIN
+        VehicleSimModel next = mockVehicle(spec);
+        assertEquals(2000000001, registry.register(next));
+        registry.unregister(2000000000);
+        registry.unregister(0);
+        assertNull(registry.getVehicle(2000000000));
+        assertTrue(registry.isIssued(2000000000));
+        assertSame(vehicle, registry.getVehicle(vin));
+        assertSame(next, registry.getVehicle(2000000001));
+        assertSame(spec, registry.getVehicleSpec(2000000001));
+        assertEquals(2, registry.getNumOfVehicles());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testCannotUnregisterTwice() throws Exception {
+        VinRegistry registry = new VinRegistry();
+        int vin = registry.register(mockVehicle(mock(VehicleSpec.class)));
+        registry.unregister(vin);
+        registry.unregister(vin);
+    }
+
+    /**
+     * Check every query of the registry against the maps.
+     */
+    private void checkQueries(VinRegistry registry, Map<Integer, VehicleSimModel> vehicles,
+                              Map<Integer, VehicleSpec> issued) {
+        for (int vin = -5; vin < 3000 + STEPS; vin++) {
+            assertSame(vehicles.get(vin), registry.getVehicle(vin));
+            assertEquals(issued.containsKey(vin), registry.isIssued(vin));
+            assertSame(issued.get(vin), registry.getVehicleSpec(vin));
+        }
+    }
+
+    /**
+     * Make a vehicle without a driver.
+     */
+    private VehicleSimModel mockVehicle(VehicleSpec spec) {
+        VehicleSimModel vehicle = mock(VehicleSimModel.class);
+        when(vehicle.getSpec()).thenReturn(spec);
+        when(vehicle.getVIN()).thenReturn(-1);
+        return vehicle;
+    }
+}